@@ -18,14 +18,14 @@ package net.rrm.ehour.audit.aspect;
 
 import net.rrm.ehour.audit.annot.Auditable;
 import net.rrm.ehour.audit.annot.NonAuditable;
-import net.rrm.ehour.audit.service.AuditService;
+import net.rrm.ehour.audit.service.AuditWriter;
 import net.rrm.ehour.config.EhourConfig;
-import net.rrm.ehour.config.service.ConfigurationService;
 import net.rrm.ehour.domain.Audit;
 import net.rrm.ehour.domain.AuditActionType;
 import net.rrm.ehour.domain.AuditType;
 import net.rrm.ehour.domain.User;
 import net.rrm.ehour.ui.common.session.EhourWebSession;
+import org.apache.wicket.Session;
 import org.apache.wicket.core.request.handler.IPageRequestHandler;
 import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.cycle.PageRequestHandlerTracker;
@@ -34,24 +34,35 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Auditable Aspect
+ * <p/>
+ * Everything that can be known about an advised method without its arguments is resolved on the first call
+ * and kept per method, so a call that isn't audited costs a map lookup and a look at the configured audit type.
+ * The user and the parameters are only looked up for calls that are audited.
  */
 @Aspect
 @Service
 public class AuditAspect {
+    static final int MAX_PARAMETERS_LENGTH = 1024;
+
     @Autowired
-    private AuditService auditService;
+    private AuditWriter auditWriter;
 
     @Autowired
-    private ConfigurationService configurationService;
+    private EhourConfig ehourConfig;
+
+    private final ConcurrentMap<Method, AuditedMethod> auditedMethods = new ConcurrentHashMap<Method, AuditedMethod>();
 
     @Pointcut("execution(public * net.rrm.ehour.*.service.*Service*.get*(..)) && " +
             "!@annotation(net.rrm.ehour.audit.annot.Auditable) && " +
@@ -127,78 +138,57 @@ public class AuditAspect {
      * @throws Throwable
      */
     private Object doAudit(ProceedingJoinPoint pjp, AuditActionType auditActionType) throws Throwable {
-        Object returnObject;
+        AuditedMethod auditedMethod = getAuditedMethod(pjp, auditActionType);
 
-        boolean isAuditable = isAuditable(pjp) && isAuditEnabled(auditActionType);
+        if (!auditedMethod.isAudited(ehourConfig.getAuditType())) {
+            return pjp.proceed();
+        }
+
+        Object returnObject;
 
         User user = getUser();
 
         try {
             returnObject = pjp.proceed();
         } catch (Exception t) {
-            if (isAuditable) {
-                auditService.doAudit(createAudit(user, Boolean.FALSE, auditActionType, pjp));
-            }
+            auditWriter.write(createAudit(user, Boolean.FALSE, auditedMethod, pjp));
 
             throw t;
         }
 
-        if (isAuditable) {
-            auditService.doAudit(createAudit(user, Boolean.TRUE, auditActionType, pjp));
-        }
+        auditWriter.write(createAudit(user, Boolean.TRUE, auditedMethod, pjp));
 
         return returnObject;
     }
 
     /**
-     * Is audit type enabled
-     *
-     * @param actionType
-     * @return
+     * The audit metadata of the advised method, resolved on the first call.
+     * A method is only matched by one of the advises so its action type doesn't change between calls.
      */
-    private boolean isAuditEnabled(AuditActionType actionType) {
-        EhourConfig config = configurationService.getConfiguration();
+    private AuditedMethod getAuditedMethod(ProceedingJoinPoint pjp, AuditActionType auditActionType) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
 
-        if (config.getAuditType() == AuditType.NONE) {
-            return false;
-        }
+        AuditedMethod auditedMethod = auditedMethods.get(method);
 
-        if (config.getAuditType() == AuditType.WRITE &&
-                actionType.getAuditType() == config.getAuditType()) {
-            return true;
-        }
-
-        return config.getAuditType() == AuditType.ALL;
+        if (auditedMethod == null) {
+            auditedMethod = new AuditedMethod(method, pjp.getSignature().toShortString(), auditActionType);
 
-    }
+            AuditedMethod existing = auditedMethods.putIfAbsent(method, auditedMethod);
 
-    /**
-     * Check if type is annotated with NonAuditable annotation
-     *
-     * @param pjp
-     * @return
-     */
-    private boolean isAuditable(ProceedingJoinPoint pjp) {
-        Annotation[] annotations = pjp.getSignature().getDeclaringType().getAnnotations();
-
-        boolean nonAuditable = false;
-
-        for (Annotation annotation : annotations) {
-            nonAuditable = annotation.annotationType() == NonAuditable.class;
-
-            if (nonAuditable) {
-                break;
+            if (existing != null) {
+                auditedMethod = existing;
             }
         }
 
-        return !nonAuditable;
+        return auditedMethod;
     }
 
     private User getUser() {
         User user;
 
         try {
-            user = EhourWebSession.getUser();
+            // calls from outside a request, e.g. scheduled jobs, have no session to take the user from
+            user = Session.exists() ? EhourWebSession.getUser() : null;
         } catch (Exception t) {
             user = null;
         }
@@ -206,8 +196,8 @@ public class AuditAspect {
         return user;
     }
 
-    private Audit createAudit(User user, Boolean success, AuditActionType auditActionType, ProceedingJoinPoint pjp) {
-        String parameters = getAuditParameters(pjp);
+    private Audit createAudit(User user, Boolean success, AuditedMethod auditedMethod, ProceedingJoinPoint pjp) {
+        String parameters = auditedMethod.renderParameters(pjp.getArgs());
 
         String page = null;
 
@@ -229,52 +219,114 @@ public class AuditAspect {
                 .setUserFullName(user != null ? user.getFullName() : null)
                 .setDate(new Date())
                 .setSuccess(success)
-                .setAction(pjp.getSignature().toShortString())
-                .setAuditActionType(auditActionType)
+                .setAction(auditedMethod.action)
+                .setAuditActionType(auditedMethod.actionType)
                 .setParameters(parameters)
                 .setPage(page)
                 ;
     }
 
     /**
-     * Get parameters of advised method
-     *
-     * @param pjp
-     * @return
+     * @param auditWriter the auditWriter to set
+     */
+    public void setAuditWriter(AuditWriter auditWriter) {
+        this.auditWriter = auditWriter;
+    }
+
+    /**
+     * @param ehourConfig the ehourConfig to set
      */
-    private String getAuditParameters(ProceedingJoinPoint pjp) {
-        StringBuilder parameters = new StringBuilder();
+    public void setEhourConfig(EhourConfig ehourConfig) {
+        this.ehourConfig = ehourConfig;
+    }
 
-        int i = 0;
+    /**
+     * How an argument is written in the audit parameters, decided on the declared type of the parameter
+     */
+    enum ParameterRenderer {
+        CALENDAR {
+            @Override
+            void render(Object argument, StringBuilder parameters) {
+                parameters.append(((Calendar) argument).getTime().toString());
+            }
+        },
+        TO_STRING {
+            @Override
+            void render(Object argument, StringBuilder parameters) {
+                parameters.append(argument.toString());
+            }
+        },
+        // declared as a supertype of Calendar, e.g. Object, so only the argument itself can tell
+        RUNTIME_TYPE {
+            @Override
+            void render(Object argument, StringBuilder parameters) {
+                (argument instanceof Calendar ? CALENDAR : TO_STRING).render(argument, parameters);
+            }
+        };
 
-        for (Object object : pjp.getArgs()) {
-            parameters.append(i++).append(":");
+        abstract void render(Object argument, StringBuilder parameters);
 
-            if (object == null) {
-                parameters.append("null");
-            } else if (object instanceof Calendar) {
-                parameters.append(((Calendar) object).getTime().toString());
+        static ParameterRenderer forType(Class<?> type) {
+            if (Calendar.class.isAssignableFrom(type)) {
+                return CALENDAR;
+            } else if (type.isAssignableFrom(Calendar.class)) {
+                return RUNTIME_TYPE;
             } else {
-                parameters.append(object.toString());
+                return TO_STRING;
             }
         }
-
-
-        return parameters.length() > 1024 ? parameters.substring(0, 1023) : parameters.toString();
     }
 
-
     /**
-     * @param auditService the auditService to set
+     * Audit metadata of an advised method
      */
-    public void setAuditService(AuditService auditService) {
-        this.auditService = auditService;
-    }
+    static final class AuditedMethod {
+        final boolean auditable;
+        final String action;
+        final AuditActionType actionType;
+        final ParameterRenderer[] parameterRenderers;
+
+        AuditedMethod(Method method, String action, AuditActionType actionType) {
+            this.auditable = !method.getDeclaringClass().isAnnotationPresent(NonAuditable.class);
+            this.action = action;
+            this.actionType = actionType;
+
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.parameterRenderers = new ParameterRenderer[parameterTypes.length];
+
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterRenderers[i] = ParameterRenderer.forType(parameterTypes[i]);
+            }
+        }
 
-    /**
-     * @param configurationService the configurationService to set
-     */
-    public void setConfigurationService(ConfigurationService configurationService) {
-        this.configurationService = configurationService;
+        boolean isAudited(AuditType auditType) {
+            if (!auditable) {
+                return false;
+            }
+
+            return auditType == AuditType.ALL ||
+                    (auditType == AuditType.WRITE && actionType.getAuditType() == AuditType.WRITE);
+        }
+
+        /**
+         * Parameters of a call, rendering stops once the audit's limit of 1024 characters is passed
+         */
+        String renderParameters(Object[] arguments) {
+            StringBuilder parameters = new StringBuilder();
+
+            for (int i = 0; i < arguments.length && parameters.length() <= MAX_PARAMETERS_LENGTH; i++) {
+                parameters.append(i).append(":");
+
+                Object argument = arguments[i];
+
+                if (argument == null) {
+                    parameters.append("null");
+                } else {
+                    parameterRenderers[i].render(argument, parameters);
+                }
+            }
+
+            return parameters.length() > MAX_PARAMETERS_LENGTH ? parameters.substring(0, MAX_PARAMETERS_LENGTH - 1) : parameters.toString();
+        }
     }
 }
@@ -17,6 +17,10 @@
 package net.rrm.ehour.audit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
 
 import javax.annotation.Resource;
 
@@ -125,4 +129,32 @@ public class AuditAspectTest
 		assertEquals(AuditActionType.READ, ((MockAudit)auditService).getAudit().getAuditActionType());
 	}
 
+	@Test
+	public void shouldRenderCalendarParametersAsDates()
+	{
+		Calendar date = new GregorianCalendar(2015, Calendar.MARCH, 1);
+
+		mockService.getWithParameters(date, date, null);
+
+		String expected = "0:" + date.getTime() + "1:" + date.getTime() + "2:null";
+		assertEquals(expected, ((MockAudit)auditService).getAudit().getParameters());
+	}
+
+	@Test
+	public void shouldTruncateLongParameters()
+	{
+		StringBuilder text = new StringBuilder();
+
+		for (int i = 0; i < 2000; i++)
+		{
+			text.append('x');
+		}
+
+		mockService.getWithParameters(null, text.toString(), text.toString());
+
+		String parameters = ((MockAudit)auditService).getAudit().getParameters();
+		assertEquals(1023, parameters.length());
+		assertTrue(parameters.startsWith("0:null1:xxx"));
+	}
+
 }
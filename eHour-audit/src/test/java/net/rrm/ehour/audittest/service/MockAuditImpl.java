@@ -16,10 +16,12 @@
 
 package net.rrm.ehour.audittest.service;
 
+import java.util.Date;
 import java.util.List;
 
 import net.rrm.ehour.audit.annot.NonAuditable;
 import net.rrm.ehour.audit.service.AuditService;
+import net.rrm.ehour.data.AuditKey;
 import net.rrm.ehour.data.AuditReportRequest;
 import net.rrm.ehour.domain.Audit;
 
@@ -43,11 +45,25 @@ public class MockAuditImpl implements AuditService, MockAudit
 		called++;
 	}
 
+	@NonAuditable
+	public void doAudit(List<Audit> audits)
+	{
+		for (Audit audit : audits)
+		{
+			doAudit(audit);
+		}
+	}
+
     @Override
     public List<Audit> findAudits(AuditReportRequest request, Integer offset, Integer max) {
         return null;
     }
 
+    @Override
+    public List<Audit> findAudits(AuditReportRequest request, AuditKey from, AuditKey upTo, int skip, int max, boolean reversed) {
+        return null;
+    }
+
     @NonAuditable
 	public List<Audit> findAudits(AuditReportRequest request)
 	{
@@ -58,6 +74,41 @@ public class MockAuditImpl implements AuditService, MockAudit
 	{
 		return null;
 	}
+
+    @Override
+    public Number getAuditCount(AuditReportRequest request, AuditKey upTo) {
+        return null;
+    }
+
+    @Override
+    public AuditKey findLastAuditKey(AuditReportRequest request) {
+        return null;
+    }
+
+    @Override
+    public Date getOldestAuditDate() {
+        return null;
+    }
+
+    @Override
+    public int deleteAuditsBefore(Date date) {
+        return 0;
+    }
+
+    @Override
+    public int getTokenIndexStart() {
+        return 0;
+    }
+
+    @Override
+    public Integer indexTokensBefore(int auditId, int max) {
+        return null;
+    }
+
+    @Override
+    public void useTokenIndexFrom(int auditId) {
+    }
+
 	public int getCalled()
 	{
 		return called;
@@ -21,6 +21,8 @@ import net.rrm.ehour.audit.annot.NonAuditable;
 import net.rrm.ehour.domain.AuditActionType;
 
 import org.springframework.stereotype.Service;
+
+import java.util.Calendar;
 
 
 @Service("mockService")
@@ -58,4 +60,9 @@ public class MockService
 		
 	}	
 
+	public void getWithParameters(Calendar date, Object value, String text)
+	{
+		
+	}
+
 }
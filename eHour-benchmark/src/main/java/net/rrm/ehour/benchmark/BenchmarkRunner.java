@@ -0,0 +1,74 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Runs the benchmarks with the regular JMH command line options. Unless specified otherwise the results
+ * are written as JSON to benchmark-results/ehour-&lt;version&gt;.json so the results of releases can be compared.
+ */
+public final class BenchmarkRunner {
+    private static final String RESULT_DIR = "benchmark-results";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+                || commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+        ResultFormatType resultFormat = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON);
+        options.resultFormat(resultFormat);
+
+        if (!commandLineOptions.getResult().hasValue()) {
+            File result = new File(RESULT_DIR, String.format("ehour-%s.%s", readVersion(), resultFormat.toString().toLowerCase()));
+            result.getParentFile().mkdirs();
+
+            options.result(result.getPath());
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    private static String readVersion() throws IOException {
+        Properties properties = new Properties();
+
+        try (InputStream in = BenchmarkRunner.class.getResourceAsStream("/benchmark.properties")) {
+            properties.load(in);
+        }
+
+        return properties.getProperty("ehour.version", "unknown");
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.audit;
+
+import net.rrm.ehour.audit.aspect.AuditAspect;
+import net.rrm.ehour.audit.service.AuditWriter;
+import net.rrm.ehour.benchmark.service.AuditedBenchmarkService;
+import net.rrm.ehour.config.EhourConfigStub;
+import net.rrm.ehour.domain.Audit;
+import net.rrm.ehour.domain.AuditType;
+import net.rrm.ehour.domain.Customer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the audit aspect on a service call, compared to calling the service directly.
+ * With audit type WRITE the read is advised but not audited, the common case for service reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AuditAspectBenchmark {
+    @Param({"NONE", "WRITE", "ALL"})
+    private AuditType auditType;
+
+    private AuditedBenchmarkService service;
+    private AuditedBenchmarkService advisedService;
+    private Customer customer;
+
+    private volatile Audit lastAudit;
+
+    @Setup
+    public void setUp() {
+        EhourConfigStub config = new EhourConfigStub();
+        config.setAuditType(auditType);
+
+        AuditAspect aspect = new AuditAspect();
+        aspect.setEhourConfig(config);
+        aspect.setAuditWriter(new AuditWriter() {
+            @Override
+            public void write(Audit audit) {
+                lastAudit = audit;
+            }
+        });
+
+        service = new AuditedBenchmarkService();
+        customer = service.getCustomer(1);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(service);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        advisedService = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public Customer directRead() {
+        return service.getCustomer(1);
+    }
+
+    @Benchmark
+    public Customer advisedRead() {
+        return advisedService.getCustomer(1);
+    }
+
+    @Benchmark
+    public Customer advisedWrite() {
+        return advisedService.persistCustomer(customer);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.backup;
+
+import net.rrm.ehour.backup.domain.ParseSession;
+import net.rrm.ehour.backup.service.backup.BackupProgress;
+import net.rrm.ehour.backup.service.backup.DatabaseBackupService;
+import net.rrm.ehour.backup.service.restore.BackupFileUtil;
+import net.rrm.ehour.backup.service.restore.RestoreService;
+import net.rrm.ehour.benchmark.data.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the generated database to XML and restores that export. A restore replaces the complete
+ * database so it's measured as a single shot per iteration.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class BackupRestoreBenchmark {
+    private DatabaseBackupService backupService;
+    private RestoreService restoreService;
+
+    private byte[] backup;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase database = BenchmarkDatabase.get();
+
+        backupService = database.getBean(DatabaseBackupService.class);
+        restoreService = database.getBean(RestoreService.class);
+
+        backup = backupService.exportDatabase();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public byte[] exportDatabase() {
+        return backupService.exportDatabase();
+    }
+
+    /**
+     * The streaming export into a sink that drops the bytes, the difference with exportDatabase is the cost of holding the backup
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public BackupProgress streamDatabase() {
+        BackupProgress progress = new BackupProgress();
+
+        backupService.exportDatabase(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, progress);
+
+        return progress;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public ParseSession importDatabase(RestoreSession restoreSession) throws Exception {
+        restoreService.importDatabase(restoreSession.session);
+
+        return restoreSession.session;
+    }
+
+    /**
+     * The restore deletes its input file, so every invocation gets a fresh copy of the export
+     */
+    @State(Scope.Thread)
+    public static class RestoreSession {
+        private ParseSession session;
+
+        @Setup(Level.Invocation)
+        public void setUp(BackupRestoreBenchmark benchmark) throws Exception {
+            session = new ParseSession();
+            session.setFilename(BackupFileUtil.writeToTempFile(benchmark.backup));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.data;
+
+import net.rrm.ehour.config.PersistenceConfig;
+import net.rrm.ehour.persistence.customer.dao.CustomerDao;
+import net.rrm.ehour.persistence.dbvalidator.DerbyDbValidator;
+import net.rrm.ehour.persistence.project.dao.ProjectAssignmentDao;
+import net.rrm.ehour.persistence.project.dao.ProjectDao;
+import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
+import net.rrm.ehour.persistence.user.dao.UserDao;
+import net.rrm.ehour.persistence.user.dao.UserDepartmentDao;
+import net.rrm.ehour.report.service.AssignmentTotalService;
+import net.rrm.ehour.report.service.TimesheetRollupService;
+import org.apache.derby.jdbc.EmbeddedConnectionPoolDataSource;
+import org.apache.log4j.Logger;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory Derby database with the service layer on top of it, filled with a generated dataset.
+ * The database is created once per JVM, so once per JMH fork.
+ */
+public final class BenchmarkDatabase {
+    private static final Logger LOG = Logger.getLogger(BenchmarkDatabase.class);
+
+    private static final String[] CONTEXTS = {"context-benchmark.xml",
+            "context-dbconnectivity.xml",
+            "context-service-ehourconfig.xml",
+            "context-service-scanner.xml",
+            "context-service.xml"};
+
+    private static BenchmarkDatabase instance;
+
+    private final ClassPathXmlApplicationContext context;
+    private final TransactionTemplate readOnlyTransaction;
+    private final GeneratedData data;
+
+    private BenchmarkDatabase(DataSetSize size) throws Exception {
+        System.setProperty("EHOUR_TEST", "true");
+
+        // the configuration is read when the services are created, so the datamodel has to exist before the context starts
+        createDatamodel();
+
+        context = new ClassPathXmlApplicationContext(CONTEXTS);
+        context.registerShutdownHook();
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+
+        DataGenerator generator = new DataGenerator(getBean(UserDepartmentDao.class),
+                getBean(UserDao.class),
+                getBean(CustomerDao.class),
+                getBean(ProjectDao.class),
+                getBean(ProjectAssignmentDao.class),
+                getBean(TimesheetDao.class),
+                transactionManager);
+
+        data = generator.generate(size);
+
+        // the entries are written straight through the DAO, bring the derived tables in line
+        getBean(TimesheetRollupService.class).rebuild();
+        getBean(AssignmentTotalService.class).rebuild();
+
+        LOG.info("Benchmark database ready");
+    }
+
+    public static synchronized BenchmarkDatabase get() throws Exception {
+        if (instance == null) {
+            instance = new BenchmarkDatabase(DataSetSize.fromSystemProperties());
+        }
+
+        return instance;
+    }
+
+    private static void createDatamodel() throws Exception {
+        EmbeddedConnectionPoolDataSource dataSource = new EmbeddedConnectionPoolDataSource();
+        dataSource.setDatabaseName("memory:ehourDb");
+
+        new DerbyDbValidator(PersistenceConfig.DB_VERSION, dataSource).checkDatabaseState();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public GeneratedData getData() {
+        return data;
+    }
+
+    /**
+     * The report DAOs expect to be called from a transactional service
+     */
+    public <T> T inReadOnlyTransaction(TransactionCallback<T> callback) {
+        return readOnlyTransaction.execute(callback);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.data;
+
+import net.rrm.ehour.domain.*;
+import net.rrm.ehour.persistence.customer.dao.CustomerDao;
+import net.rrm.ehour.persistence.project.dao.ProjectAssignmentDao;
+import net.rrm.ehour.persistence.project.dao.ProjectDao;
+import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
+import net.rrm.ehour.persistence.user.dao.UserDao;
+import net.rrm.ehour.persistence.user.dao.UserDepartmentDao;
+import net.rrm.ehour.util.EhourConstants;
+import org.apache.log4j.Logger;
+import org.joda.time.LocalDate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the database with a synthetic dataset through the regular DAOs. The data is
+ * deterministic for a given size and seed so results of different runs can be compared.
+ */
+public class DataGenerator {
+    private static final Logger LOG = Logger.getLogger(DataGenerator.class);
+
+    public static final LocalDate FIRST_DAY = new LocalDate(2014, 1, 1);
+
+    private static final int BATCH_SIZE = 2000;
+
+    private final UserDepartmentDao userDepartmentDao;
+    private final UserDao userDao;
+    private final CustomerDao customerDao;
+    private final ProjectDao projectDao;
+    private final ProjectAssignmentDao projectAssignmentDao;
+    private final TimesheetDao timesheetDao;
+    private final TransactionTemplate transactionTemplate;
+
+    public DataGenerator(UserDepartmentDao userDepartmentDao, UserDao userDao, CustomerDao customerDao, ProjectDao projectDao,
+                         ProjectAssignmentDao projectAssignmentDao, TimesheetDao timesheetDao, PlatformTransactionManager transactionManager) {
+        this.userDepartmentDao = userDepartmentDao;
+        this.userDao = userDao;
+        this.customerDao = customerDao;
+        this.projectDao = projectDao;
+        this.projectAssignmentDao = projectAssignmentDao;
+        this.timesheetDao = timesheetDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public GeneratedData generate(final DataSetSize size) {
+        LOG.info("Generating " + size);
+
+        final Random random = new Random(size.getSeed());
+        final LocalDate lastDay = FIRST_DAY.plusDays(size.getDays() - 1);
+
+        final List<User> users = new ArrayList<>();
+        final List<Customer> customers = new ArrayList<>();
+        final List<Project> projects = new ArrayList<>();
+        final List<ProjectAssignment> assignments = new ArrayList<>();
+
+        transactionTemplate.execute(new TransactionCallback<Void>() {
+            @Override
+            public Void doInTransaction(TransactionStatus status) {
+                List<UserDepartment> departments = createDepartments(size);
+                users.addAll(createUsers(size, departments, random));
+                customers.addAll(createCustomers(size));
+                projects.addAll(createProjects(size, customers, random));
+                assignments.addAll(createAssignments(size, users, projects, lastDay, random));
+                return null;
+            }
+        });
+
+        int entries = createEntries(size, assignments, lastDay, random);
+
+        LOG.info(String.format("Generated %d users, %d projects, %d assignments and %d timesheet entries", users.size(), projects.size(), assignments.size(), entries));
+
+        return new GeneratedData(users, customers, projects, assignments, FIRST_DAY, lastDay, entries);
+    }
+
+    private List<UserDepartment> createDepartments(DataSetSize size) {
+        List<UserDepartment> departments = new ArrayList<>();
+
+        for (int i = 1; i <= size.getDepartments(); i++) {
+            departments.add(userDepartmentDao.persist(new UserDepartment(null, "Department " + i, "DEP" + i)));
+        }
+
+        return departments;
+    }
+
+    private List<User> createUsers(DataSetSize size, List<UserDepartment> departments, Random random) {
+        List<User> users = new ArrayList<>();
+
+        for (int i = 1; i <= size.getUsers(); i++) {
+            User user = new User("user" + i, "password");
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            user.setEmail("user" + i + "@ehour.local");
+            user.setActive(true);
+            user.addUserRole(UserRole.USER);
+
+            if (!departments.isEmpty()) {
+                user.addUserDepartment(departments.get(random.nextInt(departments.size())));
+            }
+
+            users.add(userDao.persist(user));
+        }
+
+        return users;
+    }
+
+    private List<Customer> createCustomers(DataSetSize size) {
+        List<Customer> customers = new ArrayList<>();
+
+        for (int i = 1; i <= size.getCustomers(); i++) {
+            customers.add(customerDao.persist(new Customer("CUST" + i, "Customer " + i, "Customer " + i, true)));
+        }
+
+        return customers;
+    }
+
+    private List<Project> createProjects(DataSetSize size, List<Customer> customers, Random random) {
+        List<Project> projects = new ArrayList<>();
+
+        for (int i = 1; i <= size.getProjects(); i++) {
+            Project project = new Project();
+            project.setProjectCode("PRJ" + i);
+            project.setName("Project " + i);
+            project.setCustomer(customers.get(random.nextInt(customers.size())));
+            project.setActive(true);
+            project.setBillable(true);
+
+            projects.add(projectDao.persist(project));
+        }
+
+        return projects;
+    }
+
+    private List<ProjectAssignment> createAssignments(DataSetSize size, List<User> users, List<Project> projects, LocalDate lastDay, Random random) {
+        List<ProjectAssignment> assignments = new ArrayList<>();
+
+        Date dateStart = FIRST_DAY.toDate();
+        Date dateEnd = lastDay.toDate();
+
+        for (User user : users) {
+            for (int i = 0; i < size.getAssignmentsPerUser(); i++) {
+                ProjectAssignment assignment = new ProjectAssignment(user, projects.get(random.nextInt(projects.size())), (float) random.nextInt(120));
+                assignment.setActive(true);
+                assignment.setRole("Consultant");
+
+                // mix in some flex assignments so the allotted hours code paths are exercised as well
+                if (assignments.size() % 5 == 4) {
+                    assignment.setAssignmentType(EhourConstants.ASSIGNMENT_TYPE_TIME_ALLOTTED_FLEX);
+                    assignment.setAllottedHours(1000000f);
+                } else {
+                    assignment.setAssignmentType(EhourConstants.ASSIGNMENT_TYPE_DATE);
+                    assignment.setDateStart(dateStart);
+                    assignment.setDateEnd(dateEnd);
+                }
+
+                assignments.add(projectAssignmentDao.persist(assignment));
+            }
+        }
+
+        return assignments;
+    }
+
+    private int createEntries(DataSetSize size, List<ProjectAssignment> assignments, LocalDate lastDay, Random random) {
+        if (assignments.isEmpty()) {
+            return 0;
+        }
+
+        // an assignment can only be booked once per day
+        int entriesPerDay = Math.min(size.getEntriesPerDay(), assignments.size());
+        Date updateDate = new Date();
+
+        List<TimesheetEntry> batch = new ArrayList<>(BATCH_SIZE);
+        List<TimesheetEntry> none = Collections.emptyList();
+
+        int next = 0;
+        int written = 0;
+
+        for (LocalDate day = FIRST_DAY; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            Date entryDate = day.toDate();
+
+            for (int i = 0; i < entriesPerDay; i++) {
+                ProjectAssignment assignment = assignments.get(next);
+                next = (next + 1) % assignments.size();
+
+                TimesheetEntry entry = new TimesheetEntry(new TimesheetEntryId(entryDate, assignment), (float) (random.nextInt(16) + 1) / 2);
+                entry.setUpdateDate(updateDate);
+                batch.add(entry);
+
+                if (batch.size() == BATCH_SIZE) {
+                    timesheetDao.writeBatch(batch, none, none);
+                    written += batch.size();
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            timesheetDao.writeBatch(batch, none, none);
+            written += batch.size();
+        }
+
+        return written;
+    }
+}
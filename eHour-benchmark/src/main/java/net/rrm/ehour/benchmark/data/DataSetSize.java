@@ -0,0 +1,92 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.data;
+
+/**
+ * Size of the generated dataset. The defaults match the old fill_db.pl script, every value can be
+ * overridden with a system property, ie. -Dehour.benchmark.users=1000
+ */
+public class DataSetSize {
+    private final int departments;
+    private final int users;
+    private final int customers;
+    private final int projects;
+    private final int assignmentsPerUser;
+    private final int entriesPerDay;
+    private final int days;
+    private final long seed;
+
+    public DataSetSize(int departments, int users, int customers, int projects, int assignmentsPerUser, int entriesPerDay, int days, long seed) {
+        this.departments = departments;
+        this.users = users;
+        this.customers = customers;
+        this.projects = projects;
+        this.assignmentsPerUser = assignmentsPerUser;
+        this.entriesPerDay = entriesPerDay;
+        this.days = days;
+        this.seed = seed;
+    }
+
+    public static DataSetSize fromSystemProperties() {
+        return new DataSetSize(Integer.getInteger("ehour.benchmark.departments", 20),
+                Integer.getInteger("ehour.benchmark.users", 100),
+                Integer.getInteger("ehour.benchmark.customers", 80),
+                Integer.getInteger("ehour.benchmark.projects", 250),
+                Integer.getInteger("ehour.benchmark.assignmentsPerUser", 5),
+                Integer.getInteger("ehour.benchmark.entriesPerDay", 200),
+                Integer.getInteger("ehour.benchmark.days", 730),
+                Long.getLong("ehour.benchmark.seed", 42));
+    }
+
+    public int getDepartments() {
+        return departments;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    public int getProjects() {
+        return projects;
+    }
+
+    public int getAssignmentsPerUser() {
+        return assignmentsPerUser;
+    }
+
+    public int getEntriesPerDay() {
+        return entriesPerDay;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d departments, %d users, %d customers, %d projects, %d assignments per user, %d entries per day for %d days (seed %d)",
+                departments, users, customers, projects, assignmentsPerUser, entriesPerDay, days, seed);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.data;
+
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.Customer;
+import net.rrm.ehour.domain.Project;
+import net.rrm.ehour.domain.ProjectAssignment;
+import net.rrm.ehour.domain.User;
+import org.joda.time.LocalDate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The entities written by the data generator
+ */
+public class GeneratedData {
+    private final List<User> users;
+    private final List<Customer> customers;
+    private final List<Project> projects;
+    private final List<ProjectAssignment> assignments;
+    private final LocalDate firstDay;
+    private final LocalDate lastDay;
+    private final int entries;
+
+    public GeneratedData(List<User> users, List<Customer> customers, List<Project> projects, List<ProjectAssignment> assignments,
+                         LocalDate firstDay, LocalDate lastDay, int entries) {
+        this.users = Collections.unmodifiableList(users);
+        this.customers = Collections.unmodifiableList(customers);
+        this.projects = Collections.unmodifiableList(projects);
+        this.assignments = Collections.unmodifiableList(assignments);
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.entries = entries;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    public List<Project> getProjects() {
+        return projects;
+    }
+
+    public List<ProjectAssignment> getAssignments() {
+        return assignments;
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    public LocalDate getLastDay() {
+        return lastDay;
+    }
+
+    /**
+     * Range of the given number of days starting at the first booked day
+     */
+    public DateRange getRange(int days) {
+        LocalDate end = firstDay.plusDays(days - 1);
+
+        return new DateRange(firstDay.toDate(), (end.isAfter(lastDay) ? lastDay : end).toDate());
+    }
+
+    public DateRange getFullRange() {
+        return new DateRange(firstDay.toDate(), lastDay.toDate());
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+}
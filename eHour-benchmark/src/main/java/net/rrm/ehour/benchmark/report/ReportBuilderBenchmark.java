@@ -0,0 +1,112 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.report;
+
+import net.rrm.ehour.report.criteria.ReportCriteria;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
+import net.rrm.ehour.report.reports.ReportData;
+import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.report.reports.element.LockableDate;
+import net.rrm.ehour.ui.report.detailed.DetailedReportModel;
+import net.rrm.ehour.ui.report.model.ReportBuilder;
+import net.rrm.ehour.ui.report.model.ReportNode;
+import net.rrm.ehour.ui.report.model.ReportNodeFactory;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the detailed report tree for a date sorted set of elements, spread over
+ * 50 customers, 500 projects, 2000 users and a year of days
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportBuilderBenchmark {
+    private static final int CUSTOMERS = 50;
+    private static final int PROJECTS_PER_CUSTOMER = 10;
+    private static final int USERS = 2000;
+    private static final int ASSIGNMENTS_PER_USER = 3;
+    private static final int DAYS = 365;
+
+    @Param({"10000", "100000", "1000000"})
+    private int elements;
+
+    private ReportData reportData;
+    private ReportNodeFactory<FlatReportElement> nodeFactory;
+
+    @Setup
+    public void setUp() {
+        UserSelectedCriteria criteria = new UserSelectedCriteria();
+        nodeFactory = new DetailedReportModel(new ReportCriteria(criteria)).getReportNodeFactory();
+
+        reportData = new ReportData(createElements(elements), criteria.getReportRange(), criteria);
+    }
+
+    @Benchmark
+    public List<ReportNode> createReport() {
+        return new ReportBuilder().createReport(reportData, nodeFactory);
+    }
+
+    private static List<FlatReportElement> createElements(int count) {
+        Random random = new Random(42);
+        LocalDate firstDay = new LocalDate(2014, 1, 1);
+
+        List<FlatReportElement> reportElements = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            // spread the elements evenly over the days, the report model hands them to the builder sorted on date
+            LocalDate day = firstDay.plusDays((int) ((long) i * DAYS / count));
+
+            int userId = random.nextInt(USERS);
+            int assignmentId = userId * ASSIGNMENTS_PER_USER + random.nextInt(ASSIGNMENTS_PER_USER);
+            int projectId = assignmentId % (CUSTOMERS * PROJECTS_PER_CUSTOMER);
+            int customerId = projectId / PROJECTS_PER_CUSTOMER;
+
+            FlatReportElement element = new FlatReportElement();
+            element.setDayDate(day.toDate());
+            element.setLockableDate(new LockableDate(day.toDate(), false));
+            element.setCustomerId(customerId);
+            element.setCustomerCode("C" + customerId);
+            element.setCustomerName("Customer " + customerId);
+            element.setProjectId(projectId);
+            element.setProjectCode("P" + projectId);
+            element.setProjectName("Project " + projectId);
+            element.setUserId(userId);
+            element.setUserFirstName("First" + userId);
+            element.setUserLastName("Last" + userId);
+            element.setAssignmentId(assignmentId);
+            element.setRole("Developer");
+            element.setRate(100);
+            element.setTotalHours(8);
+            element.setTotalTurnOver(800);
+            element.setDisplayOrder(i);
+            element.setComment("");
+
+            reportElements.add(element);
+        }
+
+        return reportElements;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.report;
+
+import net.rrm.ehour.benchmark.data.BenchmarkDatabase;
+import net.rrm.ehour.report.criteria.AggregateBy;
+import net.rrm.ehour.report.criteria.ReportCriteria;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
+import net.rrm.ehour.report.reports.ReportData;
+import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.report.service.AggregateReportService;
+import net.rrm.ehour.report.service.DetailedReportService;
+import net.rrm.ehour.ui.common.chart.SparseDateSeries;
+import net.rrm.ehour.ui.report.aggregate.AggregateReportChartGenerator;
+import net.rrm.ehour.ui.report.aggregate.ChartContext;
+import net.rrm.ehour.ui.report.detailed.ByMonth;
+import net.rrm.ehour.ui.report.detailed.ByQuarter;
+import net.rrm.ehour.ui.report.detailed.DetailedReportAggregator;
+import net.rrm.ehour.ui.report.detailed.DetailedReportChartGenerator;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.mock.MockServletContext;
+import org.openjdk.jmh.annotations.*;
+import scala.collection.immutable.List;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns a year of generated report data into the chart series of the detailed and aggregated reports
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportChartBenchmark {
+    private static final int DAYS = 365;
+
+    // aggregating by week needs the first day of the week from the web session
+    @Param({"DAY", "MONTH", "QUARTER"})
+    private AggregateBy aggregateBy;
+
+    private ReportData detailedReportData;
+    private ReportData aggregateReportData;
+    private MockApplication application;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase database = BenchmarkDatabase.get();
+
+        UserSelectedCriteria userSelectedCriteria = new UserSelectedCriteria();
+        userSelectedCriteria.setReportRange(database.getData().getRange(DAYS));
+        userSelectedCriteria.setAggregateBy(aggregateBy);
+
+        ReportCriteria criteria = new ReportCriteria(userSelectedCriteria);
+
+        detailedReportData = aggregate(database.getBean(DetailedReportService.class).getDetailedReportData(criteria));
+        aggregateReportData = database.getBean(AggregateReportService.class).getAggregateReportData(criteria);
+
+        // the aggregate chart looks up its titles in the Wicket resource bundles
+        application = new MockApplication();
+        application.setName("ehour-benchmark");
+        application.setServletContext(new MockServletContext(application, null));
+        application.initApplication();
+        application.getResourceSettings().setThrowExceptionOnMissingResource(false);
+    }
+
+    /**
+     * The detailed report aggregates the elements before they're handed to the chart, same as DetailedReportModel
+     */
+    @SuppressWarnings("unchecked")
+    private ReportData aggregate(ReportData reportData) {
+        java.util.List<FlatReportElement> elements = (java.util.List<FlatReportElement>) reportData.getReportElements();
+
+        switch (aggregateBy) {
+            case MONTH:
+                elements = DetailedReportAggregator.aggregate(elements, new ByMonth());
+                break;
+            case QUARTER:
+                elements = DetailedReportAggregator.aggregate(elements, new ByQuarter());
+                break;
+            default:
+                break;
+        }
+
+        return new ReportData(reportData.getLockedDays(), elements, reportData.getReportRange(), reportData.getCriteria());
+    }
+
+    @TearDown
+    public void tearDown() {
+        ThreadContext.detach();
+        application.internalDestroy();
+    }
+
+    @Benchmark
+    public List<SparseDateSeries> detailedHoursChart() {
+        return DetailedReportChartGenerator.generateHourBasedDetailedChartData(detailedReportData);
+    }
+
+    @Benchmark
+    public List<SparseDateSeries> detailedTurnoverChart() {
+        return DetailedReportChartGenerator.generateTurnoverBasedDetailedChartData(detailedReportData);
+    }
+
+    @Benchmark
+    public String aggregateUserChart() {
+        ThreadContext.setApplication(application);
+
+        return AggregateReportChartGenerator.generateUserReportChart(new ChartContext("chart", aggregateReportData, "\u20ac", true));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.report;
+
+import net.rrm.ehour.benchmark.data.BenchmarkDatabase;
+import net.rrm.ehour.benchmark.data.GeneratedData;
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.Project;
+import net.rrm.ehour.domain.User;
+import net.rrm.ehour.persistence.report.dao.DetailedReportDao;
+import net.rrm.ehour.persistence.report.dao.ReportAggregatedDao;
+import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
+import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.util.DomainUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries of the detailed and aggregated report DAOs on the generated dataset, for a month and a year of data
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportDaoBenchmark {
+    @Param({"31", "365"})
+    private int days;
+
+    private BenchmarkDatabase database;
+    private DetailedReportDao detailedReportDao;
+    private ReportAggregatedDao reportAggregatedDao;
+
+    private DateRange range;
+    private List<User> users;
+    private List<Integer> userIds;
+    private List<Integer> projectIds;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.get();
+        detailedReportDao = database.getBean(DetailedReportDao.class);
+        reportAggregatedDao = database.getBean(ReportAggregatedDao.class);
+
+        GeneratedData data = database.getData();
+        range = data.getRange(days);
+
+        // a tenth of the users and projects, roughly what a department or a customer report selects
+        users = data.getUsers().subList(0, Math.max(1, data.getUsers().size() / 10));
+        userIds = DomainUtil.getIdsFromDomainObjects(users);
+
+        List<Project> projects = data.getProjects().subList(0, Math.max(1, data.getProjects().size() / 10));
+        projectIds = DomainUtil.getIdsFromDomainObjects(projects);
+    }
+
+    @Benchmark
+    public List<FlatReportElement> hoursPerDay() {
+        return database.inReadOnlyTransaction(new TransactionCallback<List<FlatReportElement>>() {
+            @Override
+            public List<FlatReportElement> doInTransaction(TransactionStatus status) {
+                return detailedReportDao.getHoursPerDay(range);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<FlatReportElement> hoursPerDayForUsers() {
+        return database.inReadOnlyTransaction(new TransactionCallback<List<FlatReportElement>>() {
+            @Override
+            public List<FlatReportElement> doInTransaction(TransactionStatus status) {
+                return detailedReportDao.getHoursPerDayForUsers(userIds, range);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<FlatReportElement> hoursPerDayForProjects() {
+        return database.inReadOnlyTransaction(new TransactionCallback<List<FlatReportElement>>() {
+            @Override
+            public List<FlatReportElement> doInTransaction(TransactionStatus status) {
+                return detailedReportDao.getHoursPerDayForProjects(projectIds, range);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<AssignmentAggregateReportElement> cumulatedHoursPerAssignment() {
+        return database.inReadOnlyTransaction(new TransactionCallback<List<AssignmentAggregateReportElement>>() {
+            @Override
+            public List<AssignmentAggregateReportElement> doInTransaction(TransactionStatus status) {
+                return reportAggregatedDao.getCumulatedHoursPerAssignment(range);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<AssignmentAggregateReportElement> cumulatedHoursPerAssignmentForUsers() {
+        return database.inReadOnlyTransaction(new TransactionCallback<List<AssignmentAggregateReportElement>>() {
+            @Override
+            public List<AssignmentAggregateReportElement> doInTransaction(TransactionStatus status) {
+                return reportAggregatedDao.getCumulatedHoursPerAssignmentForUsers(users, range);
+            }
+        });
+    }
+}
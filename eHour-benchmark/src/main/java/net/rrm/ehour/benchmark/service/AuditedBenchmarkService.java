@@ -0,0 +1,34 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.service;
+
+import net.rrm.ehour.domain.Customer;
+
+/**
+ * Service advised by the audit aspect, lives in a service package so the aspect's pointcuts match it
+ */
+public class AuditedBenchmarkService {
+    private final Customer customer = new Customer(1, "ACME", "Acme Corporation");
+
+    public Customer getCustomer(Integer customerId) {
+        return customer;
+    }
+
+    public Customer persistCustomer(Customer customer) {
+        return customer;
+    }
+}
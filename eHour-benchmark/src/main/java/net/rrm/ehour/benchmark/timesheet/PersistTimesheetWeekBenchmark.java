@@ -0,0 +1,93 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.benchmark.timesheet;
+
+import net.rrm.ehour.benchmark.data.BenchmarkDatabase;
+import net.rrm.ehour.benchmark.data.GeneratedData;
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.*;
+import net.rrm.ehour.project.status.ProjectAssignmentStatus;
+import net.rrm.ehour.timesheet.service.IPersistTimesheet;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a full week of a user's timesheet, every invocation changes the hours of all entries
+ * so each save goes through validation and updates every row
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistTimesheetWeekBenchmark {
+    private IPersistTimesheet persistTimesheet;
+
+    private User user;
+    private List<ProjectAssignment> assignments;
+    private DateRange weekRange;
+    private LocalDate weekStart;
+
+    private int invocation;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase database = BenchmarkDatabase.get();
+        persistTimesheet = database.getBean(IPersistTimesheet.class);
+
+        GeneratedData data = database.getData();
+        user = data.getUsers().get(new Random(42).nextInt(data.getUsers().size()));
+
+        assignments = new ArrayList<>();
+
+        for (ProjectAssignment assignment : data.getAssignments()) {
+            if (assignment.getUser().getUserId().equals(user.getUserId())) {
+                assignments.add(assignment);
+            }
+        }
+
+        // a week halfway the generated data so the week has bookings to update
+        LocalDate middle = data.getFirstDay().plusDays(Days.daysBetween(data.getFirstDay(), data.getLastDay()).getDays() / 2);
+        weekStart = middle.withDayOfWeek(DateTimeConstants.MONDAY);
+        weekRange = new DateRange(weekStart.toDate(), weekStart.plusDays(6).toDate());
+    }
+
+    @Benchmark
+    public List<ProjectAssignmentStatus> persistTimesheetWeek() {
+        float hours = (invocation++ % 2 == 0) ? 4f : 8f;
+
+        List<TimesheetEntry> entries = new ArrayList<>(assignments.size() * 7);
+
+        for (ProjectAssignment assignment : assignments) {
+            for (int day = 0; day < 7; day++) {
+                entries.add(new TimesheetEntry(new TimesheetEntryId(weekStart.plusDays(day).toDate(), assignment), hours));
+            }
+        }
+
+        TimesheetComment comment = new TimesheetComment(new TimesheetCommentId(user.getUserId(), weekStart.toDate()), "");
+
+        return persistTimesheet.persistTimesheetWeek(entries, comment, weekRange, user);
+    }
+}
@@ -10,4 +10,9 @@ import java.util.Map;
  */
 public interface BackupRowProcessor extends Serializable {
     List<Map<String, Object>> processRows(List<Map<String, Object>> rows);
+
+    /**
+     * Process a single row, for backups which stream rows one at a time
+     */
+    Map<String, Object> processRow(Map<String, Object> row);
 }
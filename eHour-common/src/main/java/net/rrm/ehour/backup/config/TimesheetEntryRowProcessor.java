@@ -19,11 +19,19 @@ public class TimesheetEntryRowProcessor implements BackupRowProcessor
     {
         for (Map<String, Object> row : rows)
         {
-            if (!row.containsKey(UPDATE_DATE) || row.get(UPDATE_DATE) == null) {
-                row.put(UPDATE_DATE, row.get(ENTRY_DATE));
-            }
+            processRow(row);
         }
 
         return rows;
     }
+
+    @Override
+    public Map<String, Object> processRow(Map<String, Object> row)
+    {
+        if (!row.containsKey(UPDATE_DATE) || row.get(UPDATE_DATE) == null) {
+            row.put(UPDATE_DATE, row.get(ENTRY_DATE));
+        }
+
+        return row;
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.data;
+
+import net.rrm.ehour.domain.Audit;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Position of an audit record in the audit report's (date, auditId) order,
+ * used to seek to the next page instead of skipping over all previous rows
+ */
+public class AuditKey implements Serializable {
+    private static final long serialVersionUID = 2640785127347693815L;
+
+    private final Date date;
+    private final Integer auditId;
+
+    public AuditKey(Date date, Integer auditId) {
+        this.date = date;
+        this.auditId = auditId;
+    }
+
+    public static AuditKey of(Audit audit) {
+        return new AuditKey(audit.getDate(), audit.getAuditId());
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public Integer getAuditId() {
+        return auditId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof AuditKey)) {
+            return false;
+        }
+
+        AuditKey key = (AuditKey) other;
+
+        return new EqualsBuilder()
+                .append(date, key.date)
+                .append(auditId, key.auditId)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(date)
+                .append(auditId)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("date", date)
+                .append("auditId", auditId)
+                .toString();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.domain;
+
+import org.apache.commons.lang.builder.CompareToBuilder;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * Hours, number of entries and first and last booked day of an assignment, kept up to date
+ * by the timesheet write path so the assignment status doesn't have to go through all entries.
+ * Derived from TIMESHEET_ENTRY and not second level cached.
+ */
+@Entity
+@Table(name = "ASSIGNMENT_TOTAL")
+public class AssignmentTotal extends DomainObject<Integer, AssignmentTotal> {
+    private static final long serialVersionUID = -3160874221853371905L;
+
+    @Id
+    @Column(name = "ASSIGNMENT_ID")
+    private Integer assignmentId;
+
+    @Column(name = "HOURS")
+    private Float hours;
+
+    @Column(name = "ENTRY_COUNT", nullable = false)
+    private Integer entryCount;
+
+    @Column(name = "FIRST_ENTRY_DATE")
+    private Date firstEntryDate;
+
+    @Column(name = "LAST_ENTRY_DATE")
+    private Date lastEntryDate;
+
+    public AssignmentTotal() {
+    }
+
+    public AssignmentTotal(Integer assignmentId, Float hours, Integer entryCount, Date firstEntryDate, Date lastEntryDate) {
+        this.assignmentId = assignmentId;
+        this.hours = hours;
+        this.entryCount = entryCount;
+        this.firstEntryDate = firstEntryDate;
+        this.lastEntryDate = lastEntryDate;
+    }
+
+    public Integer getAssignmentId() {
+        return assignmentId;
+    }
+
+    public void setAssignmentId(Integer assignmentId) {
+        this.assignmentId = assignmentId;
+    }
+
+    public Float getHours() {
+        return hours;
+    }
+
+    public void setHours(Float hours) {
+        this.hours = hours;
+    }
+
+    public Integer getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(Integer entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    public Date getFirstEntryDate() {
+        return firstEntryDate;
+    }
+
+    public void setFirstEntryDate(Date firstEntryDate) {
+        this.firstEntryDate = firstEntryDate;
+    }
+
+    public Date getLastEntryDate() {
+        return lastEntryDate;
+    }
+
+    public void setLastEntryDate(Date lastEntryDate) {
+        this.lastEntryDate = lastEntryDate;
+    }
+
+    @Override
+    public Integer getPK() {
+        return assignmentId;
+    }
+
+    public int compareTo(AssignmentTotal object) {
+        return new CompareToBuilder()
+                .append(this.getAssignmentId(), object.getAssignmentId()).toComparison();
+    }
+
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("assignmentId", this.getAssignmentId())
+                .append("hours", this.getHours())
+                .append("entryCount", this.getEntryCount())
+                .append("firstEntryDate", this.getFirstEntryDate())
+                .append("lastEntryDate", this.getLastEntryDate())
+                .toString();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof AssignmentTotal))
+            return false;
+        AssignmentTotal castOther = (AssignmentTotal) other;
+        return new EqualsBuilder().append(getAssignmentId(), castOther.getAssignmentId()).isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(assignmentId).toHashCode();
+    }
+}
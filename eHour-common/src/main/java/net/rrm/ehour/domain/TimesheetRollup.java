@@ -0,0 +1,111 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package net.rrm.ehour.domain;
+
+import org.apache.commons.lang.builder.CompareToBuilder;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Hours booked on an assignment in a month, derived from TIMESHEET_ENTRY.
+ * Rows are maintained with bulk statements so they're not second level cached.
+ */
+@Entity
+@Table(name = "TIMESHEET_ROLLUP")
+public class TimesheetRollup extends DomainObject<TimesheetRollupId, TimesheetRollup> {
+    private static final long serialVersionUID = 5512348190239348210L;
+
+    @Id
+    private TimesheetRollupId rollupId;
+
+    @Column(name = "HOURS")
+    private Float hours;
+
+    @Column(name = "ENTRY_COUNT", nullable = false)
+    private Integer entryCount;
+
+    public TimesheetRollup() {
+    }
+
+    public TimesheetRollup(TimesheetRollupId rollupId, Float hours, Integer entryCount) {
+        this.rollupId = rollupId;
+        this.hours = hours;
+        this.entryCount = entryCount;
+    }
+
+    public TimesheetRollupId getRollupId() {
+        return rollupId;
+    }
+
+    public void setRollupId(TimesheetRollupId rollupId) {
+        this.rollupId = rollupId;
+    }
+
+    public Float getHours() {
+        return hours;
+    }
+
+    public void setHours(Float hours) {
+        this.hours = hours;
+    }
+
+    public Integer getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(Integer entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    @Override
+    public TimesheetRollupId getPK() {
+        return rollupId;
+    }
+
+    public int compareTo(TimesheetRollup object) {
+        return new CompareToBuilder()
+                .append(this.getRollupId(), object.getRollupId()).toComparison();
+    }
+
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("rollupId", this.getRollupId())
+                .append("hours", this.getHours())
+                .append("entryCount", this.getEntryCount())
+                .toString();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof TimesheetRollup))
+            return false;
+        TimesheetRollup castOther = (TimesheetRollup) other;
+        return new EqualsBuilder().append(getRollupId(), castOther.getRollupId()).isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(rollupId).toHashCode();
+    }
+}
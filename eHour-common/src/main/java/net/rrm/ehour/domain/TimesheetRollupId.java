@@ -0,0 +1,103 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package net.rrm.ehour.domain;
+
+import org.apache.commons.lang.builder.CompareToBuilder;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Date;
+
+@Embeddable
+public class TimesheetRollupId implements Serializable, Comparable<TimesheetRollupId> {
+    private static final long serialVersionUID = -2361870465029833410L;
+
+    @ManyToOne
+    @JoinColumn(name = "ASSIGNMENT_ID", nullable = false)
+    @Basic(fetch = FetchType.LAZY)
+    @NotNull
+    private ProjectAssignment projectAssignment;
+
+    /**
+     * First day of the month
+     */
+    @Column(name = "ROLLUP_MONTH", nullable = false)
+    @NotNull
+    private Date rollupMonth;
+
+    public TimesheetRollupId(ProjectAssignment projectAssignment, Date rollupMonth) {
+        this.projectAssignment = projectAssignment;
+        this.rollupMonth = rollupMonth;
+    }
+
+    public TimesheetRollupId() {
+    }
+
+    public ProjectAssignment getProjectAssignment() {
+        return projectAssignment;
+    }
+
+    public void setProjectAssignment(ProjectAssignment projectAssignment) {
+        this.projectAssignment = projectAssignment;
+    }
+
+    public Date getRollupMonth() {
+        return rollupMonth;
+    }
+
+    public void setRollupMonth(Date rollupMonth) {
+        this.rollupMonth = rollupMonth;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).append("rollupMonth", getRollupMonth())
+                .append("assignment", getProjectAssignment())
+                .toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if ((this == other)) {
+            return true;
+        }
+        if (!(other instanceof TimesheetRollupId)) {
+            return false;
+        }
+        TimesheetRollupId castOther = (TimesheetRollupId) other;
+        return new EqualsBuilder().append(this.getRollupMonth(), castOther.getRollupMonth())
+                .append(this.getProjectAssignment(), castOther.getProjectAssignment()).isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(getRollupMonth())
+                .append(getProjectAssignment()).toHashCode();
+    }
+
+    public int compareTo(TimesheetRollupId object) {
+        return new CompareToBuilder()
+                .append(this.getProjectAssignment(), object.getProjectAssignment())
+                .append(this.getRollupMonth(), object.getRollupMonth())
+                .toComparison();
+    }
+}
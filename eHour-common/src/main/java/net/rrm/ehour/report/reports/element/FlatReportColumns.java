@@ -0,0 +1,391 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.reports.element;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column oriented store of flat report elements. Ids are kept as ints, hours, turnover and rate as floats,
+ * dates as days since the epoch and all strings as an index in a shared dictionary. A report of a few
+ * hundred thousand rows takes a fraction of the memory of the same rows as FlatReportElement beans.
+ * <p/>
+ * asList() gives a read-only view that materializes an element on every get, so code written
+ * against List&lt;FlatReportElement&gt; keeps working.
+ */
+public class FlatReportColumns implements ReportElementSink<FlatReportElement>, Serializable {
+    private static final long serialVersionUID = 4210569380476581627L;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final byte HAS_LOCKABLE_DATE = 1;
+    private static final byte LOCKABLE_DATE_LOCKED = 1 << 1;
+    private static final byte EMPTY_ENTRY = 1 << 2;
+    private static final byte HAS_LOCKED = 1 << 3;
+    private static final byte LOCKED = 1 << 4;
+
+    private int size;
+
+    private int[] assignmentIds;
+    private int[] customerIds;
+    private int[] projectIds;
+    private int[] userIds;
+    private int[] displayOrders;
+    private int[] dayDates;
+
+    private float[] totalHours;
+    private float[] totalTurnOvers;
+    private float[] rates;
+
+    private int[] customerNames;
+    private int[] customerCodes;
+    private int[] projectNames;
+    private int[] projectCodes;
+    private int[] userFirstNames;
+    private int[] userLastNames;
+    private int[] roles;
+    private int[] comments;
+    private int[] entryDates;
+
+    private byte[] flags;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+    public FlatReportColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public FlatReportColumns(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    @Override
+    public void accept(FlatReportElement element) {
+        add(element);
+    }
+
+    public void add(FlatReportElement element) {
+        if (size == assignmentIds.length) {
+            allocate(size * 2);
+        }
+
+        int row = size++;
+
+        assignmentIds[row] = fromInteger(element.getAssignmentId());
+        customerIds[row] = fromInteger(element.getCustomerId());
+        projectIds[row] = fromInteger(element.getProjectId());
+        userIds[row] = fromInteger(element.getUserId());
+        displayOrders[row] = fromInteger(element.getDisplayOrder());
+        dayDates[row] = fromDate(element.getDayDate());
+
+        totalHours[row] = fromNumber(element.getTotalHours());
+        totalTurnOvers[row] = fromNumber(element.getTotalTurnOver());
+        rates[row] = fromNumber(element.getRate());
+
+        customerNames[row] = encode(element.getCustomerName());
+        customerCodes[row] = encode(element.getCustomerCode());
+        projectNames[row] = encode(element.getProjectName());
+        projectCodes[row] = encode(element.getProjectCode());
+        userFirstNames[row] = encode(element.getUserFirstName());
+        userLastNames[row] = encode(element.getUserLastName());
+        roles[row] = encode(element.getRole());
+        comments[row] = encode(element.getComment());
+        entryDates[row] = encode(element.getEntryDate());
+
+        flags[row] = toFlags(element);
+    }
+
+    public FlatReportElement get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        }
+
+        FlatReportElement element = new FlatReportElement();
+
+        element.setAssignmentId(toInteger(assignmentIds[row]));
+        element.setCustomerId(toInteger(customerIds[row]));
+        element.setProjectId(toInteger(projectIds[row]));
+        element.setUserId(toInteger(userIds[row]));
+        element.setDisplayOrder(toInteger(displayOrders[row]));
+
+        Date dayDate = toDate(dayDates[row]);
+        element.setDayDate(dayDate);
+
+        element.setTotalHours(toNumber(totalHours[row]));
+        element.setTotalTurnOver(toNumber(totalTurnOvers[row]));
+        element.setRate(toNumber(rates[row]));
+
+        element.setCustomerName(decode(customerNames[row]));
+        element.setCustomerCode(decode(customerCodes[row]));
+        element.setProjectName(decode(projectNames[row]));
+        element.setProjectCode(decode(projectCodes[row]));
+        element.setUserFirstName(decode(userFirstNames[row]));
+        element.setUserLastName(decode(userLastNames[row]));
+        element.setRole(decode(roles[row]));
+        element.setComment(decode(comments[row]));
+        element.setEntryDate(decode(entryDates[row]));
+
+        byte rowFlags = flags[row];
+
+        if ((rowFlags & HAS_LOCKABLE_DATE) != 0) {
+            element.setLockableDate(new LockableDate(dayDate, (rowFlags & LOCKABLE_DATE_LOCKED) != 0));
+        }
+
+        if ((rowFlags & HAS_LOCKED) != 0) {
+            element.setLocked((rowFlags & LOCKED) != 0);
+        }
+
+        element.setEmptyEntry((rowFlags & EMPTY_ENTRY) != 0);
+
+        return element;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of distinct strings over all string columns
+     */
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    /**
+     * Sort the rows on date, rows without a date first. Rows on the same date keep their order.
+     */
+    public void sortOnDate() {
+        long[] keys = new long[size];
+
+        for (int row = 0; row < size; row++) {
+            // the date in the upper half, the original row in the lower half keeps the sort stable
+            keys[row] = ((long) dayDates[row] << 32) | row;
+        }
+
+        Arrays.sort(keys);
+
+        int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) keys[i];
+        }
+
+        assignmentIds = reorder(assignmentIds, order);
+        customerIds = reorder(customerIds, order);
+        projectIds = reorder(projectIds, order);
+        userIds = reorder(userIds, order);
+        displayOrders = reorder(displayOrders, order);
+        dayDates = reorder(dayDates, order);
+        totalHours = reorder(totalHours, order);
+        totalTurnOvers = reorder(totalTurnOvers, order);
+        rates = reorder(rates, order);
+        customerNames = reorder(customerNames, order);
+        customerCodes = reorder(customerCodes, order);
+        projectNames = reorder(projectNames, order);
+        projectCodes = reorder(projectCodes, order);
+        userFirstNames = reorder(userFirstNames, order);
+        userLastNames = reorder(userLastNames, order);
+        roles = reorder(roles, order);
+        comments = reorder(comments, order);
+        entryDates = reorder(entryDates, order);
+        flags = reorder(flags, order);
+    }
+
+    /**
+     * Read-only list view on the columns, each get creates a new element
+     */
+    public List<FlatReportElement> asList() {
+        return new ListView();
+    }
+
+    private void allocate(int capacity) {
+        assignmentIds = grow(assignmentIds, capacity);
+        customerIds = grow(customerIds, capacity);
+        projectIds = grow(projectIds, capacity);
+        userIds = grow(userIds, capacity);
+        displayOrders = grow(displayOrders, capacity);
+        dayDates = grow(dayDates, capacity);
+        totalHours = grow(totalHours, capacity);
+        totalTurnOvers = grow(totalTurnOvers, capacity);
+        rates = grow(rates, capacity);
+        customerNames = grow(customerNames, capacity);
+        customerCodes = grow(customerCodes, capacity);
+        projectNames = grow(projectNames, capacity);
+        projectCodes = grow(projectCodes, capacity);
+        userFirstNames = grow(userFirstNames, capacity);
+        userLastNames = grow(userLastNames, capacity);
+        roles = grow(roles, capacity);
+        comments = grow(comments, capacity);
+        entryDates = grow(entryDates, capacity);
+        flags = grow(flags, capacity);
+    }
+
+    private static int[] grow(int[] column, int capacity) {
+        return column == null ? new int[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private static float[] grow(float[] column, int capacity) {
+        return column == null ? new float[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private static byte[] grow(byte[] column, int capacity) {
+        return column == null ? new byte[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private int[] reorder(int[] column, int[] order) {
+        int[] sorted = new int[column.length];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = column[order[i]];
+        }
+
+        return sorted;
+    }
+
+    private float[] reorder(float[] column, int[] order) {
+        float[] sorted = new float[column.length];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = column[order[i]];
+        }
+
+        return sorted;
+    }
+
+    private byte[] reorder(byte[] column, int[] order) {
+        byte[] sorted = new byte[column.length];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = column[order[i]];
+        }
+
+        return sorted;
+    }
+
+    private int encode(String value) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+
+        Integer index = dictionaryIndex.get(value);
+
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.add(value);
+            dictionaryIndex.put(value, index);
+        }
+
+        return index;
+    }
+
+    private String decode(int index) {
+        return index == NULL_STRING ? null : dictionary.get(index);
+    }
+
+    private static byte toFlags(FlatReportElement element) {
+        byte rowFlags = 0;
+
+        LockableDate lockableDate = element.getLockableDate();
+
+        if (lockableDate != null) {
+            rowFlags |= HAS_LOCKABLE_DATE;
+
+            if (Boolean.TRUE.equals(lockableDate.isLocked())) {
+                rowFlags |= LOCKABLE_DATE_LOCKED;
+            }
+        }
+
+        if (element.isEmptyEntry()) {
+            rowFlags |= EMPTY_ENTRY;
+        }
+
+        if (element.getLocked() != null) {
+            rowFlags |= HAS_LOCKED;
+
+            if (element.getLocked()) {
+                rowFlags |= LOCKED;
+            }
+        }
+
+        return rowFlags;
+    }
+
+    private static int fromInteger(Integer value) {
+        return value == null ? NULL_INT : value;
+    }
+
+    private static Integer toInteger(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    private static float fromNumber(Number value) {
+        return value == null ? Float.NaN : value.floatValue();
+    }
+
+    private static Float toNumber(float value) {
+        return Float.isNaN(value) ? null : value;
+    }
+
+    private static int fromDate(Date date) {
+        if (date == null) {
+            return NULL_INT;
+        }
+
+        long millis = new LocalDate(date).toDateTimeAtStartOfDay(DateTimeZone.UTC).getMillis();
+        return (int) (millis / DateTimeConstants.MILLIS_PER_DAY);
+    }
+
+    private static Date toDate(int epochDay) {
+        if (epochDay == NULL_INT) {
+            return null;
+        }
+
+        return new LocalDate((long) epochDay * DateTimeConstants.MILLIS_PER_DAY, DateTimeZone.UTC).toDate();
+    }
+
+    private class ListView extends AbstractList<FlatReportElement> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = -3137380312578962390L;
+
+        @Override
+        public FlatReportElement get(int index) {
+            return FlatReportColumns.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.timesheet.dto;
+
+import java.util.Date;
+
+/**
+ * First and last booked day of an assignment
+ */
+
+public class AssignmentBookedRange {
+    private Integer assignmentId;
+    private Date firstEntryDate;
+    private Date lastEntryDate;
+
+    public AssignmentBookedRange() {
+
+    }
+
+    public AssignmentBookedRange(Integer assignmentId, Date firstEntryDate, Date lastEntryDate) {
+        this.assignmentId = assignmentId;
+        this.firstEntryDate = firstEntryDate;
+        this.lastEntryDate = lastEntryDate;
+    }
+
+    public Integer getAssignmentId() {
+        return assignmentId;
+    }
+
+    public Date getFirstEntryDate() {
+        return firstEntryDate;
+    }
+
+    public Date getLastEntryDate() {
+        return lastEntryDate;
+    }
+}
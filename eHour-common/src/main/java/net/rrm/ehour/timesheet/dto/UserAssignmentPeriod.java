@@ -0,0 +1,51 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.timesheet.dto;
+
+import java.util.Date;
+
+/**
+ * Start and end date of a bookable assignment of a user, null when the assignment is open ended
+ */
+
+public class UserAssignmentPeriod {
+    private Integer userId;
+    private Date dateStart;
+    private Date dateEnd;
+
+    public UserAssignmentPeriod() {
+
+    }
+
+    public UserAssignmentPeriod(Integer userId, Date dateStart, Date dateEnd) {
+        this.userId = userId;
+        this.dateStart = dateStart;
+        this.dateEnd = dateEnd;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Date getDateStart() {
+        return dateStart;
+    }
+
+    public Date getDateEnd() {
+        return dateEnd;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.reports.element;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FlatReportColumnsTest {
+    @Test
+    public void shouldRestoreElement() {
+        FlatReportColumns columns = new FlatReportColumns();
+
+        FlatReportElement element = createElement(1, new LocalDate(2014, 3, 4));
+        element.setLockableDate(new LockableDate(element.getDayDate(), true));
+        element.setLocked(false);
+        columns.add(element);
+
+        FlatReportElement restored = columns.get(0);
+
+        assertEquals(element, restored);
+        assertEquals("Customer", restored.getCustomerName());
+        assertEquals("CUST", restored.getCustomerCode());
+        assertEquals(Integer.valueOf(2), restored.getCustomerId());
+        assertEquals(Integer.valueOf(3), restored.getProjectId());
+        assertEquals(Integer.valueOf(4), restored.getUserId());
+        assertEquals("Last", restored.getUserLastName());
+        assertEquals("developer", restored.getRole());
+        assertEquals(50f, restored.getRate().floatValue(), 0.001f);
+        assertEquals(new LocalDate(2014, 3, 4).toDate(), restored.getDayDate());
+        assertTrue(restored.getLockableDate().isLocked());
+        assertFalse(restored.getLocked());
+        assertFalse(restored.isEmptyEntry());
+    }
+
+    @Test
+    public void shouldKeepNulls() {
+        FlatReportColumns columns = new FlatReportColumns();
+
+        FlatReportElement element = new FlatReportElement();
+        element.setTotalHours(null);
+        element.setEmptyEntry(true);
+        columns.add(element);
+
+        FlatReportElement restored = columns.get(0);
+
+        assertNull(restored.getAssignmentId());
+        assertNull(restored.getDayDate());
+        assertNull(restored.getTotalHours());
+        assertNull(restored.getCustomerName());
+        assertNull(restored.getLockableDate());
+        assertNull(restored.getLocked());
+        assertTrue(restored.isEmptyEntry());
+    }
+
+    @Test
+    public void shouldGrowAndShareStrings() {
+        FlatReportColumns columns = new FlatReportColumns(1);
+
+        for (int i = 0; i < 100; i++) {
+            columns.add(createElement(i, new LocalDate(2014, 1, 1).plusDays(i)));
+        }
+
+        assertEquals(100, columns.size());
+        assertEquals(Integer.valueOf(99), columns.get(99).getAssignmentId());
+        assertEquals(7, columns.getDictionarySize());
+    }
+
+    @Test
+    public void shouldSortOnDateWithoutDateFirst() {
+        FlatReportColumns columns = new FlatReportColumns();
+
+        columns.add(createElement(1, new LocalDate(2014, 3, 4)));
+        columns.add(createElement(2, new LocalDate(2014, 3, 1)));
+        columns.add(createElement(3, null));
+        columns.add(createElement(4, new LocalDate(2014, 3, 1)));
+
+        columns.sortOnDate();
+
+        List<FlatReportElement> elements = columns.asList();
+
+        assertEquals(Integer.valueOf(3), elements.get(0).getAssignmentId());
+        assertEquals(Integer.valueOf(2), elements.get(1).getAssignmentId());
+        assertEquals(Integer.valueOf(4), elements.get(2).getAssignmentId());
+        assertEquals(Integer.valueOf(1), elements.get(3).getAssignmentId());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotModifyView() {
+        FlatReportColumns columns = new FlatReportColumns();
+
+        columns.asList().add(new FlatReportElement());
+    }
+
+    private FlatReportElement createElement(int assignmentId, LocalDate date) {
+        FlatReportElement element = new FlatReportElement();
+        element.setAssignmentId(assignmentId);
+        element.setDayDate(date == null ? null : date.toDate());
+        element.setCustomerId(2);
+        element.setCustomerName("Customer");
+        element.setCustomerCode("CUST");
+        element.setProjectId(3);
+        element.setProjectName("Project");
+        element.setProjectCode("PRJ");
+        element.setUserId(4);
+        element.setUserFirstName("First");
+        element.setUserLastName("Last");
+        element.setRole("developer");
+        element.setRate(50);
+        element.setTotalHours(8f);
+        element.setTotalTurnOver(400f);
+        element.setDisplayOrder(1);
+        return element;
+    }
+}
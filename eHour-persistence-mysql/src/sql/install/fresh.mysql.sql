@@ -39,12 +39,24 @@ CREATE TABLE AUDIT (
                     CHARACTER SET latin1 NOT NULL,
   AUDIT_ACTION_TYPE VARCHAR(32),
   PRIMARY KEY (AUDIT_ID),
-  KEY IDX_AUDIT_DATE (AUDIT_DATE),
+  KEY IDX_AUDIT_DATE (AUDIT_DATE, AUDIT_ID),
   KEY IDX_AUDIT_USER (USER_FULLNAME),
   KEY IDX_AUDIT_ACTION_TYPE (AUDIT_ACTION_TYPE)
 )
   ENGINE =InnoDB
   DEFAULT CHARSET =utf8;
+
+DROP TABLE IF EXISTS AUDIT_TOKEN;
+CREATE TABLE AUDIT_TOKEN (
+  TOKEN_FIELD CHAR(1)     NOT NULL,
+  TOKEN       VARCHAR(64)
+              COLLATE utf8_bin NOT NULL,
+  AUDIT_ID    INT(11)     NOT NULL,
+  PRIMARY KEY (TOKEN_FIELD, TOKEN, AUDIT_ID),
+  KEY IDX_AUDIT_TOKEN_AUDIT (AUDIT_ID)
+)
+  ENGINE =InnoDB
+  DEFAULT CHARSET =utf8;
 --
 -- Table structure for table CONFIGURATION
 --
@@ -68,7 +80,7 @@ INSERT INTO CONFIGURATION
 VALUES ('initialized', 'false'), ('completeDayHours', '8'), ('showTurnOver', 'true'), ('localeLanguage', 'en'),
   ('currency', 'en-US'), ('localeCountry', 'en-US'), ('availableTranslations', 'en,nl,fr,it'),
   ('mailFrom', 'noreply@localhost.net'), ('smtpPort', '25'), ('mailSmtp', '127.0.0.1'), ('demoMode', 'false'),
-  ('version', '1.4.2');
+  ('version', '1.4.3');
 INSERT INTO CONFIGURATION (CONFIG_KEY, CONFIG_VALUE) VALUES ('reminderEnabled', 'false');
 INSERT INTO CONFIGURATION (CONFIG_KEY, CONFIG_VALUE) VALUES ('reminderBody',
                                                              'Hello $name,\r\n\r\nThis is an automated message.\r\n\r\nOur records show that you have not posted your weekly hours online. Please be sure to post your hours by 5:30PM Friday.\r\n\r\nThank You,\r\n\r\neHour');
@@ -302,6 +314,36 @@ CREATE TABLE TIMESHEET_ENTRY (
   ENGINE =InnoDB
   DEFAULT CHARSET =utf8;
 
+--
+-- Table structure for table TIMESHEET_ROLLUP
+--
+
+CREATE TABLE TIMESHEET_ROLLUP (
+  ASSIGNMENT_ID INT(11) NOT NULL,
+  ROLLUP_MONTH  DATE    NOT NULL,
+  HOURS         FLOAT(9, 3),
+  ENTRY_COUNT   INT(11) NOT NULL,
+  PRIMARY KEY (ASSIGNMENT_ID, ROLLUP_MONTH),
+  KEY IDX_ROLLUP_MONTH (ROLLUP_MONTH)
+)
+  ENGINE =InnoDB
+  DEFAULT CHARSET =utf8;
+
+--
+-- Table structure for table ASSIGNMENT_TOTAL
+--
+
+CREATE TABLE ASSIGNMENT_TOTAL (
+  ASSIGNMENT_ID    INT(11) NOT NULL,
+  HOURS            FLOAT(9, 3),
+  ENTRY_COUNT      INT(11) NOT NULL,
+  FIRST_ENTRY_DATE DATE,
+  LAST_ENTRY_DATE  DATE,
+  PRIMARY KEY (ASSIGNMENT_ID)
+)
+  ENGINE =InnoDB
+  DEFAULT CHARSET =utf8;
+
 
 --
 -- Table structure for table USER_ROLE
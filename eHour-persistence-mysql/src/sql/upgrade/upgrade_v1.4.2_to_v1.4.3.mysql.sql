@@ -0,0 +1,46 @@
+CREATE TABLE TIMESHEET_ROLLUP (
+  ASSIGNMENT_ID INT(11) NOT NULL,
+  ROLLUP_MONTH  DATE    NOT NULL,
+  HOURS         FLOAT(9, 3),
+  ENTRY_COUNT   INT(11) NOT NULL,
+  PRIMARY KEY (ASSIGNMENT_ID, ROLLUP_MONTH),
+  KEY IDX_ROLLUP_MONTH (ROLLUP_MONTH)
+)
+  ENGINE =InnoDB
+  DEFAULT CHARSET =utf8;
+
+INSERT INTO TIMESHEET_ROLLUP (ASSIGNMENT_ID, ROLLUP_MONTH, HOURS, ENTRY_COUNT)
+  SELECT ASSIGNMENT_ID, DATE_FORMAT(ENTRY_DATE, '%Y-%m-01'), SUM(HOURS), COUNT(*)
+  FROM TIMESHEET_ENTRY
+  GROUP BY ASSIGNMENT_ID, DATE_FORMAT(ENTRY_DATE, '%Y-%m-01');
+
+CREATE TABLE ASSIGNMENT_TOTAL (
+  ASSIGNMENT_ID    INT(11) NOT NULL,
+  HOURS            FLOAT(9, 3),
+  ENTRY_COUNT      INT(11) NOT NULL,
+  FIRST_ENTRY_DATE DATE,
+  LAST_ENTRY_DATE  DATE,
+  PRIMARY KEY (ASSIGNMENT_ID)
+)
+  ENGINE =InnoDB
+  DEFAULT CHARSET =utf8;
+
+INSERT INTO ASSIGNMENT_TOTAL (ASSIGNMENT_ID, HOURS, ENTRY_COUNT, FIRST_ENTRY_DATE, LAST_ENTRY_DATE)
+  SELECT ASSIGNMENT_ID, SUM(HOURS), COUNT(*), MIN(ENTRY_DATE), MAX(ENTRY_DATE)
+  FROM TIMESHEET_ENTRY
+  GROUP BY ASSIGNMENT_ID;
+
+ALTER TABLE AUDIT DROP INDEX IDX_AUDIT_DATE, ADD INDEX IDX_AUDIT_DATE (AUDIT_DATE, AUDIT_ID);
+
+CREATE TABLE AUDIT_TOKEN (
+  TOKEN_FIELD CHAR(1)     NOT NULL,
+  TOKEN       VARCHAR(64)
+              COLLATE utf8_bin NOT NULL,
+  AUDIT_ID    INT(11)     NOT NULL,
+  PRIMARY KEY (TOKEN_FIELD, TOKEN, AUDIT_ID),
+  KEY IDX_AUDIT_TOKEN_AUDIT (AUDIT_ID)
+)
+  ENGINE =InnoDB
+  DEFAULT CHARSET =utf8;
+
+UPDATE CONFIGURATION SET CONFIG_VALUE = '1.4.3' WHERE CONFIG_KEY = 'version';
@@ -11,9 +11,18 @@ CREATE TABLE AUDIT (
 	AUDIT_ACTION_TYPE TEXT,
     PRIMARY KEY  (AUDIT_ID)
 );
-CREATE INDEX IDX_AUDIT_DATE ON audit(AUDIT_DATE);
+CREATE INDEX IDX_AUDIT_DATE ON audit(AUDIT_DATE, AUDIT_ID);
 CREATE INDEX IDX_AUDIT_USER ON audit(USER_FULLNAME);
 CREATE INDEX IDX_AUDIT_ACTION_TYPE ON audit(AUDIT_ACTION_TYPE);
+
+DROP TABLE IF EXISTS AUDIT_TOKEN;
+CREATE TABLE AUDIT_TOKEN (
+	TOKEN_FIELD character(1) NOT NULL,
+	TOKEN VARCHAR(64) NOT NULL,
+	AUDIT_ID INTEGER NOT NULL,
+    PRIMARY KEY  (TOKEN_FIELD, TOKEN, AUDIT_ID)
+);
+CREATE INDEX IDX_AUDIT_TOKEN_AUDIT ON audit_token(AUDIT_ID);
 --
 -- Table structure for table CONFIGURATION
 --
@@ -34,7 +43,7 @@ INSERT INTO CONFIGURATION VALUES
 ('showTurnOver','true'), ('localeLanguage','en'), ('currency','en-US'),
 ('localeCountry','en-US'), ('availableTranslations','en,nl,fr,it'),
 ('mailFrom','noreply@localhost.net'), ('smtpPort','25'),
-('mailSmtp','127.0.0.1'), ('demoMode','false'), ('version', '1.4.2');
+('mailSmtp','127.0.0.1'), ('demoMode','false'), ('version', '1.4.3');
 INSERT INTO CONFIGURATION (CONFIG_KEY, CONFIG_VALUE) VALUES('reminderEnabled', 'false');
 INSERT INTO CONFIGURATION (CONFIG_KEY, CONFIG_VALUE) VALUES('reminderBody', 'Hello $name,\r\n\r\nThis is an automated message.\r\n\r\nOur records show that you have not posted your weekly hours online. Please be sure to post your hours by 5:30PM Friday.\r\n\r\nThank You,\r\n\r\neHour');
 INSERT INTO CONFIGURATION (CONFIG_KEY, CONFIG_VALUE) VALUES('reminderTime', '0 30 17 * * FRI');
@@ -230,6 +239,34 @@ CREATE TABLE TIMESHEET_ENTRY (
 );
 CREATE INDEX ASSIGNMENT_ID ON timesheet_entry (ASSIGNMENT_ID);
 
+--
+-- Table structure for table TIMESHEET_ROLLUP
+--
+
+DROP TABLE IF EXISTS TIMESHEET_ROLLUP;
+CREATE TABLE TIMESHEET_ROLLUP (
+  ASSIGNMENT_ID INTEGER NOT NULL,
+  ROLLUP_MONTH TIMESTAMP NOT NULL,
+  HOURS real,
+  ENTRY_COUNT INTEGER NOT NULL,
+  PRIMARY KEY  (ASSIGNMENT_ID,ROLLUP_MONTH)
+);
+CREATE INDEX IDX_ROLLUP_MONTH ON timesheet_rollup (ROLLUP_MONTH);
+
+--
+-- Table structure for table ASSIGNMENT_TOTAL
+--
+
+DROP TABLE IF EXISTS ASSIGNMENT_TOTAL;
+CREATE TABLE ASSIGNMENT_TOTAL (
+  ASSIGNMENT_ID INTEGER NOT NULL,
+  HOURS real,
+  ENTRY_COUNT INTEGER NOT NULL,
+  FIRST_ENTRY_DATE TIMESTAMP,
+  LAST_ENTRY_DATE TIMESTAMP,
+  PRIMARY KEY  (ASSIGNMENT_ID)
+);
+
 --
 -- Table structure for table USER_ROLE
 --
@@ -0,0 +1,40 @@
+CREATE TABLE TIMESHEET_ROLLUP (
+  ASSIGNMENT_ID INTEGER NOT NULL,
+  ROLLUP_MONTH TIMESTAMP NOT NULL,
+  HOURS real,
+  ENTRY_COUNT INTEGER NOT NULL,
+  PRIMARY KEY  (ASSIGNMENT_ID,ROLLUP_MONTH)
+);
+CREATE INDEX IDX_ROLLUP_MONTH ON timesheet_rollup (ROLLUP_MONTH);
+
+INSERT INTO TIMESHEET_ROLLUP (ASSIGNMENT_ID, ROLLUP_MONTH, HOURS, ENTRY_COUNT)
+  SELECT ASSIGNMENT_ID, DATE_TRUNC('month', ENTRY_DATE), SUM(HOURS), COUNT(*)
+  FROM TIMESHEET_ENTRY
+  GROUP BY ASSIGNMENT_ID, DATE_TRUNC('month', ENTRY_DATE);
+
+CREATE TABLE ASSIGNMENT_TOTAL (
+  ASSIGNMENT_ID INTEGER NOT NULL,
+  HOURS real,
+  ENTRY_COUNT INTEGER NOT NULL,
+  FIRST_ENTRY_DATE TIMESTAMP,
+  LAST_ENTRY_DATE TIMESTAMP,
+  PRIMARY KEY  (ASSIGNMENT_ID)
+);
+
+INSERT INTO ASSIGNMENT_TOTAL (ASSIGNMENT_ID, HOURS, ENTRY_COUNT, FIRST_ENTRY_DATE, LAST_ENTRY_DATE)
+  SELECT ASSIGNMENT_ID, SUM(HOURS), COUNT(*), MIN(ENTRY_DATE), MAX(ENTRY_DATE)
+  FROM TIMESHEET_ENTRY
+  GROUP BY ASSIGNMENT_ID;
+
+DROP INDEX IDX_AUDIT_DATE;
+CREATE INDEX IDX_AUDIT_DATE ON audit(AUDIT_DATE, AUDIT_ID);
+
+CREATE TABLE AUDIT_TOKEN (
+  TOKEN_FIELD character(1) NOT NULL,
+  TOKEN VARCHAR(64) NOT NULL,
+  AUDIT_ID INTEGER NOT NULL,
+  PRIMARY KEY  (TOKEN_FIELD, TOKEN, AUDIT_ID)
+);
+CREATE INDEX IDX_AUDIT_TOKEN_AUDIT ON audit_token (AUDIT_ID);
+
+UPDATE CONFIGURATION SET CONFIG_VALUE = '1.4.3' WHERE CONFIG_KEY = 'version';
@@ -30,36 +30,129 @@ import org.joda.time.DateTimeZone;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.orm.hibernate4.SessionFactoryUtils;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Currency;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static net.rrm.ehour.config.ConfigurationItem.*;
 
 /**
- * Config from database
+ * Config from database. All values are read from an in-memory snapshot of the CONFIGURATION table,
+ * the snapshot is replaced as a whole when the configuration is reloaded.
  */
 @Service("eHourConfig")
-public class EhourConfigJdbc extends DatabaseConfiguration implements EhourConfig {
+public class EhourConfigJdbc extends DatabaseConfiguration implements EhourConfig, ReloadableConfig {
     private static final Logger LOG = Logger.getLogger(EhourConfigJdbc.class);
 
-    private Boolean demoMode;
-    private String[] availableTranslations;
-    private Boolean initialized;
-    private AuditType auditType;
+    private static final String SELECT_ALL = "SELECT config_key, config_value FROM CONFIGURATION";
+
+    private final AtomicReference<EhourConfigSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong databaseReads = new AtomicLong();
 
     private String systemConfiguredTimezone = DateTimeZone.getDefault().getID();
 
     @Autowired
     public EhourConfigJdbc(SessionFactory sessionFactory) {
-        super(SessionFactoryUtils.getDataSource(sessionFactory), "CONFIGURATION", "config_key", "config_value");
+        this(SessionFactoryUtils.getDataSource(sessionFactory));
+    }
+
+    EhourConfigJdbc(DataSource dataSource) {
+        super(dataSource, "CONFIGURATION", "config_key", "config_value");
 
         setDelimiterParsingDisabled(true);
 
+        reloadNow();
+
         LOG.info("Configuration loaded from database: " + toString());
     }
 
+    @Override
+    public void reload() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    reloadNow();
+                }
+            });
+        } else {
+            reloadNow();
+        }
+    }
+
+    private void reloadNow() {
+        Map<String, String> values = readFromDatabase();
+
+        EhourConfigSnapshot current;
+        EhourConfigSnapshot reloaded;
+
+        do {
+            current = snapshot.get();
+            reloaded = new EhourConfigSnapshot(current == null ? 1 : current.getVersion() + 1, values);
+        } while (!snapshot.compareAndSet(current, reloaded));
+
+        LOG.debug("Configuration snapshot reloaded, now at version " + reloaded.getVersion());
+    }
+
+    private Map<String, String> readFromDatabase() {
+        databaseReads.incrementAndGet();
+
+        Map<String, String> values = new HashMap<>();
+
+        try (Connection connection = getDatasource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_ALL)) {
+
+            while (resultSet.next()) {
+                values.put(resultSet.getString(1), resultSet.getString(2));
+            }
+        } catch (SQLException e) {
+            LOG.error("Failed to read configuration from database", e);
+
+            EhourConfigSnapshot current = snapshot.get();
+            return current == null ? values : current.getValues();
+        }
+
+        return values;
+    }
+
+    @Override
+    public Object getProperty(String key) {
+        return snapshot.get().getValue(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return snapshot.get().containsKey(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return snapshot.get().isEmpty();
+    }
+
+    @Override
+    public long getVersion() {
+        return snapshot.get().getVersion();
+    }
+
+    @Override
+    public long getDatabaseReads() {
+        return databaseReads.get();
+    }
+
     @Override
     public TimeZone getTzAsTimeZone() {
         return EhourConfigUtil.getTzAsTimeZone(this);
@@ -95,11 +188,7 @@ public class EhourConfigJdbc extends DatabaseConfiguration implements EhourConfi
 
     @Override
     public String[] getAvailableTranslations() {
-        if (availableTranslations == null) {
-            availableTranslations = getString(AVAILABLE_TRANSLATIONS.getDbField(), "en,nl").split(",");
-        }
-
-        return availableTranslations;
+        return getString(AVAILABLE_TRANSLATIONS.getDbField(), "en,nl").split(",");
     }
 
     @Override
@@ -136,11 +225,7 @@ public class EhourConfigJdbc extends DatabaseConfiguration implements EhourConfi
 
     @Override
     public boolean isInDemoMode() {
-        if (demoMode == null) {
-            demoMode = this.getBoolean(DEMO_MODE.getDbField(), false);
-        }
-
-        return demoMode;
+        return this.getBoolean(DEMO_MODE.getDbField(), false);
     }
 
     @Override
@@ -150,11 +235,7 @@ public class EhourConfigJdbc extends DatabaseConfiguration implements EhourConfi
 
     @Override
     public boolean isInitialized() {
-        if (initialized == null) {
-            initialized = this.getBoolean(INITIALIZED.getDbField(), true);
-        }
-
-        return initialized;
+        return this.getBoolean(INITIALIZED.getDbField(), true);
     }
 
     @Override
@@ -179,11 +260,7 @@ public class EhourConfigJdbc extends DatabaseConfiguration implements EhourConfi
 
     @Override
     public AuditType getAuditType() {
-        if (auditType == null) {
-            auditType = AuditType.fromString(this.getString(AUDIT_TYPE.getDbField(), "WRITE"));
-        }
-
-        return auditType;
+        return AuditType.fromString(this.getString(AUDIT_TYPE.getDbField(), "WRITE"));
     }
 
     @Override
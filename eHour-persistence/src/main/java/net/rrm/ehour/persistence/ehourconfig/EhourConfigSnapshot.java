@@ -0,0 +1,55 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.persistence.ehourconfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable copy of the CONFIGURATION table at a given version.
+ * A new snapshot is created on every reload, existing snapshots are never modified.
+ */
+public final class EhourConfigSnapshot {
+    private final long version;
+    private final Map<String, String> values;
+
+    public EhourConfigSnapshot(long version, Map<String, String> values) {
+        this.version = version;
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getValue(String key) {
+        return values.get(key);
+    }
+
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+}
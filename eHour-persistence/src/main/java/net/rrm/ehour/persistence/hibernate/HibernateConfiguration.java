@@ -89,6 +89,10 @@ public class HibernateConfiguration {
         hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, EhCacheRegionFactory.class.getName());
         hibernateProperties.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
         hibernateProperties.setProperty(AvailableSettings.USE_QUERY_CACHE, "true");
+        // group the statements of a flush per table so they can be sent as JDBC batches
+        hibernateProperties.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        hibernateProperties.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        hibernateProperties.setProperty(AvailableSettings.ORDER_UPDATES, "true");
 
         addConnectionProvider(hibernateProperties, databaseConfig);
 
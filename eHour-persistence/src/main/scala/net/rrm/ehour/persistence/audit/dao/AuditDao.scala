@@ -1,8 +1,9 @@
 package net.rrm.ehour.persistence.audit.dao
 
 import java.util
+import java.util.Date
 
-import net.rrm.ehour.data.AuditReportRequest
+import net.rrm.ehour.data.{AuditKey, AuditReportRequest}
 import net.rrm.ehour.domain.Audit
 import net.rrm.ehour.persistence.dao.GenericDao
 
@@ -17,8 +18,62 @@ trait AuditDao extends GenericDao[Number, Audit] {
    */
   def findAudits(request: AuditReportRequest, offset: Int, max: Int): util.List[Audit]
 
+  /**
+   * Find audits for a request in (date, auditId) order by seeking past the key rather than skipping all rows before it,
+   * from the first audit when there's no key. Reversed finds the audits before the key, newest first, from upTo when
+   * there's no key. Audits after upTo are left out, null includes all audits.
+   */
+  def findAudits(request: AuditReportRequest, from: AuditKey, upTo: AuditKey, skip: Int, max: Int, reversed: Boolean): util.List[Audit]
+
   /**
    * Count audits for request
    */
   def count(request: AuditReportRequest): Number
+
+  /**
+   * Count audits for request up to and including the key
+   */
+  def count(request: AuditReportRequest, upTo: AuditKey): Number
+
+  /**
+   * Key of the last audit for the request in (date, auditId) order, null when there are none
+   */
+  def findLastAuditKey(request: AuditReportRequest): AuditKey
+
+  /**
+   * Insert audits in a single transaction and add them to the token index
+   */
+  def persistBatch(audits: util.List[Audit])
+
+  /**
+   * Lowest audit id in the token index, null when nothing is indexed yet
+   */
+  def findFirstIndexedAuditId: Integer
+
+  /**
+   * Highest audit id, null when there are no audits
+   */
+  def findLastAuditId: Integer
+
+  /**
+   * Add up to max audits with an id below the audit id to the token index, highest id first.
+   * Returns the lowest audit id indexed, null when there are no audits left below the id
+   */
+  def indexTokensBefore(auditId: Int, max: Int): Integer
+
+  /**
+   * Audits from this id on are in the token index. Searches fall back to the like alone for the audits below it,
+   * 0 once all audits are indexed. Until it's set nothing is assumed to be indexed
+   */
+  def useTokenIndexFrom(auditId: Int)
+
+  /**
+   * Date of the oldest audit, null when there are no audits
+   */
+  def findOldestAuditDate: Date
+
+  /**
+   * Delete all audits before the date and their tokens with a single statement each
+   */
+  def deleteAuditsBefore(date: Date): Int
 }
@@ -1,22 +1,35 @@
 package net.rrm.ehour.persistence.audit.dao
 
+import java.sql.{Connection, PreparedStatement, Statement, Timestamp, Types}
 import java.util
+import java.util.Date
 
-import net.rrm.ehour.data.{AuditReportRequest, DateRange}
+import net.rrm.ehour.data.{AuditKey, AuditReportRequest, DateRange}
 import net.rrm.ehour.domain.Audit
 import net.rrm.ehour.persistence.dao.AbstractGenericDaoHibernateImpl
 import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
 import org.apache.commons.lang.StringUtils
 import org.hibernate.Criteria
 import org.hibernate.criterion.{Order, Projections, Restrictions}
+import org.hibernate.dialect.MySQLDialect
+import org.hibernate.engine.spi.{SessionFactoryImplementor, SessionImplementor}
+import org.hibernate.id.PostInsertIdentifierGenerator
+import org.hibernate.jdbc.Work
+import org.hibernate.`type`.{StringType, Type}
 import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
+
+import scala.collection.JavaConversions._
+import scala.collection.mutable
 
 @Repository("auditDao")
 class AuditDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Number, Audit](classOf[Audit]) with AuditDao {
+  @volatile private var tokenIndexStart = Int.MaxValue
 
   override def findAudits(request: AuditReportRequest): util.List[Audit] = {
     val criteria = buildCriteria(request)
     criteria.addOrder(Order.asc("date"))
+    criteria.addOrder(Order.asc("auditId"))
 
     ExponentialBackoffRetryPolicy.retry(criteria.list.asInstanceOf[util.List[Audit]])
   }
@@ -26,25 +39,174 @@ class AuditDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Number, Audi
     criteria.setFirstResult(offset)
     criteria.setMaxResults(max)
     criteria.addOrder(Order.asc("date"))
+    criteria.addOrder(Order.asc("auditId"))
 
     ExponentialBackoffRetryPolicy.retry(criteria.list.asInstanceOf[util.List[Audit]])
   }
 
-  override def count(request: AuditReportRequest): Number = {
+  override def findAudits(request: AuditReportRequest, from: AuditKey, upTo: AuditKey, skip: Int, max: Int, reversed: Boolean): util.List[Audit] = {
+    val criteria = buildCriteria(request)
+    restrictUpTo(criteria, upTo)
+
+    if (from != null) {
+      val date = from.getDate
+      val auditId = from.getAuditId
+
+      // the range on the date alone lets the (date, auditId) index do the seek, the OR only filters the rows on that date
+      if (reversed) {
+        criteria.add(Restrictions.le("date", date))
+        criteria.add(Restrictions.or(Restrictions.lt("date", date), Restrictions.lt("auditId", auditId)))
+      } else {
+        criteria.add(Restrictions.ge("date", date))
+        criteria.add(Restrictions.or(Restrictions.gt("date", date), Restrictions.gt("auditId", auditId)))
+      }
+    }
+
+    val order = (property: String) => if (reversed) Order.desc(property) else Order.asc(property)
+    criteria.addOrder(order("date"))
+    criteria.addOrder(order("auditId"))
+
+    criteria.setFirstResult(skip)
+    criteria.setMaxResults(max)
+
+    ExponentialBackoffRetryPolicy.retry(criteria.list.asInstanceOf[util.List[Audit]])
+  }
+
+  override def count(request: AuditReportRequest): Number = count(request, null)
+
+  override def count(request: AuditReportRequest, upTo: AuditKey): Number = {
     val criteria = buildCriteria(request)
+    restrictUpTo(criteria, upTo)
     criteria.setProjection(Projections.rowCount)
 
     ExponentialBackoffRetryPolicy.retry(criteria.uniqueResult).asInstanceOf[Number]
   }
 
+  override def findLastAuditKey(request: AuditReportRequest): AuditKey = {
+    val criteria = buildCriteria(request)
+    criteria.setProjection(Projections.projectionList()
+      .add(Projections.property("date"))
+      .add(Projections.property("auditId")))
+    criteria.addOrder(Order.desc("date"))
+    criteria.addOrder(Order.desc("auditId"))
+    criteria.setMaxResults(1)
+
+    ExponentialBackoffRetryPolicy.retry(criteria.uniqueResult) match {
+      case row: Array[AnyRef] => new AuditKey(row(0).asInstanceOf[Date], row(1).asInstanceOf[Number].intValue)
+      case _ => null
+    }
+  }
+
+  @Transactional
+  override def persist(audit: Audit): Audit = {
+    val isNew = audit.getAuditId == null
+
+    super.persist(audit)
+
+    if (isNew) {
+      indexTokens(List(IndexedAudit(audit.getAuditId, audit.getAction, audit.getUserFullName)))
+    }
+
+    audit
+  }
+
+  override def persistBatch(audits: util.List[Audit]) {
+    if (!audits.isEmpty) {
+      // the ids come from the generator Hibernate's persist uses as well, on PostgreSQL that's hibernate_sequence
+      // and not the sequence of the AUDIT_ID column, so both paths never hand out the same id
+      val sessionFactory = getSession.getSessionFactory.asInstanceOf[SessionFactoryImplementor]
+      val generator = sessionFactory.getIdentifierGenerator(classOf[Audit].getName)
+      val generatesBeforeInsert = !generator.isInstanceOf[PostInsertIdentifierGenerator]
+
+      if (generatesBeforeInsert) {
+        val session = getSession.asInstanceOf[SessionImplementor]
+
+        for (audit <- audits) {
+          audit.setAuditId(generator.generate(session, audit).asInstanceOf[Number].intValue)
+        }
+      }
+
+      getSession.doWork(new Work {
+        override def execute(connection: Connection) {
+          val inserted = if (generatesBeforeInsert) {
+            insertWithIds(connection, audits.toList)
+          } else {
+            // Connector/J returns the generated ids of a whole batch, Derby only the id of a single insert
+            insertReturningIds(connection, audits.toList, sessionFactory.getDialect.isInstanceOf[MySQLDialect])
+          }
+
+          insertTokens(connection, inserted)
+        }
+      })
+    }
+  }
+
+  override def findFirstIndexedAuditId: Integer = {
+    val query = getSession.getNamedQuery("Audit.findFirstIndexedId")
+
+    toInteger(ExponentialBackoffRetryPolicy.retry(query.uniqueResult))
+  }
+
+  override def findLastAuditId: Integer = {
+    val query = getSession.getNamedQuery("Audit.findLastId")
+
+    toInteger(ExponentialBackoffRetryPolicy.retry(query.uniqueResult))
+  }
+
+  override def indexTokensBefore(auditId: Int, max: Int): Integer = {
+    val criteria = getSession.createCriteria(classOf[Audit])
+    criteria.add(Restrictions.lt("auditId", auditId))
+    criteria.setProjection(Projections.projectionList()
+      .add(Projections.property("auditId"))
+      .add(Projections.property("action"))
+      .add(Projections.property("userFullName")))
+    criteria.addOrder(Order.desc("auditId"))
+    criteria.setMaxResults(max)
+
+    val rows = ExponentialBackoffRetryPolicy.retry(criteria.list.asInstanceOf[util.List[Array[AnyRef]]])
+    val audits = rows.toList.map(row => IndexedAudit(row(0).asInstanceOf[Number].intValue, row(1).asInstanceOf[String], row(2).asInstanceOf[String]))
+
+    if (audits.isEmpty) {
+      null
+    } else {
+      indexTokens(audits)
+
+      audits.last.auditId
+    }
+  }
+
+  override def useTokenIndexFrom(auditId: Int) {
+    tokenIndexStart = auditId
+  }
+
+  override def findOldestAuditDate: Date = {
+    val query = getSession.getNamedQuery("Audit.findOldestDate")
+
+    ExponentialBackoffRetryPolicy.retry(query.uniqueResult).asInstanceOf[Date]
+  }
+
+  override def deleteAuditsBefore(date: Date): Int = {
+    val tokenQuery = getSession.getNamedQuery("Audit.deleteTokensBefore")
+    tokenQuery.setTimestamp("date", date)
+    ExponentialBackoffRetryPolicy retry tokenQuery.executeUpdate
+
+    val query = getSession.getNamedQuery("Audit.deleteBefore")
+    query.setTimestamp("date", date)
+
+    ExponentialBackoffRetryPolicy retry query.executeUpdate
+  }
+
   private def buildCriteria(request: AuditReportRequest): Criteria = {
     val criteria = getSession.createCriteria(classOf[Audit])
+    // the token index narrows the audits down, the like keeps the substring semantics on what's left
     if (!StringUtils.isBlank(request.getAction)) {
       criteria.add(Restrictions.like("action", "%" + request.getAction.toLowerCase + "%").ignoreCase)
+      restrictToTokens(criteria, AuditTokenizer.ActionField, request.getAction)
     }
 
     if (!StringUtils.isBlank(request.getName)) {
       criteria.add(Restrictions.like("userFullName", "%" + request.getName.toLowerCase + "%").ignoreCase)
+      restrictToTokens(criteria, AuditTokenizer.UserFullNameField, request.getName)
     }
 
     val reportRange: DateRange = request.getReportRange
@@ -58,5 +220,152 @@ class AuditDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Number, Audi
 
     criteria
   }
+
+  private def restrictUpTo(criteria: Criteria, upTo: AuditKey) {
+    if (upTo != null) {
+      criteria.add(Restrictions.le("date", upTo.getDate))
+      criteria.add(Restrictions.or(Restrictions.lt("date", upTo.getDate), Restrictions.le("auditId", upTo.getAuditId)))
+    }
+  }
+
+  private def restrictToTokens(criteria: Criteria, field: String, query: String) {
+    val tokens = AuditTokenizer.queryTokens(query)
+
+    if (tokens.nonEmpty) {
+      val inTokenIndex = Restrictions.conjunction()
+
+      for (token <- tokens) {
+        inTokenIndex.add(Restrictions.sqlRestriction(AuditDaoHibernateImpl.InTokenIndex, Array[AnyRef](field, token), Array[Type](StringType.INSTANCE, StringType.INSTANCE)))
+      }
+
+      // while the older audits are still being indexed only the like can find them
+      val indexStart = tokenIndexStart
+      criteria.add(if (indexStart > 0) Restrictions.or(Restrictions.lt("auditId", indexStart), inTokenIndex) else inTokenIndex)
+    }
+  }
+
+  private def indexTokens(audits: Seq[IndexedAudit]) {
+    getSession.doWork(new Work {
+      override def execute(connection: Connection) {
+        insertTokens(connection, audits)
+      }
+    })
+  }
+
+  private def insertTokens(connection: Connection, audits: Seq[IndexedAudit]) {
+    val statement = connection.prepareStatement(AuditDaoHibernateImpl.InsertToken)
+
+    try {
+      var batched = 0
+
+      for (audit <- audits;
+           (field, text) <- List((AuditTokenizer.ActionField, audit.action), (AuditTokenizer.UserFullNameField, audit.userFullName));
+           token <- AuditTokenizer.indexTokens(text)) {
+        statement.setString(1, field)
+        statement.setString(2, token)
+        statement.setInt(3, audit.auditId)
+        statement.addBatch()
+
+        batched += 1
+      }
+
+      if (batched > 0) {
+        statement.executeBatch()
+      }
+    } finally {
+      statement.close()
+    }
+  }
+
+  private def insertWithIds(connection: Connection, audits: List[Audit]): List[IndexedAudit] = {
+    val statement = connection.prepareStatement(AuditDaoHibernateImpl.InsertAuditWithId)
+
+    try {
+      for (audit <- audits) {
+        statement.setInt(1, audit.getAuditId)
+        bindAudit(statement, audit, 2)
+        statement.addBatch()
+      }
+
+      statement.executeBatch()
+    } finally {
+      statement.close()
+    }
+
+    audits.map(audit => IndexedAudit(audit.getAuditId, audit.getAction, audit.getUserFullName))
+  }
+
+  private def insertReturningIds(connection: Connection, audits: List[Audit], batchReturnsIds: Boolean): List[IndexedAudit] = {
+    val statement = connection.prepareStatement(AuditDaoHibernateImpl.InsertAudit, Statement.RETURN_GENERATED_KEYS)
+
+    val ids = try {
+      if (batchReturnsIds) {
+        for (audit <- audits) {
+          bindAudit(statement, audit, 1)
+          statement.addBatch()
+        }
+
+        statement.executeBatch()
+        generatedIds(statement)
+      } else {
+        // one by one as the driver only returns the generated id of a single insert, the token index needs them
+        for (audit <- audits) yield {
+          bindAudit(statement, audit, 1)
+          statement.executeUpdate()
+          generatedIds(statement).head
+        }
+      }
+    } finally {
+      statement.close()
+    }
+
+    if (ids.size != audits.size) {
+      throw new IllegalStateException(s"Got ${ids.size} generated ids for ${audits.size} inserted audits")
+    }
+
+    audits.zip(ids).map { case (audit, id) => IndexedAudit(id, audit.getAction, audit.getUserFullName) }
+  }
+
+  private def bindAudit(statement: PreparedStatement, audit: Audit, first: Int) {
+    if (audit.getUser == null) statement.setNull(first, Types.INTEGER) else statement.setInt(first, audit.getUser.getUserId)
+    statement.setString(first + 1, audit.getUserFullName)
+    statement.setTimestamp(first + 2, new Timestamp(audit.getDate.getTime))
+    statement.setString(first + 3, audit.getPage)
+    statement.setString(first + 4, audit.getAction)
+    statement.setString(first + 5, audit.getParameters)
+    statement.setString(first + 6, if (audit.getSuccess == null || audit.getSuccess) "Y" else "N")
+    statement.setString(first + 7, if (audit.getAuditActionType == null) null else audit.getAuditActionType.name)
+  }
+
+  private def generatedIds(statement: PreparedStatement): List[Int] = {
+    val keys = statement.getGeneratedKeys
+    val ids = mutable.ListBuffer[Int]()
+
+    try {
+      while (keys.next()) {
+        ids += keys.getInt(1)
+      }
+    } finally {
+      keys.close()
+    }
+
+    ids.toList
+  }
+
+  private def toInteger(value: Any): Integer = value match {
+    case number: Number => number.intValue
+    case _ => null
+  }
 }
 
+private case class IndexedAudit(auditId: Int, action: String, userFullName: String)
+
+object AuditDaoHibernateImpl {
+  private val InsertToken = "INSERT INTO AUDIT_TOKEN (TOKEN_FIELD, TOKEN, AUDIT_ID) VALUES (?, ?, ?)"
+
+  private val InTokenIndex = "{alias}.AUDIT_ID IN (SELECT AUDIT_ID FROM AUDIT_TOKEN WHERE TOKEN_FIELD = ? AND TOKEN = ?)"
+
+  private val InsertAudit = "INSERT INTO AUDIT (USER_ID, USER_FULLNAME, AUDIT_DATE, PAGE, ACTION, PARAMETERS, SUCCESS, AUDIT_ACTION_TYPE) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+
+  private val InsertAuditWithId = "INSERT INTO AUDIT (AUDIT_ID, USER_ID, USER_FULLNAME, AUDIT_DATE, PAGE, ACTION, PARAMETERS, SUCCESS, AUDIT_ACTION_TYPE) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+}
@@ -0,0 +1,38 @@
+package net.rrm.ehour.persistence.audit.dao
+
+import java.util.Locale
+
+/**
+ * Splits the action and user name of an audit in the tokens of the audit token index.
+ *
+ * Audits are indexed on their words (runs of letters and digits) and on the camel case parts of those words,
+ * so getUserDepartments is found on getuserdepartments, get, user and departments. A query matches the audits
+ * holding all of its tokens, the substring match on the audit itself is kept to filter out audits holding the
+ * tokens in another order. A query made of whole words or whole camel case parts finds the same audits as a
+ * plain substring search.
+ */
+object AuditTokenizer {
+  final val ActionField = "A"
+  final val UserFullNameField = "U"
+
+  final val MaxTokenLength = 64
+
+  private val WordSeparator = "[^\\p{L}\\p{N}]+"
+  private val CamelCaseBoundary = "(?<=[\\p{Ll}\\p{N}])(?=\\p{Lu})|(?<=\\p{Lu})(?=\\p{Lu}\\p{Ll})"
+
+  /**
+   * The words of the text and their camel case parts, lower case
+   */
+  def indexTokens(text: String): Set[String] = words(text).flatMap(word => word :: camelCaseParts(word)).map(normalize).toSet
+
+  /**
+   * The words of the query, split in their camel case parts
+   */
+  def queryTokens(text: String): Set[String] = words(text).flatMap(camelCaseParts).map(normalize).toSet
+
+  private def words(text: String): List[String] = if (text == null) Nil else text.split(WordSeparator).filter(_.nonEmpty).toList
+
+  private def camelCaseParts(word: String): List[String] = word.split(CamelCaseBoundary).filter(_.nonEmpty).toList
+
+  private def normalize(token: String): String = token.toLowerCase(Locale.ENGLISH).take(MaxTokenLength)
+}
@@ -4,6 +4,19 @@ import java.util
 
 trait BackupDao {
   def findAll(table: String): util.List[util.Map[String, Object]]
-}
 
+  /**
+   * Number of rows in the table
+   */
+  def count(table: String): Long
+
+  /**
+   * Hand the rows of the table to the handler one at a time through a forward-only cursor, rather than loading
+   * the table in a list. Returns the number of rows handled
+   */
+  def streamAll(table: String, handler: BackupRowHandler): Int
+}
 
+trait BackupRowHandler {
+  def handle(row: util.Map[String, Object])
+}
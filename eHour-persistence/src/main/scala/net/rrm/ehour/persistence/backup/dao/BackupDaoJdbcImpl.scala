@@ -3,8 +3,11 @@ package net.rrm.ehour.persistence.backup.dao
 import java.util
 
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoHibernate4Impl
+import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
+import org.hibernate.ScrollMode
 import org.hibernate.transform.Transformers
 import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
 
 @Repository("exportDao")
 class BackupDaoJdbcImpl extends AbstractAnnotationDaoHibernate4Impl with BackupDao {
@@ -16,4 +19,40 @@ class BackupDaoJdbcImpl extends AbstractAnnotationDaoHibernate4Impl with BackupD
         .asInstanceOf[util.List[util.Map[String, Object]]]
   }
 
+  @Transactional(readOnly = true)
+  override def count(table: String): Long = {
+    getSession
+      .createSQLQuery("SELECT COUNT(*) FROM " + table)
+      .uniqueResult()
+      .asInstanceOf[Number]
+      .longValue()
+  }
+
+  /**
+   * Only opening the cursor is retried, a retry halfway would hand rows to the handler twice.
+   * Rows aren't kept by the session so each row can be collected once the handler is done with it.
+   */
+  @Transactional(readOnly = true)
+  override def streamAll(table: String, handler: BackupRowHandler): Int = {
+    val query = getSession
+      .createSQLQuery("SELECT * FROM " + table)
+      .setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP)
+      .setFetchSize(streamFetchSize)
+      .setReadOnly(true)
+
+    val results = ExponentialBackoffRetryPolicy retry query.scroll(ScrollMode.FORWARD_ONLY)
+
+    try {
+      var rows = 0
+
+      while (results.next()) {
+        handler.handle(results.get(0).asInstanceOf[util.Map[String, Object]])
+        rows += 1
+      }
+
+      rows
+    } finally {
+      results.close()
+    }
+  }
 }
@@ -10,6 +10,11 @@ trait RestoreDao {
 
   def find[T, PK <: Serializable](primaryKey: PK, obj: Class[T]): T
 
+  /**
+   * Reference to a row known to exist, without querying for it
+   */
+  def reference[T, PK <: Serializable](primaryKey: PK, obj: Class[T]): T
+
   def flush()
 
   def delete[T](obj: Class[T])
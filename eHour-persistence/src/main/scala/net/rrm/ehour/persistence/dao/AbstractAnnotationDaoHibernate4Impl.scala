@@ -1,6 +1,8 @@
 package net.rrm.ehour.persistence.dao
 
 import org.hibernate.SessionFactory
+import org.hibernate.dialect.MySQLDialect
+import org.hibernate.engine.spi.SessionFactoryImplementor
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Repository
 
@@ -10,4 +12,18 @@ class AbstractAnnotationDaoHibernate4Impl {
   var sessionFactory: SessionFactory = _
 
   def getSession = sessionFactory.getCurrentSession
+
+  /**
+   * Fetch size for walking a cursor over a large result. MySQL's driver ignores the fetch size and reads the
+   * whole result into memory unless the URL has useCursorFetch=true, Integer.MIN_VALUE makes it stream row by row
+   * without it. No other query can run on the connection until the cursor is closed.
+   */
+  def streamFetchSize: Int = sessionFactory match {
+    case factory: SessionFactoryImplementor if factory.getDialect.isInstanceOf[MySQLDialect] => Integer.MIN_VALUE
+    case _ => AbstractAnnotationDaoHibernate4Impl.StreamFetchSize
+  }
+}
+
+object AbstractAnnotationDaoHibernate4Impl {
+  private final val StreamFetchSize = 500
 }
@@ -2,11 +2,23 @@ package net.rrm.ehour.persistence.mail.dao
 
 import net.rrm.ehour.domain.MailLog
 import net.rrm.ehour.persistence.dao.{AbstractGenericDaoHibernateImpl, GenericDao}
+import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
 import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
 trait MailLogDao extends GenericDao[Integer, MailLog] {
   def find(event: String): List[MailLog]
 
   def find(mailTo: String, event: String): List[MailLog]
+
+  /**
+   * Find the mails logged under any of the events, looked up on the indexed event column in chunks
+   */
+  def findOnEvents(events: Seq[String]): List[MailLog]
+
+  /**
+   * Insert the mail logs in one flush
+   */
+  def persistAll(mailLogs: Seq[MailLog])
 }
 
 @Repository
@@ -15,4 +27,21 @@ class MailLogDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Integer, M
   override def find(event: String):List[MailLog] = findByNamedQuery("MailLog.findOnEvent", "event", event).toList
 
   override def find(mailTo: String, event: String):List[MailLog] = findByNamedQuery("MailLog.findOnEventAndMailTo", List("event", "mailTo"), List(event, mailTo)).toList
+
+  override def findOnEvents(events: Seq[String]): List[MailLog] =
+    events.distinct.grouped(MailLogDaoHibernateImpl.EventsPerQuery).flatMap(chunk => findByNamedQuery[MailLog]("MailLog.findOnEvents", "events", chunk.toList)).toList
+
+  @Transactional
+  override def persistAll(mailLogs: Seq[MailLog]) {
+    val session = getSession
+
+    mailLogs.foreach(mailLog => session.save(mailLog))
+
+    ExponentialBackoffRetryPolicy retry session.flush()
+  }
+}
+
+object MailLogDaoHibernateImpl {
+  // keeps the IN list well below the parameter limits of the databases
+  private final val EventsPerQuery = 500
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import java.util
 import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain._
 import net.rrm.ehour.persistence.dao.GenericDao
+import net.rrm.ehour.timesheet.dto.UserAssignmentPeriod
 
 /**
  * CRUD on ProjectAssignment domain object
@@ -30,6 +31,12 @@ trait ProjectAssignmentDao extends GenericDao[Integer, ProjectAssignment] {
    */
   def findAllProjectAssignmentsForUser(userId: Integer, range: DateRange): util.List[ProjectAssignment]
 
+  /**
+   * Find the periods of all active assignments in date range which can still be booked on, for all users.
+   * Fixed and flex assignments of which the allotted hours (and overrun) are used up are left out
+   */
+  def findBookableAssignmentPeriods(range: DateRange): util.List[UserAssignmentPeriod]
+
   /**
    * Find project assignments for project in range
    */
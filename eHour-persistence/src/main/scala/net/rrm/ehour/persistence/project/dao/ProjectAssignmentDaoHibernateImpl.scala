@@ -6,6 +6,8 @@ import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain._
 import net.rrm.ehour.persistence.dao.AbstractGenericDaoHibernateImpl
 import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
+import net.rrm.ehour.timesheet.dto.UserAssignmentPeriod
+import net.rrm.ehour.util.EhourConstants
 import org.hibernate.criterion.Restrictions
 import org.springframework.stereotype.Repository
 
@@ -28,6 +30,12 @@ class ProjectAssignmentDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[
     findByNamedQuery("ProjectAssignment.findProjectAssignmentsForUserInRange", keys, params, CacheRegion)
   }
 
+  override def findBookableAssignmentPeriods(range: DateRange): util.List[UserAssignmentPeriod] = {
+    val keys = List("dateStart", "dateEnd", "fixedType", "flexType")
+    val params: List[AnyRef] = List(range.getDateStart, range.getDateEnd, Integer.valueOf(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FIXED), Integer.valueOf(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FLEX))
+    findByNamedQuery("ProjectAssignment.findBookableAssignmentPeriodsInRange", keys, params).asInstanceOf[util.List[UserAssignmentPeriod]]
+  }
+
   override def findProjectAssignmentForUser(projectId: Integer, userId: Integer): util.List[ProjectAssignment] = {
     val keys = List("projectId", "userId")
     val params  = List(projectId, userId)
@@ -0,0 +1,64 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.rrm.ehour.persistence.report.dao
+
+import java.util
+import java.util.Date
+
+import net.rrm.ehour.data.DateRange
+import net.rrm.ehour.domain.AssignmentTotal
+
+/**
+ * Hours, entry count and first and last booked day per assignment, derived from the timesheet entries
+ */
+trait AssignmentTotalDao {
+  /**
+   * @return total of the assignment or null when nothing is booked on it
+   */
+  def find(assignmentId: Integer): AssignmentTotal
+
+  def findForAssignments(assignmentIds: util.List[Integer]): util.List[AssignmentTotal]
+
+  /**
+   * Add the hours and entries booked within a date range to the total of an assignment, negative when
+   * entries were removed.
+   *
+   * @param firstEntryDate first booked day within the date range after the change, null when nothing is booked in the range
+   * @param lastEntryDate  last booked day within the date range after the change, null when nothing is booked in the range
+   */
+  def add(assignmentId: Integer, hours: Float, entryCount: Int, dateRange: DateRange, firstEntryDate: Date, lastEntryDate: Date)
+
+  /**
+   * Recalculate the total of the assignments from their timesheet entries
+   */
+  def refresh(assignmentIds: util.List[Integer])
+
+  def deleteForAssignments(assignmentIds: util.List[Integer]): Int
+
+  /**
+   * Recalculate all totals from the timesheet entries
+   *
+   * @return number of totals
+   */
+  def rebuild(): Int
+
+  /**
+   * Compare the totals with the timesheet entries
+   */
+  def findInconsistencies(): util.List[AssignmentTotalInconsistency]
+
+  def isEmpty: Boolean
+}
@@ -0,0 +1,224 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.rrm.ehour.persistence.report.dao
+
+import java.sql.Connection
+import java.util
+import java.util.Date
+
+import net.rrm.ehour.data.DateRange
+import net.rrm.ehour.domain.AssignmentTotal
+import net.rrm.ehour.persistence.dao.{AbstractAnnotationDaoHibernate4Impl, FindByNamedQuery}
+import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
+import org.hibernate.LockOptions
+import org.hibernate.jdbc.Work
+import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
+
+import scala.collection.JavaConversions._
+
+@Repository("assignmentTotalDao")
+class AssignmentTotalDaoHibernateImpl extends AbstractAnnotationDaoHibernate4Impl
+                                      with AssignmentTotalDao
+                                      with FindByNamedQuery {
+  import AssignmentTotalDaoHibernateImpl._
+
+  @Transactional(readOnly = true)
+  override def find(assignmentId: Integer): AssignmentTotal =
+    ExponentialBackoffRetryPolicy retry getSession.get(classOf[AssignmentTotal], assignmentId).asInstanceOf[AssignmentTotal]
+
+  @Transactional(readOnly = true)
+  override def findForAssignments(assignmentIds: util.List[Integer]): util.List[AssignmentTotal] =
+    if (assignmentIds.isEmpty) new util.ArrayList[AssignmentTotal]()
+    else findByNamedQuery[AssignmentTotal]("AssignmentTotal.getTotalsForAssignmentIds", "assignmentIds", assignmentIds)
+
+  @Transactional
+  override def add(assignmentId: Integer, hours: Float, entryCount: Int, dateRange: DateRange, firstEntryDate: Date, lastEntryDate: Date) {
+    val session = getSession
+    val total = ExponentialBackoffRetryPolicy retry session.get(classOf[AssignmentTotal], assignmentId).asInstanceOf[AssignmentTotal]
+
+    if (total != null) {
+      // the total may already be in the session with the state of an earlier read, get doesn't reload it. Refreshing
+      // re-reads the row and locks it until the end of the transaction, a concurrent save of the assignment waits
+      // for this one to commit and then adds to its hours
+      session.refresh(total, LockOptions.UPGRADE)
+    }
+
+    if (total == null) {
+      refresh(util.Arrays.asList(assignmentId))
+    } else {
+      val firstInRange = isInRange(total.getFirstEntryDate, dateRange)
+      val lastInRange = isInRange(total.getLastEntryDate, dateRange)
+
+      if ((firstInRange || lastInRange) && firstEntryDate == null) {
+        // the first or last booked day was removed, only the entries outside the range know the new one
+        refresh(util.Arrays.asList(assignmentId))
+      } else {
+        total.setHours(asFloat(total.getHours) + hours)
+        total.setEntryCount(total.getEntryCount + entryCount)
+
+        // when the first day was in the range nothing is booked before the range, same for the last day
+        if (firstInRange || isBefore(firstEntryDate, total.getFirstEntryDate)) total.setFirstEntryDate(firstEntryDate)
+        if (lastInRange || isAfter(lastEntryDate, total.getLastEntryDate)) total.setLastEntryDate(lastEntryDate)
+      }
+    }
+  }
+
+  @Transactional
+  override def refresh(assignmentIds: util.List[Integer]) {
+    if (!assignmentIds.isEmpty) {
+      // querying the entries flushes the pending entry changes of this session first
+      val fromEntries = findByNamedQuery[Array[AnyRef]]("AssignmentTotal.getTotalsFromEntriesForAssignmentIds", "assignmentIds", assignmentIds)
+                          .map(fromEntryAggregate)
+                          .map(row => row.assignmentId -> row)
+                          .toMap
+
+      val session = getSession
+
+      for (assignmentId <- assignmentIds) {
+        val stored = session.get(classOf[AssignmentTotal], assignmentId).asInstanceOf[AssignmentTotal]
+
+        (fromEntries.get(assignmentId), stored) match {
+          case (Some(row), null) => session.save(row.toTotal)
+          case (Some(row), total) => row.copyTo(total)
+          case (None, null) =>
+          case (None, total) => session.delete(total)
+        }
+      }
+    }
+  }
+
+  @Transactional
+  override def deleteForAssignments(assignmentIds: util.List[Integer]): Int = {
+    val query = getSession.getNamedQuery("AssignmentTotal.deleteOnAssignmentIds")
+    query.setParameterList("assignmentIds", assignmentIds)
+    ExponentialBackoffRetryPolicy retry query.executeUpdate
+  }
+
+  @Transactional
+  override def rebuild(): Int = {
+    val query = getSession.getNamedQuery("AssignmentTotal.deleteAll")
+    ExponentialBackoffRetryPolicy retry query.executeUpdate
+
+    val rows = findTotalsFromEntries
+    insert(rows)
+    rows.size
+  }
+
+  override def findInconsistencies(): util.List[AssignmentTotalInconsistency] = {
+    val expected = findTotalsFromEntries.map(row => row.assignmentId -> row).toMap
+    val actual = findByNamedQuery[AssignmentTotal]("AssignmentTotal.getTotals").map(fromTotal).map(row => row.assignmentId -> row).toMap
+
+    val assignmentIds = (expected.keySet ++ actual.keySet).toList.sorted
+
+    val inconsistencies = assignmentIds.flatMap { assignmentId =>
+      val entryRow = expected.getOrElse(assignmentId, TotalRow(assignmentId, 0, 0, null, null))
+      val totalRow = actual.getOrElse(assignmentId, TotalRow(assignmentId, 0, 0, null, null))
+
+      if (Math.abs(entryRow.hours - totalRow.hours) > HoursTolerance ||
+          entryRow.entryCount != totalRow.entryCount ||
+          !isSameDay(entryRow.firstEntryDate, totalRow.firstEntryDate) ||
+          !isSameDay(entryRow.lastEntryDate, totalRow.lastEntryDate))
+        Some(AssignmentTotalInconsistency(assignmentId,
+                                          entryRow.hours, totalRow.hours,
+                                          entryRow.entryCount, totalRow.entryCount,
+                                          entryRow.firstEntryDate, totalRow.firstEntryDate,
+                                          entryRow.lastEntryDate, totalRow.lastEntryDate))
+      else
+        None
+    }
+
+    new util.ArrayList[AssignmentTotalInconsistency](inconsistencies)
+  }
+
+  override def isEmpty: Boolean = {
+    val results = findByNamedQuery[Number]("AssignmentTotal.count")
+    results.isEmpty || results.get(0).longValue == 0
+  }
+
+  private def findTotalsFromEntries: List[TotalRow] =
+    findByNamedQuery[Array[AnyRef]]("AssignmentTotal.getTotalsFromEntries").map(fromEntryAggregate).toList
+
+  private def insert(rows: Seq[TotalRow]) {
+    if (rows.nonEmpty) {
+      getSession.doWork(new Work {
+        override def execute(connection: Connection) {
+          val statement = connection.prepareStatement(InsertTotal)
+
+          try {
+            for ((row, index) <- rows.zipWithIndex) {
+              statement.setInt(1, row.assignmentId)
+              statement.setFloat(2, row.hours.toFloat)
+              statement.setLong(3, row.entryCount)
+              statement.setDate(4, new java.sql.Date(row.firstEntryDate.getTime))
+              statement.setDate(5, new java.sql.Date(row.lastEntryDate.getTime))
+              statement.addBatch()
+
+              if ((index + 1) % BatchSize == 0) {
+                statement.executeBatch()
+              }
+            }
+
+            statement.executeBatch()
+          } finally {
+            statement.close()
+          }
+        }
+      })
+    }
+  }
+}
+
+object AssignmentTotalDaoHibernateImpl {
+  final val InsertTotal = "INSERT INTO ASSIGNMENT_TOTAL (ASSIGNMENT_ID, HOURS, ENTRY_COUNT, FIRST_ENTRY_DATE, LAST_ENTRY_DATE) VALUES (?, ?, ?, ?, ?)"
+
+  private final val BatchSize = 500
+
+  // hours are summed as floats, different summation orders give slightly different totals
+  private final val HoursTolerance = 0.01
+
+  private case class TotalRow(assignmentId: Int, hours: Double, entryCount: Long, firstEntryDate: Date, lastEntryDate: Date) {
+    def toTotal = new AssignmentTotal(assignmentId, hours.toFloat, entryCount.toInt, firstEntryDate, lastEntryDate)
+
+    def copyTo(total: AssignmentTotal) {
+      total.setHours(hours.toFloat)
+      total.setEntryCount(entryCount.toInt)
+      total.setFirstEntryDate(firstEntryDate)
+      total.setLastEntryDate(lastEntryDate)
+    }
+  }
+
+  private def fromEntryAggregate(row: Array[AnyRef]): TotalRow =
+    TotalRow(asNumber(row(0)).intValue, asNumber(row(1)).doubleValue, asNumber(row(2)).longValue, row(3).asInstanceOf[Date], row(4).asInstanceOf[Date])
+
+  private def fromTotal(total: AssignmentTotal): TotalRow =
+    TotalRow(total.getAssignmentId, asFloat(total.getHours), total.getEntryCount.longValue, total.getFirstEntryDate, total.getLastEntryDate)
+
+  private def asNumber(value: AnyRef): Number = if (value == null) Integer.valueOf(0) else value.asInstanceOf[Number]
+
+  private def asFloat(value: java.lang.Float): Float = if (value == null) 0f else value.floatValue
+
+  private def isInRange(date: Date, dateRange: DateRange) =
+    date != null && !date.before(dateRange.getDateStart) && !date.after(dateRange.getDateEnd)
+
+  private def isBefore(date: Date, other: Date) = date != null && (other == null || date.before(other))
+
+  private def isAfter(date: Date, other: Date) = date != null && (other == null || date.after(other))
+
+  // java.sql.Date and java.util.Date of the same day are not equal
+  private def isSameDay(date: Date, other: Date) =
+    if (date == null || other == null) date == other else date.getTime == other.getTime
+}
@@ -3,7 +3,7 @@ package net.rrm.ehour.persistence.report.dao
 import java.util
 
 import net.rrm.ehour.data.DateRange
-import net.rrm.ehour.report.reports.element.FlatReportElement
+import net.rrm.ehour.report.reports.element.{FlatReportElement, ReportElementSink}
 
 trait DetailedReportDao {
   /**
@@ -30,4 +30,24 @@ trait DetailedReportDao {
    * Get hours per day
    */
   def getHoursPerDay(dateRange: DateRange): util.List[FlatReportElement]
+
+  /**
+   * Stream hours per day for users into the sink, row by row. Returns the number of rows streamed
+   */
+  def streamHoursPerDayForUsers(userIds: util.List[Integer], dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int
+
+  /**
+   * Stream hours per day for projects into the sink, row by row. Returns the number of rows streamed
+   */
+  def streamHoursPerDayForProjects(projectIds: util.List[Integer], dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int
+
+  /**
+   * Stream hours per day for projects & users into the sink, row by row. Returns the number of rows streamed
+   */
+  def streamHoursPerDayForProjectsAndUsers(projectIds: util.List[Integer], userIds: util.List[Integer], dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int
+
+  /**
+   * Stream hours per day into the sink, row by row. Returns the number of rows streamed
+   */
+  def streamHoursPerDay(dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int
 }
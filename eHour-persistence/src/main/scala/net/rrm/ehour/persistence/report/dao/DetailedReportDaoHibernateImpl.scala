@@ -20,8 +20,9 @@ import java.util
 import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoHibernate4Impl
 import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
-import net.rrm.ehour.report.reports.element.FlatReportElement
+import net.rrm.ehour.report.reports.element.{FlatReportElement, ReportElementSink}
 import org.hibernate.transform.Transformers
+import org.hibernate.{Query, ScrollMode}
 import org.springframework.stereotype.Repository
 
 /**
@@ -39,40 +40,75 @@ class DetailedReportDaoHibernateImpl extends AbstractAnnotationDaoHibernate4Impl
     ExponentialBackoffRetryPolicy retry query.list.asInstanceOf[util.List[FlatReportElement]]
   }
 
-  override def getHoursPerDayForUsers(userIds: util.List[Integer], dateRange: DateRange): util.List[FlatReportElement] = {
-    val session = this.getSession
-    val query = session.getNamedQuery("Report.getHoursPerDayForUsers").setDate("dateStart", dateRange.getDateStart).setDate("dateEnd", dateRange.getDateEnd).setParameterList("userIds", userIds).setResultTransformer(Transformers.aliasToBean(classOf[FlatReportElement]))
-    ExponentialBackoffRetryPolicy retry query.list.asInstanceOf[util.List[FlatReportElement]]
-  }
+  override def getHoursPerDayForUsers(userIds: util.List[Integer], dateRange: DateRange): util.List[FlatReportElement] =
+    list(hoursPerDayForUsersQuery(userIds, dateRange))
 
-  override def getHoursPerDayForProjects(projectIds: util.List[Integer], dateRange: DateRange): util.List[FlatReportElement] = {
-    val session = this.getSession
-    val query = session.getNamedQuery("Report.getHoursPerDayForProjects")
-      .setDate("dateStart", dateRange.getDateStart)
-      .setDate("dateEnd", dateRange.getDateEnd)
+  override def getHoursPerDayForProjects(projectIds: util.List[Integer], dateRange: DateRange): util.List[FlatReportElement] =
+    list(hoursPerDayForProjectsQuery(projectIds, dateRange))
+
+  override def getHoursPerDayForProjectsAndUsers(projectIds: util.List[Integer], userIds: util.List[Integer], dateRange: DateRange): util.List[FlatReportElement] =
+    list(hoursPerDayForProjectsAndUsersQuery(projectIds, userIds, dateRange))
+
+  override def getHoursPerDay(dateRange: DateRange): util.List[FlatReportElement] =
+    list(hoursPerDayQuery(dateRange))
+
+  override def streamHoursPerDayForUsers(userIds: util.List[Integer], dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int =
+    stream(hoursPerDayForUsersQuery(userIds, dateRange), sink)
+
+  override def streamHoursPerDayForProjects(projectIds: util.List[Integer], dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int =
+    stream(hoursPerDayForProjectsQuery(projectIds, dateRange), sink)
+
+  override def streamHoursPerDayForProjectsAndUsers(projectIds: util.List[Integer], userIds: util.List[Integer], dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int =
+    stream(hoursPerDayForProjectsAndUsersQuery(projectIds, userIds, dateRange), sink)
+
+  override def streamHoursPerDay(dateRange: DateRange, sink: ReportElementSink[FlatReportElement]): Int =
+    stream(hoursPerDayQuery(dateRange), sink)
+
+  private def hoursPerDayForUsersQuery(userIds: util.List[Integer], dateRange: DateRange): Query =
+    hoursPerDayQuery("Report.getHoursPerDayForUsers", dateRange)
+      .setParameterList("userIds", userIds)
+
+  private def hoursPerDayForProjectsQuery(projectIds: util.List[Integer], dateRange: DateRange): Query =
+    hoursPerDayQuery("Report.getHoursPerDayForProjects", dateRange)
       .setParameterList("projectIds", projectIds)
-      .setResultTransformer(Transformers.aliasToBean(classOf[FlatReportElement]))
-    ExponentialBackoffRetryPolicy retry query.list.asInstanceOf[util.List[FlatReportElement]]
-  }
 
-  override def getHoursPerDayForProjectsAndUsers(projectIds: util.List[Integer], userIds: util.List[Integer], dateRange: DateRange): util.List[FlatReportElement] = {
-    val session = this.getSession
-    val query = session.getNamedQuery("Report.getHoursPerDayForProjectsAndUsers")
-      .setDate("dateStart", dateRange.getDateStart)
-      .setDate("dateEnd", dateRange.getDateEnd)
+  private def hoursPerDayForProjectsAndUsersQuery(projectIds: util.List[Integer], userIds: util.List[Integer], dateRange: DateRange): Query =
+    hoursPerDayQuery("Report.getHoursPerDayForProjectsAndUsers", dateRange)
       .setParameterList("projectIds", projectIds)
       .setParameterList("userIds", userIds)
-      .setResultTransformer(Transformers.aliasToBean(classOf[FlatReportElement]))
-    ExponentialBackoffRetryPolicy retry query.list.asInstanceOf[util.List[FlatReportElement]]
-  }
 
-  override def getHoursPerDay(dateRange: DateRange): util.List[FlatReportElement] = {
-    val session = this.getSession
-    val query = session.getNamedQuery("Report.getHoursPerDay")
+  private def hoursPerDayQuery(dateRange: DateRange): Query = hoursPerDayQuery("Report.getHoursPerDay", dateRange)
+
+  private def hoursPerDayQuery(queryName: String, dateRange: DateRange): Query =
+    getSession.getNamedQuery(queryName)
       .setDate("dateStart", dateRange.getDateStart)
       .setDate("dateEnd", dateRange.getDateEnd)
       .setResultTransformer(Transformers.aliasToBean(classOf[FlatReportElement]))
+
+  private def list(query: Query): util.List[FlatReportElement] =
     ExponentialBackoffRetryPolicy retry query.list.asInstanceOf[util.List[FlatReportElement]]
+
+  /**
+   * Walk a forward-only cursor over the result. The rows are scalar projections so the session
+   * doesn't keep a reference to them; once the sink is done with a row it can be collected.
+   * Only opening the cursor is retried, a retry halfway would hand rows to the sink twice.
+   */
+  private def stream(query: Query, sink: ReportElementSink[FlatReportElement]): Int = {
+    query.setFetchSize(streamFetchSize).setReadOnly(true)
+
+    val results = ExponentialBackoffRetryPolicy retry query.scroll(ScrollMode.FORWARD_ONLY)
+
+    try {
+      var rows = 0
+
+      while (results.next()) {
+        sink.accept(results.get(0).asInstanceOf[FlatReportElement])
+        rows += 1
+      }
+
+      rows
+    } finally {
+      results.close()
+    }
   }
 }
-
@@ -0,0 +1,71 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.rrm.ehour.persistence.report.dao
+
+import java.util.Date
+
+import net.rrm.ehour.data.DateRange
+import org.joda.time.LocalDate
+
+/**
+ * Splits a date range in the whole months that can be answered from the monthly rollup and
+ * the partial months at the edges that still have to be summed from the timesheet entries.
+ */
+class MonthlyRollupRange private(dateRange: DateRange, firstMonth: LocalDate, monthAfterLast: LocalDate) {
+  /**
+   * First day of the first whole month
+   */
+  def rollupStart: Date = firstMonth.toDate
+
+  /**
+   * First day of the last whole month
+   */
+  def rollupEnd: Date = monthAfterLast.minusMonths(1).toDate
+
+  /**
+   * Parts of the range before the first and after the last whole month
+   */
+  def edges: List[DateRange] = {
+    val head = if (new LocalDate(dateRange.getDateStart).isBefore(firstMonth))
+      List(new DateRange(dateRange.getDateStart, firstMonth.toDateTimeAtStartOfDay.minusMillis(1).toDate))
+    else
+      Nil
+
+    val tail = if (!new LocalDate(dateRange.getDateEnd).isBefore(monthAfterLast))
+      List(new DateRange(monthAfterLast.toDate, dateRange.getDateEnd))
+    else
+      Nil
+
+    head ++ tail
+  }
+}
+
+object MonthlyRollupRange {
+  /**
+   * @return None when the range is open or doesn't span a whole month
+   */
+  def apply(dateRange: DateRange): Option[MonthlyRollupRange] = {
+    if (dateRange.getDateStart == null || dateRange.getDateEnd == null) {
+      None
+    } else {
+      val start = new LocalDate(dateRange.getDateStart)
+      val firstMonth = if (start.getDayOfMonth == 1) start else start.plusMonths(1).withDayOfMonth(1)
+      val monthAfterLast = new LocalDate(dateRange.getDateEnd).plusDays(1).withDayOfMonth(1)
+
+      if (firstMonth.isBefore(monthAfterLast)) Some(new MonthlyRollupRange(dateRange, firstMonth, monthAfterLast)) else None
+    }
+  }
+}
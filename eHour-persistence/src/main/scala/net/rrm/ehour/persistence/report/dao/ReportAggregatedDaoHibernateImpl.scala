@@ -16,6 +16,7 @@
 package net.rrm.ehour.persistence.report.dao
 
 import java.util
+import java.util.Date
 
 import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain.{Project, ProjectAssignment, User}
@@ -23,6 +24,8 @@ import net.rrm.ehour.persistence.dao.{AbstractAnnotationDaoHibernate4Impl, FindB
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement
 import org.springframework.stereotype.Repository
 
+import scala.collection.JavaConversions._
+
 /**
  * Reporting data operations
  *
@@ -34,14 +37,11 @@ class ReportAggregatedDaoHibernateImpl extends AbstractAnnotationDaoHibernate4Im
                                         with FindByNamedQuery {
   private final val CacheRegion = Some("query.Report")
 
-  override def getCumulatedHoursPerAssignmentForUsers(users: util.List[User], dateRange: DateRange): util.List[AssignmentAggregateReportElement] = {
-    val keys = List("dateStart", "dateEnd", "users")
-    val params = List(dateRange.getDateStart, dateRange.getDateEnd, users)
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignmentOnDateForUsers", keys, params, CacheRegion)
-  }
+  override def getCumulatedHoursPerAssignmentForUsers(users: util.List[User], dateRange: DateRange): util.List[AssignmentAggregateReportElement] =
+    findInRange("Report.getCumulatedHoursPerAssignmentOnDateForUsers", "Report.getRollupHoursPerAssignmentOnDateForUsers", dateRange, List("users"), List(users), CacheRegion)
 
   override def getCumulatedHoursPerAssignmentForUsers(users: util.List[User]): util.List[AssignmentAggregateReportElement] =
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignmentForUsers", "users", users)
+    findByNamedQuery[AssignmentAggregateReportElement]("Report.getRollupHoursPerAssignmentForUsers", "users", users)
 
   override def getMinMaxDateTimesheetEntry: DateRange = {
     val results = findByNamedQuery[DateRange]("Report.getMinMaxTimesheetEntryDate")
@@ -51,39 +51,30 @@ class ReportAggregatedDaoHibernateImpl extends AbstractAnnotationDaoHibernate4Im
   override def getCumulatedHoursPerAssignmentForUsers(users: util.List[User], projects: util.List[Project]): util.List[AssignmentAggregateReportElement] = {
     val keys = List("users", "projects")
     val params = List(users, projects)
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignmentForUsersAndProjects", keys, params)
+    findByNamedQuery[AssignmentAggregateReportElement]("Report.getRollupHoursPerAssignmentForUsersAndProjects", keys, params)
   }
 
-  override def getCumulatedHoursPerAssignmentForUsers(users: util.List[User], projects: util.List[Project], dateRange: DateRange): util.List[AssignmentAggregateReportElement] = {
-    val keys = List("dateStart", "dateEnd", "users", "projects")
-    val params = List(dateRange.getDateStart, dateRange.getDateEnd, users, projects)
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignmentOnDateForUsersAndProjects", keys, params)
-  }
+  override def getCumulatedHoursPerAssignmentForUsers(users: util.List[User], projects: util.List[Project], dateRange: DateRange): util.List[AssignmentAggregateReportElement] =
+    findInRange("Report.getCumulatedHoursPerAssignmentOnDateForUsersAndProjects", "Report.getRollupHoursPerAssignmentOnDateForUsersAndProjects", dateRange, List("users", "projects"), List(users, projects))
 
   override def getMinMaxDateTimesheetEntry(user: User): DateRange = {
     val results =  findByNamedQuery[DateRange]("Report.getMinMaxTimesheetEntryDateForUser", "user", List(user)).asInstanceOf[util.List[DateRange]]
     getFirstOr(results, new DateRange())
   }
 
-  override def getCumulatedHoursPerAssignment(dateRange: DateRange): util.List[AssignmentAggregateReportElement] = {
-    val keys = List("dateStart", "dateEnd")
-    val params = List(dateRange.getDateStart, dateRange.getDateEnd)
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignment", keys, params)
-  }
+  override def getCumulatedHoursPerAssignment(dateRange: DateRange): util.List[AssignmentAggregateReportElement] =
+    findInRange("Report.getCumulatedHoursPerAssignment", "Report.getRollupHoursPerAssignment", dateRange, Nil, Nil)
 
-  override def getCumulatedHoursPerAssignmentForProjects(projects: util.List[Project], dateRange: DateRange): util.List[AssignmentAggregateReportElement] = {
-    val keys = List("dateStart", "dateEnd", "projects")
-    val params = List(dateRange.getDateStart, dateRange.getDateEnd, projects)
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignmentOnDateForProjects", keys, params)
-  }
+  override def getCumulatedHoursPerAssignmentForProjects(projects: util.List[Project], dateRange: DateRange): util.List[AssignmentAggregateReportElement] =
+    findInRange("Report.getCumulatedHoursPerAssignmentOnDateForProjects", "Report.getRollupHoursPerAssignmentOnDateForProjects", dateRange, List("projects"), List(projects))
 
   override def getCumulatedHoursForAssignment(projectAssignment: ProjectAssignment): AssignmentAggregateReportElement = {
-    val results = findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursForAssignment", "assignment", List(projectAssignment))
+    val results = findByNamedQuery[AssignmentAggregateReportElement]("Report.getRollupHoursForAssignment", "assignment", List(projectAssignment))
     getFirstOr(results, null)
   }
 
   override def getCumulatedHoursPerAssignmentForAssignments(projectAssignmentIds: util.List[Integer]): util.List[AssignmentAggregateReportElement] = {
-    findByNamedQuery[AssignmentAggregateReportElement]("Report.getCumulatedHoursPerAssignmentForAssignmentIds", "assignmentIds", projectAssignmentIds)
+    findByNamedQuery[AssignmentAggregateReportElement]("Report.getRollupHoursPerAssignmentForAssignmentIds", "assignmentIds", projectAssignmentIds)
   }
 
   override def getMinMaxDateTimesheetEntry(project: Project): DateRange = {
@@ -97,6 +88,41 @@ class ReportAggregatedDaoHibernateImpl extends AbstractAnnotationDaoHibernate4Im
     findByNamedQuery[ProjectAssignment]("Report.getAssignmentsWithoutBookings", keys, params)
   }
 
+  /**
+   * Whole months are summed from the monthly rollup, partial months at the edges of the range from the timesheet entries
+   */
+  private def findInRange(entryQuery: String, rollupQuery: String, dateRange: DateRange, keys: List[String], params: List[AnyRef], cachingRegion: Option[String] = None): util.List[AssignmentAggregateReportElement] = {
+    def find(queryName: String, start: Date, end: Date, region: Option[String]) =
+      findByNamedQuery[AssignmentAggregateReportElement](queryName, "dateStart" :: "dateEnd" :: keys, start :: end :: params, region)
+
+    MonthlyRollupRange(dateRange) match {
+      case Some(range) =>
+        val fromRollup = find(rollupQuery, range.rollupStart, range.rollupEnd, None).toList
+        val fromEntries = range.edges.flatMap(edge => find(entryQuery, edge.getDateStart, edge.getDateEnd, cachingRegion).toList)
+
+        sumPerAssignment(fromRollup ++ fromEntries)
+      case None => find(entryQuery, dateRange.getDateStart, dateRange.getDateEnd, cachingRegion)
+    }
+  }
+
+  private def sumPerAssignment(elements: Seq[AssignmentAggregateReportElement]): util.List[AssignmentAggregateReportElement] = {
+    val perAssignment = new util.LinkedHashMap[Integer, AssignmentAggregateReportElement]()
+
+    for (element <- elements) {
+      val assignmentId = element.getProjectAssignment.getAssignmentId
+      val existing = perAssignment.get(assignmentId)
+
+      if (existing == null) {
+        perAssignment.put(assignmentId, element)
+      } else {
+        val hours = existing.getHours.doubleValue + element.getHours.doubleValue
+        perAssignment.put(assignmentId, new AssignmentAggregateReportElement(existing.getProjectAssignment, hours))
+      }
+    }
+
+    new util.ArrayList[AssignmentAggregateReportElement](perAssignment.values)
+  }
+
   private def getFirstOr[A](results: util.List[A], or: => A):A = {
     if (results.size > 0) results.get(0) else or
   }
@@ -0,0 +1,49 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.rrm.ehour.persistence.report.dao
+
+import java.util
+
+import net.rrm.ehour.data.DateRange
+
+/**
+ * Hours per assignment per month, derived from the timesheet entries
+ */
+trait TimesheetRollupDao {
+  /**
+   * Recalculate the rollup of the assignments for all months overlapping the date range
+   */
+  def refresh(assignmentIds: util.List[Integer], dateRange: DateRange)
+
+  /**
+   * Delete the rollup of assignments
+   */
+  def deleteForAssignments(assignmentIds: util.List[Integer]): Int
+
+  /**
+   * Recalculate the complete rollup from the timesheet entries
+   *
+   * @return number of rollup rows
+   */
+  def rebuild(): Int
+
+  /**
+   * Compare the rollup with the timesheet entries
+   */
+  def findInconsistencies(): util.List[RollupInconsistency]
+
+  def isEmpty: Boolean
+}
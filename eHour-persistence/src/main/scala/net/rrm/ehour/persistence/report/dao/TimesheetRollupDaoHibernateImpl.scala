@@ -0,0 +1,170 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.rrm.ehour.persistence.report.dao
+
+import java.sql.Connection
+import java.util
+
+import net.rrm.ehour.data.DateRange
+import net.rrm.ehour.domain.ProjectAssignment
+import net.rrm.ehour.persistence.dao.{AbstractAnnotationDaoHibernate4Impl, FindByNamedQuery}
+import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
+import org.hibernate.LockOptions
+import org.hibernate.jdbc.Work
+import org.joda.time.LocalDate
+import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
+
+import scala.collection.JavaConversions._
+
+@Repository("timesheetRollupDao")
+class TimesheetRollupDaoHibernateImpl extends AbstractAnnotationDaoHibernate4Impl
+                                      with TimesheetRollupDao
+                                      with FindByNamedQuery {
+  import TimesheetRollupDaoHibernateImpl._
+
+  @Transactional
+  override def refresh(assignmentIds: util.List[Integer], dateRange: DateRange) {
+    if (!assignmentIds.isEmpty) {
+      val firstMonth = new LocalDate(dateRange.getDateStart).withDayOfMonth(1)
+      val monthAfterLast = new LocalDate(dateRange.getDateEnd).plusMonths(1).withDayOfMonth(1)
+
+      lockAssignments(assignmentIds)
+
+      // querying the entries flushes the pending entry changes of this session first
+      val keys = List("dateStart", "dateEnd", "assignmentIds")
+      val params = List(firstMonth.toDate, monthAfterLast.toDateTimeAtStartOfDay.minusMillis(1).toDate, assignmentIds)
+      val rows = findByNamedQuery[Array[AnyRef]]("TimesheetRollup.getMonthlyHoursFromEntriesForAssignmentIds", keys, params).map(fromEntryAggregate)
+
+      val query = getSession.getNamedQuery("TimesheetRollup.deleteOnAssignmentIdsInRange")
+      query.setParameter("dateStart", firstMonth.toDate)
+      query.setParameter("dateEnd", monthAfterLast.minusMonths(1).toDate)
+      query.setParameterList("assignmentIds", assignmentIds)
+      ExponentialBackoffRetryPolicy retry query.executeUpdate
+
+      insert(rows)
+    }
+  }
+
+  @Transactional
+  override def deleteForAssignments(assignmentIds: util.List[Integer]): Int = {
+    val query = getSession.getNamedQuery("TimesheetRollup.deleteOnAssignmentIds")
+    query.setParameterList("assignmentIds", assignmentIds)
+    ExponentialBackoffRetryPolicy retry query.executeUpdate
+  }
+
+  @Transactional
+  override def rebuild(): Int = {
+    val query = getSession.getNamedQuery("TimesheetRollup.deleteAll")
+    ExponentialBackoffRetryPolicy retry query.executeUpdate
+
+    val rows = findMonthlyHoursFromEntries
+    insert(rows)
+    rows.size
+  }
+
+  override def findInconsistencies(): util.List[RollupInconsistency] = {
+    val expected = findMonthlyHoursFromEntries.map(row => row.key -> row).toMap
+    val actual = findByNamedQuery[Array[AnyRef]]("TimesheetRollup.getRollups").map(fromRollup).map(row => row.key -> row).toMap
+
+    val keys = (expected.keySet ++ actual.keySet).toList.sortBy { case (assignmentId, month) => (assignmentId, month.toString) }
+
+    val inconsistencies = keys.flatMap { key =>
+      val entryRow = expected.getOrElse(key, RollupRow(key._1, key._2, 0, 0))
+      val rollupRow = actual.getOrElse(key, RollupRow(key._1, key._2, 0, 0))
+
+      if (Math.abs(entryRow.hours - rollupRow.hours) > HoursTolerance || entryRow.entryCount != rollupRow.entryCount)
+        Some(RollupInconsistency(key._1, key._2.toDate, entryRow.hours, rollupRow.hours, entryRow.entryCount, rollupRow.entryCount))
+      else
+        None
+    }
+
+    new util.ArrayList[RollupInconsistency](inconsistencies)
+  }
+
+  override def isEmpty: Boolean = {
+    val results = findByNamedQuery[Number]("TimesheetRollup.count")
+    results.isEmpty || results.get(0).longValue == 0
+  }
+
+  /**
+   * A concurrent refresh of the same assignments would delete and insert the same rollup rows, ending in a primary
+   * key violation or a rollup without the other's entries. The rollup rows of a month may not exist yet so the
+   * assignments are locked instead, until the end of the transaction. They're locked in id order so two refreshes
+   * can't deadlock on each other
+   */
+  private def lockAssignments(assignmentIds: util.List[Integer]) {
+    val session = getSession
+
+    for (assignmentId <- assignmentIds.toList.distinct.sortBy(_.intValue)) {
+      ExponentialBackoffRetryPolicy retry session.get(classOf[ProjectAssignment], assignmentId, LockOptions.UPGRADE)
+    }
+  }
+
+  private def findMonthlyHoursFromEntries: List[RollupRow] =
+    findByNamedQuery[Array[AnyRef]]("TimesheetRollup.getMonthlyHoursFromEntries").map(fromEntryAggregate).toList
+
+  private def insert(rows: Seq[RollupRow]) {
+    if (rows.nonEmpty) {
+      getSession.doWork(new Work {
+        override def execute(connection: Connection) {
+          val statement = connection.prepareStatement(InsertRollup)
+
+          try {
+            for ((row, index) <- rows.zipWithIndex) {
+              statement.setInt(1, row.assignmentId)
+              statement.setDate(2, new java.sql.Date(row.month.toDate.getTime))
+              statement.setFloat(3, row.hours.toFloat)
+              statement.setLong(4, row.entryCount)
+              statement.addBatch()
+
+              if ((index + 1) % BatchSize == 0) {
+                statement.executeBatch()
+              }
+            }
+
+            statement.executeBatch()
+          } finally {
+            statement.close()
+          }
+        }
+      })
+    }
+  }
+}
+
+object TimesheetRollupDaoHibernateImpl {
+  final val InsertRollup = "INSERT INTO TIMESHEET_ROLLUP (ASSIGNMENT_ID, ROLLUP_MONTH, HOURS, ENTRY_COUNT) VALUES (?, ?, ?, ?)"
+
+  private final val BatchSize = 500
+
+  // hours are summed as floats, different summation orders give slightly different totals
+  private final val HoursTolerance = 0.01
+
+  private case class RollupRow(assignmentId: Int, month: LocalDate, hours: Double, entryCount: Long) {
+    def key = (assignmentId, month)
+  }
+
+  private def fromEntryAggregate(row: Array[AnyRef]): RollupRow = {
+    val month = new LocalDate(asNumber(row(1)).intValue, asNumber(row(2)).intValue, 1)
+    RollupRow(asNumber(row(0)).intValue, month, asNumber(row(3)).doubleValue, asNumber(row(4)).longValue)
+  }
+
+  private def fromRollup(row: Array[AnyRef]): RollupRow =
+    RollupRow(asNumber(row(0)).intValue, new LocalDate(row(1)).withDayOfMonth(1), asNumber(row(2)).doubleValue, asNumber(row(3)).longValue)
+
+  private def asNumber(value: AnyRef): Number = if (value == null) Integer.valueOf(0) else value.asInstanceOf[Number]
+}
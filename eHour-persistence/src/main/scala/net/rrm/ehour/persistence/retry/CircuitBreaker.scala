@@ -0,0 +1,99 @@
+package net.rrm.ehour.persistence.retry
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Stops calls to the database after a number of consecutive transient failures. While open every call
+ * fails fast; after openMillis a single trial call is let through which closes the circuit on success
+ * and opens it again on failure.
+ *
+ * @param failureThreshold consecutive failures after which the circuit opens
+ * @param openMillis       time the circuit stays open before a trial call is allowed
+ * @param clock            current time in milliseconds
+ */
+class CircuitBreaker(failureThreshold: Int, openMillis: Long, clock: () => Long) {
+  def this(failureThreshold: Int, openMillis: Long) = this(failureThreshold, openMillis, () => System.currentTimeMillis())
+
+  import CircuitBreaker._
+
+  private var state: State = Closed
+  private var consecutiveFailures = 0
+  private var openedAt = 0L
+  private var trialInProgress = false
+
+  private val opened = new AtomicLong()
+  private val rejected = new AtomicLong()
+
+  /**
+   * @return false when the call should fail fast
+   */
+  def allowRequest(): Boolean = {
+    val allowed = synchronized {
+      state match {
+        case Closed => true
+        case Open if clock() - openedAt >= openMillis =>
+          state = HalfOpen
+          trialInProgress = true
+          true
+        case HalfOpen if !trialInProgress =>
+          trialInProgress = true
+          true
+        case _ => false
+      }
+    }
+
+    if (!allowed) {
+      rejected.incrementAndGet()
+    }
+
+    allowed
+  }
+
+  /**
+   * The database answered, whether the call itself succeeded or not
+   */
+  def recordSuccess() {
+    synchronized {
+      state = Closed
+      consecutiveFailures = 0
+      trialInProgress = false
+    }
+  }
+
+  def recordFailure() {
+    synchronized {
+      consecutiveFailures += 1
+      trialInProgress = false
+
+      if (state == HalfOpen || (state == Closed && consecutiveFailures >= failureThreshold)) {
+        state = Open
+        openedAt = clock()
+        opened.incrementAndGet()
+      }
+    }
+  }
+
+  def isOpen: Boolean = synchronized {
+    state == Open
+  }
+
+  def stateName: String = synchronized {
+    state.name
+  }
+
+  def openedCount: Long = opened.get()
+
+  def rejectedCount: Long = rejected.get()
+}
+
+object CircuitBreaker {
+  private sealed abstract class State(val name: String)
+
+  private case object Closed extends State("closed")
+
+  private case object Open extends State("open")
+
+  private case object HalfOpen extends State("half-open")
+}
+
+class CircuitOpenException(message: String) extends RuntimeException(message)
@@ -1,40 +1,169 @@
 package net.rrm.ehour.persistence.retry
 
 import java.util.Random
+import java.util.concurrent.atomic.AtomicLong
 
 import org.apache.log4j.Logger
 import org.hibernate.HibernateException
+import org.springframework.transaction.support.TransactionSynchronizationManager
 
-object ExponentialBackoffRetryPolicy {
-  private final val MaxAttempts = 5
-  private final val Log = Logger.getLogger(ExponentialBackoffRetryPolicy.getClass)
-
-  def retry[T](op: => T, maxAttempts:Int = MaxAttempts) = {
-    def execOrWait(waitTimes: Seq[Int], lastException: Option[HibernateException]): T = {
-      if (waitTimes.nonEmpty) {
-        try {
-          op
-        } catch {
-          case e: HibernateException =>
-            val waitTime = waitTimes.head
-            val attempt = 1 + (maxAttempts - waitTimes.length)
-            Log.warn(s"Attempt $attempt: Failed to query, sleeping for $waitTime ms", e)
-            Thread.sleep(waitTime)
-            execOrWait(waitTimes.tail, Some(e))
-        }
+/**
+ * Retries database calls which failed on a transient error, waiting exponentially longer with jitter between
+ * attempts. Permanent errors are thrown right away. The total wait is capped and never exceeds the deadline
+ * of the current request. All calls share one circuit breaker which fails calls fast while the database is down.
+ * <p/>
+ * Inside a transaction nothing is retried: after a deadlock or a lost connection the database already rolled
+ * back the transaction, so a retried query would run without the work done before it. Those failures go up
+ * to the transaction boundary as they are.
+ *
+ * @param defaultMaxAttempts number of attempts when the call doesn't specify it
+ * @param baseWaitMillis     wait before the first retry, doubles every next retry
+ * @param maxWaitMillis      max. wait between two attempts
+ * @param maxTotalWaitMillis max. time spent waiting for one call
+ * @param circuitBreaker     breaker shared by all calls
+ * @param clock              current time in milliseconds
+ * @param sleep              sleeps for the given milliseconds
+ * @param inTransaction      whether the call runs inside a transaction
+ */
+class RetryPolicy(defaultMaxAttempts: Int,
+                  baseWaitMillis: Long,
+                  maxWaitMillis: Long,
+                  maxTotalWaitMillis: Long,
+                  val circuitBreaker: CircuitBreaker,
+                  clock: () => Long,
+                  sleep: Long => Unit,
+                  inTransaction: () => Boolean = () => TransactionSynchronizationManager.isActualTransactionActive) {
+  import RetryPolicy.Log
+
+  private val random = new Random()
+
+  private val attempts = new AtomicLong()
+  private val retries = new AtomicLong()
+  private val permanentFailures = new AtomicLong()
+  private val exhausted = new AtomicLong()
+
+  def retry[T](op: => T, maxAttempts: Int = defaultMaxAttempts): T = {
+    if (!circuitBreaker.allowRequest()) {
+      throw new CircuitOpenException("Database calls are suspended after repeated failures")
+    }
+
+    val startedAt = clock()
+
+    def attempt(n: Int, waited: Long): T = {
+      attempts.incrementAndGet()
+
+      val failure = try {
+        val result = op
+        circuitBreaker.recordSuccess()
+        return result
+      } catch {
+        case e: HibernateException => e
+        case e: CircuitOpenException => throw e
+        case e: RuntimeException =>
+          circuitBreaker.recordSuccess()
+          throw e
+        case e: Throwable =>
+          // errors never reach the database, but a half-open trial has to end or the circuit stays half-open
+          circuitBreaker.recordFailure()
+          throw e
+      }
+
+      if (!RetryClassifier.isTransient(failure)) {
+        // the database answered, it just didn't like the query
+        circuitBreaker.recordSuccess()
+        permanentFailures.incrementAndGet()
+        throw failure
+      }
+
+      circuitBreaker.recordFailure()
+
+      if (inTransaction()) {
+        // the transaction is lost, only the caller starting it can try again
+        permanentFailures.incrementAndGet()
+        throw failure
+      }
+
+      val waitTime = nextWait(n)
+
+      if (n >= maxAttempts) {
+        giveUp(s"Giving up on query, max. attempts of $maxAttempts reached", failure)
+      } else if (circuitBreaker.isOpen) {
+        giveUp("Giving up on query, the database is considered down", failure)
+      } else if (waited + waitTime > maxTotalWaitMillis) {
+        giveUp(s"Giving up on query, waiting another $waitTime ms exceeds the max. wait of $maxTotalWaitMillis ms", failure)
+      } else if (RequestDeadline.remainingMillis(clock()).exists(_ < waitTime)) {
+        giveUp("Giving up on query, waiting would exceed the deadline of the request", failure)
       } else {
-        lastException match {
-          case Some(e) =>
-            Log.warn("Giving up on query, max. attempts reached")
-            throw new RuntimeException(e)
-          case None => throw new RuntimeException("No waittimes found")
-        }
+        Log.warn(s"Attempt $n: Failed to query, sleeping for $waitTime ms", failure)
+        retries.incrementAndGet()
+        sleep(waitTime)
+
+        attempt(n + 1, clock() - startedAt)
       }
     }
 
-    val random = new Random()
-    val waitTimes = for (i <-  1 to maxAttempts) yield { 1000 * Math.max(1, random.nextInt(1 << i)) }
+    attempt(1, 0)
+  }
+
+  def statistics: RetryStatistics = RetryStatistics(attempts = attempts.get(),
+                                                    retries = retries.get(),
+                                                    permanentFailures = permanentFailures.get(),
+                                                    exhausted = exhausted.get(),
+                                                    circuitState = circuitBreaker.stateName,
+                                                    circuitOpened = circuitBreaker.openedCount,
+                                                    circuitRejected = circuitBreaker.rejectedCount)
+
+  private def nextWait(attempt: Int): Long = {
+    val ceiling = Math.min(maxWaitMillis, baseWaitMillis << Math.min(attempt - 1, 20))
+
+    // equal jitter: at least half the ceiling so concurrent retries don't all hit the database at once
+    ceiling / 2 + (if (ceiling > 1) (random.nextDouble() * (ceiling / 2)).toLong else 0)
+  }
 
-    execOrWait(waitTimes, None)
+  private def giveUp(message: String, e: HibernateException): Nothing = {
+    exhausted.incrementAndGet()
+    Log.warn(message)
+    throw new RuntimeException(e)
   }
 }
+
+object RetryPolicy {
+  private final val Log = Logger.getLogger(classOf[RetryPolicy])
+}
+
+/**
+ * The retry policy all DAOs use
+ */
+object ExponentialBackoffRetryPolicy {
+  private final val MaxAttempts = 5
+  private final val BaseWaitMillis = 200L
+  private final val MaxWaitMillis = 2000L
+  private final val MaxTotalWaitMillis = 5000L
+
+  private final val FailureThreshold = 10
+  private final val OpenMillis = 30000L
+
+  private val policy = new RetryPolicy(MaxAttempts,
+                                       BaseWaitMillis,
+                                       MaxWaitMillis,
+                                       MaxTotalWaitMillis,
+                                       new CircuitBreaker(FailureThreshold, OpenMillis),
+                                       () => System.currentTimeMillis(),
+                                       millis => Thread.sleep(millis))
+
+  def retry[T](op: => T, maxAttempts: Int = MaxAttempts): T = policy.retry(op, maxAttempts)
+
+  def statistics: RetryStatistics = policy.statistics
+}
+
+case class RetryStatistics(attempts: Long,
+                           retries: Long,
+                           permanentFailures: Long,
+                           exhausted: Long,
+                           circuitState: String,
+                           circuitOpened: Long,
+                           circuitRejected: Long)
+
+object RetryStatistics {
+  val Empty = RetryStatistics(0, 0, 0, 0, "closed", 0, 0)
+}
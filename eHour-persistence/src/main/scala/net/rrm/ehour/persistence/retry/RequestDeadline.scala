@@ -0,0 +1,37 @@
+package net.rrm.ehour.persistence.retry
+
+/**
+ * Deadline of the request the current thread is working on. Retries never wait past it.
+ */
+object RequestDeadline {
+  private val deadline = new ThreadLocal[java.lang.Long]
+
+  def set(deadlineMillis: Long) {
+    deadline.set(deadlineMillis)
+  }
+
+  def clear() {
+    deadline.remove()
+  }
+
+  /**
+   * Milliseconds left until the deadline, None when the thread has no deadline
+   */
+  def remainingMillis(now: Long): Option[Long] = Option(deadline.get).map(_.longValue() - now)
+
+  /**
+   * Run the operation with a deadline timeoutMillis from now, an earlier deadline of an outer call is kept
+   */
+  def within[T](timeoutMillis: Long)(op: => T): T = {
+    val previous = deadline.get
+    val proposed = System.currentTimeMillis() + timeoutMillis
+
+    deadline.set(if (previous != null) Math.min(previous.longValue(), proposed) else proposed)
+
+    try {
+      op
+    } finally {
+      if (previous != null) deadline.set(previous) else deadline.remove()
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package net.rrm.ehour.persistence.retry
+
+import java.sql.{SQLException, SQLNonTransientException, SQLRecoverableException, SQLTransientException}
+
+import org.hibernate.{HibernateException, JDBCException, LazyInitializationException, MappingException, NonUniqueObjectException, NonUniqueResultException, PessimisticLockException, PropertyAccessException, PropertyValueException, QueryException, QueryTimeoutException, StaleStateException, TransientObjectException, UnresolvableObjectException, WrongClassException}
+import org.hibernate.exception.{ConstraintViolationException, DataException, JDBCConnectionException, LockAcquisitionException, SQLGrammarException}
+
+/**
+ * Tells failures which may succeed when the query is retried (lost connections, lock timeouts, deadlocks)
+ * apart from failures which will fail again (constraint violations, bad queries, mapping errors)
+ */
+object RetryClassifier {
+  // connection exception, transaction rollback (deadlock), insufficient resources, operator intervention
+  private final val TransientSqlStateClasses = Set("08", "40", "53", "57")
+
+  def isTransient(e: Throwable): Boolean = e match {
+    case _: JDBCConnectionException | _: LockAcquisitionException | _: PessimisticLockException | _: QueryTimeoutException => true
+    case _: ConstraintViolationException | _: SQLGrammarException | _: DataException => false
+    case jdbc: JDBCException => isTransient(jdbc.getSQLException)
+    case _: QueryException | _: MappingException | _: PropertyValueException | _: PropertyAccessException |
+         _: NonUniqueResultException | _: NonUniqueObjectException | _: UnresolvableObjectException |
+         _: StaleStateException | _: TransientObjectException | _: WrongClassException | _: LazyInitializationException => false
+    // anything else hibernate throws was always retried
+    case _: HibernateException => true
+    case _ => false
+  }
+
+  private def isTransient(e: SQLException): Boolean = e match {
+    case null => false
+    case _: SQLTransientException | _: SQLRecoverableException => true
+    case _: SQLNonTransientException => false
+    case _ => Option(e.getSQLState).exists(state => state.length >= 2 && TransientSqlStateClasses.contains(state.substring(0, 2)))
+  }
+}
@@ -6,7 +6,7 @@ import java.util.Date
 import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain.{ProjectAssignment, TimesheetEntry, TimesheetEntryId}
 import net.rrm.ehour.persistence.dao.GenericDao
-import net.rrm.ehour.timesheet.dto.BookedDay
+import net.rrm.ehour.timesheet.dto.{AssignmentBookedRange, BookedDay, UserBookedHours}
 
 trait TimesheetDao extends GenericDao[TimesheetEntryId, TimesheetEntry] {
   /**
@@ -19,6 +19,16 @@ trait TimesheetDao extends GenericDao[TimesheetEntryId, TimesheetEntry] {
    */
   def getTimesheetEntriesInRange(assignment: ProjectAssignment, dateRange: DateRange): util.List[TimesheetEntry]
 
+  /**
+   * Get timesheet entries within date range for a set of assignments
+   */
+  def getTimesheetEntriesForAssignmentsInRange(assignmentIds: util.List[Integer], dateRange: DateRange): util.List[TimesheetEntry]
+
+  /**
+   * Get the first and last booked day per assignment, ignoring the entries within the date range
+   */
+  def getBookedRangesOutsideRange(assignmentIds: util.List[Integer], dateRange: DateRange): util.List[AssignmentBookedRange]
+
   /**
    * Get timesheet entries within date range
    */
@@ -40,6 +50,11 @@ trait TimesheetDao extends GenericDao[TimesheetEntryId, TimesheetEntry] {
    */
   def getBookedHoursperDayInRange(userId: Integer, dateRange: DateRange): util.List[BookedDay]
 
+  /**
+   * Get the total booked hours per user for a date range, users without any booked hours are left out
+   */
+  def getBookedHoursPerUserInRange(dateRange: DateRange): util.List[UserBookedHours]
+
   /**
    * Get latest timesheet entry for assignment
    */
@@ -49,6 +64,11 @@ trait TimesheetDao extends GenericDao[TimesheetEntryId, TimesheetEntry] {
    * Delete timesheet entries for assignment
    */
   def deleteTimesheetEntries(assignmentIds: util.List[Integer]): Int
+
+  /**
+   * Insert, update and delete entries in one flush so the statements are sent in JDBC batches
+   */
+  def writeBatch(inserts: util.List[TimesheetEntry], updates: util.List[TimesheetEntry], deletes: util.List[TimesheetEntry])
 }
 
 
@@ -7,8 +7,11 @@ import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain.{ProjectAssignment, TimesheetEntry, TimesheetEntryId}
 import net.rrm.ehour.persistence.dao.AbstractGenericDaoHibernateImpl
 import net.rrm.ehour.persistence.retry.ExponentialBackoffRetryPolicy
-import net.rrm.ehour.timesheet.dto.BookedDay
+import net.rrm.ehour.timesheet.dto.{AssignmentBookedRange, BookedDay, UserBookedHours}
 import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
+
+import scala.collection.JavaConversions._
 
 @Repository("timesheetDAO")
 class TimesheetDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[TimesheetEntryId, TimesheetEntry](classOf[TimesheetEntry]) with TimesheetDao {
@@ -21,6 +24,20 @@ class TimesheetDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Timeshee
     findByNamedQuery("Timesheet.getEntriesBetweenDateForAssignment", keys, params)
   }
 
+  override def getTimesheetEntriesForAssignmentsInRange(assignmentIds: util.List[Integer], dateRange: DateRange): util.List[TimesheetEntry] =
+    if (assignmentIds.isEmpty) new util.ArrayList[TimesheetEntry]() else {
+      val keys = List("dateStart", "dateEnd", "assignmentIds")
+      val params = List(dateRange.getDateStart, dateRange.getDateEnd, assignmentIds)
+      findByNamedQuery("Timesheet.getEntriesBetweenDateForAssignmentIds", keys, params)
+    }
+
+  override def getBookedRangesOutsideRange(assignmentIds: util.List[Integer], dateRange: DateRange): util.List[AssignmentBookedRange] =
+    if (assignmentIds.isEmpty) new util.ArrayList[AssignmentBookedRange]() else {
+      val keys = List("dateStart", "dateEnd", "assignmentIds")
+      val params = List(dateRange.getDateStart, dateRange.getDateEnd, assignmentIds)
+      findByNamedQuery("Timesheet.getBookedRangeOutsideDateForAssignmentIds", keys, params).asInstanceOf[util.List[AssignmentBookedRange]]
+    }
+
   override def getTimesheetEntriesInRange(dateRange: DateRange): util.List[TimesheetEntry] = {
     val keys = List("dateStart", "dateEnd")
     val params = List(dateRange.getDateStart, dateRange.getDateEnd)
@@ -30,6 +47,12 @@ class TimesheetDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Timeshee
   override def getBookedHoursperDayInRange(userId: Integer, dateRange: DateRange): util.List[BookedDay] =
     applyConstraintsAndExecute(userId, dateRange, "Timesheet.getBookedDaysInRangeForUserId", classOf[BookedDay])
 
+  override def getBookedHoursPerUserInRange(dateRange: DateRange): util.List[UserBookedHours] = {
+    val keys = List("dateStart", "dateEnd")
+    val params = List(dateRange.getDateStart, dateRange.getDateEnd)
+    findByNamedQuery("Timesheet.getBookedHoursPerUserInRange", keys, params).asInstanceOf[util.List[UserBookedHours]]
+  }
+
   private def applyConstraintsAndExecute[T](userId: Integer, dateRange: DateRange, hql: String, clazz: Class[T]): util.List[T] = {
     val keys = List("dateStart", "dateEnd", "userId")
     val params = List(dateRange.getDateStart, dateRange.getDateEnd, userId)
@@ -47,6 +70,18 @@ class TimesheetDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Timeshee
     ExponentialBackoffRetryPolicy retry query.executeUpdate
   }
 
+  @Transactional
+  override def writeBatch(inserts: util.List[TimesheetEntry], updates: util.List[TimesheetEntry], deletes: util.List[TimesheetEntry]) {
+    val session = getSession
+
+    // entry ids are assigned so save() doesn't need the select saveOrUpdate() does to tell new from existing entries
+    inserts.foreach(entry => session.save(entry))
+    updates.foreach(entry => session.merge(entry))
+    deletes.foreach(entry => session.delete(entry))
+
+    ExponentialBackoffRetryPolicy retry session.flush()
+  }
+
   override def getTimesheetEntriesAfter(assignment: ProjectAssignment, date: Date): util.List[TimesheetEntry] = {
     val keys = List("date", "assignment")
     val params = List(date, assignment)
@@ -8,6 +8,11 @@ import org.springframework.stereotype.Repository
 
 trait TimesheetLockDao extends GenericDao[Integer, TimesheetLock] {
   def findMatchingLock(start: Date, end: Date): JList[TimesheetLock]
+
+  /**
+   * All locks with their excluded users initialized
+   */
+  def findAllWithExcludedUsers(): JList[TimesheetLock]
 }
 
 @Repository("timesheetLockDao")
@@ -18,4 +23,6 @@ class TimesheetLockDaoHibernateImpl extends AbstractGenericDaoHibernateImpl[Inte
 
     findByNamedQuery("TimesheetLock.getLocksMatchingDate", keys, params)
   }
+
+  override def findAllWithExcludedUsers(): JList[TimesheetLock] = findByNamedQuery("TimesheetLock.findAllWithExcludedUsers", None)
 }
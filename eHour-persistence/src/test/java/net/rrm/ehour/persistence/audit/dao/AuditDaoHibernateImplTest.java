@@ -1,19 +1,24 @@
 package net.rrm.ehour.persistence.audit.dao;
 
+import net.rrm.ehour.data.AuditKey;
 import net.rrm.ehour.data.AuditReportRequest;
 import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.domain.Audit;
+import net.rrm.ehour.domain.AuditActionType;
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
 import net.rrm.ehour.util.DateUtil;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author thies (Thies Edeling - thies@te-con.nl)
@@ -37,6 +42,9 @@ public class AuditDaoHibernateImplTest extends AbstractAnnotationDaoTest {
         DateRange range = DateUtil.getDateRangeForMonth(cal);
         request = new AuditReportRequest();
         request.setReportRange(range);
+
+        // searches rely on the token index for all audits, as they do once the indexer finished
+        auditDAO.useTokenIndexFrom(0);
     }
 
     @Test
@@ -47,6 +55,140 @@ public class AuditDaoHibernateImplTest extends AbstractAnnotationDaoTest {
         assertEquals(79, res.get(9).getAuditId().intValue());
     }
 
+    @Test
+    public void shouldSeekPastKeyWithSameDate() {
+        Date sameDate = new GregorianCalendar(2008, Calendar.NOVEMBER, 10, 21, 29, 25).getTime();
+
+        List<Audit> res = auditDAO.findAudits(request, new AuditKey(sameDate, 63), null, 0, 5, false);
+
+        assertEquals(5, res.size());
+        assertEquals(64, res.get(0).getAuditId().intValue());
+        assertEquals(68, res.get(4).getAuditId().intValue());
+    }
+
+    @Test
+    public void shouldSeekToSameAuditsAsOffset() {
+        List<Audit> firstPage = auditDAO.findAudits(request, 0, 10);
+        Audit last = firstPage.get(firstPage.size() - 1);
+
+        List<Audit> seeked = auditDAO.findAudits(request, AuditKey.of(last), null, 0, 10, false);
+
+        assertEquals(auditDAO.findAudits(request, 10, 10), seeked);
+    }
+
+    @Test
+    public void shouldFindLastAuditsReversed() {
+        List<Audit> res = auditDAO.findAudits(request, null, null, 0, 5, true);
+
+        assertEquals(5, res.size());
+        assertEquals(99, res.get(0).getAuditId().intValue());
+        assertEquals(95, res.get(4).getAuditId().intValue());
+    }
+
+    @Test
+    public void shouldSeekBackwardsPastKey() {
+        Date sameDate = new GregorianCalendar(2008, Calendar.NOVEMBER, 10, 21, 29, 25).getTime();
+
+        List<Audit> res = auditDAO.findAudits(request, new AuditKey(sameDate, 63), null, 0, 5, true);
+
+        assertEquals(3, res.size());
+        assertEquals(62, res.get(0).getAuditId().intValue());
+        assertEquals(60, res.get(2).getAuditId().intValue());
+    }
+
+    @Test
+    public void shouldLeaveOutAuditsAfterUpTo() {
+        AuditKey last = auditDAO.findLastAuditKey(request);
+        assertEquals(99, last.getAuditId().intValue());
+
+        auditDAO.persist(new Audit().setDate(new GregorianCalendar(2008, Calendar.NOVEMBER, 20).getTime()).setAction("getUsers"));
+
+        assertEquals(41, auditDAO.count(request).intValue());
+        assertEquals(40, auditDAO.count(request, last).intValue());
+        assertEquals(99, auditDAO.findAudits(request, null, last, 0, 5, true).get(0).getAuditId().intValue());
+    }
+
+    @Test
+    public void shouldFindOldestAuditDate() {
+        Date oldest = auditDAO.findOldestAuditDate();
+
+        assertEquals(new GregorianCalendar(2008, Calendar.NOVEMBER, 10, 21, 29, 10).getTimeInMillis(), oldest.getTime());
+    }
+
+    @Test
+    public void shouldDeleteAuditsBefore() {
+        int deleted = auditDAO.deleteAuditsBefore(new GregorianCalendar(2008, Calendar.NOVEMBER, 11).getTime());
+
+        assertEquals(19, deleted);
+        assertEquals(21, auditDAO.count(request).intValue());
+        assertNull(auditDAO.findById(60));
+    }
+
+    @Test
+    public void shouldFindActionThroughTokenIndex() {
+        assertEquals(60, auditDAO.indexTokensBefore(Integer.MAX_VALUE, 100).intValue());
+
+        request.setAction("getCustomers");
+
+        assertEquals(9, auditDAO.count(request).intValue());
+        assertEquals(9, auditDAO.findAudits(request).size());
+    }
+
+    @Test
+    public void shouldFindUserNameThroughTokenIndex() {
+        auditDAO.indexTokensBefore(Integer.MAX_VALUE, 100);
+
+        request.setName("ehour");
+
+        assertEquals(38, auditDAO.count(request).intValue());
+    }
+
+    @Test
+    public void shouldFindAuditsBelowTheIndexedRangeWithTheLike() {
+        auditDAO.indexTokensBefore(Integer.MAX_VALUE, 20);
+        auditDAO.useTokenIndexFrom(80);
+
+        request.setAction("getCustomers");
+
+        assertEquals(9, auditDAO.count(request).intValue());
+        assertEquals(9, auditDAO.findAudits(request).size());
+    }
+
+    @Test
+    public void shouldIndexInBatches() {
+        assertEquals(75, auditDAO.indexTokensBefore(80, 5).intValue());
+        assertEquals(75, auditDAO.findFirstIndexedAuditId().intValue());
+        assertEquals(99, auditDAO.findLastAuditId().intValue());
+
+        assertNull(auditDAO.indexTokensBefore(60, 5));
+    }
+
+    @Test
+    public void shouldIndexBatchPersistedAudits() {
+        Calendar cal = new GregorianCalendar(2008, Calendar.NOVEMBER, 15);
+
+        Audit first = new Audit().setDate(cal.getTime()).setAction("getUsers").setAuditActionType(AuditActionType.READ);
+        Audit second = new Audit().setDate(cal.getTime()).setAction("getUsersWithEmailSet").setAuditActionType(AuditActionType.READ);
+
+        auditDAO.persistBatch(Arrays.asList(first, second));
+
+        // the audits of the dataset aren't indexed
+        request.setAction("getUsers");
+
+        assertEquals(2, auditDAO.count(request).intValue());
+    }
+
+    @Test
+    public void shouldIndexPersistedAudit() {
+        Audit audit = new Audit().setDate(new GregorianCalendar(2008, Calendar.NOVEMBER, 15).getTime()).setAction("persistProjectAssignment");
+
+        auditDAO.persist(audit);
+
+        request.setAction("projectAssignment");
+
+        assertEquals(audit, auditDAO.findAudits(request).get(0));
+    }
+
     @Test
     public void shouldCouldAllCount() {
         Number count = auditDAO.count(request);
@@ -61,4 +203,16 @@ public class AuditDaoHibernateImplTest extends AbstractAnnotationDaoTest {
         assertEquals(40, all.size());
     }
 
+    @Test
+    public void shouldPersistBatch() {
+        Calendar cal = new GregorianCalendar(2008, Calendar.NOVEMBER, 15);
+
+        Audit read = new Audit().setDate(cal.getTime()).setAction("getUsers").setAuditActionType(AuditActionType.READ);
+        Audit update = new Audit().setDate(cal.getTime()).setAction("persistUser").setSuccess(Boolean.FALSE).setAuditActionType(AuditActionType.UPDATE);
+
+        auditDAO.persistBatch(Arrays.asList(read, update));
+
+        assertEquals(42, auditDAO.count(request).intValue());
+    }
+
 }
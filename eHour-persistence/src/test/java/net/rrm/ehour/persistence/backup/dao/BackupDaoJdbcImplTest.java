@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 
@@ -25,6 +26,26 @@ public class BackupDaoJdbcImplTest extends AbstractAnnotationDaoTest {
         assertEquals(12, list.size());
     }
 
+    @Test
+    public void shouldStreamAllTimesheetEntries() {
+        final AtomicInteger handled = new AtomicInteger();
+
+        int rows = exportDao.streamAll("TIMESHEET_ENTRY", new BackupRowHandler() {
+            @Override
+            public void handle(Map<String, Object> row) {
+                handled.incrementAndGet();
+            }
+        });
+
+        assertEquals(12, rows);
+        assertEquals(12, handled.get());
+    }
+
+    @Test
+    public void shouldCountTimesheetEntries() {
+        assertEquals(12, exportDao.count("TIMESHEET_ENTRY"));
+    }
+
     @Autowired
     private BackupDao exportDao;
 }
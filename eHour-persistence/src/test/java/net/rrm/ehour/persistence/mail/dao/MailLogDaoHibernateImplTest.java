@@ -4,8 +4,11 @@ import net.rrm.ehour.domain.MailLog;
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import scala.collection.JavaConversions;
 import scala.collection.immutable.List;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
 
 public class MailLogDaoHibernateImplTest extends AbstractAnnotationDaoTest {
@@ -27,4 +30,10 @@ public class MailLogDaoHibernateImplTest extends AbstractAnnotationDaoTest {
         List<MailLog> xs = mailLogDao.find("thies@aa.net", "DD");
         assertEquals(1, xs.size());
     }
+
+    @Test
+    public void shouldFindMailLogsOnEvents() {
+        List<MailLog> xs = mailLogDao.findOnEvents(JavaConversions.asScalaBuffer(Arrays.asList("CC", "DD", "EE")));
+        assertEquals(2, xs.size());
+    }
 }
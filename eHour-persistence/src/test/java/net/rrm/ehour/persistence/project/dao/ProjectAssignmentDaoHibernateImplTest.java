@@ -3,6 +3,7 @@ package net.rrm.ehour.persistence.project.dao;
 import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.domain.*;
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
+import net.rrm.ehour.timesheet.dto.UserAssignmentPeriod;
 import net.rrm.ehour.util.EhourConstants;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -94,6 +95,24 @@ public class ProjectAssignmentDaoHibernateImplTest extends AbstractAnnotationDao
         assertEquals(8, results.size());
     }
 
+    @Test
+    public void shouldFindBookableAssignmentPeriodsForAllUsersInRange() {
+        DateRange range = new DateRange(new Date(2006 - 1900, Calendar.OCTOBER, 24), new Date(2007 - 1900, Calendar.JANUARY, 10));
+
+        List<UserAssignmentPeriod> results = projectAssignmentDAO.findBookableAssignmentPeriods(range);
+
+        int periodsOfUser2 = 0;
+
+        for (UserAssignmentPeriod period : results) {
+            if (period.getUserId() == 2) {
+                periodsOfUser2++;
+            }
+        }
+
+        assertEquals(6, results.size());
+        assertEquals(1, periodsOfUser2);
+    }
+
     @Test
     public void shouldFindProjectAssignmentsForCustomer() {
         DateRange range = new DateRange(new Date(2006 - 1900, Calendar.AUGUST, 24), new Date(2007 - 1900, Calendar.JANUARY, 10));
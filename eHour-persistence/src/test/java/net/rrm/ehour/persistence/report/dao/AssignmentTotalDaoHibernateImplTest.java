@@ -0,0 +1,170 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.persistence.report.dao;
+
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.AssignmentTotal;
+import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
+import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"deprecation"})
+public class AssignmentTotalDaoHibernateImplTest extends AbstractAnnotationDaoTest {
+    @Autowired
+    private AssignmentTotalDao assignmentTotalDao;
+
+    @Autowired
+    private TimesheetDao timesheetDAO;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    public AssignmentTotalDaoHibernateImplTest() {
+        super("dataset-reportaggregated.xml");
+    }
+
+    @Test
+    public void shouldRebuild() {
+        int totals = assignmentTotalDao.rebuild();
+
+        assertEquals(5, totals);
+        assertFalse(assignmentTotalDao.isEmpty());
+        assertTrue(assignmentTotalDao.findInconsistencies().isEmpty());
+
+        AssignmentTotal total = assignmentTotalDao.find(1);
+        assertEquals(38.7f, total.getHours(), 0.1);
+        assertEquals(6, total.getEntryCount().intValue());
+        assertEquals(new Date(2006 - 1900, 10 - 1, 2).getTime(), total.getFirstEntryDate().getTime());
+        assertEquals(new Date(2006 - 1900, 10 - 1, 31).getTime(), total.getLastEntryDate().getTime());
+    }
+
+    @Test
+    public void shouldFindMissingTotals() {
+        assertTrue(assignmentTotalDao.isEmpty());
+
+        List<AssignmentTotalInconsistency> inconsistencies = assignmentTotalDao.findInconsistencies();
+
+        assertEquals(5, inconsistencies.size());
+
+        AssignmentTotalInconsistency first = inconsistencies.get(0);
+        assertEquals(1, first.assignmentId());
+        assertEquals(38.7, first.entryHours(), 0.1);
+        assertEquals(0, first.totalHours(), 0.1);
+        assertNull(first.totalLastDate());
+    }
+
+    @Test
+    public void shouldFindTotalsForAssignments() {
+        assignmentTotalDao.rebuild();
+
+        List<AssignmentTotal> totals = assignmentTotalDao.findForAssignments(Arrays.asList(1, 5, 99));
+
+        assertEquals(2, totals.size());
+    }
+
+    @Test
+    public void shouldRefreshAfterEntriesChanged() {
+        assignmentTotalDao.rebuild();
+
+        timesheetDAO.deleteTimesheetEntries(Arrays.asList(5));
+
+        assertEquals(1, assignmentTotalDao.findInconsistencies().size());
+
+        assignmentTotalDao.refresh(Arrays.asList(5));
+
+        assertTrue(assignmentTotalDao.findInconsistencies().isEmpty());
+        assertNull(assignmentTotalDao.find(5));
+    }
+
+    @Test
+    public void shouldAddBookedWeek() {
+        assignmentTotalDao.rebuild();
+
+        Date booked = new Date(2006 - 1900, 11 - 1, 7);
+        DateRange week = new DateRange(new Date(2006 - 1900, 11 - 1, 6), new Date(2006 - 1900, 11 - 1, 12));
+
+        assignmentTotalDao.add(1, 8f, 1, week, booked, booked);
+
+        AssignmentTotal total = assignmentTotalDao.find(1);
+        assertEquals(46.7f, total.getHours(), 0.1);
+        assertEquals(7, total.getEntryCount().intValue());
+        assertEquals(new Date(2006 - 1900, 10 - 1, 2).getTime(), total.getFirstEntryDate().getTime());
+        assertEquals(booked.getTime(), total.getLastEntryDate().getTime());
+    }
+
+    @Test
+    public void shouldAddToHoursSavedAfterTotalWasLoaded() {
+        assignmentTotalDao.rebuild();
+
+        // loaded in the session, then changed in the database like a concurrent save would
+        assignmentTotalDao.findForAssignments(Arrays.asList(1));
+
+        sessionFactory.getCurrentSession().doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("UPDATE ASSIGNMENT_TOTAL SET HOURS = HOURS + 10, ENTRY_COUNT = ENTRY_COUNT + 1 WHERE ASSIGNMENT_ID = 1");
+                }
+            }
+        });
+
+        Date booked = new Date(2006 - 1900, 11 - 1, 7);
+        DateRange week = new DateRange(new Date(2006 - 1900, 11 - 1, 6), new Date(2006 - 1900, 11 - 1, 12));
+
+        assignmentTotalDao.add(1, 8f, 1, week, booked, booked);
+
+        AssignmentTotal total = assignmentTotalDao.find(1);
+        assertEquals(56.7f, total.getHours(), 0.1);
+        assertEquals(8, total.getEntryCount().intValue());
+    }
+
+    @Test
+    public void shouldRefreshWhenLastBookedDayIsRemoved() {
+        assignmentTotalDao.rebuild();
+
+        DateRange week = new DateRange(new Date(2006 - 1900, 10 - 1, 30), new Date(2006 - 1900, 11 - 1, 5));
+
+        // the entry itself is still there, a refresh recalculates the total from the entries
+        assignmentTotalDao.add(1, -9.2f, -1, week, null, null);
+
+        AssignmentTotal total = assignmentTotalDao.find(1);
+        assertEquals(38.7f, total.getHours(), 0.1);
+        assertEquals(new Date(2006 - 1900, 10 - 1, 31).getTime(), total.getLastEntryDate().getTime());
+    }
+
+    @Test
+    public void shouldDeleteForAssignments() {
+        assignmentTotalDao.rebuild();
+
+        int deleted = assignmentTotalDao.deleteForAssignments(Arrays.asList(5, 7));
+
+        assertEquals(2, deleted);
+        assertNotNull(assignmentTotalDao.find(1));
+    }
+}
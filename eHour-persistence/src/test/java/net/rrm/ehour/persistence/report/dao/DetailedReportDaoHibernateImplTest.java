@@ -19,6 +19,7 @@ package net.rrm.ehour.persistence.report.dao;
 import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
 import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -90,4 +91,42 @@ public class DetailedReportDaoHibernateImplTest extends AbstractAnnotationDaoTes
 
         assertEquals(12, results.size());
     }
+
+    @Test
+    public void shouldStreamHoursPerDay() {
+        DateRange dateRange = new DateRange(new Date(2006 - 1900, 5 - 1, 1),
+                new Date(2008 - 1900, 1, 3));
+
+        CollectingSink sink = new CollectingSink();
+        int rows = detailedReportDao.streamHoursPerDay(dateRange, sink);
+
+        assertEquals(12, rows);
+        assertEquals(12, sink.elements.size());
+        assertNotNull(sink.elements.get(0).getDayDate());
+    }
+
+    @Test
+    public void shouldStreamHoursPerDayForProjectsAndUsers() {
+        DateRange dateRange = new DateRange(new Date(2006 - 1900, 5 - 1, 1),
+                new Date(2008 - 1900, 1, 3));
+        List<Integer> projectIds = new ArrayList<>();
+        projectIds.add(2);
+        List<Integer> userIds = new ArrayList<>();
+        userIds.add(1);
+
+        CollectingSink sink = new CollectingSink();
+        detailedReportDao.streamHoursPerDayForProjectsAndUsers(projectIds, userIds, dateRange, sink);
+
+        assertEquals(2, sink.elements.size());
+        assertEquals(2, sink.elements.get(0).getProjectId().intValue());
+    }
+
+    private static class CollectingSink implements ReportElementSink<FlatReportElement> {
+        private final List<FlatReportElement> elements = new ArrayList<>();
+
+        @Override
+        public void accept(FlatReportElement element) {
+            elements.add(element);
+        }
+    }
 }
@@ -21,16 +21,20 @@ import net.rrm.ehour.domain.*;
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
 import net.rrm.ehour.util.DomainUtil;
+import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings({"deprecation"})
 public class ReportAggregatedDaoHibernateImplTest extends AbstractAnnotationDaoTest {
@@ -43,10 +47,19 @@ public class ReportAggregatedDaoHibernateImplTest extends AbstractAnnotationDaoT
     @Autowired
     private ReportAggregatedDao reportAggregatedDAO;
 
+    @Autowired
+    private TimesheetRollupDao timesheetRollupDao;
+
     public ReportAggregatedDaoHibernateImplTest() {
         super("dataset-reportaggregated.xml");
     }
 
+    @Before
+    public void rebuildRollup() {
+        // the dataset only fills the timesheet entries
+        timesheetRollupDao.rebuild();
+    }
+
     @Test
     public void shouldGetMinMaxDateTimesheetEntry() {
         Date endDate = new Date(OCT_2_2006_EOF.getTime() + 999);
@@ -142,6 +155,42 @@ public class ReportAggregatedDaoHibernateImplTest extends AbstractAnnotationDaoT
         assertEquals(2, results.size());
     }
 
+    @Test
+    public void shouldGetCumulatedHoursPerAssignmentFromRollupAndPartialMonths() {
+        DateRange dateRange = new DateRange(new Date(2006 - 1900, 10 - 1, 3), new Date(2007 - 1900, 2 - 1, 1));
+
+        List<AssignmentAggregateReportElement> results = reportAggregatedDAO.getCumulatedHoursPerAssignment(dateRange);
+
+        Map<Integer, Float> hoursPerAssignment = new HashMap<>();
+
+        for (AssignmentAggregateReportElement result : results) {
+            hoursPerAssignment.put(result.getProjectAssignment().getAssignmentId(), result.getHours().floatValue());
+        }
+
+        assertEquals(4, results.size());
+        assertEquals(30.7f, hoursPerAssignment.get(1), 0.1);
+        assertEquals(-7f, hoursPerAssignment.get(2), 0.1);
+        assertEquals(9.2f, hoursPerAssignment.get(5), 0.1);
+        assertEquals(8f, hoursPerAssignment.get(12), 0.1);
+    }
+
+    @Test
+    public void shouldGetCumulatedHoursPerAssignmentForWholeMonths() {
+        DateRange dateRange = new DateRange(OCT_1_2006, new Date(2007 - 1900, 1 - 1, 31));
+        List<User> users = Arrays.asList(UserObjectMother.createUser());
+
+        List<AssignmentAggregateReportElement> results = reportAggregatedDAO.getCumulatedHoursPerAssignmentForUsers(users, dateRange);
+
+        for (AssignmentAggregateReportElement result : results) {
+            if (result.getProjectAssignment().getAssignmentId() == 1) {
+                assertEquals(38.7f, result.getHours().floatValue(), 0.1);
+                return;
+            }
+        }
+
+        fail("assignment 1 not found");
+    }
+
     @Test
     public void shouldGetAssignmentsWithoutHours() {
         List<ProjectAssignment> assignments = reportAggregatedDAO.getAssignmentsWithoutBookings(OCT_1_TO_4);
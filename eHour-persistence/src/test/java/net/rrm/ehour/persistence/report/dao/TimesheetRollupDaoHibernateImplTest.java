@@ -0,0 +1,110 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.persistence.report.dao;
+
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.ProjectAssignment;
+import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
+import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
+import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"deprecation"})
+public class TimesheetRollupDaoHibernateImplTest extends AbstractAnnotationDaoTest {
+    @Autowired
+    private TimesheetRollupDao timesheetRollupDao;
+
+    @Autowired
+    private TimesheetDao timesheetDAO;
+
+    @Autowired
+    private ReportAggregatedDao reportAggregatedDAO;
+
+    public TimesheetRollupDaoHibernateImplTest() {
+        super("dataset-reportaggregated.xml");
+    }
+
+    @Test
+    public void shouldRebuild() {
+        int rows = timesheetRollupDao.rebuild();
+
+        assertEquals(6, rows);
+        assertFalse(timesheetRollupDao.isEmpty());
+        assertTrue(timesheetRollupDao.findInconsistencies().isEmpty());
+    }
+
+    @Test
+    public void shouldFindMissingRollup() {
+        assertTrue(timesheetRollupDao.isEmpty());
+
+        List<RollupInconsistency> inconsistencies = timesheetRollupDao.findInconsistencies();
+
+        assertEquals(6, inconsistencies.size());
+
+        RollupInconsistency first = inconsistencies.get(0);
+        assertEquals(1, first.assignmentId());
+        assertEquals(new Date(2006 - 1900, 10 - 1, 1), first.month());
+        assertEquals(38.7, first.entryHours(), 0.1);
+        assertEquals(0, first.rollupHours(), 0.1);
+    }
+
+    @Test
+    public void shouldRefreshAfterEntriesChanged() {
+        timesheetRollupDao.rebuild();
+
+        timesheetDAO.deleteTimesheetEntries(Arrays.asList(5));
+
+        assertEquals(2, timesheetRollupDao.findInconsistencies().size());
+
+        timesheetRollupDao.refresh(Arrays.asList(5), new DateRange(new Date(2006 - 1900, 10 - 1, 3), new Date(2007 - 1900, 2 - 1, 2)));
+
+        assertTrue(timesheetRollupDao.findInconsistencies().isEmpty());
+        assertNull(reportAggregatedDAO.getCumulatedHoursForAssignment(new ProjectAssignment(5)));
+    }
+
+    @Test
+    public void shouldOnlyRefreshMonthsInRange() {
+        timesheetRollupDao.rebuild();
+
+        timesheetDAO.deleteTimesheetEntries(Arrays.asList(5));
+
+        timesheetRollupDao.refresh(Arrays.asList(5), new DateRange(new Date(2007 - 1900, 2 - 1, 2), new Date(2007 - 1900, 2 - 1, 2)));
+
+        List<RollupInconsistency> inconsistencies = timesheetRollupDao.findInconsistencies();
+        assertEquals(1, inconsistencies.size());
+        assertEquals(new Date(2006 - 1900, 10 - 1, 1), inconsistencies.get(0).month());
+    }
+
+    @Test
+    public void shouldDeleteForAssignments() {
+        timesheetRollupDao.rebuild();
+
+        int deleted = timesheetRollupDao.deleteForAssignments(Arrays.asList(5, 7));
+
+        assertEquals(3, deleted);
+
+        AssignmentAggregateReportElement aggregate = reportAggregatedDAO.getCumulatedHoursForAssignment(new ProjectAssignment(1));
+        assertEquals(38.7f, aggregate.getHours().floatValue(), 0.1);
+    }
+}
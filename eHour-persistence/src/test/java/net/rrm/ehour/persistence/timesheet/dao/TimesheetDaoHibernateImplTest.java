@@ -3,8 +3,11 @@ package net.rrm.ehour.persistence.timesheet.dao;
 import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.domain.ProjectAssignment;
 import net.rrm.ehour.domain.TimesheetEntry;
+import net.rrm.ehour.domain.TimesheetEntryId;
 import net.rrm.ehour.persistence.dao.AbstractAnnotationDaoTest;
+import net.rrm.ehour.timesheet.dto.AssignmentBookedRange;
 import net.rrm.ehour.timesheet.dto.BookedDay;
+import net.rrm.ehour.timesheet.dto.UserBookedHours;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -55,6 +58,45 @@ public class TimesheetDaoHibernateImplTest extends AbstractAnnotationDaoTest {
         assertEquals(9, results.size());
     }
 
+    @Test
+    public void shouldGetTimesheetEntriesInRangeForAssignments() {
+        DateRange week = new DateRange(new Date(2006 - 1900, Calendar.OCTOBER, 2), new Date(2006 - 1900, Calendar.OCTOBER, 8));
+
+        List<TimesheetEntry> results = timesheetDAO.getTimesheetEntriesForAssignmentsInRange(Arrays.asList(1, 2), week);
+
+        assertEquals(6, results.size());
+    }
+
+    @Test
+    public void shouldGetBookedHoursPerUserInRange() {
+        DateRange week = new DateRange(new Date(2006 - 1900, Calendar.OCTOBER, 2), new Date(2006 - 1900, Calendar.OCTOBER, 8));
+
+        List<UserBookedHours> results = timesheetDAO.getBookedHoursPerUserInRange(week);
+
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).getUserId().intValue());
+        assertEquals(22.7, results.get(0).getHours().doubleValue(), 0.01);
+    }
+
+    @Test
+    public void shouldGetBookedRangesOutsideRange() {
+        DateRange week = new DateRange(new Date(2006 - 1900, Calendar.OCTOBER, 2), new Date(2006 - 1900, Calendar.OCTOBER, 8));
+
+        List<AssignmentBookedRange> results = timesheetDAO.getBookedRangesOutsideRange(Arrays.asList(1, 2, 5), week);
+
+        assertEquals(2, results.size());
+
+        for (AssignmentBookedRange range : results) {
+            if (range.getAssignmentId() == 1) {
+                assertEquals(new Date(2006 - 1900, Calendar.OCTOBER, 10), range.getFirstEntryDate());
+                assertEquals(new Date(2006 - 1900, Calendar.OCTOBER, 31), range.getLastEntryDate());
+            } else {
+                assertEquals(5, range.getAssignmentId().intValue());
+                assertEquals(new Date(2007 - 1900, Calendar.FEBRUARY, 2), range.getFirstEntryDate());
+            }
+        }
+    }
+
     @Test
     public void shouldGetBookedHoursperDayInRange() {
         Calendar dateStart = new GregorianCalendar(2006, Calendar.OCTOBER, 1);
@@ -98,6 +140,35 @@ public class TimesheetDaoHibernateImplTest extends AbstractAnnotationDaoTest {
         assertEquals(2, deleted);
     }
 
+    @Test
+    public void shouldWriteBatch() {
+        ProjectAssignment assignment = new ProjectAssignment(1);
+        DateRange range = new DateRange(new Date(2006 - 1900, Calendar.OCTOBER, 2), new Date(2006 - 1900, Calendar.OCTOBER, 6));
+
+        List<TimesheetEntry> entries = timesheetDAO.getTimesheetEntriesInRange(assignment, range);
+        assertEquals(4, entries.size());
+
+        TimesheetEntry update = new TimesheetEntry(new TimesheetEntryId(new Date(2006 - 1900, Calendar.OCTOBER, 2), assignment), 1f);
+        TimesheetEntry insert = new TimesheetEntry(new TimesheetEntryId(new Date(2006 - 1900, Calendar.OCTOBER, 5), assignment), 3f);
+        TimesheetEntry delete = entries.get(entries.indexOf(new TimesheetEntry(new TimesheetEntryId(new Date(2006 - 1900, Calendar.OCTOBER, 3), assignment))));
+
+        update.setUpdateDate(new Date());
+        insert.setUpdateDate(new Date());
+
+        timesheetDAO.writeBatch(Arrays.asList(insert), Arrays.asList(update), Arrays.asList(delete));
+
+        List<TimesheetEntry> written = timesheetDAO.getTimesheetEntriesInRange(assignment, range);
+        assertEquals(4, written.size());
+
+        float hours = 0;
+
+        for (TimesheetEntry entry : written) {
+            hours += entry.getHours();
+        }
+
+        assertEquals(1f + 2f + 3f + 6.5f, hours, 0.01f);
+    }
+
     @Autowired
     private TimesheetDao timesheetDAO;
 }
@@ -80,4 +80,12 @@ public class TimesheetLockDaoHibernateImplTest extends AbstractAnnotationDaoTest
         assertEquals(20, locks.get(0).getLockId().intValue());
     }
 
+    @Test
+    public void shouldFindAllWithExcludedUsers() {
+        List<TimesheetLock> locks = timesheetLockDao.findAllWithExcludedUsers();
+
+        assertEquals(2, locks.size());
+        Assert.assertTrue(locks.get(0).getExcludedUsers().isEmpty());
+    }
+
 }
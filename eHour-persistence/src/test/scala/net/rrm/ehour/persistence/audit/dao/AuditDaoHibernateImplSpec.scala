@@ -0,0 +1,128 @@
+package net.rrm.ehour.persistence.audit.dao
+
+import java.io.Serializable
+import java.sql.{Connection, PreparedStatement, ResultSet}
+import java.util.Date
+
+import net.rrm.ehour.AbstractSpec
+import net.rrm.ehour.domain.Audit
+import org.hibernate.dialect.{MySQL5Dialect, PostgreSQL81Dialect}
+import org.hibernate.engine.spi.{SessionFactoryImplementor, SessionImplementor}
+import org.hibernate.event.spi.EventSource
+import org.hibernate.id.{IdentifierGenerator, IdentityGenerator, SequenceGenerator}
+import org.hibernate.jdbc.Work
+import org.mockito.Matchers._
+import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+
+import scala.collection.JavaConversions._
+import scala.collection.mutable
+
+class AuditDaoHibernateImplSpec extends AbstractSpec {
+  val sessionFactory = mock[SessionFactoryImplementor]
+  val session = mock[EventSource]
+  val connection = mock[Connection]
+  val auditStatement = mock[PreparedStatement]
+  val tokenStatement = mock[PreparedStatement]
+
+  // stands in for hibernate_sequence
+  val sequence = new IdentifierGenerator {
+    var last = 0
+
+    override def generate(session: SessionImplementor, entity: Object): Serializable = {
+      last += 1
+      Int.box(last)
+    }
+  }
+
+  val insertedIds = mutable.ListBuffer[Int]()
+  val indexedIds = mutable.Set[Int]()
+
+  val dao = new AuditDaoHibernateImpl
+  dao.sessionFactory = sessionFactory
+
+  def answer(f: InvocationOnMock => Unit) = new Answer[Object] {
+    override def answer(invocation: InvocationOnMock): Object = {
+      f(invocation)
+      null
+    }
+  }
+
+  override protected def beforeEach() {
+    reset(sessionFactory, session, connection, auditStatement, tokenStatement)
+    sequence.last = 0
+    insertedIds.clear()
+    indexedIds.clear()
+
+    when(sessionFactory.getCurrentSession).thenReturn(session)
+    when(sessionFactory.getDialect).thenReturn(new PostgreSQL81Dialect)
+    when(sessionFactory.getIdentifierGenerator(classOf[Audit].getName)).thenReturn(sequence)
+    when(session.getSessionFactory).thenReturn(sessionFactory)
+
+    // like Hibernate, saveOrUpdate takes the id from the generator and inserts the row with it
+    doAnswer(answer(invocation => {
+      val audit = invocation.getArguments()(0).asInstanceOf[Audit]
+      audit.setAuditId(sequence.generate(session, audit).asInstanceOf[Integer])
+      insertedIds += audit.getAuditId
+    })).when(session).saveOrUpdate(any[Object]())
+
+    doAnswer(answer(invocation => invocation.getArguments()(0).asInstanceOf[Work].execute(connection))).when(session).doWork(any[Work]())
+
+    when(connection.prepareStatement(startsWith("INSERT INTO AUDIT ("))).thenReturn(auditStatement)
+    when(connection.prepareStatement(startsWith("INSERT INTO AUDIT ("), anyInt())).thenReturn(auditStatement)
+    when(connection.prepareStatement(startsWith("INSERT INTO AUDIT_TOKEN"))).thenReturn(tokenStatement)
+
+    doAnswer(answer(invocation => {
+      if (invocation.getArguments()(0) == 1) insertedIds += invocation.getArguments()(1).asInstanceOf[Int]
+    })).when(auditStatement).setInt(anyInt(), anyInt())
+
+    doAnswer(answer(invocation => {
+      if (invocation.getArguments()(0) == 3) indexedIds += invocation.getArguments()(1).asInstanceOf[Int]
+    })).when(tokenStatement).setInt(anyInt(), anyInt())
+  }
+
+  def audit(action: String) = new Audit().setDate(new Date()).setAction(action)
+
+  "Audit DAO on PostgreSQL" should {
+    "generate the audit ids with a sequence" in {
+      new PostgreSQL81Dialect().getNativeIdentifierGeneratorClass should be(classOf[SequenceGenerator])
+    }
+
+    "take the ids of batch persisted audits from the sequence persist uses" in {
+      dao.persist(audit("login"))
+      dao.persistBatch(List(audit("getUsers"), audit("persistUser")))
+      dao.persist(audit("logout"))
+      dao.persistBatch(List(audit("getProjects")))
+
+      insertedIds should be(List(1, 2, 3, 4, 5))
+      indexedIds should be(Set(1, 2, 3, 4, 5))
+    }
+
+    "not leave the ids of batch persisted audits to the column" in {
+      dao.persistBatch(List(audit("getUsers"), audit("persistUser")))
+
+      verify(connection).prepareStatement(startsWith("INSERT INTO AUDIT (AUDIT_ID,"))
+      verify(connection, never()).prepareStatement(anyString(), anyInt())
+    }
+  }
+
+  "Audit DAO on MySQL" should {
+    "batch insert the audits and index them on the ids generated for the batch" in {
+      val generatedKeys = mock[ResultSet]
+      when(generatedKeys.next()).thenReturn(true, true, false)
+      when(generatedKeys.getInt(1)).thenReturn(7, 8)
+
+      when(sessionFactory.getDialect).thenReturn(new MySQL5Dialect)
+      when(sessionFactory.getIdentifierGenerator(classOf[Audit].getName)).thenReturn(new IdentityGenerator)
+      when(auditStatement.getGeneratedKeys).thenReturn(generatedKeys)
+
+      dao.persistBatch(List(audit("getUsers"), audit("persistUser")))
+
+      verify(auditStatement, times(2)).addBatch()
+      verify(auditStatement).executeBatch()
+      verify(auditStatement, never()).executeUpdate()
+      indexedIds should be(Set(7, 8))
+    }
+  }
+}
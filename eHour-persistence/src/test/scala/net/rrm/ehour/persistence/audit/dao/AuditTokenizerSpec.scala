@@ -0,0 +1,40 @@
+package net.rrm.ehour.persistence.audit.dao
+
+import net.rrm.ehour.AbstractSpec
+
+class AuditTokenizerSpec extends AbstractSpec {
+  "Audit Tokenizer" should {
+    "index the words and their camel case parts in lower case" in {
+      AuditTokenizer.indexTokens("getUserDepartments") should be(Set("getuserdepartments", "get", "user", "departments"))
+    }
+
+    "split words on anything but letters and digits" in {
+      AuditTokenizer.indexTokens("Admin, eHour") should be(Set("admin", "ehour", "e", "hour"))
+    }
+
+    "keep acronyms together" in {
+      AuditTokenizer.indexTokens("parseHTMLReport") should be(Set("parsehtmlreport", "parse", "html", "report"))
+    }
+
+    "split queries in camel case parts only" in {
+      AuditTokenizer.queryTokens("getUsers") should be(Set("get", "users"))
+      AuditTokenizer.queryTokens("getusers") should be(Set("getusers"))
+    }
+
+    "have query tokens which are all indexed for a whole word query" in {
+      val indexed = AuditTokenizer.indexTokens("getUsersWithEmailSet")
+
+      AuditTokenizer.queryTokens("getUsers").subsetOf(indexed) should be(true)
+      AuditTokenizer.queryTokens("emailset").subsetOf(indexed) should be(false)
+    }
+
+    "truncate long tokens" in {
+      AuditTokenizer.indexTokens("x" * 100).head should have length AuditTokenizer.MaxTokenLength
+    }
+
+    "have no tokens for empty text" in {
+      AuditTokenizer.indexTokens(null) should be(empty)
+      AuditTokenizer.queryTokens(" , ") should be(empty)
+    }
+  }
+}
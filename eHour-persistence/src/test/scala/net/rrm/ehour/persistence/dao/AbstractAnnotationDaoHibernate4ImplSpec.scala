@@ -0,0 +1,37 @@
+package net.rrm.ehour.persistence.dao
+
+import net.rrm.ehour.AbstractSpec
+import org.hibernate.dialect.{DerbyTenSevenDialect, MySQL5Dialect, PostgreSQLDialect}
+import org.hibernate.engine.spi.SessionFactoryImplementor
+import org.mockito.Mockito._
+
+class AbstractAnnotationDaoHibernate4ImplSpec extends AbstractSpec {
+  val sessionFactory = mock[SessionFactoryImplementor]
+
+  val dao = new AbstractAnnotationDaoHibernate4Impl
+  dao.sessionFactory = sessionFactory
+
+  override protected def beforeEach() {
+    reset(sessionFactory)
+  }
+
+  "Annotation DAO" should {
+    "stream row by row on MySQL" in {
+      when(sessionFactory.getDialect).thenReturn(new MySQL5Dialect)
+
+      dao.streamFetchSize should be (Integer.MIN_VALUE)
+    }
+
+    "fetch rows in batches on PostgreSQL" in {
+      when(sessionFactory.getDialect).thenReturn(new PostgreSQLDialect)
+
+      dao.streamFetchSize should be (500)
+    }
+
+    "fetch rows in batches on Derby" in {
+      when(sessionFactory.getDialect).thenReturn(new DerbyTenSevenDialect)
+
+      dao.streamFetchSize should be (500)
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package net.rrm.ehour.persistence.ehourconfig
+
+import java.sql.{Connection, ResultSet, SQLException, Statement}
+import javax.sql.DataSource
+
+import net.rrm.ehour.AbstractSpec
+import net.rrm.ehour.config.ConfigurationItem
+import org.mockito.Matchers._
+import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+import org.springframework.transaction.support.TransactionSynchronizationManager
+
+import scala.collection.JavaConversions._
+
+class EhourConfigJdbcSpec extends AbstractSpec {
+  val CompleteDayHours = ConfigurationItem.COMPLETE_DAY_HOURS.getDbField
+
+  val dataSource = mock[DataSource]
+  val connection = mock[Connection]
+  val statement = mock[Statement]
+
+  // the rows of the CONFIGURATION table
+  var rows: Map[String, String] = _
+
+  override protected def beforeEach() {
+    reset(dataSource, connection, statement)
+    rows = Map(CompleteDayHours -> "8")
+
+    when(dataSource.getConnection).thenReturn(connection)
+    when(connection.createStatement()).thenReturn(statement)
+    when(statement.executeQuery(anyString())).thenAnswer(new Answer[ResultSet] {
+      override def answer(invocation: InvocationOnMock): ResultSet = resultSet(rows)
+    })
+  }
+
+  def resultSet(values: Map[String, String]): ResultSet = {
+    val result = mock[ResultSet]
+    val entries = values.iterator
+    var current: (String, String) = null
+
+    when(result.next()).thenAnswer(new Answer[java.lang.Boolean] {
+      override def answer(invocation: InvocationOnMock): java.lang.Boolean = {
+        val hasNext = entries.hasNext
+        if (hasNext) current = entries.next()
+        Boolean.box(hasNext)
+      }
+    })
+
+    when(result.getString(anyInt())).thenAnswer(new Answer[String] {
+      override def answer(invocation: InvocationOnMock): String = if (invocation.getArguments()(0) == 1) current._1 else current._2
+    })
+
+    result
+  }
+
+  "Ehour Config JDBC" should {
+    "not read the database after the first load" in {
+      val config = new EhourConfigJdbc(dataSource)
+
+      for (i <- 1 to 10) {
+        config.getCompleteDayHours should be (8f)
+        config.isShowTurnover should be (false)
+      }
+
+      config.getDatabaseReads should be (1)
+      verify(dataSource, times(1)).getConnection
+    }
+
+    "keep serving the snapshot until it is reloaded" in {
+      val config = new EhourConfigJdbc(dataSource)
+
+      rows = Map(CompleteDayHours -> "7")
+
+      config.getCompleteDayHours should be (8f)
+      config.getVersion should be (1)
+    }
+
+    "serve the reloaded values under the next version" in {
+      val config = new EhourConfigJdbc(dataSource)
+
+      rows = Map(CompleteDayHours -> "7")
+      config.reload()
+
+      config.getVersion should be (2)
+      config.getCompleteDayHours should be (7f)
+      config.getDatabaseReads should be (2)
+    }
+
+    "reload only after the transaction committed" in {
+      val config = new EhourConfigJdbc(dataSource)
+
+      rows = Map(CompleteDayHours -> "7")
+
+      TransactionSynchronizationManager.initSynchronization()
+
+      try {
+        config.reload()
+
+        config.getVersion should be (1)
+        config.getDatabaseReads should be (1)
+
+        TransactionSynchronizationManager.getSynchronizations.foreach(_.afterCommit())
+      } finally {
+        TransactionSynchronizationManager.clearSynchronization()
+      }
+
+      config.getVersion should be (2)
+      config.getCompleteDayHours should be (7f)
+      config.getDatabaseReads should be (2)
+    }
+
+    "keep the values when the database can't be read" in {
+      val config = new EhourConfigJdbc(dataSource)
+
+      when(dataSource.getConnection).thenThrow(new SQLException("connection refused"))
+      config.reload()
+
+      config.getCompleteDayHours should be (8f)
+      config.getDatabaseReads should be (2)
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package net.rrm.ehour.persistence.retry
+
+import net.rrm.ehour.AbstractSpec
+
+class CircuitBreakerSpec extends AbstractSpec {
+  var now: Long = _
+  var breaker: CircuitBreaker = _
+
+  override def beforeEach() {
+    now = 0
+    breaker = new CircuitBreaker(3, 1000, () => now)
+  }
+
+  def failCalls(times: Int) {
+    for (i <- 1 to times) {
+      breaker.allowRequest()
+      breaker.recordFailure()
+    }
+  }
+
+  "Circuit Breaker" should {
+    "stay closed below the failure threshold" in {
+      failCalls(2)
+
+      breaker.isOpen should be (false)
+      breaker.allowRequest() should be (true)
+    }
+
+    "reset the consecutive failures on success" in {
+      failCalls(2)
+      breaker.recordSuccess()
+      failCalls(2)
+
+      breaker.isOpen should be (false)
+    }
+
+    "open after consecutive failures and reject calls" in {
+      failCalls(3)
+
+      breaker.isOpen should be (true)
+      breaker.allowRequest() should be (false)
+      breaker.openedCount should be (1)
+      breaker.rejectedCount should be (1)
+    }
+
+    "allow a single trial call after the open period" in {
+      failCalls(3)
+      now = 1000
+
+      breaker.allowRequest() should be (true)
+      breaker.stateName should be ("half-open")
+      breaker.allowRequest() should be (false)
+    }
+
+    "close when the trial call succeeds" in {
+      failCalls(3)
+      now = 1000
+
+      breaker.allowRequest()
+      breaker.recordSuccess()
+
+      breaker.stateName should be ("closed")
+      breaker.allowRequest() should be (true)
+    }
+
+    "open again when the trial call fails" in {
+      failCalls(3)
+      now = 1000
+
+      breaker.allowRequest()
+      breaker.recordFailure()
+
+      breaker.isOpen should be (true)
+      breaker.openedCount should be (2)
+      breaker.allowRequest() should be (false)
+    }
+  }
+}
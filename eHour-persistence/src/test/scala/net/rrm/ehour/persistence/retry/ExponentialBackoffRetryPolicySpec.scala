@@ -1,9 +1,43 @@
 package net.rrm.ehour.persistence.retry
 
+import java.sql.SQLException
+
 import net.rrm.ehour.AbstractSpec
-import org.hibernate.HibernateException
+import org.hibernate.exception.{ConstraintViolationException, JDBCConnectionException, LockAcquisitionException}
+import org.hibernate.{HibernateException, QueryException}
 
 class ExponentialBackoffRetryPolicySpec extends AbstractSpec {
+  var now: Long = _
+  var slept: Long = _
+  var calls: Int = _
+  var policy: RetryPolicy = _
+  var inTransaction: Boolean = _
+
+  override def beforeEach() {
+    now = 1000
+    slept = 0
+    calls = 0
+    inTransaction = false
+
+    policy = new RetryPolicy(5, 100, 400, 1000, new CircuitBreaker(10, 10000, () => now), () => now, millis => {
+      slept += millis
+      now += millis
+    }, () => inTransaction)
+  }
+
+  def connectionFailure(): Boolean = {
+    calls += 1
+    throw new JDBCConnectionException("connection refused", new SQLException("connection refused", "08001"))
+  }
+
+  def openCircuit() {
+    for (i <- 1 to 10) {
+      intercept[RuntimeException] {
+        policy.retry(connectionFailure(), 1)
+      }
+    }
+  }
+
   "Exponential Backoff Retry Policy" should {
     "execute with success" in {
       def success() = true
@@ -37,5 +71,133 @@ class ExponentialBackoffRetryPolicySpec extends AbstractSpec {
         case e: RuntimeException =>
       }
     }
+
+    "not retry a permanent failure" in {
+      def violation() = {
+        calls += 1
+        throw new ConstraintViolationException("duplicate", new SQLException("duplicate", "23505"), "pk")
+      }
+
+      intercept[ConstraintViolationException] {
+        policy.retry(violation())
+      }
+
+      calls should be (1)
+      policy.statistics.permanentFailures should be (1)
+      policy.circuitBreaker.isOpen should be (false)
+    }
+
+    "not retry an invalid query" in {
+      def invalid() = {
+        calls += 1
+        throw new QueryException("unexpected token")
+      }
+
+      intercept[QueryException] {
+        policy.retry(invalid())
+      }
+
+      calls should be (1)
+    }
+
+    "retry a transient failure outside a transaction" in {
+      def failOnce() = calls > 0 || connectionFailure()
+
+      policy.retry(failOnce()) should be (true)
+      calls should be (1)
+      policy.statistics.retries should be (1)
+    }
+
+    "not retry a transient failure inside a transaction" in {
+      inTransaction = true
+
+      intercept[JDBCConnectionException] {
+        policy.retry(connectionFailure())
+      }
+
+      calls should be (1)
+      slept should be (0)
+      policy.statistics.retries should be (0)
+      policy.statistics.permanentFailures should be (1)
+    }
+
+    "not retry a deadlock inside a transaction" in {
+      inTransaction = true
+
+      def deadlock() = {
+        calls += 1
+        throw new LockAcquisitionException("deadlock detected", new SQLException("deadlock detected", "40P01"))
+      }
+
+      intercept[LockAcquisitionException] {
+        policy.retry(deadlock())
+      }
+
+      calls should be (1)
+    }
+
+    "stop retrying when the total wait would exceed the max. wait" in {
+      intercept[RuntimeException] {
+        policy.retry(connectionFailure(), 100)
+      }
+
+      slept should be <= 1000L
+      calls should be < 10
+      policy.statistics.exhausted should be (1)
+      policy.circuitBreaker.isOpen should be (false)
+    }
+
+    "not wait past the deadline of the request" in {
+      RequestDeadline.set(now + 40)
+
+      try {
+        intercept[RuntimeException] {
+          policy.retry(connectionFailure())
+        }
+      } finally {
+        RequestDeadline.clear()
+      }
+
+      calls should be (1)
+      slept should be (0)
+    }
+
+    "fail fast once the circuit is open" in {
+      openCircuit()
+
+      policy.circuitBreaker.isOpen should be (true)
+
+      intercept[CircuitOpenException] {
+        policy.retry(connectionFailure())
+      }
+
+      calls should be (10)
+      policy.statistics.circuitOpened should be (1)
+      policy.statistics.circuitRejected should be (1)
+    }
+
+    "end the trial call when it fails with an error" in {
+      openCircuit()
+
+      now += 10000
+
+      intercept[StackOverflowError] {
+        policy.retry(throw new StackOverflowError())
+      }
+
+      now += 10000
+
+      policy.retry(true) should be (true)
+      policy.circuitBreaker.isOpen should be (false)
+    }
+
+    "let a trial call through after the circuit was open" in {
+      openCircuit()
+
+      now += 10000
+
+      policy.retry(true) should be (true)
+      policy.circuitBreaker.isOpen should be (false)
+    }
   }
 }
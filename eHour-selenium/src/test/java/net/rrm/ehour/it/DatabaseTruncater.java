@@ -26,6 +26,9 @@ public class DatabaseTruncater {
              CallableStatement c10 = connection.prepareCall("DELETE FROM USER_TO_USERROLE WHERE user_id != 1");
              CallableStatement c11 = connection.prepareCall("DELETE FROM USER_TO_DEPARTMENT WHERE user_id != 1");
              CallableStatement c12 = connection.prepareCall("DELETE FROM USERS WHERE user_id != 1");
+             CallableStatement c13 = connection.prepareCall("DELETE FROM TIMESHEET_ROLLUP");
+             CallableStatement c14 = connection.prepareCall("DELETE FROM ASSIGNMENT_TOTAL");
+             CallableStatement c15 = connection.prepareCall("DELETE FROM AUDIT_TOKEN");
         ) {
             c1.execute();
             c2.execute();
@@ -39,6 +42,9 @@ public class DatabaseTruncater {
             c10.execute();
             c11.execute();
             c12.execute();
+            c13.execute();
+            c14.execute();
+            c15.execute();
         }
     }
 }
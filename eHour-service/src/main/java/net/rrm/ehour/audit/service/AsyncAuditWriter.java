@@ -0,0 +1,271 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.audit.service;
+
+import net.rrm.ehour.domain.Audit;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues audits in a bounded, non-blocking queue which is drained by a background thread.
+ * The writer flushes a JDBC batch whenever batchSize audits are queued or flushInterval passed.
+ */
+@Service("auditWriter")
+public class AsyncAuditWriter implements AuditWriter {
+    private static final Logger LOG = Logger.getLogger(AsyncAuditWriter.class);
+
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+
+    private final AuditService auditService;
+    private final boolean async;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditBackpressure backpressure;
+
+    private final ConcurrentLinkedQueue<Audit> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong syncWrites = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    @Autowired
+    public AsyncAuditWriter(AuditService auditService,
+                            @Value("${ehour.audit.async:true}") boolean async,
+                            @Value("${ehour.audit.queue.capacity:10000}") int capacity,
+                            @Value("${ehour.audit.batch.size:100}") int batchSize,
+                            @Value("${ehour.audit.batch.interval:1000}") long flushIntervalMillis,
+                            @Value("${ehour.audit.backpressure:SYNC}") AuditBackpressure backpressure) {
+        this.auditService = auditService;
+        this.async = async;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.backpressure = backpressure;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (async && !running) {
+            running = true;
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drainUntilStopped();
+                }
+            }, "ehour-audit-writer");
+            thread.setDaemon(true);
+            writerThread = thread;
+            thread.start();
+
+            LOG.info(String.format("Asynchronous audit writer started (capacity %d, batch size %d, %s when full)", capacity, batchSize, backpressure));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+
+        Thread thread = writerThread;
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+
+            try {
+                thread.join(SHUTDOWN_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            writerThread = null;
+        }
+
+        // whatever the writer thread didn't get to is flushed on the calling thread
+        flushQueue();
+    }
+
+    @Override
+    public void write(Audit audit) {
+        if (!running) {
+            writeSync(audit);
+        } else if (offer(audit)) {
+            signalWhenBatchIsFull();
+        } else {
+            writeWhenFull(audit);
+        }
+    }
+
+    private void writeWhenFull(Audit audit) {
+        switch (backpressure) {
+            case BLOCK:
+                while (!offer(audit)) {
+                    if (!running) {
+                        writeSync(audit);
+                        return;
+                    }
+
+                    LockSupport.unpark(writerThread);
+                    LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+                }
+
+                break;
+            case DROP_OLDEST:
+                if (queue.poll() != null) {
+                    queueSize.decrementAndGet();
+                    dropped.incrementAndGet();
+                }
+
+                if (!offer(audit)) {
+                    dropped.incrementAndGet();
+                }
+
+                break;
+            default:
+                writeSync(audit);
+                break;
+        }
+
+        signalWhenBatchIsFull();
+    }
+
+    private boolean offer(Audit audit) {
+        if (queueSize.incrementAndGet() > capacity) {
+            queueSize.decrementAndGet();
+            return false;
+        }
+
+        queue.offer(audit);
+        enqueued.incrementAndGet();
+        return true;
+    }
+
+    private void signalWhenBatchIsFull() {
+        Thread thread = writerThread;
+
+        if (thread != null && queueSize.get() >= batchSize) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void writeSync(Audit audit) {
+        syncWrites.incrementAndGet();
+
+        auditService.doAudit(audit);
+        written.incrementAndGet();
+    }
+
+    private void drainUntilStopped() {
+        while (running) {
+            if (queueSize.get() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+
+            flushQueue();
+        }
+    }
+
+    private void flushQueue() {
+        List<Audit> batch = new ArrayList<>(batchSize);
+
+        Audit audit;
+
+        while ((audit = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(audit);
+
+            if (batch.size() >= batchSize) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Audit> batch) {
+        try {
+            auditService.doAudit(batch);
+
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            dropped.addAndGet(batch.size());
+
+            LOG.error(String.format("Failed to write batch of %d audits", batch.size()), e);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queueSize.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSyncWrites() {
+        return syncWrites.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.audit.service;
+
+import org.apache.log4j.Logger;
+import org.joda.time.LocalDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+
+/**
+ * Drops the audits older than the retention window (ehour.audit.retentionMonths, 0 keeps them forever) every night.
+ * Audits are dropped a calendar month at a time, oldest month first, each month with a single delete on the
+ * audit date index in its own transaction so no long running transaction or row by row delete is needed.
+ */
+@Service
+public class AuditRetentionPurger {
+    private static final Logger LOGGER = Logger.getLogger(AuditRetentionPurger.class);
+
+    private final AuditService auditService;
+    private final int retentionMonths;
+
+    @Autowired
+    public AuditRetentionPurger(AuditService auditService,
+                                @Value("${ehour.audit.retentionMonths:0}") int retentionMonths) {
+        this.auditService = auditService;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @Scheduled(cron = "0 0 4 * * *")
+    public void purge() {
+        if (retentionMonths > 0) {
+            purgeBefore(getRetentionStart(LocalDate.now()));
+        }
+    }
+
+    /**
+     * First day of the oldest month kept, the current month is always kept
+     */
+    LocalDate getRetentionStart(LocalDate today) {
+        return today.withDayOfMonth(1).minusMonths(retentionMonths);
+    }
+
+    int purgeBefore(LocalDate retentionStart) {
+        int deleted = 0;
+
+        Date oldest = auditService.getOldestAuditDate();
+
+        while (oldest != null && oldest.before(retentionStart.toDate())) {
+            LocalDate monthAfterOldest = new LocalDate(oldest).withDayOfMonth(1).plusMonths(1);
+            LocalDate deleteBefore = monthAfterOldest.isAfter(retentionStart) ? retentionStart : monthAfterOldest;
+
+            int deletedInMonth = auditService.deleteAuditsBefore(deleteBefore.toDate());
+
+            if (deletedInMonth == 0) {
+                break;
+            }
+
+            deleted += deletedInMonth;
+            oldest = auditService.getOldestAuditDate();
+        }
+
+        if (deleted > 0) {
+            LOGGER.info(String.format("Purged %d audits from before %s", deleted, retentionStart));
+        }
+
+        return deleted;
+    }
+}
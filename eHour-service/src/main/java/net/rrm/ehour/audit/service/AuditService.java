@@ -16,8 +16,10 @@
 
 package net.rrm.ehour.audit.service;
 
+import java.util.Date;
 import java.util.List;
 
+import net.rrm.ehour.data.AuditKey;
 import net.rrm.ehour.data.AuditReportRequest;
 import net.rrm.ehour.domain.Audit;
 
@@ -33,12 +35,29 @@ public interface AuditService
 	 */
 	void doAudit(Audit audit);
 
+	/**
+	 * Persist audits in a single batch
+	 * @param audits
+	 */
+	void doAudit(List<Audit> audits);
+
 	/**
 	 * Get audit report
 	 * @param request
 	 * @return
 	 */
 	List<Audit> findAudits(AuditReportRequest request, Integer offset, Integer max);
+
+	/**
+	 * Get audit report page by seeking past the key of the previous page's last audit,
+	 * reversed gets the audits before the key, newest first
+	 * @param request
+	 * @param from key to seek past, null to start at the first (or last when reversed) audit
+	 * @param upTo key of the last audit to include, null to include all audits
+	 * @param skip number of audits to skip after the key
+	 * @return
+	 */
+	List<Audit> findAudits(AuditReportRequest request, AuditKey from, AuditKey upTo, int skip, int max, boolean reversed);
 	
 	/**
 	 * Get audit report ignoring any offset or max
@@ -53,4 +72,52 @@ public interface AuditService
 	 * @return
 	 */
 	Number getAuditCount(AuditReportRequest request);
+
+	/**
+	 * get audit count up to and including the key
+	 * @param request
+	 * @param upTo
+	 * @return
+	 */
+	Number getAuditCount(AuditReportRequest request, AuditKey upTo);
+
+	/**
+	 * Key of the last audit of the report
+	 * @param request
+	 * @return null when there are no audits
+	 */
+	AuditKey findLastAuditKey(AuditReportRequest request);
+
+	/**
+	 * Date of the oldest audit
+	 * @return null when there are no audits
+	 */
+	Date getOldestAuditDate();
+
+	/**
+	 * Delete all audits before the date
+	 * @param date
+	 * @return number of audits deleted
+	 */
+	int deleteAuditsBefore(Date date);
+
+	/**
+	 * Audits from this id on are in the token index
+	 * @return
+	 */
+	int getTokenIndexStart();
+
+	/**
+	 * Add up to max audits with an id below the audit id to the token index, highest id first
+	 * @param auditId
+	 * @param max
+	 * @return the lowest audit id indexed, null when there are no audits left to index
+	 */
+	Integer indexTokensBefore(int auditId, int max);
+
+	/**
+	 * Searches use the token index for the audits from this id on, 0 when all audits are indexed
+	 * @param auditId
+	 */
+	void useTokenIndexFrom(int auditId);
 }
@@ -17,6 +17,7 @@
 package net.rrm.ehour.audit.service;
 
 import net.rrm.ehour.audit.annot.NonAuditable;
+import net.rrm.ehour.data.AuditKey;
 import net.rrm.ehour.data.AuditReportRequest;
 import net.rrm.ehour.domain.Audit;
 import net.rrm.ehour.persistence.audit.dao.AuditDao;
@@ -25,6 +26,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -45,6 +47,13 @@ public class AuditServiceImpl implements AuditService {
         auditDAO.persist(audit);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @NonAuditable
+    public void doAudit(List<Audit> audits) {
+        auditDAO.persistBatch(audits);
+    }
+
     @Override
     @NonAuditable
     @Transactional(readOnly = true)
@@ -52,6 +61,13 @@ public class AuditServiceImpl implements AuditService {
         return auditDAO.findAudits(request, offset, max);
     }
 
+    @Override
+    @NonAuditable
+    @Transactional(readOnly = true)
+    public List<Audit> findAudits(AuditReportRequest request, AuditKey from, AuditKey upTo, int skip, int max, boolean reversed) {
+        return auditDAO.findAudits(request, from, upTo, skip, max, reversed);
+    }
+
     @Override
     @NonAuditable
     @Transactional(readOnly = true)
@@ -66,4 +82,62 @@ public class AuditServiceImpl implements AuditService {
 
         return (number == null) ? 0 : number;
     }
+
+    @Override
+    @NonAuditable
+    @Transactional(readOnly = true)
+    public Number getAuditCount(AuditReportRequest request, AuditKey upTo) {
+        Number number = auditDAO.count(request, upTo);
+
+        return (number == null) ? 0 : number;
+    }
+
+    @Override
+    @NonAuditable
+    @Transactional(readOnly = true)
+    public AuditKey findLastAuditKey(AuditReportRequest request) {
+        return auditDAO.findLastAuditKey(request);
+    }
+
+    @Override
+    @NonAuditable
+    @Transactional(readOnly = true)
+    public Date getOldestAuditDate() {
+        return auditDAO.findOldestAuditDate();
+    }
+
+    @Override
+    @NonAuditable
+    @Transactional
+    public int deleteAuditsBefore(Date date) {
+        return auditDAO.deleteAuditsBefore(date);
+    }
+
+    @Override
+    @NonAuditable
+    @Transactional(readOnly = true)
+    public int getTokenIndexStart() {
+        Integer firstIndexed = auditDAO.findFirstIndexedAuditId();
+
+        if (firstIndexed != null) {
+            return firstIndexed;
+        }
+
+        Integer last = auditDAO.findLastAuditId();
+
+        return (last == null) ? 0 : last + 1;
+    }
+
+    @Override
+    @NonAuditable
+    @Transactional
+    public Integer indexTokensBefore(int auditId, int max) {
+        return auditDAO.indexTokensBefore(auditId, max);
+    }
+
+    @Override
+    @NonAuditable
+    public void useTokenIndexFrom(int auditId) {
+        auditDAO.useTokenIndexFrom(auditId);
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.audit.service;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Adds the audits written before the token index existed to the index, newest first. Runs on the scheduler so a
+ * large audit table doesn't hold up the startup, until it's done searches fall back to the like for the audits
+ * below the indexed range. Audits written since are indexed when they're written so after the first complete run
+ * there's nothing left to do.
+ */
+@Service
+public class AuditTokenIndexer {
+    private static final Logger LOGGER = Logger.getLogger(AuditTokenIndexer.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final AuditService auditService;
+
+    private volatile boolean complete;
+
+    @Autowired
+    public AuditTokenIndexer(AuditService auditService) {
+        this.auditService = auditService;
+    }
+
+    /**
+     * Picks up where an earlier run stopped, each batch is committed before the searches rely on it
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void indexAudits() {
+        if (complete) {
+            return;
+        }
+
+        int lowestIndexed = auditService.getTokenIndexStart();
+        auditService.useTokenIndexFrom(lowestIndexed);
+
+        Integer next = auditService.indexTokensBefore(lowestIndexed, BATCH_SIZE);
+
+        if (next != null) {
+            LOGGER.info("Adding audits before audit " + lowestIndexed + " to the audit token index");
+
+            while (next != null) {
+                lowestIndexed = next;
+                auditService.useTokenIndexFrom(lowestIndexed);
+
+                next = auditService.indexTokensBefore(lowestIndexed, BATCH_SIZE);
+            }
+
+            LOGGER.info("Audit token index complete");
+        }
+
+        auditService.useTokenIndexFrom(0);
+        complete = true;
+    }
+}
@@ -2,10 +2,12 @@ package net.rrm.ehour.backup.service;
 
 import net.rrm.ehour.backup.common.BackupConfig;
 import net.rrm.ehour.backup.common.BackupEntityType;
+import net.rrm.ehour.domain.AssignmentTotal;
 import net.rrm.ehour.domain.BinaryConfiguration;
 import net.rrm.ehour.domain.Configuration;
 import net.rrm.ehour.domain.DomainObject;
 import net.rrm.ehour.domain.MailLog;
+import net.rrm.ehour.domain.TimesheetRollup;
 import net.rrm.ehour.persistence.backup.dao.RestoreDao;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,6 +37,9 @@ public class DatabaseTruncater {
 
     @Transactional
     public void truncateDatabase() {
+        restoreDao.delete(TimesheetRollup.class);
+        restoreDao.delete(AssignmentTotal.class);
+
         List<BackupEntityType> types = backupConfig.reverseOrderedValues();
 
         for (BackupEntityType type : types) {
@@ -0,0 +1,102 @@
+package net.rrm.ehour.backup.service.backup;
+
+import com.google.common.base.Optional;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a running backup, updated by the backup while it runs and safe to read from other threads.
+ * The total number of rows is counted before the backup starts, rows added while it runs can push
+ * the written rows past the total.
+ */
+public class BackupProgress implements Serializable {
+    private static final long serialVersionUID = -3326404066524128870L;
+
+    private volatile long totalRows;
+    private final AtomicLong writtenRows = new AtomicLong();
+    private volatile String currentTable;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    void start(long totalRows) {
+        this.totalRows = totalRows;
+        this.startedAt = System.currentTimeMillis();
+    }
+
+    void startTable(String table) {
+        this.currentTable = table;
+    }
+
+    void rowWritten() {
+        writtenRows.incrementAndGet();
+    }
+
+    void finish() {
+        this.currentTable = null;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getWrittenRows() {
+        return writtenRows.get();
+    }
+
+    public String getCurrentTable() {
+        return currentTable;
+    }
+
+    public boolean isStarted() {
+        return startedAt > 0;
+    }
+
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+
+    /**
+     * Percentage of the rows written, 0 - 100
+     */
+    public int getPercentage() {
+        if (isFinished()) {
+            return 100;
+        } else if (totalRows == 0) {
+            return 0;
+        }
+
+        return (int) Math.min(99, getWrittenRows() * 100 / totalRows);
+    }
+
+    public long getElapsedMillis() {
+        if (!isStarted()) {
+            return 0;
+        }
+
+        return (isFinished() ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    /**
+     * Estimated time left based on the rows written so far, absent until the first rows are written
+     */
+    public Optional<Long> getEstimatedRemainingMillis() {
+        long written = getWrittenRows();
+
+        if (isFinished()) {
+            return Optional.of(0L);
+        } else if (!isStarted() || written == 0) {
+            return Optional.absent();
+        }
+
+        long remainingRows = Math.max(0, totalRows - written);
+
+        return Optional.of(getElapsedMillis() * remainingRows / written);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d rows (%d%%)", getWrittenRows(), getTotalRows(), getPercentage());
+    }
+}
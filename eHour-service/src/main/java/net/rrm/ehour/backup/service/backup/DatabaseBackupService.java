@@ -1,5 +1,9 @@
 package net.rrm.ehour.backup.service.backup;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * Service which exports the whole database to XML
  *
@@ -7,7 +11,21 @@ package net.rrm.ehour.backup.service.backup;
  */
 public interface DatabaseBackupService {
     /**
-     * Export the database to an XML formatted backup fi le
+     * Export the database to an XML formatted backup fi le. The whole backup is held in memory,
+     * use one of the streaming exports for anything but small databases
      */
     byte[] exportDatabase();
+
+    /**
+     * Stream the XML backup into the output stream, tables are read row by row so memory use doesn't grow with the
+     * size of the database. The stream is flushed but not closed.
+     *
+     * @throws ExportException when the backup couldn't be written
+     */
+    void exportDatabase(OutputStream stream, BackupProgress progress);
+
+    /**
+     * Stream the XML backup into the file, gzipped when asked
+     */
+    void exportDatabase(File file, boolean gzip, BackupProgress progress) throws IOException;
 }
@@ -1,6 +1,5 @@
 package net.rrm.ehour.backup.service.backup;
 
-import com.google.common.collect.Maps;
 import net.rrm.ehour.backup.common.BackupConfig;
 import net.rrm.ehour.backup.common.BackupEntityType;
 import net.rrm.ehour.backup.common.BackupJoinTable;
@@ -9,20 +8,27 @@ import net.rrm.ehour.config.EhourConfigStub;
 import net.rrm.ehour.config.service.ConfigurationService;
 import net.rrm.ehour.domain.Configuration;
 import net.rrm.ehour.persistence.backup.dao.BackupDao;
+import net.rrm.ehour.persistence.backup.dao.BackupRowHandler;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author thies
@@ -31,6 +37,8 @@ import java.util.Map.Entry;
 public class DatabaseBackupServiceImpl implements DatabaseBackupService {
     private static final Logger LOGGER = Logger.getLogger(DatabaseBackupServiceImpl.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private BackupDao backupDao;
     private ConfigurationService configurationService;
     private BackupConfig backupConfig;
@@ -43,20 +51,51 @@ public class DatabaseBackupServiceImpl implements DatabaseBackupService {
     }
 
     @Override
-    public synchronized byte[] exportDatabase() {
+    public byte[] exportDatabase() {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
-        XMLStreamWriter writer = null;
-
         try {
-            writer = createXmlWriter(outputStream);
-
-            exportDatabase(writer);
+            exportDatabase(outputStream, new BackupProgress());
 
             return outputStream.toByteArray();
-        } catch (XMLStreamException e) {
+        } catch (ExportException e) {
             LOGGER.error(e);
             return new byte[0];
+        }
+    }
+
+    @Override
+    public void exportDatabase(File file, boolean gzip, BackupProgress progress) throws IOException {
+        try (OutputStream fileStream = new FileOutputStream(file);
+             OutputStream stream = gzip ? new GZIPOutputStream(fileStream, BUFFER_SIZE) : new BufferedOutputStream(fileStream, BUFFER_SIZE)) {
+            exportDatabase(stream, progress);
+        }
+    }
+
+    /**
+     * No longer synchronized, every export has its own writer and progress so backups can run side by side.
+     * One read-only transaction for the lot so all tables are read from the same snapshot where the database supports it.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportDatabase(OutputStream stream, BackupProgress progress) {
+        XMLStreamWriter writer = null;
+
+        try {
+            progress.start(countRows());
+
+            writer = createXmlWriter(stream);
+
+            exportDatabase(writer, progress);
+
+            writer.flush();
+            stream.flush();
+
+            progress.finish();
+
+            LOGGER.info("Backup of " + progress + " written in " + progress.getElapsedMillis() + "ms");
+        } catch (XMLStreamException | IOException e) {
+            throw new ExportException("Failed to write backup after " + progress, e);
         } finally {
             if (writer != null) {
                 try {
@@ -68,6 +107,20 @@ public class DatabaseBackupServiceImpl implements DatabaseBackupService {
         }
     }
 
+    private long countRows() {
+        long rows = 0;
+
+        for (BackupJoinTable joinTable : backupConfig.joinTables()) {
+            rows += backupDao.count(joinTable.getTableName());
+        }
+
+        for (BackupEntityType type : backupConfig.backupEntities()) {
+            rows += backupDao.count(type.name());
+        }
+
+        return rows;
+    }
+
     protected XMLStreamWriter createXmlWriter(OutputStream stream) throws XMLStreamException {
         XMLOutputFactory factory = XMLOutputFactory.newInstance();
 
@@ -81,7 +134,7 @@ public class DatabaseBackupServiceImpl implements DatabaseBackupService {
                 handler);
     }
 
-    private void exportDatabase(XMLStreamWriter writer) throws XMLStreamException {
+    private void exportDatabase(XMLStreamWriter writer, BackupProgress progress) throws XMLStreamException {
         writer.writeStartDocument("UTF-8", "1.0");
 
         EhourConfigStub stub = configurationService.getConfiguration();
@@ -92,11 +145,11 @@ public class DatabaseBackupServiceImpl implements DatabaseBackupService {
         backupConfiguration(writer);
 
         writer.writeStartElement(ExportElements.JOIN_TABLES.name());
-        backupJoinTables(writer);
+        backupJoinTables(writer, progress);
         writer.writeEndElement();
 
         writer.writeStartElement(ExportElements.ENTITY_TABLES.name());
-        backupEntities(writer);
+        backupEntities(writer, progress);
         writer.writeEndElement();
 
         writer.writeEndElement();
@@ -118,71 +171,109 @@ public class DatabaseBackupServiceImpl implements DatabaseBackupService {
         writer.writeEndElement();
     }
 
-    private void backupJoinTables(XMLStreamWriter writer) throws XMLStreamException {
+    private void backupJoinTables(final XMLStreamWriter writer, final BackupProgress progress) throws XMLStreamException {
         List<BackupJoinTable> joinTables = backupConfig.joinTables();
 
-        for (BackupJoinTable joinTable : joinTables) {
+        for (final BackupJoinTable joinTable : joinTables) {
             String container = joinTable.getContainer();
             writer.writeStartElement(container);
 
-            String tableName = joinTable.getTableName();
-            List<Map<String, Object>> rows = backupDao.findAll(tableName);
+            final String tableName = joinTable.getTableName();
+            progress.startTable(tableName);
 
-            for (Map<String, Object> row : rows) {
-                Map<String, Object> uppercaseRowMap = Maps.newHashMap();
-
-                for (Entry<String, Object> s : row.entrySet()) {
-                    uppercaseRowMap.put(s.getKey().toUpperCase(), s.getValue());
-                }
+            final String sourceColumn = joinTable.getAttributeSource().toUpperCase();
+            final String targetColumn = joinTable.getAttributeTarget().toUpperCase();
 
-                writer.writeStartElement(tableName);
+            streamRows(tableName, writer, new BackupRowHandler() {
+                @Override
+                public void handle(Map<String, Object> row) {
+                    try {
+                        writer.writeStartElement(tableName);
 
-                Object source = uppercaseRowMap.get(joinTable.getAttributeSource().toUpperCase());
-                Object target = uppercaseRowMap.get(joinTable.getAttributeTarget().toUpperCase());
+                        writer.writeAttribute(sourceColumn, getColumn(row, sourceColumn).toString());
+                        writer.writeAttribute(targetColumn, getColumn(row, targetColumn).toString());
 
-                writer.writeAttribute(joinTable.getAttributeSource().toUpperCase(), source.toString());
-                writer.writeAttribute(joinTable.getAttributeTarget().toUpperCase(), target.toString());
+                        writer.writeEndElement();
+                    } catch (XMLStreamException e) {
+                        throw new ExportException("Failed to write row of " + tableName, e);
+                    }
 
-                writer.writeEndElement();
-            }
+                    progress.rowWritten();
+                }
+            });
 
             writer.writeEndElement();
         }
     }
 
-    private void backupEntities(XMLStreamWriter writer) throws XMLStreamException {
+    /**
+     * Column names come in the case the database returns them, look them up ignoring case rather than copying every row
+     */
+    private static Object getColumn(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+
+        if (value == null) {
+            for (Entry<String, Object> entry : row.entrySet()) {
+                if (column.equalsIgnoreCase(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+
+        return value;
+    }
+
+    private void backupEntities(XMLStreamWriter writer, BackupProgress progress) throws XMLStreamException {
         for (BackupEntityType type : backupConfig.backupEntities()) {
-            backupType(type, writer);
+            backupType(type, writer, progress);
         }
     }
 
-    private void backupType(BackupEntityType entity, XMLStreamWriter writer) throws XMLStreamException {
+    private void backupType(final BackupEntityType entity, final XMLStreamWriter writer, final BackupProgress progress) throws XMLStreamException {
         writer.writeStartElement(entity.getParentName());
 
         if (entity.getDomainObjectClass() != null) {
             writer.writeAttribute("CLASS", entity.getDomainObjectClass().getName());
         }
 
-        List<Map<String, Object>> rows = backupDao.findAll(entity.name());
+        progress.startTable(entity.name());
 
-        if (entity.getProcessor() != null) {
-            rows = entity.getProcessor().processRows(rows);
-        }
+        streamRows(entity.name(), writer, new BackupRowHandler() {
+            @Override
+            public void handle(Map<String, Object> row) {
+                Map<String, Object> rowMap = entity.getProcessor() != null ? entity.getProcessor().processRow(row) : row;
+
+                try {
+                    writer.writeStartElement(entity.name());
 
-        for (Map<String, Object> rowMap : rows) {
-            writer.writeStartElement(entity.name());
+                    for (Entry<String, Object> columns : rowMap.entrySet()) {
+                        if (StringUtils.isNotBlank(columns.getKey()) && columns.getValue() != null) {
+                            writer.writeStartElement(columns.getKey());
+                            writer.writeCharacters(columns.getValue().toString());
+                            writer.writeEndElement();
+                        }
+                    }
 
-            for (Entry<String, Object> columns : rowMap.entrySet()) {
-                if (StringUtils.isNotBlank(columns.getKey()) && columns.getValue() != null) {
-                    writer.writeStartElement(columns.getKey());
-                    writer.writeCharacters(columns.getValue().toString());
                     writer.writeEndElement();
+                } catch (XMLStreamException e) {
+                    throw new ExportException("Failed to write row of " + entity.name(), e);
                 }
-            }
 
-            writer.writeEndElement();
-        }
+                progress.rowWritten();
+            }
+        });
 
         writer.writeEndElement();
     }
+
+    private void streamRows(String table, XMLStreamWriter writer, BackupRowHandler handler) throws XMLStreamException {
+        int rows = backupDao.streamAll(table, handler);
+
+        // hand every finished table to the stream rather than whatever the writer happens to buffer
+        writer.flush();
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Backed up " + rows + " rows of " + table);
+        }
+    }
 }
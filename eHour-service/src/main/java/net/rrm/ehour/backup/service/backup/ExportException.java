@@ -0,0 +1,10 @@
+package net.rrm.ehour.backup.service.backup;
+
+/**
+ * Thrown when a backup couldn't be written, usually because the stream it's written to was closed
+ */
+public class ExportException extends RuntimeException {
+    public ExportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -4,6 +4,9 @@ import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
 
 /**
  * @author thies (thies@te-con.nl)
@@ -14,17 +17,21 @@ public final class BackupFileUtil {
     }
 
     /**
-     * Write bytes[] to temp file and return the absolute filename
+     * Write bytes[] to temp file and return the absolute filename. The bytes are written as is, a gzipped backup
+     * stays gzipped
      */
     public static String writeToTempFile(byte[] bytes) throws IOException {
-        final String xmlData = new String(bytes);
+        return writeToTempFile(new ByteArrayInputStream(bytes));
+    }
 
+    /**
+     * Copy the stream to a temp file and return the absolute filename, the stream is not closed
+     */
+    public static String writeToTempFile(InputStream data) throws IOException {
         File file = File.createTempFile("import", "xml");
         file.deleteOnExit();
 
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(xmlData);
-        }
+        Files.copy(data, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
         return file.getAbsolutePath();
     }
@@ -43,7 +50,20 @@ public final class BackupFileUtil {
     }
 
     /**
-     * Create XML reader from file
+     * Create XML reader reading from the stream as it parses, the encoding is taken from the XML declaration.
+     * Closing the reader doesn't close the stream.
+     *
+     * @param xmlData
+     * @return
+     * @throws XMLStreamException
+     */
+    static XMLEventReader createXmlReader(InputStream xmlData) throws XMLStreamException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        return inputFactory.createXMLEventReader(xmlData);
+    }
+
+    /**
+     * Create XML reader from file, the file is left open for the life of the reader
      *
      * @param filename
      * @return
@@ -51,20 +71,24 @@ public final class BackupFileUtil {
      * @throws XMLStreamException
      */
     static XMLEventReader createXmlReaderFromFile(String filename) throws IOException, XMLStreamException {
-        String data = getXmlDataFromFile(filename);
-        return createXmlReader(data);
+        return createXmlReader(openBackupFile(filename));
     }
 
-    private static String getXmlDataFromFile(String filename) throws IOException {
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(new File(filename)))) {
-            String line;
-            StringBuilder xmlData = new StringBuilder();
+    /**
+     * Open the backup file, backups can be written gzipped so they're unzipped when they start with the gzip magic
+     */
+    static InputStream openBackupFile(String filename) throws IOException {
+        InputStream stream = new BufferedInputStream(new FileInputStream(new File(filename)));
 
-            while ((line = bufferedReader.readLine()) != null) {
-                xmlData.append(line);
-            }
+        stream.mark(2);
+        int first = stream.read();
+        int second = stream.read();
+        stream.reset();
 
-            return xmlData.toString();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return new GZIPInputStream(stream);
         }
+
+        return stream;
     }
 }
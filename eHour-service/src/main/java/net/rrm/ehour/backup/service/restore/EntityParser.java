@@ -6,6 +6,7 @@ import net.rrm.ehour.backup.domain.ImportException;
 import net.rrm.ehour.backup.domain.ParseSession;
 import net.rrm.ehour.backup.domain.ParserUtil;
 import net.rrm.ehour.backup.service.restore.structure.FieldDefinition;
+import net.rrm.ehour.backup.service.restore.structure.FieldDefinitionManyToMany;
 import net.rrm.ehour.backup.service.restore.structure.FieldMap;
 import net.rrm.ehour.backup.service.restore.structure.FieldMapFactory;
 import net.rrm.ehour.domain.DomainObject;
@@ -25,6 +26,10 @@ import java.util.*;
 
 /**
  * Not thread safe
+ * <p/>
+ * Foreign keys are resolved from the keys of the entities restored earlier without querying for them.
+ * With a checkpoint size the dao is told to write its pending inserts and let go of the restored entities
+ * every so many entities, otherwise they're all held until the restore is done.
  *
  * @author thies (Thies Edeling - thies@te-con.nl)
  *         Created on: Nov 16, 2010 - 11:18:59 PM
@@ -42,6 +47,11 @@ public class EntityParser {
     private PrimaryKeyCache keyCache;
     private final BackupConfig backupConfig;
 
+    private final int checkpointSize;
+    private int sinceCheckpoint;
+
+    private final Map<Class<?>, Class<?>> primaryKeyTypes = new HashMap<>();
+
     static {
         transformerMap.put(Integer.class, new IntegerTransformer());
         transformerMap.put(Float.class, new FloatTransformer());
@@ -50,24 +60,49 @@ public class EntityParser {
     }
 
     public EntityParser(XMLEventReader reader, EntityParserDao parserDao, PrimaryKeyCache keyCache, BackupConfig backupConfig) {
+        this(reader, parserDao, keyCache, backupConfig, 0);
+    }
+
+    /**
+     * @param checkpointSize number of entities between checkpoints, 0 for no checkpoints
+     */
+    public EntityParser(XMLEventReader reader, EntityParserDao parserDao, PrimaryKeyCache keyCache, BackupConfig backupConfig, int checkpointSize) {
         this.parserDao = parserDao;
         this.reader = reader;
         this.keyCache = keyCache;
         this.backupConfig = backupConfig;
+        this.checkpointSize = checkpointSize;
     }
 
     public <PK extends Serializable, T extends DomainObject<PK, ?>> List<T> parse(Class<T> clazz, JoinTables joinTables, ParseSession status) throws IllegalAccessException, InstantiationException, XMLStreamException, ImportException {
         FieldMap fieldMap = FieldMapFactory.buildFieldMapForEntity(clazz);
         this.status = status;
 
-        return parseDomainObjects(clazz, fieldMap, joinTables, status);
+        List<T> domainObjects = new ArrayList<>();
+        parseDomainObjects(clazz, fieldMap, joinTables, status, domainObjects);
+        return domainObjects;
+    }
+
+    /**
+     * Parse and persist the entities of a table without holding on to them
+     *
+     * @return the number of entities restored
+     */
+    public <PK extends Serializable, T extends DomainObject<PK, ?>> int restore(Class<T> clazz, JoinTables joinTables, ParseSession status) throws IllegalAccessException, InstantiationException, XMLStreamException, ImportException {
+        FieldMap fieldMap = FieldMapFactory.buildFieldMapForEntity(clazz);
+        this.status = status;
+
+        return parseDomainObjects(clazz, fieldMap, joinTables, status, null);
     }
 
     /**
      * Parse domain object with reader pointing on the table name tag
+     *
+     * @param domainObjects collects the parsed domain objects, can be null
      */
-    private <PK extends Serializable, T extends DomainObject<PK, ?>> List<T> parseDomainObjects(Class<T> clazz, FieldMap fieldMap, JoinTables joinTables, ParseSession status) throws XMLStreamException, IllegalAccessException, InstantiationException, ImportException {
-        List<T> domainObjects = new ArrayList<>();
+    private <PK extends Serializable, T extends DomainObject<PK, ?>> int parseDomainObjects(Class<T> clazz, FieldMap fieldMap, JoinTables joinTables, ParseSession status, List<T> domainObjects) throws XMLStreamException, IllegalAccessException, InstantiationException, ImportException {
+        BackupEntityType backupEntityType = backupConfig.entityForClass(clazz);
+        int parsed = 0;
 
         while (reader.hasNext()) {
             XMLEvent event = reader.nextTag();
@@ -75,16 +110,27 @@ public class EntityParser {
             if (event.isStartElement()) {
                 T domainObject = parseAndPersistDomainObject(clazz, fieldMap, joinTables);
 
-                domainObjects.add(domainObject);
+                if (domainObjects != null) {
+                    domainObjects.add(domainObject);
+                }
 
-                BackupEntityType backupEntityType = backupConfig.entityForClass(clazz);
+                parsed++;
                 status.addInsertion(backupEntityType);
+
+                checkpointWhenDue();
             } else if (event.isEndElement()) {
                 break;
             }
         }
 
-        return domainObjects;
+        return parsed;
+    }
+
+    private void checkpointWhenDue() {
+        if (checkpointSize > 0 && ++sinceCheckpoint >= checkpointSize) {
+            parserDao.checkpoint();
+            sinceCheckpoint = 0;
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -149,48 +195,29 @@ public class EntityParser {
 
     @SuppressWarnings("unchecked")
     private <T> void addManyToManies(FieldMap fieldMap, T targetEntity, JoinTables joinTables) throws IllegalAccessException {
-        for (FieldDefinition fieldDefinition : fieldMap.fieldDefinitions()) {
-            if (!fieldDefinition.isPartOfXML()) {
-
-                // find the original ID of this entity
-                FieldDefinition idFieldDef = fieldMap.getId();
-                Field idField = idFieldDef.getField();
-                String id = idField.get(targetEntity).toString();
-
-                // discover the table name
-                Field field = fieldDefinition.getField();
-                JoinTable joinTableAnnotation = field.getAnnotation(JoinTable.class);
-                String tableName = joinTableAnnotation.name().toLowerCase();
-
-                // find the type of the fk entity
-                ManyToMany manyToManyAnnotation = field.getAnnotation(ManyToMany.class);
-                Class fkType = manyToManyAnnotation.targetEntity();
-
-                // discover the type of the fk id
-                JoinColumn[] joinColumns = joinTableAnnotation.inverseJoinColumns();
-                String fkIdDatabaseColumnName = joinColumns[0].name();
-
-                FieldMap fkFieldMap = FieldMapFactory.buildFieldMapForEntity(fkType);
-                FieldDefinition fkIdFieldDefinition = fkFieldMap.get(fkIdDatabaseColumnName.toLowerCase());
-
-                // iterate over all the foreign tables this entity has a relation with
-                List<String> targetFkIds = joinTables.getTarget(tableName, id);
-
-                if (targetFkIds != null) {
-                    for (String fkId : targetFkIds) {
-                        Serializable fkTransformedId;
-                        if (fkIdFieldDefinition.getField().getAnnotation(GeneratedValue.class) != null) {
-                            Class<?> fkIdType = fkIdFieldDefinition.getField().getType();
-                            fkTransformedId = keyCache.getKey(fkType, fkIdType == Integer.class ? Integer.parseInt(fkId) : fkId);
-                        } else {
-                            fkTransformedId = fkId;
-                        }
-
-                        Serializable fk = parserDao.find(fkTransformedId, fkType);
-
-                        Collection o = (Collection) field.get(targetEntity);
-                        o.add(fk);
+        for (FieldDefinitionManyToMany manyToMany : fieldMap.getManyToManies()) {
+            // find the original ID of this entity
+            String id = fieldMap.getId().getField().get(targetEntity).toString();
+
+            // iterate over all the foreign tables this entity has a relation with
+            List<String> targetFkIds = joinTables.getTarget(manyToMany.getJoinTableName(), id);
+
+            if (targetFkIds != null) {
+                Class fkType = manyToMany.getTargetEntity();
+                Field fkIdField = manyToMany.getTargetId().getField();
+                boolean generatedFkId = fkIdField.isAnnotationPresent(GeneratedValue.class);
+
+                Collection relations = (Collection) manyToMany.getField().get(targetEntity);
+
+                for (String fkId : targetFkIds) {
+                    Serializable fkTransformedId;
+                    if (generatedFkId) {
+                        fkTransformedId = keyCache.getKey(fkType, fkIdField.getType() == Integer.class ? Integer.parseInt(fkId) : fkId);
+                    } else {
+                        fkTransformedId = fkId;
                     }
+
+                    relations.add(parserDao.getReference(fkTransformedId, fkType));
                 }
             }
         }
@@ -200,15 +227,12 @@ public class EntityParser {
             throws IllegalAccessException {
         boolean hasCompositeKey = false;
 
-        for (FieldDefinition fieldDefinition : fieldMap.fieldDefinitions()) {
+        for (FieldDefinition fieldDefinition : fieldMap.getEmbeddables()) {
             Field field = fieldDefinition.getField();
-            Class<?> fieldType = field.getType();
 
-            if (fieldType.isAnnotationPresent(Embeddable.class)) {
-                field.set(targetEntity, embeddables.get(fieldType));
+            field.set(targetEntity, embeddables.get(field.getType()));
 
-                hasCompositeKey = true;
-            }
+            hasCompositeKey = true;
         }
 
         return hasCompositeKey;
@@ -233,7 +257,7 @@ public class EntityParser {
             Serializable persistedKey = keyCache.getKey(columnType, castToFk);
 
             if (persistedKey != null) {
-                parsedValue = parserDao.find(persistedKey, columnType);
+                parsedValue = parserDao.getReference(persistedKey, columnType);
             }
 
             if (parsedValue == null && !canBeIgnored) {
@@ -256,15 +280,28 @@ public class EntityParser {
 
     @SuppressWarnings("unchecked")
     private Serializable castToFkType(Class<?> fkObjectType, String value) throws InstantiationException, IllegalAccessException {
-        Field[] fields = fkObjectType.getDeclaredFields();
+        Class<?> primaryKeyType = getPrimaryKeyType(fkObjectType);
 
-        for (Field field : fields) {
+        return primaryKeyType != null ? parseColumn((Class<? extends Serializable>) primaryKeyType, value, false) : value;
+    }
+
+    private Class<?> getPrimaryKeyType(Class<?> entityType) {
+        if (primaryKeyTypes.containsKey(entityType)) {
+            return primaryKeyTypes.get(entityType);
+        }
+
+        Class<?> primaryKeyType = null;
+
+        for (Field field : entityType.getDeclaredFields()) {
             if (field.isAnnotationPresent(Id.class)) {
-                return parseColumn((Class<? extends Serializable>) field.getType(), value, false);
+                primaryKeyType = field.getType();
+                break;
             }
         }
 
-        return value;
+        primaryKeyTypes.put(entityType, primaryKeyType);
+
+        return primaryKeyType;
     }
 
     PrimaryKeyCache getKeyCache() {
@@ -15,4 +15,14 @@ public interface EntityParserDao {
     <T extends DomainObject<?, ?>> Serializable persist(T object);
 
     <T extends Serializable> T find(Serializable primaryKey, Class<T> type);
+
+    /**
+     * Reference to an entity restored earlier, without querying for it
+     */
+    <T extends Serializable> T getReference(Serializable primaryKey, Class<T> type);
+
+    /**
+     * Write the pending inserts and let go of the entities restored so far
+     */
+    void checkpoint();
 }
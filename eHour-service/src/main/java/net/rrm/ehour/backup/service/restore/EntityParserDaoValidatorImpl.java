@@ -85,6 +85,15 @@ public class EntityParserDaoValidatorImpl implements EntityParserDao {
         }
     }
 
+    @Override
+    public <T extends Serializable> T getReference(Serializable primaryKey, Class<T> type) {
+        return find(primaryKey, type);
+    }
+
+    @Override
+    public void checkpoint() {
+    }
+
     private <T extends Serializable> void setPrimaryKey(Serializable primaryKey, Class<T> type, T t) throws IllegalAccessException {
         Field field = findPrimaryKeyField(type);
 
@@ -52,7 +52,7 @@ public class EntityTableParser {
 
                 Class<? extends DomainObject> doClass = (Class<? extends DomainObject>) Class.forName(aClass);
 
-                entityParser.parse(doClass, joinTables, status);
+                entityParser.restore(doClass, joinTables, status);
             } catch (Exception e) {
                 LOG.warn("element " + attribute.getValue() + " threw " + e.getMessage(), e);
                 throw new ImportException("element " + attribute.getValue() + " threw " + e.getMessage(), e);
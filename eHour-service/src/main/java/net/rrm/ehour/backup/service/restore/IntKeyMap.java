@@ -0,0 +1,157 @@
+package net.rrm.ehour.backup.service.restore;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing int to int map with linear probing, two int arrays and no boxing.
+ * Keys can't be removed. Not thread safe.
+ */
+final class IntKeyMap {
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    // marks a free slot, a key equal to it is kept aside
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    IntKeyMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @param value any value but NO_VALUE
+     */
+    void put(int key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                size++;
+            }
+
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+
+        int slot = slot(key);
+
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            values[slot] = value;
+
+            if (++size >= resizeAt) {
+                rehash(keys.length * 2);
+            }
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * @return the value or NO_VALUE when the key isn't in the map
+     */
+    int get(int key) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : NO_VALUE;
+        }
+
+        int slot = slot(key);
+
+        return keys[slot] == FREE ? NO_VALUE : values[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The entries sorted on key, each packed in a long with the key in the high and the value in the low 32 bits
+     */
+    long[] toSortedEntries() {
+        long[] entries = new long[size];
+        int i = 0;
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                entries[i++] = pack(keys[slot], values[slot]);
+            }
+        }
+
+        if (hasFreeKey) {
+            entries[i] = pack(FREE, freeKeyValue);
+        }
+
+        // the key is in the high bits, so sorting the longs sorts on key
+        Arrays.sort(entries);
+
+        return entries;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        hasFreeKey = false;
+    }
+
+    static long pack(int key, int value) {
+        return ((long) key << 32) | (value & 0xffffffffL);
+    }
+
+    static int key(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int value(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * The slot holding the key or the free slot it would go in
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    // spreads sequential ids over the table
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        // at most 2/3 full
+        resizeAt = capacity / 3 * 2;
+    }
+}
@@ -1,40 +1,233 @@
 package net.rrm.ehour.backup.service.restore;
 
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
+ * Maps the keys of the entities in the backup to the keys they got when restored, per entity type.
+ * <p/>
+ * Integer keys, which is nearly every restored row, are kept in primitive int maps. Once an entity type has
+ * more keys in memory than the max, they're sorted and written to a temp file as a run and looked up there with
+ * a binary search, so memory stays bounded no matter the size of the backup. Other keys, like the role names
+ * of user roles, are few and kept as they are.
+ * <p/>
+ * Not thread safe, close it to remove the temp file.
+ *
  * @author thies (Thies Edeling - thies@te-con.nl)
  *         Created on: 11/20/10 - 1:21 AM
  */
-public class PrimaryKeyCache {
-    Map<Class<?>, Map<Serializable, Serializable>> keyMap = new HashMap<>();
+public class PrimaryKeyCache implements Closeable {
+    private static final Logger LOG = Logger.getLogger(PrimaryKeyCache.class);
+
+    private final int maxKeysInMemory;
+
+    private final Map<Class<?>, IntKeys> intKeys = new HashMap<>();
+    private final Map<Class<?>, Map<Serializable, Serializable>> otherKeys = new HashMap<>();
+
+    private SpillFile spillFile;
+
+    public PrimaryKeyCache() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxKeysInMemory max. number of integer keys per entity type kept in memory before they're moved to disk
+     */
+    public PrimaryKeyCache(int maxKeysInMemory) {
+        this.maxKeysInMemory = Math.max(1, maxKeysInMemory);
+    }
 
     public void putKey(Class<?> domainObjectClass, Serializable oldKey, Serializable newKey) {
-        Map<Serializable, Serializable> oldNewKeyMap;
+        if (oldKey instanceof Integer && newKey instanceof Integer && (Integer) newKey != IntKeyMap.NO_VALUE) {
+            IntKeys keys = intKeys.get(domainObjectClass);
+
+            if (keys == null) {
+                keys = new IntKeys();
+                intKeys.put(domainObjectClass, keys);
+            }
 
-        if (keyMap.containsKey(domainObjectClass)) {
-            oldNewKeyMap = keyMap.get(domainObjectClass);
+            keys.put((Integer) oldKey, (Integer) newKey);
         } else {
-            oldNewKeyMap = new HashMap<>();
-        }
+            Map<Serializable, Serializable> oldNewKeyMap = otherKeys.get(domainObjectClass);
 
-        oldNewKeyMap.put(oldKey, newKey);
+            if (oldNewKeyMap == null) {
+                oldNewKeyMap = new HashMap<>();
+                otherKeys.put(domainObjectClass, oldNewKeyMap);
+            }
 
-        keyMap.put(domainObjectClass, oldNewKeyMap);
+            oldNewKeyMap.put(oldKey, newKey);
+        }
     }
 
     public Serializable getKey(Class<?> domainObjectClass, Serializable oldKey) {
-        if (keyMap.containsKey(domainObjectClass)) {
-            return keyMap.get(domainObjectClass).get(oldKey);
+        if (oldKey instanceof Integer) {
+            IntKeys keys = intKeys.get(domainObjectClass);
 
+            if (keys != null) {
+                int newKey = keys.get((Integer) oldKey);
+
+                if (newKey != IntKeyMap.NO_VALUE) {
+                    return newKey;
+                }
+            }
         }
 
-        return null;
+        Map<Serializable, Serializable> oldNewKeyMap = otherKeys.get(domainObjectClass);
+
+        return oldNewKeyMap != null ? oldNewKeyMap.get(oldKey) : null;
     }
 
     public boolean isEmpty() {
-        return keyMap.isEmpty();
+        return intKeys.isEmpty() && otherKeys.isEmpty();
+    }
+
+    /**
+     * Number of keys of the entity type, in memory and on disk
+     */
+    public int size(Class<?> domainObjectClass) {
+        IntKeys keys = intKeys.get(domainObjectClass);
+        Map<Serializable, Serializable> oldNewKeyMap = otherKeys.get(domainObjectClass);
+
+        return (keys != null ? keys.size() : 0) + (oldNewKeyMap != null ? oldNewKeyMap.size() : 0);
+    }
+
+    @Override
+    public void close() {
+        if (spillFile != null) {
+            spillFile.close();
+            spillFile = null;
+        }
+    }
+
+    private SpillFile getSpillFile() {
+        if (spillFile == null) {
+            spillFile = new SpillFile();
+        }
+
+        return spillFile;
+    }
+
+    /**
+     * The integer keys of an entity type, the latest keys in memory and the older ones in sorted runs on disk
+     */
+    private final class IntKeys {
+        private final IntKeyMap memory = new IntKeyMap();
+        private final List<LongBuffer> runs = new ArrayList<>();
+        private int spilled;
+
+        void put(int oldKey, int newKey) {
+            memory.put(oldKey, newKey);
+
+            if (memory.size() >= maxKeysInMemory) {
+                spill();
+            }
+        }
+
+        int get(int oldKey) {
+            int newKey = memory.get(oldKey);
+
+            // newest run first, a key written again after a spill overrides the earlier one
+            for (int i = runs.size() - 1; i >= 0 && newKey == IntKeyMap.NO_VALUE; i--) {
+                newKey = find(runs.get(i), oldKey);
+            }
+
+            return newKey;
+        }
+
+        int size() {
+            return spilled + memory.size();
+        }
+
+        private void spill() {
+            long[] entries = memory.toSortedEntries();
+
+            runs.add(getSpillFile().write(entries));
+            spilled += entries.length;
+            memory.clear();
+        }
+
+        private int find(LongBuffer run, int key) {
+            int low = 0;
+            int high = run.limit() - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long entry = run.get(mid);
+                int midKey = IntKeyMap.key(entry);
+
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    return IntKeyMap.value(entry);
+                }
+            }
+
+            return IntKeyMap.NO_VALUE;
+        }
+    }
+
+    /**
+     * Temp file holding the spilled runs, read back through memory mapping so lookups go through the OS page cache
+     */
+    private static final class SpillFile {
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+
+        SpillFile() {
+            try {
+                file = File.createTempFile("ehour-restore-keys", ".bin");
+                file.deleteOnExit();
+
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                channel = randomAccessFile.getChannel();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create the temp file for restored keys", e);
+            }
+        }
+
+        LongBuffer write(long[] entries) {
+            try {
+                long position = channel.size();
+
+                ByteBuffer buffer = ByteBuffer.allocate(entries.length * 8);
+                buffer.asLongBuffer().put(entries);
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, entries.length * 8L).asLongBuffer();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write restored keys to " + file, e);
+            }
+        }
+
+        void close() {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close " + file, e);
+            }
+
+            // mapped files can't be deleted on every OS until they're unmapped, the file is deleted on exit otherwise
+            if (!file.delete()) {
+                LOG.info("Temp file " + file + " is deleted on exit");
+            }
+        }
     }
 }
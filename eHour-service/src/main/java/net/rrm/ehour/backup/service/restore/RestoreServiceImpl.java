@@ -6,15 +6,22 @@ import net.rrm.ehour.backup.domain.ParseSession;
 import net.rrm.ehour.backup.service.DatabaseTruncater;
 import net.rrm.ehour.config.EhourConfig;
 import net.rrm.ehour.persistence.config.dao.ConfigurationDao;
+import net.rrm.ehour.persistence.ehourconfig.ReloadableConfig;
 import net.rrm.ehour.persistence.hibernate.HibernateCache;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
+import net.rrm.ehour.persistence.report.dao.TimesheetRollupDao;
+import net.rrm.ehour.report.service.ReportResultCache;
+import net.rrm.ehour.timesheet.service.TimesheetLockService;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.xml.stream.XMLEventReader;
+import java.io.InputStream;
 
 /**
  * @author thies (Thies Edeling - thies@te-con.nl)
@@ -32,27 +39,56 @@ public class RestoreServiceImpl implements RestoreService {
 
     private DatabaseTruncater databaseTruncater;
 
+    private TimesheetRollupDao timesheetRollupDao;
+
+    private AssignmentTotalDao assignmentTotalDao;
+
+    private ReportResultCache reportResultCache;
+
+    private TimesheetLockService timesheetLockService;
+
     private BackupConfig backupConfig;
 
     private TaskExecutor taskExecutor;
 
     private EhourConfig ehourConfig;
 
+    private int checkpointSize;
+
+    private int maxKeysInMemory;
+
+    /**
+     * @param checkpointSize  number of entities restored between flushing the inserts to the database and clearing
+     *                        the session, 0 keeps all entities in the session until the restore is done
+     * @param maxKeysInMemory number of restored keys per entity type kept in memory, more are moved to a temp file
+     */
     @Autowired
     public RestoreServiceImpl(ConfigurationDao configurationDao,
                               ConfigurationParserDao configurationParserDao,
                               EntityParserDao entityParserDao,
                               DatabaseTruncater databaseTruncater,
+                              TimesheetRollupDao timesheetRollupDao,
+                              AssignmentTotalDao assignmentTotalDao,
+                              ReportResultCache reportResultCache,
+                              TimesheetLockService timesheetLockService,
                               EhourConfig ehourConfig,
                               BackupConfig backupConfig,
-                              TaskExecutor taskExecutor) {
+                              TaskExecutor taskExecutor,
+                              @Value("${ehour.restore.checkpointSize:1000}") int checkpointSize,
+                              @Value("${ehour.restore.maxKeysInMemory:2000000}") int maxKeysInMemory) {
         this.configurationDao = configurationDao;
         this.configurationParserDao = configurationParserDao;
         this.entityParserDao = entityParserDao;
         this.databaseTruncater = databaseTruncater;
+        this.timesheetRollupDao = timesheetRollupDao;
+        this.assignmentTotalDao = assignmentTotalDao;
+        this.reportResultCache = reportResultCache;
+        this.timesheetLockService = timesheetLockService;
         this.ehourConfig = ehourConfig;
         this.backupConfig = backupConfig;
         this.taskExecutor = taskExecutor;
+        this.checkpointSize = checkpointSize;
+        this.maxKeysInMemory = maxKeysInMemory;
     }
 
     @Override
@@ -64,18 +100,30 @@ public class RestoreServiceImpl implements RestoreService {
 
                 databaseTruncater.truncateDatabase();
 
-                XMLEventReader xmlEventReader = BackupFileUtil.createXmlReaderFromFile(session.getFilename());
-
-                XmlParser parser = new XmlParserBuilder()
-                        .setConfigurationDao(configurationDao)
-                        .setConfigurationParserDao(configurationParserDao)
-                        .setEntityParserDao(entityParserDao)
-                        .setXmlReader(xmlEventReader)
-                        .setSkipValidation(true)
-                        .setBackupConfig(backupConfig)
-                        .build();
-
-                parser.parseXml(session, xmlEventReader);
+                // parsed as it's read, the backup is never held in memory as a whole
+                try (InputStream backup = BackupFileUtil.openBackupFile(session.getFilename())) {
+                    XMLEventReader xmlEventReader = BackupFileUtil.createXmlReader(backup);
+
+                    XmlParser parser = new XmlParserBuilder()
+                            .setConfigurationDao(configurationDao)
+                            .setConfigurationParserDao(configurationParserDao)
+                            .setEntityParserDao(entityParserDao)
+                            .setXmlReader(xmlEventReader)
+                            .setSkipValidation(true)
+                            .setBackupConfig(backupConfig)
+                            .setCheckpointSize(checkpointSize)
+                            .setMaxKeysInMemory(maxKeysInMemory)
+                            .build();
+
+                    parser.parseXml(session, xmlEventReader);
+                }
+
+                // the rollup and the assignment totals are not part of the backup
+                timesheetRollupDao.rebuild();
+                assignmentTotalDao.rebuild();
+
+                reportResultCache.clear();
+                timesheetLockService.invalidateIndex();
             }
         } catch (Exception e) {
             session.setGlobalError(true);
@@ -86,6 +134,10 @@ public class RestoreServiceImpl implements RestoreService {
             session.deleteFile();
             session.setImported(true);
             session.finish();
+
+            if (ehourConfig instanceof ReloadableConfig) {
+                ((ReloadableConfig) ehourConfig).reload();
+            }
         }
     }
 
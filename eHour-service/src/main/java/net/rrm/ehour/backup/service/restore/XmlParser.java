@@ -31,15 +31,19 @@ public class XmlParser {
 
         session.start();
 
-        while (eventReader.hasNext()) {
-            session.eventProgressed();
-            final XMLEvent event = eventReader.nextTag();
-
-            if (event.isStartElement()) {
-                parseEvent(session, eventReader, event, joinTables);
-            } else if (event.isEndDocument() || event.isEndElement()) {
-                break;
+        try {
+            while (eventReader.hasNext()) {
+                session.eventProgressed();
+                final XMLEvent event = eventReader.nextTag();
+
+                if (event.isStartElement()) {
+                    parseEvent(session, eventReader, event, joinTables);
+                } else if (event.isEndDocument() || event.isEndElement()) {
+                    break;
+                }
             }
+        } finally {
+            ctx.entityParser.getKeyCache().close();
         }
 
         session.finish();
@@ -101,8 +105,8 @@ public class XmlParser {
     }
 
     private void isDatabaseCompatible(String version, String dbVersion) throws ImportException {
-        dbVersion = dbVersion != null && dbVersion.equalsIgnoreCase("0.8.3") ? "0.8.4" : dbVersion;
-        version = version != null && version.equalsIgnoreCase("0.8.3") ? "0.8.4" : version;
+        dbVersion = normalizeVersion(dbVersion);
+        version = normalizeVersion(version);
 
         if (version == null || !version.equalsIgnoreCase(dbVersion)) {
             String foundVersion = version != null ? version : "n/a";
@@ -110,4 +114,19 @@ public class XmlParser {
             throw new ImportException("Invalid database version (" + dbVersion + ") specified in file, target database should match backup database version (" + foundVersion + ")");
         }
     }
+
+    /**
+     * 0.8.3 and 0.8.4 share the same datamodel, 1.4.3 only added the timesheet rollup and assignment totals which are not part of a backup
+     */
+    private String normalizeVersion(String version) {
+        if (version == null) {
+            return null;
+        } else if (version.equalsIgnoreCase("0.8.3")) {
+            return "0.8.4";
+        } else if (version.equalsIgnoreCase("1.4.2")) {
+            return "1.4.3";
+        } else {
+            return version;
+        }
+    }
 }
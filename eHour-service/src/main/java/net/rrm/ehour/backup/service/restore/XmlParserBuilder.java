@@ -18,6 +18,8 @@ public class XmlParserBuilder {
     private EntityParserDao entityParserDao;
     private boolean skipValidation = false;
     private BackupConfig backupConfig;
+    private int checkpointSize = 0;
+    private int maxKeysInMemory = Integer.MAX_VALUE;
 
     public XmlParser build() throws XMLStreamException {
         Assert.notNull(xmlReader);
@@ -25,10 +27,10 @@ public class XmlParserBuilder {
         Assert.notNull(entityParserDao);
         Assert.notNull(backupConfig);
 
-        PrimaryKeyCache keyCache = new PrimaryKeyCache();
+        PrimaryKeyCache keyCache = new PrimaryKeyCache(maxKeysInMemory);
 
         JoinTableParser joinTableParser = new JoinTableParser(xmlReader, backupConfig);
-        EntityParser parser = new EntityParser(xmlReader, entityParserDao, keyCache, backupConfig);
+        EntityParser parser = new EntityParser(xmlReader, entityParserDao, keyCache, backupConfig, checkpointSize);
 
         EntityTableParser entityTableParser = new EntityTableParser(xmlReader, parser);
 
@@ -67,4 +69,14 @@ public class XmlParserBuilder {
         this.backupConfig = backupConfig;
         return this;
     }
+
+    public XmlParserBuilder setCheckpointSize(int checkpointSize) {
+        this.checkpointSize = checkpointSize;
+        return this;
+    }
+
+    public XmlParserBuilder setMaxKeysInMemory(int maxKeysInMemory) {
+        this.maxKeysInMemory = maxKeysInMemory;
+        return this;
+    }
 }
@@ -1,11 +1,46 @@
 package net.rrm.ehour.backup.service.restore.structure;
 
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
 import java.lang.reflect.Field;
 
 public class FieldDefinitionManyToMany extends FieldDefinition {
+    private final String joinTableName;
+    private final Class<?> targetEntity;
+    private final String targetIdColumn;
+
+    private FieldDefinition targetId;
 
     public FieldDefinitionManyToMany(Field field) {
         super(field, new FieldProcessorManyToManyImpl());
+
+        JoinTable joinTable = field.getAnnotation(JoinTable.class);
+        this.joinTableName = joinTable.name().toLowerCase();
+        this.targetIdColumn = joinTable.inverseJoinColumns()[0].name().toLowerCase();
+        this.targetEntity = field.getAnnotation(ManyToMany.class).targetEntity();
+    }
+
+    /**
+     * Lowercase name of the join table
+     */
+    public String getJoinTableName() {
+        return joinTableName;
+    }
+
+    public Class<?> getTargetEntity() {
+        return targetEntity;
+    }
+
+    /**
+     * The id of the other side of the relation. Resolved on first use as the field map of the other side
+     * can't be built while the field map holding this relation is still being built.
+     */
+    public FieldDefinition getTargetId() {
+        if (targetId == null) {
+            targetId = FieldMapFactory.buildFieldMapForEntity(targetEntity).get(targetIdColumn);
+        }
+
+        return targetId;
     }
 
     @Override
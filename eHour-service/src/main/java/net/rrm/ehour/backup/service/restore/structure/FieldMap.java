@@ -1,5 +1,6 @@
 package net.rrm.ehour.backup.service.restore.structure;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import javax.persistence.Embeddable;
@@ -7,6 +8,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 public class FieldMap {
@@ -16,6 +18,10 @@ public class FieldMap {
     private FieldDefinition id;
     private boolean compositeId;
 
+    // looked up once so restoring a row doesn't go over the annotations of every field
+    private final List<FieldDefinition> embeddables = Lists.newArrayList();
+    private final List<FieldDefinitionManyToMany> manyToManies = Lists.newArrayList();
+
     public FieldMap() {
         fields = Maps.newHashMap();
     }
@@ -24,7 +30,7 @@ public class FieldMap {
         for (FieldDefinition fieldDefinition : fieldDefinitions()) {
             Field field = fieldDefinition.getField();
 
-            if (field.isAnnotationPresent(Id.class)) {
+            if (id == null && field.isAnnotationPresent(Id.class)) {
                 id = fieldDefinition;
 
                 if (field.isAnnotationPresent(GeneratedValue.class)) {
@@ -32,8 +38,14 @@ public class FieldMap {
                 } else {
                     compositeId = field.getType().isAnnotationPresent(Embeddable.class);
                 }
+            }
+
+            if (field.getType().isAnnotationPresent(Embeddable.class)) {
+                embeddables.add(fieldDefinition);
+            }
 
-                break;
+            if (fieldDefinition instanceof FieldDefinitionManyToMany) {
+                manyToManies.add((FieldDefinitionManyToMany) fieldDefinition);
             }
         }
     }
@@ -65,4 +77,18 @@ public class FieldMap {
     public boolean isCompositeId() {
         return compositeId;
     }
+
+    /**
+     * Fields holding an embeddable, e.g. a composite primary key
+     */
+    public List<FieldDefinition> getEmbeddables() {
+        return embeddables;
+    }
+
+    /**
+     * Many-to-many relations, restored from the join tables rather than the entity's element
+     */
+    public List<FieldDefinitionManyToMany> getManyToManies() {
+        return manyToManies;
+    }
 }
@@ -26,6 +26,7 @@ import net.rrm.ehour.domain.BinaryConfiguration;
 import net.rrm.ehour.domain.Configuration;
 import net.rrm.ehour.persistence.config.dao.BinaryConfigurationDao;
 import net.rrm.ehour.persistence.config.dao.ConfigurationDao;
+import net.rrm.ehour.persistence.ehourconfig.ReloadableConfig;
 import net.rrm.ehour.persistence.value.ImageLogo;
 import net.rrm.ehour.user.service.UserService;
 import org.apache.log4j.Logger;
@@ -59,6 +60,9 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ReloadableConfig reloadableConfig;
+
     private static final Logger LOGGER = Logger.getLogger(ConfigurationServiceImpl.class);
 
     @Transactional
@@ -265,6 +269,8 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         persistConfig(ConfigurationItem.REMINDER_TIME.getDbField(), config.getReminderTime());
 
         persistConfig(ConfigurationItem.TIMEZONE.getDbField(), config.getTimeZone());
+
+        reloadableConfig.reload();
     }
 
     private AuditType getAuditType(EhourConfig config) {
@@ -310,4 +316,8 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     public void setTranslationDiscovery(TranslationDiscovery translationDiscovery) {
         this.translationDiscovery = translationDiscovery;
     }
+
+    public void setReloadableConfig(ReloadableConfig reloadableConfig) {
+        this.reloadableConfig = reloadableConfig;
+    }
 }
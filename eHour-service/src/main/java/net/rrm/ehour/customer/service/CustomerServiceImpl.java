@@ -22,6 +22,7 @@ import net.rrm.ehour.domain.Customer;
 import net.rrm.ehour.exception.ObjectNotUniqueException;
 import net.rrm.ehour.exception.ParentChildConstraintException;
 import net.rrm.ehour.persistence.customer.dao.CustomerDao;
+import net.rrm.ehour.report.service.ReportResultCache;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -38,6 +39,9 @@ public class CustomerServiceImpl implements CustomerService {
     @Autowired
     private CustomerDao customerDAO;
 
+    @Autowired
+    private ReportResultCache reportResultCache;
+
     private static final Logger LOGGER = Logger.getLogger(CustomerServiceImpl.class);
 
     public CustomerServiceImpl() {
@@ -107,10 +111,17 @@ public class CustomerServiceImpl implements CustomerService {
             throw new ObjectNotUniqueException(cve);
         }
 
+        // cached reports show the name and code of the customer
+        reportResultCache.clear();
+
         return customer;
     }
 
     public void setCustomerDAO(CustomerDao customerDAO) {
         this.customerDAO = customerDAO;
     }
+
+    public void setReportResultCache(ReportResultCache reportResultCache) {
+        this.reportResultCache = reportResultCache;
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.init;
+
+import net.rrm.ehour.report.service.AssignmentTotalService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Fills the assignment totals at startup after upgrading and repairs the totals which drifted from the
+ * timesheet entries every night
+ */
+@Service
+public class AssignmentTotalValidator {
+    private static final Logger LOGGER = Logger.getLogger(AssignmentTotalValidator.class);
+
+    private final AssignmentTotalService assignmentTotalService;
+
+    @Autowired
+    public AssignmentTotalValidator(AssignmentTotalService assignmentTotalService) {
+        this.assignmentTotalService = assignmentTotalService;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (assignmentTotalService.rebuildWhenEmpty()) {
+            LOGGER.info("Filled empty assignment totals");
+        }
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void reconcile() {
+        LOGGER.info("Verifying assignment totals");
+
+        assignmentTotalService.verifyAndRepair();
+    }
+}
@@ -0,0 +1,40 @@
+package net.rrm.ehour.init;
+
+import net.rrm.ehour.report.service.TimesheetRollupService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Fills the timesheet rollup at startup after upgrading and repairs it every night when it went out of sync
+ * with the timesheet entries. Comparing the rollup with all entries takes a while on large databases so it
+ * doesn't hold up the startup.
+ */
+@Service
+public class TimesheetRollupValidator {
+    private static final Logger LOGGER = Logger.getLogger(TimesheetRollupValidator.class);
+
+    private final TimesheetRollupService timesheetRollupService;
+
+    @Autowired
+    public TimesheetRollupValidator(TimesheetRollupService timesheetRollupService) {
+        this.timesheetRollupService = timesheetRollupService;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (timesheetRollupService.rebuildWhenEmpty()) {
+            LOGGER.info("Filled empty timesheet rollup");
+        }
+    }
+
+    @Scheduled(cron = "0 15 3 * * *")
+    public void reconcile() {
+        LOGGER.info("Verifying timesheet rollup");
+
+        timesheetRollupService.verifyAndRepair();
+    }
+}
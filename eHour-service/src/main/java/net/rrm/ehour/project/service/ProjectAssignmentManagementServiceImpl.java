@@ -8,6 +8,7 @@ import net.rrm.ehour.persistence.project.dao.ProjectDao;
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
 import net.rrm.ehour.persistence.user.dao.UserDao;
 import net.rrm.ehour.project.service.ProjectAssignmentValidationException.Issue;
+import net.rrm.ehour.report.service.ReportResultCache;
 import net.rrm.ehour.user.service.UserUtil;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,16 +28,19 @@ public class ProjectAssignmentManagementServiceImpl implements ProjectAssignment
 
     private final ProjectAssignmentDao projectAssignmentDao;
     private final TimesheetDao timesheetDao;
+    private final ReportResultCache reportResultCache;
 
     @Autowired
     public ProjectAssignmentManagementServiceImpl(UserDao userDAO,
                                                   ProjectDao projectDao,
                                                   ProjectAssignmentDao projectAssignmentDao,
-                                                  TimesheetDao timesheetDao) {
+                                                  TimesheetDao timesheetDao,
+                                                  ReportResultCache reportResultCache) {
         this.userDAO = userDAO;
         this.projectDao = projectDao;
         this.projectAssignmentDao = projectAssignmentDao;
         this.timesheetDao = timesheetDao;
+        this.reportResultCache = reportResultCache;
     }
 
     @Transactional
@@ -86,11 +90,17 @@ public class ProjectAssignmentManagementServiceImpl implements ProjectAssignment
             }
         }
 
+        // cached reports show the rate and role of the assignment
+        reportResultCache.clear();
+
         return projectAssignmentDao.persist(projectAssignment);
     }
 
     @Override
     public ProjectAssignment persistNewProjectAssignment(ProjectAssignment assignment) {
+        // reports showing assignments without bookings include the new one
+        reportResultCache.clear();
+
         return projectAssignmentDao.persist(assignment);
     }
 
@@ -144,5 +154,6 @@ public class ProjectAssignmentManagementServiceImpl implements ProjectAssignment
     @Auditable(actionType = AuditActionType.DELETE)
     public void deleteProjectAssignment(ProjectAssignment assignment) {
         projectAssignmentDao.delete(assignment);
+        reportResultCache.clear();
     }
 }
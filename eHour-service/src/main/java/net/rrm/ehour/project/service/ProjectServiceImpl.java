@@ -26,6 +26,7 @@ import net.rrm.ehour.exception.ParentChildConstraintException;
 import net.rrm.ehour.persistence.project.dao.ProjectDao;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
 import net.rrm.ehour.report.service.AggregateReportService;
+import net.rrm.ehour.report.service.ReportResultCache;
 import net.rrm.ehour.user.service.UserService;
 import net.rrm.ehour.util.DomainUtil;
 import org.apache.log4j.Logger;
@@ -50,12 +51,15 @@ public class ProjectServiceImpl implements ProjectService {
 
     private UserService userService;
 
+    private ReportResultCache reportResultCache;
+
     @Autowired
-    public ProjectServiceImpl(ProjectDao projectDAO, ProjectAssignmentManagementService projectAssignmentManagementService, AggregateReportService aggregateReportService, UserService userService) {
+    public ProjectServiceImpl(ProjectDao projectDAO, ProjectAssignmentManagementService projectAssignmentManagementService, AggregateReportService aggregateReportService, UserService userService, ReportResultCache reportResultCache) {
         this.projectDAO = projectDAO;
         this.projectAssignmentManagementService = projectAssignmentManagementService;
         this.aggregateReportService = aggregateReportService;
         this.userService = userService;
+        this.reportResultCache = reportResultCache;
     }
 
     @Override
@@ -115,6 +119,9 @@ public class ProjectServiceImpl implements ProjectService {
     public Project updateProject(Project project) {
         projectDAO.persist(project);
 
+        // cached reports show the name and code of the project
+        reportResultCache.invalidateProject(project.getProjectId());
+
         validatePMRoles(project);
         assignUsersToDefaultProject(project);
 
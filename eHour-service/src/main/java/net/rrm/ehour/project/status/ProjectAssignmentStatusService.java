@@ -18,6 +18,9 @@ package net.rrm.ehour.project.status;
 
 import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.domain.ProjectAssignment;
+import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
+
+import java.util.Date;
 
 /**
  * Status service
@@ -33,4 +36,10 @@ public interface ProjectAssignmentStatusService {
      * Get assignment status for a period
      */
     ProjectAssignmentStatus getAssignmentStatus(ProjectAssignment assignment, DateRange period);
+
+    /**
+     * Get overall assignment status from already known booked hours and the first and last booked day
+     * rather than from the database. Aggregate and dates are null when nothing was booked.
+     */
+    ProjectAssignmentStatus getAssignmentStatus(ProjectAssignment assignment, AssignmentAggregateReportElement aggregate, Date firstEntryDate, Date lastEntryDate);
 }
@@ -17,17 +17,16 @@
 package net.rrm.ehour.project.status;
 
 import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.AssignmentTotal;
 import net.rrm.ehour.domain.ProjectAssignment;
-import net.rrm.ehour.domain.TimesheetEntry;
-import net.rrm.ehour.persistence.report.dao.ReportAggregatedDao;
-import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
 import net.rrm.ehour.util.DateUtil;
 import net.rrm.ehour.util.EhourConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Date;
 
 /**
  * Time allotted util class
@@ -36,9 +35,7 @@ import java.util.List;
 public class ProjectAssignmentStatusServiceImpl implements ProjectAssignmentStatusService
 {
 	@Autowired
-	private	ReportAggregatedDao	reportAggregatedDAO;
-	@Autowired
-	private TimesheetDao		timesheetDAO;
+	private AssignmentTotalDao	assignmentTotalDao;
 
 	/*
 	 * (non-Javadoc)
@@ -46,7 +43,8 @@ public class ProjectAssignmentStatusServiceImpl implements ProjectAssignmentStat
 	 */
 	public ProjectAssignmentStatus getAssignmentStatus(ProjectAssignment assignment, DateRange period)
 	{
-		ProjectAssignmentStatus status = getAllottedStatus(assignment);
+		AssignmentTotal total = findTotal(assignment);
+		ProjectAssignmentStatus status = getAllottedStatus(assignment, toAggregate(assignment, total));
 		
 		addDeadlineStatusBasedOnDate(assignment, status, period);
 		
@@ -59,22 +57,48 @@ public class ProjectAssignmentStatusServiceImpl implements ProjectAssignmentStat
 	 */
 	public ProjectAssignmentStatus getAssignmentStatus(ProjectAssignment assignment)
 	{
-		ProjectAssignmentStatus status = getAllottedStatus(assignment);
-		
-		addDeadlineStatusBasedOnEntries(assignment, status);
-		
-		return status;
+		AssignmentTotal total = findTotal(assignment);
+
+		if (total == null)
+		{
+			return getAssignmentStatus(assignment, null, null, null);
+		}
+		else
+		{
+			return getAssignmentStatus(assignment, toAggregate(assignment, total), total.getFirstEntryDate(), total.getLastEntryDate());
+		}
 	}
 	
+	public ProjectAssignmentStatus getAssignmentStatus(ProjectAssignment assignment, AssignmentAggregateReportElement aggregate, Date firstEntryDate, Date lastEntryDate)
+	{
+		ProjectAssignmentStatus status = getAllottedStatus(assignment, aggregate);
+
+		addDeadlineStatusBasedOnEntryDates(assignment, status, firstEntryDate, lastEntryDate);
+
+		return status;
+	}
+
+	/**
+	 * Get the maintained total of the assignment, null when nothing is booked
+	 */
+	private AssignmentTotal findTotal(ProjectAssignment assignment)
+	{
+		return assignment.getAssignmentId() == null ? null : assignmentTotalDao.find(assignment.getAssignmentId());
+	}
+
+	private AssignmentAggregateReportElement toAggregate(ProjectAssignment assignment, AssignmentTotal total)
+	{
+		return total == null ? null : new AssignmentAggregateReportElement(assignment, total.getHours());
+	}
+
 	/**
 	 * Get status for allotted assignments
 	 * @param assignment
 	 * @return
 	 */
-	private ProjectAssignmentStatus getAllottedStatus(ProjectAssignment assignment)
+	private ProjectAssignmentStatus getAllottedStatus(ProjectAssignment assignment, AssignmentAggregateReportElement aggregate)
 	{
 		ProjectAssignmentStatus	status = new ProjectAssignmentStatus();
-		AssignmentAggregateReportElement aggregate = reportAggregatedDAO.getCumulatedHoursForAssignment(assignment);
 		status.setAggregate(aggregate);
 
 		addStatusForAssignmentType(assignment, status);
@@ -97,37 +121,24 @@ public class ProjectAssignmentStatusServiceImpl implements ProjectAssignmentStat
 	}
 
 	/**
-	 * Add status based on date
-	 * @param assignment
-	 * @param status
+	 * Add status based on the first and last booked day
 	 */
-	private void addDeadlineStatusBasedOnEntries(ProjectAssignment assignment, ProjectAssignmentStatus status)
+	private void addDeadlineStatusBasedOnEntryDates(ProjectAssignment assignment, ProjectAssignmentStatus status, Date firstEntryDate, Date lastEntryDate)
 	{
-		if (assignment.getDateStart() != null)
+		if (assignment.getDateStart() != null && firstEntryDate != null && firstEntryDate.before(assignment.getDateStart()))
 		{
-			List<TimesheetEntry> entries = timesheetDAO.getTimesheetEntriesBefore(assignment, assignment.getDateStart());
-			
-			if (entries != null && !entries.isEmpty())
-			{
-				status.addStatus(ProjectAssignmentStatus.Status.BEFORE_START);
-				return;
-			}
+			status.addStatus(ProjectAssignmentStatus.Status.BEFORE_START);
 		}
-
-		if (assignment.getDateEnd() != null)
+		else if (assignment.getDateEnd() != null && lastEntryDate != null && lastEntryDate.after(assignment.getDateEnd()))
 		{
-			List<TimesheetEntry> entries = timesheetDAO.getTimesheetEntriesAfter(assignment, assignment.getDateEnd());
-			
-			if (entries != null && !entries.isEmpty())
-			{
-				status.addStatus(ProjectAssignmentStatus.Status.AFTER_DEADLINE);
-				return;
-			}
+			status.addStatus(ProjectAssignmentStatus.Status.AFTER_DEADLINE);
+		}
+		else
+		{
+			status.addStatus(ProjectAssignmentStatus.Status.RUNNING);
 		}
-		
-		status.addStatus(ProjectAssignmentStatus.Status.RUNNING);
 	}
-	
+
 	/**
 	 * Add status based on period
 	 * @param assignment
@@ -238,18 +249,10 @@ public class ProjectAssignmentStatusServiceImpl implements ProjectAssignmentStat
 	}
 	
 	/**
-	 * @param reportAggregatedDAO the reportAggregatedDAO to set
-	 */
-	public void setReportAggregatedDAO(ReportAggregatedDao reportAggregatedDAO)
-	{
-		this.reportAggregatedDAO = reportAggregatedDAO;
-	}
-
-	/**
-	 * @param timesheetDAO the timesheetDAO to set
+	 * @param assignmentTotalDao the assignmentTotalDao to set
 	 */
-	public void setTimesheetDAO(TimesheetDao timesheetDAO)
+	public void setAssignmentTotalDao(AssignmentTotalDao assignmentTotalDao)
 	{
-		this.timesheetDAO = timesheetDAO;
+		this.assignmentTotalDao = assignmentTotalDao;
 	}
 }
@@ -0,0 +1,44 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.reports;
+
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
+import net.rrm.ehour.report.reports.element.FlatReportColumns;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Report data backed by flat report columns. The report elements are a view on the columns,
+ * elements are created when they're read and not kept around.
+ */
+public class ColumnarReportData extends ReportData {
+    private static final long serialVersionUID = -2870335719283524671L;
+
+    private final FlatReportColumns columns;
+
+    public ColumnarReportData(List<Date> lockedDays, FlatReportColumns columns, DateRange reportRange, UserSelectedCriteria criteria) {
+        super(lockedDays, columns.asList(), reportRange, criteria);
+
+        this.columns = columns;
+    }
+
+    public FlatReportColumns getColumns() {
+        return columns;
+    }
+}
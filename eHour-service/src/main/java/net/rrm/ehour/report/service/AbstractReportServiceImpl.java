@@ -27,11 +27,13 @@ import net.rrm.ehour.report.criteria.ReportCriteria;
 import net.rrm.ehour.report.criteria.UserSelectedCriteria;
 import net.rrm.ehour.report.reports.ReportData;
 import net.rrm.ehour.report.reports.element.ProjectStructuredReportElement;
+import net.rrm.ehour.report.reports.element.ReportElement;
+import net.rrm.ehour.timesheet.service.LockedDays;
 import net.rrm.ehour.timesheet.service.TimesheetLockService;
-import net.rrm.ehour.timesheet.service.TimesheetLockService$;
-import org.joda.time.Interval;
-import scala.collection.Seq;
+import net.rrm.ehour.util.DomainUtil;
+import org.apache.commons.lang.SerializationUtils;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -45,16 +47,18 @@ public abstract class AbstractReportServiceImpl<RE extends ProjectStructuredRepo
     private TimesheetLockService lockService;
     protected ReportAggregatedDao reportAggregatedDao;
     private ReportCriteriaService reportCriteriaService;
+    protected ReportResultCache reportResultCache;
 
 
     AbstractReportServiceImpl() {
     }
 
-    protected AbstractReportServiceImpl(ReportCriteriaService reportCriteriaService, ProjectDao projectDao, TimesheetLockService lockService, ReportAggregatedDao reportAggregatedDao) {
+    protected AbstractReportServiceImpl(ReportCriteriaService reportCriteriaService, ProjectDao projectDao, TimesheetLockService lockService, ReportAggregatedDao reportAggregatedDao, ReportResultCache reportResultCache) {
         this.reportCriteriaService = reportCriteriaService;
         this.projectDao = projectDao;
         this.lockService = lockService;
         this.reportAggregatedDao = reportAggregatedDao;
+        this.reportResultCache = reportResultCache;
     }
 
     ReportData getReportData(ReportCriteria reportCriteria) {
@@ -62,10 +66,9 @@ public abstract class AbstractReportServiceImpl<RE extends ProjectStructuredRepo
 
         DateRange reportRange = reportCriteria.getReportRange();
 
-        Seq<Interval> lockedDatesAsIntervals = lockService.findLockedDatesInRange(reportRange.getDateStart(), reportRange.getDateEnd());
-        List<Date> lockedDates = TimesheetLockService$.MODULE$.intervalToJavaDates(lockedDatesAsIntervals);
+        List<Date> lockedDates = findLockedDates(reportRange);
 
-        List<RE> allReportElements = generateReport(userSelectedCriteria, lockedDates, reportRange);
+        List<RE> allReportElements = findReportElements(userSelectedCriteria, lockedDates, reportRange);
 
         if (userSelectedCriteria.isForPm()) {
             List<ProjectStructuredReportElement> elem = evictNonPmReportElements(userSelectedCriteria, allReportElements);
@@ -75,6 +78,14 @@ public abstract class AbstractReportServiceImpl<RE extends ProjectStructuredRepo
         }
     }
 
+    protected List<Date> findLockedDates(DateRange reportRange) {
+        return findLockedDays(reportRange).toDates();
+    }
+
+    protected LockedDays findLockedDays(DateRange reportRange) {
+        return lockService.findLockedDays(reportRange.getDateStart(), reportRange.getDateEnd());
+    }
+
     private List<ProjectStructuredReportElement> evictNonPmReportElements(UserSelectedCriteria userSelectedCriteria, List<RE> allReportElements) {
         List<Integer> projectIds = fetchAllowedProjectIds(userSelectedCriteria);
 
@@ -88,7 +99,7 @@ public abstract class AbstractReportServiceImpl<RE extends ProjectStructuredRepo
         return allowedElements;
     }
 
-    private List<Integer> fetchAllowedProjectIds(UserSelectedCriteria userSelectedCriteria) {
+    protected List<Integer> fetchAllowedProjectIds(UserSelectedCriteria userSelectedCriteria) {
         List<Project> allowedProjects = projectDao.findActiveProjectsWhereUserIsPM(userSelectedCriteria.getPm());
 
         List<Integer> projectIds = Lists.newArrayList();
@@ -100,14 +111,63 @@ public abstract class AbstractReportServiceImpl<RE extends ProjectStructuredRepo
     }
 
 
-    private List<RE> generateReport(UserSelectedCriteria userSelectedCriteria, List<Date> lockedDates, DateRange reportRange) {
-        UsersAndProjects usersAndProjects = reportCriteriaService.criteriaToUsersAndProjects(userSelectedCriteria);
+    @SuppressWarnings("unchecked")
+    private List<RE> findReportElements(UserSelectedCriteria userSelectedCriteria, List<Date> lockedDates, DateRange reportRange) {
+        ReportResultKey resultKey = toResultKey(userSelectedCriteria, reportRange);
+        ReportResult cachedResult = findCachedResult(resultKey, lockedDates);
+
+        if (cachedResult != null) {
+            return new ArrayList<>((List<RE>) cachedResult.getElements());
+        }
+
+        long loadStartedAt = reportResultCache.startLoad();
 
-        return getReportElements(usersAndProjects.getUsers(),
+        UsersAndProjects usersAndProjects = criteriaToUsersAndProjects(userSelectedCriteria);
+
+        List<RE> elements = getReportElements(usersAndProjects.getUsers(),
                 usersAndProjects.getProjects(),
                 lockedDates,
                 reportRange,
                 userSelectedCriteria.isShowZeroBookings());
+
+        reportResultCache.put(resultKey, toResult(detach(elements), lockedDates, usersAndProjects, reportRange), loadStartedAt);
+
+        return elements;
+    }
+
+    protected ReportResultKey toResultKey(UserSelectedCriteria userSelectedCriteria, DateRange reportRange) {
+        return ReportResultKey.forCriteria(getClass().getName(), reportRange, userSelectedCriteria);
+    }
+
+    /**
+     * Find the unfiltered result of an earlier run of the same report, as long as the locked dates didn't change since
+     */
+    protected ReportResult findCachedResult(ReportResultKey resultKey, List<Date> lockedDates) {
+        ReportResult cachedResult = reportResultCache.get(resultKey);
+
+        return cachedResult != null && cachedResult.getLockedDates().equals(lockedDates) ? cachedResult : null;
+    }
+
+    /**
+     * Copy of the elements for the result cache, the cached elements are handed to other threads and can't hold
+     * entities attached to the session of this one. The elements are copied as a whole so the copy shares
+     * assignments, users and projects between elements like the original does.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<? extends ReportElement> detach(List<RE> elements) {
+        return (List<RE>) SerializationUtils.clone(new ArrayList<>(elements));
+    }
+
+    protected ReportResult toResult(List<? extends ReportElement> elements, List<Date> lockedDates, UsersAndProjects usersAndProjects, DateRange reportRange) {
+        return new ReportResult(elements,
+                lockedDates,
+                DomainUtil.getIdsFromDomainObjects(usersAndProjects.getUsers()),
+                DomainUtil.getIdsFromDomainObjects(usersAndProjects.getProjects()),
+                reportRange);
+    }
+
+    protected UsersAndProjects criteriaToUsersAndProjects(UserSelectedCriteria userSelectedCriteria) {
+        return reportCriteriaService.criteriaToUsersAndProjects(userSelectedCriteria);
     }
 
     /**
@@ -52,8 +52,8 @@ public class AggregateReportServiceImpl extends AbstractReportServiceImpl<Assign
     }
 
     @Autowired
-    public AggregateReportServiceImpl(ProjectAssignmentService projectAssignmentService, ReportCriteriaService reportCriteriaService, ProjectDao projectDao, TimesheetLockService lockService, ReportAggregatedDao reportAggregatedDAO) {
-        super(reportCriteriaService, projectDao, lockService, reportAggregatedDAO);
+    public AggregateReportServiceImpl(ProjectAssignmentService projectAssignmentService, ReportCriteriaService reportCriteriaService, ProjectDao projectDao, TimesheetLockService lockService, ReportAggregatedDao reportAggregatedDAO, ReportResultCache reportResultCache) {
+        super(reportCriteriaService, projectDao, lockService, reportAggregatedDAO, reportResultCache);
         this.reportAggregatedDAO = reportAggregatedDAO;
         this.projectAssignmentService = projectAssignmentService;
     }
@@ -0,0 +1,52 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalInconsistency;
+
+import java.util.List;
+
+/**
+ * Maintenance of the per assignment totals used for the assignment status
+ */
+public interface AssignmentTotalService {
+    /**
+     * Recalculate all totals from the timesheet entries
+     *
+     * @return number of totals
+     */
+    int rebuild();
+
+    /**
+     * Fill the totals from the timesheet entries when they're empty, as they are after upgrading
+     *
+     * @return true when the totals were filled
+     */
+    boolean rebuildWhenEmpty();
+
+    /**
+     * Compare the totals with the timesheet entries
+     */
+    List<AssignmentTotalInconsistency> findInconsistencies();
+
+    /**
+     * Fill the totals when they're empty and recalculate the totals which don't match the timesheet entries
+     *
+     * @return the inconsistencies found before repairing
+     */
+    List<AssignmentTotalInconsistency> verifyAndRepair();
+}
@@ -0,0 +1,90 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalInconsistency;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service("assignmentTotalService")
+public class AssignmentTotalServiceImpl implements AssignmentTotalService {
+    private static final Logger LOGGER = Logger.getLogger(AssignmentTotalServiceImpl.class);
+
+    private final AssignmentTotalDao assignmentTotalDao;
+
+    @Autowired
+    public AssignmentTotalServiceImpl(AssignmentTotalDao assignmentTotalDao) {
+        this.assignmentTotalDao = assignmentTotalDao;
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        int totals = assignmentTotalDao.rebuild();
+        LOGGER.info(String.format("Rebuilt assignment totals, %d assignments", totals));
+        return totals;
+    }
+
+    @Override
+    @Transactional
+    public boolean rebuildWhenEmpty() {
+        if (assignmentTotalDao.isEmpty()) {
+            rebuild();
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AssignmentTotalInconsistency> findInconsistencies() {
+        return assignmentTotalDao.findInconsistencies();
+    }
+
+    @Override
+    @Transactional
+    public List<AssignmentTotalInconsistency> verifyAndRepair() {
+        if (assignmentTotalDao.isEmpty()) {
+            // first start after upgrading, no need to compare every assignment
+            rebuild();
+            return new ArrayList<>();
+        }
+
+        List<AssignmentTotalInconsistency> inconsistencies = assignmentTotalDao.findInconsistencies();
+
+        if (!inconsistencies.isEmpty()) {
+            LOGGER.warn(String.format("%d assignment totals don't match the timesheet entries, first one: %s", inconsistencies.size(), inconsistencies.get(0)));
+
+            List<Integer> assignmentIds = new ArrayList<>();
+
+            for (AssignmentTotalInconsistency inconsistency : inconsistencies) {
+                assignmentIds.add(inconsistency.assignmentId());
+            }
+
+            assignmentTotalDao.refresh(assignmentIds);
+        }
+
+        return inconsistencies;
+    }
+}
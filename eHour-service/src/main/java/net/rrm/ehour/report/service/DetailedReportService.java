@@ -18,6 +18,8 @@ package net.rrm.ehour.report.service;
 
 import net.rrm.ehour.report.criteria.ReportCriteria;
 import net.rrm.ehour.report.reports.ReportData;
+import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
 
 /**
  * Report service for detailed reports
@@ -28,4 +30,10 @@ public interface DetailedReportService {
      * Get report data for customer
      */
     ReportData getDetailedReportData(ReportCriteria criteria);
+
+    /**
+     * Stream the report elements into the sink one at a time rather than collecting them in a list.
+     * The returned report data holds the locked days, range and criteria but no elements.
+     */
+    ReportData streamDetailedReportData(ReportCriteria criteria, ReportElementSink<FlatReportElement> sink);
 }
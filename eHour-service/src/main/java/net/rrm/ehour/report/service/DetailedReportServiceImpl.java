@@ -25,17 +25,26 @@ import net.rrm.ehour.persistence.project.dao.ProjectDao;
 import net.rrm.ehour.persistence.report.dao.DetailedReportDao;
 import net.rrm.ehour.persistence.report.dao.ReportAggregatedDao;
 import net.rrm.ehour.report.criteria.ReportCriteria;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
 import net.rrm.ehour.report.reports.ReportData;
 import net.rrm.ehour.report.reports.element.FlatReportElement;
 import net.rrm.ehour.report.reports.element.FlatReportElementBuilder;
 import net.rrm.ehour.report.reports.element.LockableDate;
+import net.rrm.ehour.report.reports.element.ReportElement;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
+import net.rrm.ehour.timesheet.service.LockedDays;
 import net.rrm.ehour.timesheet.service.TimesheetLockService;
 import net.rrm.ehour.util.DomainUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Report service for detailed reports implementation
@@ -48,8 +57,8 @@ public class DetailedReportServiceImpl extends AbstractReportServiceImpl<FlatRep
     }
 
     @Autowired
-    public DetailedReportServiceImpl(ReportCriteriaService reportCriteriaService, ProjectDao projectDao, TimesheetLockService lockService, DetailedReportDao detailedReportDao, ReportAggregatedDao reportAggregatedDAO) {
-        super(reportCriteriaService, projectDao, lockService, reportAggregatedDAO);
+    public DetailedReportServiceImpl(ReportCriteriaService reportCriteriaService, ProjectDao projectDao, TimesheetLockService lockService, DetailedReportDao detailedReportDao, ReportAggregatedDao reportAggregatedDAO, ReportResultCache reportResultCache) {
+        super(reportCriteriaService, projectDao, lockService, reportAggregatedDAO, reportResultCache);
         this.detailedReportDao = detailedReportDao;
     }
 
@@ -57,6 +66,42 @@ public class DetailedReportServiceImpl extends AbstractReportServiceImpl<FlatRep
         return getReportData(reportCriteria);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ReportData streamDetailedReportData(ReportCriteria reportCriteria, ReportElementSink<FlatReportElement> sink) {
+        UserSelectedCriteria userSelectedCriteria = reportCriteria.getUserSelectedCriteria();
+        DateRange reportRange = reportCriteria.getReportRange();
+
+        LockedDays lockedDays = findLockedDays(reportRange);
+        List<Date> lockedDates = lockedDays.toDates();
+
+        ReportElementSink<FlatReportElement> allowedSink = userSelectedCriteria.isForPm() ? new AllowedProjectsSink(fetchAllowedProjectIds(userSelectedCriteria), sink) : sink;
+
+        ReportResultKey resultKey = toResultKey(userSelectedCriteria, reportRange);
+        ReportResult cachedResult = findCachedResult(resultKey, lockedDates);
+
+        if (cachedResult != null) {
+            for (ReportElement element : cachedResult.getElements()) {
+                allowedSink.accept((FlatReportElement) element);
+            }
+        } else {
+            // a streamed report is not put in the result cache, keeping a copy would hold the whole export in memory
+            UsersAndProjects usersAndProjects = criteriaToUsersAndProjects(userSelectedCriteria);
+            List<Integer> userIds = DomainUtil.getIdsFromDomainObjects(usersAndProjects.getUsers());
+            List<Integer> projectIds = DomainUtil.getIdsFromDomainObjects(usersAndProjects.getProjects());
+
+            if (userSelectedCriteria.isShowZeroBookings()) {
+                for (FlatReportElement element : getReportElementsForAssignmentsWithoutBookings(reportRange, userIds, projectIds)) {
+                    allowedSink.accept(element);
+                }
+            }
+
+            streamElements(userIds, projectIds, reportRange, new LockTaggingSink(lockedDays, allowedSink));
+        }
+
+        return new ReportData(lockedDates, Lists.<FlatReportElement>newArrayList(), reportRange, userSelectedCriteria);
+    }
+
     @Override
     protected List<FlatReportElement> getReportElements(List<User> users,
                                                         List<Project> projects,
@@ -68,9 +113,10 @@ public class DetailedReportServiceImpl extends AbstractReportServiceImpl<FlatRep
 
         List<FlatReportElement> elements = getElements(userIds, projectIds, reportRange);
 
+        LockedDays lockedDays = LockedDays.of(lockedDates);
+
         for (FlatReportElement element : elements) {
-            Date date = element.getDayDate();
-            element.setLockableDate(new LockableDate(date, lockedDates.contains(date)));
+            tagLockedDate(element, lockedDays);
         }
 
         if (showZeroBookings) {
@@ -84,6 +130,14 @@ public class DetailedReportServiceImpl extends AbstractReportServiceImpl<FlatRep
         }
     }
 
+    /**
+     * Flat report elements hold plain values, no entities
+     */
+    @Override
+    protected List<? extends ReportElement> detach(List<FlatReportElement> elements) {
+        return new ArrayList<>(elements);
+    }
+
     private List<FlatReportElement> getReportElementsForAssignmentsWithoutBookings(DateRange reportRange, List<Integer> userIds, List<Integer> projectIds) {
         List<ProjectAssignment> assignments = getAssignmentsWithoutBookings(reportRange, userIds, projectIds);
 
@@ -110,4 +164,57 @@ public class DetailedReportServiceImpl extends AbstractReportServiceImpl<FlatRep
         }
         return elements;
     }
+
+    private void streamElements(List<Integer> userIds, List<Integer> projectIds, DateRange reportRange, ReportElementSink<FlatReportElement> sink) {
+        if (userIds.isEmpty() && projectIds.isEmpty()) {
+            detailedReportDao.streamHoursPerDay(reportRange, sink);
+        } else if (projectIds.isEmpty()) {
+            detailedReportDao.streamHoursPerDayForUsers(userIds, reportRange, sink);
+        } else if (userIds.isEmpty()) {
+            detailedReportDao.streamHoursPerDayForProjects(projectIds, reportRange, sink);
+        } else {
+            detailedReportDao.streamHoursPerDayForProjectsAndUsers(projectIds, userIds, reportRange, sink);
+        }
+    }
+
+    private static void tagLockedDate(FlatReportElement element, LockedDays lockedDays) {
+        Date date = element.getDayDate();
+        element.setLockableDate(new LockableDate(date, lockedDays.isLocked(date)));
+    }
+
+    private static class LockTaggingSink implements ReportElementSink<FlatReportElement> {
+        private final LockedDays lockedDays;
+        private final ReportElementSink<FlatReportElement> target;
+
+        LockTaggingSink(LockedDays lockedDays, ReportElementSink<FlatReportElement> target) {
+            this.lockedDays = lockedDays;
+            this.target = target;
+        }
+
+        @Override
+        public void accept(FlatReportElement element) {
+            tagLockedDate(element, lockedDays);
+            target.accept(element);
+        }
+    }
+
+    /**
+     * Only passes elements of the projects the PM is allowed to see
+     */
+    private static class AllowedProjectsSink implements ReportElementSink<FlatReportElement> {
+        private final Set<Integer> allowedProjectIds;
+        private final ReportElementSink<FlatReportElement> target;
+
+        AllowedProjectsSink(Collection<Integer> allowedProjectIds, ReportElementSink<FlatReportElement> target) {
+            this.allowedProjectIds = new HashSet<>(allowedProjectIds);
+            this.target = target;
+        }
+
+        @Override
+        public void accept(FlatReportElement element) {
+            if (allowedProjectIds.contains(element.getProjectId())) {
+                target.accept(element);
+            }
+        }
+    }
 }
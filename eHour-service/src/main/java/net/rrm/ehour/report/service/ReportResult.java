@@ -0,0 +1,93 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.report.reports.element.ReportElement;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unfiltered report elements as cached by the {@link ReportResultCache}, together with the users,
+ * projects and date range the elements were fetched for.
+ */
+public final class ReportResult {
+    private final List<? extends ReportElement> elements;
+    private final List<Date> lockedDates;
+    private final Set<Integer> userIds;
+    private final Set<Integer> projectIds;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final long createdAt;
+
+    /**
+     * @param userIds    users the elements were fetched for, empty when not restricted on users
+     * @param projectIds projects the elements were fetched for, empty when not restricted on projects
+     */
+    public ReportResult(List<? extends ReportElement> elements, List<Date> lockedDates, Collection<Integer> userIds, Collection<Integer> projectIds, DateRange reportRange) {
+        this(elements, lockedDates, userIds, projectIds, reportRange, System.currentTimeMillis());
+    }
+
+    ReportResult(List<? extends ReportElement> elements, List<Date> lockedDates, Collection<Integer> userIds, Collection<Integer> projectIds, DateRange reportRange, long createdAt) {
+        this.elements = Collections.unmodifiableList(elements);
+        this.lockedDates = Collections.unmodifiableList(lockedDates);
+        this.userIds = new HashSet<>(userIds);
+        this.projectIds = new HashSet<>(projectIds);
+        this.rangeStart = reportRange.getDateStart() == null ? Long.MIN_VALUE : reportRange.getDateStart().getTime();
+        this.rangeEnd = reportRange.getDateEnd() == null ? Long.MAX_VALUE : reportRange.getDateEnd().getTime();
+        this.createdAt = createdAt;
+    }
+
+    public List<? extends ReportElement> getElements() {
+        return elements;
+    }
+
+    public List<Date> getLockedDates() {
+        return lockedDates;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    int getWeight() {
+        return elements.size() + 1;
+    }
+
+    /**
+     * Could a change of the user's hours on the project between start and end alter this result?
+     * A null user or project matches any user or project.
+     */
+    boolean isAffectedBy(Integer userId, Integer projectId, Date start, Date end) {
+        boolean userMatches = userId == null || userIds.isEmpty() || userIds.contains(userId);
+        boolean projectMatches = projectId == null || projectIds.isEmpty() || projectIds.contains(projectId);
+
+        return userMatches && projectMatches && overlaps(start, end);
+    }
+
+    private boolean overlaps(Date start, Date end) {
+        long changeStart = start == null ? Long.MIN_VALUE : start.getTime();
+        long changeEnd = end == null ? Long.MAX_VALUE : end.getTime();
+
+        return changeStart <= rangeEnd && changeEnd >= rangeStart;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.data.DateRange;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Report results shared between sessions, keyed on the normalized report criteria.
+ * Results are dropped as soon as hours are written for a user, project and date covered by the result,
+ * all results are dropped when the master data they show (users, projects, assignments and their rates) changes.
+ * Cached results hold detached copies only, never entities of a Hibernate session.
+ * The cache is bounded by the total number of cached report elements, least recently used results are evicted first.
+ */
+@Service
+public class ReportResultCache {
+    private static final Logger LOG = Logger.getLogger(ReportResultCache.class);
+
+    private final int maxElements;
+    private final long ttlMillis;
+
+    // access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<ReportResultKey, ReportResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedElements;
+
+    // incremented on every invalidation; a result loaded while an invalidation happened is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ReportResultCache(@Value("${ehour.report.resultCache.maxElements:250000}") int maxElements,
+                             @Value("${ehour.report.resultCache.ttl:900}") long ttlSeconds) {
+        this.maxElements = maxElements;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    public boolean isEnabled() {
+        return maxElements > 0;
+    }
+
+    /**
+     * @return the cached result or null when nothing (valid) is cached for the key
+     */
+    public ReportResult get(ReportResultKey key) {
+        ReportResult result;
+
+        synchronized (results) {
+            result = results.get(key);
+
+            if (result != null && isExpired(result)) {
+                remove(key);
+                result = null;
+            }
+        }
+
+        (result == null ? misses : hits).incrementAndGet();
+
+        return result;
+    }
+
+    /**
+     * Mark the start of loading a result from the database, pass the returned value to {@link #put}
+     */
+    public long startLoad() {
+        return generation.get();
+    }
+
+    /**
+     * Cache the result unless it was invalidated after the load started or it's too large for the cache
+     */
+    public void put(ReportResultKey key, ReportResult result, long loadStartedAt) {
+        int weight = result.getWeight();
+
+        if (!isEnabled() || weight > maxElements) {
+            return;
+        }
+
+        synchronized (results) {
+            if (generation.get() != loadStartedAt) {
+                LOG.debug("Not caching report result for " + key + ", hours were written while it was loaded");
+                return;
+            }
+
+            remove(key);
+
+            Iterator<ReportResult> eldest = results.values().iterator();
+
+            while (cachedElements + weight > maxElements && eldest.hasNext()) {
+                cachedElements -= eldest.next().getWeight();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+
+            results.put(key, result);
+            cachedElements += weight;
+        }
+    }
+
+    /**
+     * Drop all results which include hours of the user on the project in the range. A null user or project
+     * matches any user or project. Inside a transaction the results are dropped once more after it committed,
+     * so a report loaded in between doesn't keep the uncommitted state.
+     */
+    public void invalidate(final Integer userId, final Integer projectId, final DateRange range) {
+        invalidateNow(userId, projectId, range);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(userId, projectId, range);
+                }
+            });
+        }
+    }
+
+    public void invalidateUser(Integer userId) {
+        invalidate(userId, null, new DateRange());
+    }
+
+    public void invalidateProject(Integer projectId) {
+        invalidate(null, projectId, new DateRange());
+    }
+
+    /**
+     * Drop all results, inside a transaction once more after it committed
+     */
+    public void clear() {
+        clearNow();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    clearNow();
+                }
+            });
+        }
+    }
+
+    private void clearNow() {
+        synchronized (results) {
+            generation.incrementAndGet();
+            results.clear();
+            cachedElements = 0;
+        }
+    }
+
+    private void invalidateNow(Integer userId, Integer projectId, DateRange range) {
+        Date start = range.getDateStart();
+        Date end = range.getDateEnd();
+
+        synchronized (results) {
+            generation.incrementAndGet();
+
+            Iterator<ReportResult> iterator = results.values().iterator();
+
+            while (iterator.hasNext()) {
+                ReportResult result = iterator.next();
+
+                if (result.isAffectedBy(userId, projectId, start, end)) {
+                    cachedElements -= result.getWeight();
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void remove(ReportResultKey key) {
+        ReportResult previous = results.remove(key);
+
+        if (previous != null) {
+            cachedElements -= previous.getWeight();
+        }
+    }
+
+    private boolean isExpired(ReportResult result) {
+        return ttlMillis > 0 && System.currentTimeMillis() - result.getCreatedAt() >= ttlMillis;
+    }
+
+    public int getMaxElements() {
+        return maxElements;
+    }
+
+    public int getCachedElements() {
+        synchronized (results) {
+            return cachedElements;
+        }
+    }
+
+    public int getSize() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+}
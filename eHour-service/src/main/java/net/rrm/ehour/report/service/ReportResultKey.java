@@ -0,0 +1,156 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.DomainObject;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Cache key of a report result, built from the part of the user selected criteria that determines
+ * which rows are fetched. Selections are kept as sorted id sets so the order in which users, projects,
+ * customers or departments were picked doesn't matter. The report type and PM are not part of the key,
+ * a PM report shares the unfiltered result and is filtered after the lookup.
+ */
+public final class ReportResultKey implements Serializable {
+    private static final long serialVersionUID = -1749350390715315461L;
+
+    private final String report;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final SortedSet<Serializable> userIds;
+    private final SortedSet<Serializable> departmentIds;
+    private final SortedSet<Serializable> projectIds;
+    private final SortedSet<Serializable> customerIds;
+    private final boolean onlyActiveUsers;
+    private final boolean onlyActiveProjects;
+    private final boolean onlyActiveCustomers;
+    private final boolean onlyBillableProjects;
+    private final boolean showZeroBookings;
+
+    private final int hashCode;
+
+    private ReportResultKey(String report, DateRange reportRange, UserSelectedCriteria criteria) {
+        this.report = report;
+        this.rangeStart = toMillis(reportRange.getDateStart(), Long.MIN_VALUE);
+        this.rangeEnd = toMillis(reportRange.getDateEnd(), Long.MAX_VALUE);
+        this.userIds = toIds(criteria.getUsers());
+        this.departmentIds = toIds(criteria.getDepartments());
+        this.projectIds = toIds(criteria.getProjects());
+        this.customerIds = toIds(criteria.getCustomers());
+        this.onlyActiveUsers = criteria.isOnlyActiveUsers();
+        this.onlyActiveProjects = criteria.isOnlyActiveProjects();
+        this.onlyActiveCustomers = criteria.isOnlyActiveCustomers();
+        this.onlyBillableProjects = criteria.isOnlyBillableProjects();
+        this.showZeroBookings = criteria.isShowZeroBookings();
+
+        this.hashCode = new HashCodeBuilder()
+                .append(report)
+                .append(rangeStart)
+                .append(rangeEnd)
+                .append(userIds)
+                .append(departmentIds)
+                .append(projectIds)
+                .append(customerIds)
+                .append(onlyActiveUsers)
+                .append(onlyActiveProjects)
+                .append(onlyActiveCustomers)
+                .append(onlyBillableProjects)
+                .append(showZeroBookings)
+                .toHashCode();
+    }
+
+    /**
+     * @param report name of the report, results of different reports never share a key
+     */
+    public static ReportResultKey forCriteria(String report, DateRange reportRange, UserSelectedCriteria criteria) {
+        return new ReportResultKey(report, reportRange, criteria);
+    }
+
+    private static long toMillis(Date date, long whenNull) {
+        return date == null ? whenNull : date.getTime();
+    }
+
+    private static SortedSet<Serializable> toIds(Collection<? extends DomainObject<?, ?>> domainObjects) {
+        SortedSet<Serializable> ids = new TreeSet<>();
+
+        if (domainObjects != null) {
+            for (DomainObject<?, ?> domainObject : domainObjects) {
+                if (domainObject != null && domainObject.getPK() != null) {
+                    ids.add(domainObject.getPK());
+                }
+            }
+        }
+
+        return ids;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+
+        if (!(object instanceof ReportResultKey)) {
+            return false;
+        }
+
+        ReportResultKey other = (ReportResultKey) object;
+
+        return hashCode == other.hashCode && new EqualsBuilder()
+                .append(report, other.report)
+                .append(rangeStart, other.rangeStart)
+                .append(rangeEnd, other.rangeEnd)
+                .append(userIds, other.userIds)
+                .append(departmentIds, other.departmentIds)
+                .append(projectIds, other.projectIds)
+                .append(customerIds, other.customerIds)
+                .append(onlyActiveUsers, other.onlyActiveUsers)
+                .append(onlyActiveProjects, other.onlyActiveProjects)
+                .append(onlyActiveCustomers, other.onlyActiveCustomers)
+                .append(onlyBillableProjects, other.onlyBillableProjects)
+                .append(showZeroBookings, other.showZeroBookings)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("report", report)
+                .append("rangeStart", rangeStart)
+                .append("rangeEnd", rangeEnd)
+                .append("users", userIds)
+                .append("departments", departmentIds)
+                .append("projects", projectIds)
+                .append("customers", customerIds)
+                .toString();
+    }
+}
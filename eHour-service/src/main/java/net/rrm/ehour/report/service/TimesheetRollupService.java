@@ -0,0 +1,53 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.persistence.report.dao.RollupInconsistency;
+
+import java.util.List;
+
+/**
+ * Maintenance of the monthly hours rollup used by the aggregate reports
+ */
+public interface TimesheetRollupService {
+    /**
+     * Recalculate the complete rollup from the timesheet entries
+     *
+     * @return number of rollup rows
+     */
+    int rebuild();
+
+    /**
+     * Fill the rollup from the timesheet entries when it's empty, as it is after upgrading
+     *
+     * @return true when the rollup was filled
+     */
+    boolean rebuildWhenEmpty();
+
+    /**
+     * Compare the rollup with the timesheet entries
+     */
+    List<RollupInconsistency> findInconsistencies();
+
+    /**
+     * Rebuild the rollup when it doesn't match the timesheet entries
+     *
+     * @return the inconsistencies found before rebuilding
+     */
+    List<RollupInconsistency> verifyAndRepair();
+}
@@ -0,0 +1,77 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package net.rrm.ehour.report.service;
+
+import net.rrm.ehour.persistence.report.dao.RollupInconsistency;
+import net.rrm.ehour.persistence.report.dao.TimesheetRollupDao;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service("timesheetRollupService")
+public class TimesheetRollupServiceImpl implements TimesheetRollupService {
+    private static final Logger LOGGER = Logger.getLogger(TimesheetRollupServiceImpl.class);
+
+    private final TimesheetRollupDao timesheetRollupDao;
+
+    @Autowired
+    public TimesheetRollupServiceImpl(TimesheetRollupDao timesheetRollupDao) {
+        this.timesheetRollupDao = timesheetRollupDao;
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        int rows = timesheetRollupDao.rebuild();
+        LOGGER.info(String.format("Rebuilt timesheet rollup, %d rows", rows));
+        return rows;
+    }
+
+    @Override
+    @Transactional
+    public boolean rebuildWhenEmpty() {
+        if (timesheetRollupDao.isEmpty()) {
+            rebuild();
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RollupInconsistency> findInconsistencies() {
+        return timesheetRollupDao.findInconsistencies();
+    }
+
+    @Override
+    @Transactional
+    public List<RollupInconsistency> verifyAndRepair() {
+        List<RollupInconsistency> inconsistencies = timesheetRollupDao.findInconsistencies();
+
+        if (!inconsistencies.isEmpty()) {
+            LOGGER.warn(String.format("Timesheet rollup has %d months which don't match the timesheet entries, first one: %s", inconsistencies.size(), inconsistencies.get(0)));
+            rebuild();
+        }
+
+        return inconsistencies;
+    }
+}
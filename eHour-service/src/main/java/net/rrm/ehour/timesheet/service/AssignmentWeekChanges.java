@@ -0,0 +1,203 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.timesheet.service;
+
+import com.google.common.collect.Lists;
+import net.rrm.ehour.domain.ProjectAssignment;
+import net.rrm.ehour.domain.TimesheetEntry;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Changes to the entries of one assignment in a week. The changes are worked out in memory
+ * so the budget of the assignment can be validated before anything is written.
+ */
+class AssignmentWeekChanges {
+    private static final Logger LOGGER = Logger.getLogger(AssignmentWeekChanges.class);
+
+    private final ProjectAssignment assignment;
+    private final List<TimesheetEntry> previousEntries;
+
+    private final List<TimesheetEntry> inserts = new ArrayList<>();
+    private final List<TimesheetEntry> updates = new ArrayList<>();
+    private final List<TimesheetEntry> deletes = new ArrayList<>();
+    private final List<Date> modifiedDates = new ArrayList<>();
+
+    // booked hours per day (in millis) of the week before and after the changes
+    private final SortedMap<Long, Float> bookedBefore = new TreeMap<>();
+    private final SortedMap<Long, Float> bookedAfter = new TreeMap<>();
+
+    private boolean increaseRefused;
+
+    /**
+     * @param previousEntries entries of the assignment already stored for the week
+     */
+    AssignmentWeekChanges(ProjectAssignment assignment, Collection<TimesheetEntry> previousEntries) {
+        this.assignment = assignment;
+        this.previousEntries = Lists.newArrayList(previousEntries);
+
+        for (TimesheetEntry previousEntry : previousEntries) {
+            bookedBefore.put(previousEntry.getEntryId().getEntryDate().getTime(), previousEntry.getHours());
+        }
+
+        bookedAfter.putAll(bookedBefore);
+    }
+
+    /**
+     * Work out the inserts, updates and deletes for the submitted entries of the assignment
+     *
+     * @param onlyLessThanExisting only allow to book less hours than already booked, the assignment is over budget
+     */
+    void apply(List<TimesheetEntry> entries, List<Date> lockedDates, boolean onlyLessThanExisting) {
+        List<TimesheetEntry> previous = Lists.newArrayList(previousEntries);
+
+        for (TimesheetEntry entry : entries) {
+            if (!entry.getEntryId().getProjectAssignment().equals(assignment)) {
+                LOGGER.error("Invalid entry in assignment list, skipping: " + entry);
+                previous.remove(entry);
+                continue;
+            }
+
+            Date entryDate = entry.getEntryId().getEntryDate();
+
+            if (lockedDates.contains(entryDate)) {
+                LOGGER.error("Date is locked but still trying to update " + entry);
+                previous.remove(entry);
+                continue;
+            }
+
+            if (!entry.isEmptyEntry()) {
+                TimesheetEntry existingEntry = getEntry(previous, entry);
+
+                if (onlyLessThanExisting &&
+                        (existingEntry == null || entry.getHours().compareTo(existingEntry.getHours()) > 0)) {
+                    // the entries changed so far are kept, old entries are not removed
+                    increaseRefused = true;
+                    return;
+                }
+
+                entry.setUpdateDate(new Date());
+
+                if (existingEntry != null) {
+                    updates.add(entry);
+                } else {
+                    inserts.add(entry);
+                }
+
+                bookedAfter.put(entryDate.getTime(), entry.getHours());
+                modifiedDates.add(entryDate);
+                previous.remove(entry);
+            }
+        }
+
+        for (TimesheetEntry oldEntry : previous) {
+            LOGGER.info("Removing old entry " + oldEntry.toString());
+
+            Date entryDate = oldEntry.getEntryId().getEntryDate();
+
+            deletes.add(oldEntry);
+            bookedAfter.remove(entryDate.getTime());
+            modifiedDates.add(entryDate);
+        }
+    }
+
+    private static TimesheetEntry getEntry(List<TimesheetEntry> entries, TimesheetEntry entry) {
+        int index = entries.indexOf(entry);
+
+        return index >= 0 ? entries.get(index) : null;
+    }
+
+    ProjectAssignment getAssignment() {
+        return assignment;
+    }
+
+    List<TimesheetEntry> getInserts() {
+        return inserts;
+    }
+
+    List<TimesheetEntry> getUpdates() {
+        return updates;
+    }
+
+    List<TimesheetEntry> getDeletes() {
+        return deletes;
+    }
+
+    List<Date> getModifiedDates() {
+        return modifiedDates;
+    }
+
+    boolean isModified() {
+        return !modifiedDates.isEmpty();
+    }
+
+    /**
+     * Was booking more hours refused because the assignment was already over budget?
+     */
+    boolean isIncreaseRefused() {
+        return increaseRefused;
+    }
+
+    SortedMap<Long, Float> getBookedBefore() {
+        return bookedBefore;
+    }
+
+    SortedMap<Long, Float> getBookedAfter() {
+        return bookedAfter;
+    }
+
+    /**
+     * Cumulated hours of the assignment after the changes
+     *
+     * @param hoursBefore cumulated hours of the assignment before the changes, including the week
+     */
+    double getHoursAfter(Number hoursBefore) {
+        double hours = hoursBefore == null ? 0 : hoursBefore.doubleValue();
+
+        return hours + getHoursDelta();
+    }
+
+    /**
+     * Hours booked in the week after the changes minus the hours booked before
+     */
+    double getHoursDelta() {
+        return sum(bookedAfter) - sum(bookedBefore);
+    }
+
+    /**
+     * Number of entries in the week after the changes minus the number of entries before
+     */
+    int getEntryCountDelta() {
+        return bookedAfter.size() - bookedBefore.size();
+    }
+
+    private static double sum(SortedMap<Long, Float> booked) {
+        double total = 0;
+
+        for (Float hours : booked.values()) {
+            total += hours == null ? 0 : hours;
+        }
+
+        return total;
+    }
+}
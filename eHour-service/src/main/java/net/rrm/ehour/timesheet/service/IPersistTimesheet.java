@@ -17,15 +17,12 @@
 package net.rrm.ehour.timesheet.service;
 
 import net.rrm.ehour.data.DateRange;
-import net.rrm.ehour.domain.ProjectAssignment;
 import net.rrm.ehour.domain.TimesheetComment;
 import net.rrm.ehour.domain.TimesheetEntry;
 import net.rrm.ehour.domain.User;
-import net.rrm.ehour.exception.OverBudgetException;
 import net.rrm.ehour.project.status.ProjectAssignmentStatus;
 
 import java.util.Collection;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -44,10 +41,4 @@ public interface IPersistTimesheet {
                                                        TimesheetComment timesheetComment,
                                                        DateRange weekRange,
                                                        User forUser);
-
-    void validateAndPersist(ProjectAssignment assignment,
-                            List<TimesheetEntry> entries,
-                            DateRange weekRange,
-                            List<Date> dates) throws OverBudgetException;
-
 }
@@ -16,28 +16,28 @@
 
 package net.rrm.ehour.timesheet.service;
 
-import com.google.common.collect.Lists;
-import net.rrm.ehour.audit.annot.NonAuditable;
 import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.AssignmentTotal;
 import net.rrm.ehour.domain.ProjectAssignment;
 import net.rrm.ehour.domain.TimesheetComment;
 import net.rrm.ehour.domain.TimesheetEntry;
 import net.rrm.ehour.domain.User;
-import net.rrm.ehour.exception.OverBudgetException;
 import net.rrm.ehour.mail.service.ProjectManagerNotifierService;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
+import net.rrm.ehour.persistence.report.dao.TimesheetRollupDao;
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetCommentDao;
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
 import net.rrm.ehour.project.status.ProjectAssignmentStatus;
 import net.rrm.ehour.project.status.ProjectAssignmentStatusService;
+import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
+import net.rrm.ehour.report.service.ReportResultCache;
+import net.rrm.ehour.timesheet.dto.AssignmentBookedRange;
 import net.rrm.ehour.util.DomainUtil;
 import net.rrm.ehour.util.EhourConstants;
 import org.apache.commons.lang.StringUtils;
-import org.apache.log4j.Logger;
 import org.joda.time.Interval;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import scala.collection.Seq;
 
@@ -45,28 +45,32 @@ import java.util.*;
 
 @Service
 public class TimesheetPersistence implements IPersistTimesheet, IDeleteTimesheetEntry {
-    private static final Logger LOGGER = Logger.getLogger(TimesheetPersistence.class);
-
     private TimesheetDao timesheetDAO;
     private TimesheetCommentDao timesheetCommentDAO;
+    private TimesheetRollupDao timesheetRollupDao;
     private ProjectAssignmentStatusService projectAssignmentStatusService;
     private ProjectManagerNotifierService projectManagerNotifierService;
     private TimesheetLockService timesheetLockService;
-    private ApplicationContext context;
+    private ReportResultCache reportResultCache;
+    private AssignmentTotalDao assignmentTotalDao;
 
     @Autowired
     public TimesheetPersistence(TimesheetDao timesheetDAO,
                                 TimesheetCommentDao timesheetCommentDAO,
+                                TimesheetRollupDao timesheetRollupDao,
                                 ProjectAssignmentStatusService projectAssignmentStatusService,
                                 ProjectManagerNotifierService projectManagerNotifierService,
                                 TimesheetLockService timesheetLockService,
-                                ApplicationContext context) {
+                                ReportResultCache reportResultCache,
+                                AssignmentTotalDao assignmentTotalDao) {
         this.timesheetDAO = timesheetDAO;
         this.timesheetCommentDAO = timesheetCommentDAO;
+        this.timesheetRollupDao = timesheetRollupDao;
         this.projectAssignmentStatusService = projectAssignmentStatusService;
         this.projectManagerNotifierService = projectManagerNotifierService;
         this.timesheetLockService = timesheetLockService;
-        this.context = context;
+        this.reportResultCache = reportResultCache;
+        this.assignmentTotalDao = assignmentTotalDao;
     }
 
     @Transactional
@@ -74,8 +78,14 @@ public class TimesheetPersistence implements IPersistTimesheet, IDeleteTimesheet
         timesheetCommentDAO.deleteCommentsForUser(user.getUserId());
 
         if (user.getProjectAssignments() != null && !user.getProjectAssignments().isEmpty()) {
-            timesheetDAO.deleteTimesheetEntries(DomainUtil.getIdsFromDomainObjects(user.getProjectAssignments()));
+            List<Integer> assignmentIds = DomainUtil.getIdsFromDomainObjects(user.getProjectAssignments());
+
+            timesheetDAO.deleteTimesheetEntries(assignmentIds);
+            timesheetRollupDao.deleteForAssignments(assignmentIds);
+            assignmentTotalDao.deleteForAssignments(assignmentIds);
         }
+
+        reportResultCache.invalidateUser(user.getUserId());
     }
 
     @Transactional
@@ -91,12 +101,8 @@ public class TimesheetPersistence implements IPersistTimesheet, IDeleteTimesheet
         Seq<Interval> lockedDatesInRange = timesheetLockService.findLockedDatesInRange(weekRange.getDateStart(), weekRange.getDateEnd(), forUser);
         List<Date> lockedDates = TimesheetLockService$.MODULE$.intervalToJavaDates(lockedDatesInRange);
 
-        for (Map.Entry<ProjectAssignment, List<TimesheetEntry>> entry : timesheetRows.entrySet()) {
-            try {
-                getTimesheetPersister().validateAndPersist(entry.getKey(), entry.getValue(), weekRange, lockedDates);
-            } catch (OverBudgetException e) {
-                errorStatusses.add(e.getStatus());
-            }
+        if (!timesheetRows.isEmpty()) {
+            errorStatusses.addAll(validateAndPersistRows(timesheetRows, weekRange, lockedDates));
         }
 
         // only update the comment when
@@ -113,110 +119,191 @@ public class TimesheetPersistence implements IPersistTimesheet, IDeleteTimesheet
         return errorStatusses;
     }
 
-    private IPersistTimesheet getTimesheetPersister() {
-        return context.getBean(IPersistTimesheet.class);
-    }
+    /**
+     * Validates the rows of a week in memory against the budget of their assignment and writes the valid rows
+     * in one batch. The previous entries, assignment totals and booked days outside the week are fetched for
+     * all rows at once.
+     *
+     * @return status of the rows which went over budget and were not persisted
+     */
+    private List<ProjectAssignmentStatus> validateAndPersistRows(Map<ProjectAssignment, List<TimesheetEntry>> timesheetRows,
+                                                                 DateRange weekRange,
+                                                                 List<Date> lockedDates) {
+        List<Integer> assignmentIds = DomainUtil.getIdsFromDomainObjects(timesheetRows.keySet());
+
+        Map<Integer, List<TimesheetEntry>> previousEntries = getEntriesPerAssignment(timesheetDAO.getTimesheetEntriesForAssignmentsInRange(assignmentIds, weekRange));
+        Map<Integer, Number> cumulatedHours = getHoursPerAssignment(assignmentTotalDao.findForAssignments(assignmentIds));
+        Map<Integer, AssignmentBookedRange> bookedOutsideWeek = getBookedRangePerAssignment(timesheetDAO.getBookedRangesOutsideRange(assignmentIds, weekRange));
 
-    private Map<ProjectAssignment, List<TimesheetEntry>> getTimesheetAsRows(Collection<TimesheetEntry> entries) {
-        Map<ProjectAssignment, List<TimesheetEntry>> timesheetRows = new HashMap<>();
+        List<ProjectAssignmentStatus> errorStatusses = new ArrayList<>();
+        List<AssignmentWeekChanges> acceptedChanges = new ArrayList<>();
+        Map<ProjectAssignment, ProjectAssignmentStatus> pmNotifications = new LinkedHashMap<>();
 
-        for (TimesheetEntry timesheetEntry : entries) {
-            ProjectAssignment assignment = timesheetEntry.getEntryId().getProjectAssignment();
+        for (Map.Entry<ProjectAssignment, List<TimesheetEntry>> row : timesheetRows.entrySet()) {
+            ProjectAssignment assignment = row.getKey();
+            Integer assignmentId = assignment.getAssignmentId();
 
-            List<TimesheetEntry> assignmentEntries = (timesheetRows.containsKey(assignment))
-                    ? timesheetRows.get(assignment)
-                    : new ArrayList<TimesheetEntry>();
+            List<TimesheetEntry> previous = previousEntries.containsKey(assignmentId) ? previousEntries.get(assignmentId) : Collections.<TimesheetEntry>emptyList();
+            Number hoursBefore = cumulatedHours.get(assignmentId);
+            AssignmentBookedRange outsideWeek = bookedOutsideWeek.get(assignmentId);
 
-            assignmentEntries.add(timesheetEntry);
+            AssignmentWeekChanges changes = new AssignmentWeekChanges(assignment, previous);
 
-            timesheetRows.put(assignment, assignmentEntries);
-        }
+            AssignmentAggregateReportElement aggregateBefore = hoursBefore == null ? null : new AssignmentAggregateReportElement(assignment, hoursBefore);
+            ProjectAssignmentStatus beforeStatus = getAssignmentStatus(assignment, aggregateBefore, outsideWeek, changes.getBookedBefore());
 
-        return timesheetRows;
-    }
+            changes.apply(row.getValue(), lockedDates, !beforeStatus.isValid());
+
+            // the aggregate is absent when nothing at all is booked on the assignment
+            boolean bookedAfter = outsideWeek != null || !changes.getBookedAfter().isEmpty();
+            AssignmentAggregateReportElement aggregateAfter = bookedAfter ? new AssignmentAggregateReportElement(assignment, changes.getHoursAfter(hoursBefore)) : null;
+            ProjectAssignmentStatus afterStatus = getAssignmentStatus(assignment, aggregateAfter, outsideWeek, changes.getBookedAfter());
+
+            boolean checkAfterStatus = beforeStatus.isValid() || changes.isIncreaseRefused();
 
-    @Transactional(rollbackFor = OverBudgetException.class, propagation = Propagation.REQUIRES_NEW)
-    @NonAuditable
-    public void validateAndPersist(ProjectAssignment assignment,
-                                   List<TimesheetEntry> entries,
-                                   DateRange weekRange,
-                                   List<Date> lockedDates) throws OverBudgetException {
-        ProjectAssignmentStatus beforeStatus = projectAssignmentStatusService.getAssignmentStatus(assignment);
-
-        boolean checkAfterStatus = beforeStatus.isValid();
-
-        try {
-            persistEntries(assignment, entries, weekRange, !beforeStatus.isValid(), lockedDates);
-        } catch (OverBudgetException obe) {
-            // make sure it's retrown by checking the after status
-            checkAfterStatus = true;
+            if (checkAfterStatus && !afterStatus.isValid()) {
+                errorStatusses.add(afterStatus);
+            } else {
+                acceptedChanges.add(changes);
+
+                if (!beforeStatus.equals(afterStatus) && canNotifyPm(assignment)) {
+                    pmNotifications.put(assignment, afterStatus);
+                }
+            }
         }
 
-        ProjectAssignmentStatus afterStatus = projectAssignmentStatusService.getAssignmentStatus(assignment);
+        persistChanges(acceptedChanges, weekRange);
 
-        if (checkAfterStatus && !afterStatus.isValid()) {
-            throw new OverBudgetException(afterStatus);
-        } else if (!beforeStatus.equals(afterStatus) && canNotifyPm(assignment)) {
-            notifyPm(assignment, afterStatus);
+        for (Map.Entry<ProjectAssignment, ProjectAssignmentStatus> notification : pmNotifications.entrySet()) {
+            notifyPm(notification.getKey(), notification.getValue());
         }
+
+        return errorStatusses;
     }
 
-    private void persistEntries(ProjectAssignment assignment, List<TimesheetEntry> entries, DateRange weekRange, boolean onlyLessThanExisting, List<Date> lockedDates) throws OverBudgetException {
-        List<TimesheetEntry> previousEntries = Lists.newArrayList(timesheetDAO.getTimesheetEntriesInRange(assignment, weekRange));
+    private ProjectAssignmentStatus getAssignmentStatus(ProjectAssignment assignment,
+                                                        AssignmentAggregateReportElement aggregate,
+                                                        AssignmentBookedRange outsideWeek,
+                                                        SortedMap<Long, Float> bookedInWeek) {
+        Date firstEntryDate = outsideWeek != null ? outsideWeek.getFirstEntryDate() : null;
+        Date lastEntryDate = outsideWeek != null ? outsideWeek.getLastEntryDate() : null;
 
-        for (TimesheetEntry entry : entries) {
-            if (!entry.getEntryId().getProjectAssignment().equals(assignment)) {
-                LOGGER.error("Invalid entry in assignment list, skipping: " + entry);
-                previousEntries.remove(entry);
-                continue;
-            }
+        if (!bookedInWeek.isEmpty()) {
+            Date firstInWeek = new Date(bookedInWeek.firstKey());
+            Date lastInWeek = new Date(bookedInWeek.lastKey());
+
+            firstEntryDate = firstEntryDate == null || firstInWeek.before(firstEntryDate) ? firstInWeek : firstEntryDate;
+            lastEntryDate = lastEntryDate == null || lastInWeek.after(lastEntryDate) ? lastInWeek : lastEntryDate;
+        }
 
-            if (lockedDates.contains(entry.getEntryId().getEntryDate())) {
-                LOGGER.error("Date is locked but still trying to update " + entry);
-                previousEntries.remove(entry);
-                continue;
+        return projectAssignmentStatusService.getAssignmentStatus(assignment, aggregate, firstEntryDate, lastEntryDate);
+    }
+
+    private void persistChanges(List<AssignmentWeekChanges> acceptedChanges, DateRange weekRange) {
+        List<TimesheetEntry> inserts = new ArrayList<>();
+        List<TimesheetEntry> updates = new ArrayList<>();
+        List<TimesheetEntry> deletes = new ArrayList<>();
+        List<Integer> modifiedAssignmentIds = new ArrayList<>();
+        List<Date> modifiedDates = new ArrayList<>();
+
+        for (AssignmentWeekChanges changes : acceptedChanges) {
+            if (changes.isModified()) {
+                inserts.addAll(changes.getInserts());
+                updates.addAll(changes.getUpdates());
+                deletes.addAll(changes.getDeletes());
+                modifiedAssignmentIds.add(changes.getAssignment().getAssignmentId());
+                modifiedDates.addAll(changes.getModifiedDates());
             }
+        }
+
+        if (!modifiedDates.isEmpty()) {
+            timesheetDAO.writeBatch(inserts, updates, deletes);
 
-            if (!entry.isEmptyEntry()) {
-                persistEntry(onlyLessThanExisting, entry, getEntry(previousEntries, entry));
-                previousEntries.remove(entry);
+            DateRange modifiedRange = new DateRange(Collections.min(modifiedDates), Collections.max(modifiedDates));
+            timesheetRollupDao.refresh(modifiedAssignmentIds, modifiedRange);
+
+            for (AssignmentWeekChanges changes : acceptedChanges) {
+                addToTotal(changes, weekRange);
+                invalidateReports(changes.getAssignment(), changes.getModifiedDates());
             }
         }
+    }
+
+    private void addToTotal(AssignmentWeekChanges changes, DateRange weekRange) {
+        if (changes.isModified()) {
+            SortedMap<Long, Float> bookedAfter = changes.getBookedAfter();
+
+            Date firstInWeek = bookedAfter.isEmpty() ? null : new Date(bookedAfter.firstKey());
+            Date lastInWeek = bookedAfter.isEmpty() ? null : new Date(bookedAfter.lastKey());
+
+            assignmentTotalDao.add(changes.getAssignment().getAssignmentId(),
+                    (float) changes.getHoursDelta(),
+                    changes.getEntryCountDelta(),
+                    weekRange,
+                    firstInWeek,
+                    lastInWeek);
+        }
+    }
 
-        removeOldEntries(previousEntries);
+    private void invalidateReports(ProjectAssignment assignment, List<Date> modifiedDates) {
+        if (!modifiedDates.isEmpty()) {
+            DateRange modifiedRange = new DateRange(Collections.min(modifiedDates), Collections.max(modifiedDates));
+            reportResultCache.invalidate(assignment.getUser().getUserId(), assignment.getProject().getProjectId(), modifiedRange);
+        }
     }
 
-    private void removeOldEntries(List<TimesheetEntry> previousEntries) {
-        for (TimesheetEntry entry : previousEntries) {
-            LOGGER.info("Removing old entry " + entry.toString());
-            timesheetDAO.delete(entry);
+    private Map<Integer, List<TimesheetEntry>> getEntriesPerAssignment(List<TimesheetEntry> entries) {
+        Map<Integer, List<TimesheetEntry>> entriesPerAssignment = new HashMap<>();
+
+        for (TimesheetEntry entry : entries) {
+            Integer assignmentId = entry.getEntryId().getProjectAssignment().getAssignmentId();
+
+            if (!entriesPerAssignment.containsKey(assignmentId)) {
+                entriesPerAssignment.put(assignmentId, new ArrayList<TimesheetEntry>());
+            }
+
+            entriesPerAssignment.get(assignmentId).add(entry);
         }
+
+        return entriesPerAssignment;
     }
 
-    private void persistEntry(boolean bookOnlyLessHoursThanExistingHours, TimesheetEntry newEntry, TimesheetEntry existingEntry) throws OverBudgetException {
-        if (bookOnlyLessHoursThanExistingHours &&
-                (existingEntry == null ||
-                        (newEntry.getHours().compareTo(existingEntry.getHours()) > 0))) {
-            throw new OverBudgetException();
+    private Map<Integer, Number> getHoursPerAssignment(List<AssignmentTotal> totals) {
+        Map<Integer, Number> hoursPerAssignment = new HashMap<>();
+
+        for (AssignmentTotal total : totals) {
+            hoursPerAssignment.put(total.getAssignmentId(), total.getHours());
         }
 
-        newEntry.setUpdateDate(new Date());
+        return hoursPerAssignment;
+    }
+
+    private Map<Integer, AssignmentBookedRange> getBookedRangePerAssignment(List<AssignmentBookedRange> bookedRanges) {
+        Map<Integer, AssignmentBookedRange> bookedRangePerAssignment = new HashMap<>();
 
-        if (existingEntry != null) {
-            timesheetDAO.merge(newEntry);
-        } else {
-            timesheetDAO.persist(newEntry);
+        for (AssignmentBookedRange bookedRange : bookedRanges) {
+            bookedRangePerAssignment.put(bookedRange.getAssignmentId(), bookedRange);
         }
+
+        return bookedRangePerAssignment;
     }
 
-    private TimesheetEntry getEntry(List<TimesheetEntry> entries, TimesheetEntry entry) {
-        int index = entries.indexOf(entry);
+    private Map<ProjectAssignment, List<TimesheetEntry>> getTimesheetAsRows(Collection<TimesheetEntry> entries) {
+        Map<ProjectAssignment, List<TimesheetEntry>> timesheetRows = new HashMap<>();
+
+        for (TimesheetEntry timesheetEntry : entries) {
+            ProjectAssignment assignment = timesheetEntry.getEntryId().getProjectAssignment();
+
+            List<TimesheetEntry> assignmentEntries = (timesheetRows.containsKey(assignment))
+                    ? timesheetRows.get(assignment)
+                    : new ArrayList<TimesheetEntry>();
+
+            assignmentEntries.add(timesheetEntry);
 
-        if (index >= 0) {
-            return entries.get(index);
-        } else {
-            return null;
+            timesheetRows.put(assignment, assignmentEntries);
         }
+
+        return timesheetRows;
     }
 
     private void notifyPm(ProjectAssignment assignment, ProjectAssignmentStatus status) {
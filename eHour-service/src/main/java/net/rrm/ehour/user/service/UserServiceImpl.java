@@ -31,6 +31,7 @@ import net.rrm.ehour.project.service.ProjectAssignmentManagementService;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
 import net.rrm.ehour.report.reports.util.ReportUtil;
 import net.rrm.ehour.report.service.AggregateReportService;
+import net.rrm.ehour.report.service.ReportResultCache;
 import net.rrm.ehour.timesheet.service.IDeleteTimesheetEntry;
 import net.rrm.ehour.util.DateUtil;
 import net.rrm.ehour.util.DomainUtil;
@@ -63,6 +64,8 @@ public class UserServiceImpl implements UserService {
     private AggregateReportService aggregateReportService;
     @Autowired
     private IDeleteTimesheetEntry deleteTimesheetEntryService;
+    @Autowired
+    private ReportResultCache reportResultCache;
 
     @Autowired
     private MessageDigestPasswordEncoder passwordEncoder;
@@ -204,6 +207,9 @@ public class UserServiceImpl implements UserService {
 
         userDAO.persist(dbUser);
 
+        // cached reports show the name of the user
+        reportResultCache.invalidateUser(user.getUserId());
+
         return dbUser;
     }
 
@@ -359,4 +365,8 @@ public class UserServiceImpl implements UserService {
     public void setUserRoleDAO(UserRoleDao dao) {
         userRoleDAO = dao;
     }
+
+    public void setReportResultCache(ReportResultCache reportResultCache) {
+        this.reportResultCache = reportResultCache;
+    }
 }
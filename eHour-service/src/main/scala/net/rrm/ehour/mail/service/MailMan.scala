@@ -1,27 +1,34 @@
 package net.rrm.ehour.mail.service
 
-import java.util.Properties
+import java.util
+import java.util.Date
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.{ArrayBlockingQueue, DelayQueue, Delayed, TimeUnit}
+import javax.annotation.{PostConstruct, PreDestroy}
+import javax.mail.internet.{AddressException, InternetAddress, MimeMessage, ParseException}
+import javax.mail.{AuthenticationFailedException, Message, MessagingException, SendFailedException, Session, Transport}
 
+import com.sun.mail.smtp.{SMTPAddressFailedException, SMTPSendFailedException}
 import net.rrm.ehour.appconfig.EhourSystemConfig
 import net.rrm.ehour.config.EhourConfig
-import net.rrm.ehour.domain.User
+import net.rrm.ehour.domain.{MailLog, User}
+import net.rrm.ehour.persistence.mail.dao.MailLogDao
 import org.apache.commons.lang.StringUtils
 import org.apache.log4j.Logger
-import org.springframework.beans.factory.annotation.Autowired
-import org.springframework.core.task.TaskExecutor
-import org.springframework.mail.javamail.JavaMailSenderImpl
-import org.springframework.mail.{MailException, MailSender, SimpleMailMessage}
+import org.springframework.beans.factory.annotation.{Autowired, Value}
 import org.springframework.stereotype.Service
 
-case class Mail(to: User, cc: String = "", subject: String, body: String)
+import scala.collection.JavaConversions._
+
+/**
+ * @param mailEvent when set, the delivery is logged in the mail log under this event
+ */
+case class Mail(to: User, cc: String = "", subject: String, body: String, mailEvent: Option[String] = None)
 
 trait MailMan {
   @Autowired
   var ehourConfig: EhourConfig = _
 
-  @Autowired
-  var taskExecutor: TaskExecutor = _
-
   @Autowired
   var systemConfig: EhourSystemConfig = _
 
@@ -30,12 +37,91 @@ trait MailMan {
   def deliver(mail: Mail, postDeliverCallBack: CallBack = (_, _) => {}, config: EhourConfig = ehourConfig)
 
   def isMailEnabled = systemConfig.isEnableMail
+
+  def statistics: MailDeliveryStatistics
 }
 
+/**
+ * Queues mails in a bounded queue which is drained by a background thread. The thread sends the queued mails in
+ * batches over a pooled connection per mail server and writes the mail log of a batch in one transaction.
+ * Mails failing on a transient error (connection refused, server busy) are retried with exponential backoff.
+ */
 @Service
-class MailManSmtpImpl extends MailMan {
+class MailManSmtpImpl @Autowired()(mailLogDao: MailLogDao,
+                                   @Value("${ehour.mail.queue.capacity:1000}") capacity: Int,
+                                   @Value("${ehour.mail.batch.size:50}") batchSize: Int,
+                                   @Value("${ehour.mail.maxAttempts:5}") maxAttempts: Int,
+                                   @Value("${ehour.mail.retry.wait:5000}") retryWaitMillis: Long,
+                                   @Value("${ehour.mail.connection.idle:30000}") idleMillis: Long) extends MailMan {
+  import MailManSmtpImpl._
+
+  private val queue = new ArrayBlockingQueue[Delivery](Math.max(1, capacity))
+  private val retries = new DelayQueue[Delivery]()
+
+  private val transportPool = new SmtpTransportPool(idleMillis)
+
+  // the transport pool isn't thread safe, mails sent from the calling thread take the same lock
+  private val deliveryLock = new Object
+
+  private val queued = new AtomicLong()
+  private val sent = new AtomicLong()
+  private val failed = new AtomicLong()
+  private val retried = new AtomicLong()
+  private val rejected = new AtomicLong()
+  private val batches = new AtomicLong()
+  private val sendNanos = new AtomicLong()
+
+  @volatile private var running = false
+  @volatile private var deliveryThread: Thread = _
+
+  @PostConstruct
+  def start() {
+    if (!running) {
+      running = true
+
+      val thread = new Thread(new Runnable {
+        override def run() {
+          deliverUntilStopped()
+        }
+      }, "ehour-mail-delivery")
+      thread.setDaemon(true)
+      deliveryThread = thread
+      thread.start()
+
+      LOGGER.info(s"Mail delivery started (capacity $capacity, batch size $batchSize)")
+    }
+  }
+
+  @PreDestroy
+  def stop() {
+    running = false
+
+    val thread = deliveryThread
+
+    if (thread != null) {
+      thread.interrupt()
+
+      try {
+        thread.join(ShutdownWaitMillis)
+      } catch {
+        case e: InterruptedException => Thread.currentThread().interrupt()
+      }
+
+      deliveryThread = null
+    }
 
-  final val LOGGER = Logger.getLogger(classOf[MailManSmtpImpl])
+    // whatever the delivery thread didn't get to gets one last attempt on the calling thread
+    val remaining = new util.ArrayList[Delivery]()
+    queue.drainTo(remaining)
+    remaining.addAll(retries)
+    retries.clear()
+
+    remaining.grouped(Math.max(1, batchSize)).foreach(deliverBatch)
+
+    deliveryLock.synchronized {
+      transportPool.close()
+    }
+  }
 
   override def sendTestMail(alternativeConfig: EhourConfig) {
     val subject = "eHour test message"
@@ -48,71 +134,234 @@ class MailManSmtpImpl extends MailMan {
   }
 
   override def deliver(mail: Mail, postDeliverCallBack: CallBack = (_, _) => {}, config: EhourConfig = ehourConfig) {
-    val mailTask = new MailTask(mail, postDeliverCallBack, config)
-    taskExecutor.execute(mailTask)
+    val delivery = new Delivery(mail, postDeliverCallBack, config)
+
+    if (!running) {
+      deliverBatch(List(delivery))
+    } else if (offer(delivery)) {
+      queued.incrementAndGet()
+    } else {
+      rejected.incrementAndGet()
+      LOGGER.error(s"Mail queue is full, dropping mail to ${mail.to.getEmail}: ${mail.subject}")
+
+      complete(delivery, success = false, new util.ArrayList[MailLog]())
+    }
   }
 
-  private class MailTask(mail: Mail, postDeliverCallBack: CallBack, config: EhourConfig) extends Runnable {
+  private def offer(delivery: Delivery): Boolean = {
+    try {
+      queue.offer(delivery, OfferWaitMillis, TimeUnit.MILLISECONDS)
+    } catch {
+      case e: InterruptedException =>
+        Thread.currentThread().interrupt()
+        false
+    }
+  }
 
-    override def run() {
-      val msg = new SimpleMailMessage
-      msg.setText(mail.body)
-      msg.setSubject(mail.subject)
-      msg.setFrom(config.getMailFrom)
+  override def statistics: MailDeliveryStatistics = {
+    val sentMails = sent.get()
+    val nanos = sendNanos.get()
 
-      if (StringUtils.isNotBlank(mail.cc))
-        msg.setCc(mail.cc.split(","))
-      msg.setTo(mail.to.getEmail)
+    MailDeliveryStatistics(queued = queued.get(),
+                           sent = sentMails,
+                           failed = failed.get(),
+                           retried = retried.get(),
+                           rejected = rejected.get(),
+                           batches = batches.get(),
+                           connections = transportPool.connectionCount,
+                           queueDepth = queue.size() + retries.size(),
+                           mailsPerSecond = if (nanos > 0) sentMails * 1e9 / nanos else 0)
+  }
 
+  private def deliverUntilStopped() {
+    while (running) {
       try {
-        val mailSender = createMailSender(config)
+        val batch = new util.ArrayList[Delivery](batchSize)
 
-        val success = if (systemConfig.isEnableMail) {
-          mailSender.send(msg)
-          LOGGER.info(s"Mail sent to ${mail.to.getEmail}: ${mail.subject} ")
-          true
-        } else {
-          LOGGER.info(s"Mail is disabled, otherwise I would be sending email to ${mail.to.getEmail}: ${mail.subject} ")
-          false
+        val first = queue.poll(PollMillis, TimeUnit.MILLISECONDS)
+
+        if (first != null) {
+          batch.add(first)
+          queue.drainTo(batch, batchSize - batch.size())
         }
 
-        postDeliverCallBack(mail, success)
-      } catch {
-        case me: MailException =>
-          LOGGER.error(s"Failed to send mail to ${mail.to.getEmail}: ${me.getMessage}")
+        // only the retries which waited long enough
+        retries.drainTo(batch, batchSize - batch.size())
 
-          postDeliverCallBack(mail, false)
+        if (batch.isEmpty) {
+          deliveryLock.synchronized {
+            transportPool.closeIdle()
+          }
+        } else {
+          deliverBatch(batch)
+        }
+      } catch {
+        case e: InterruptedException => // stopping
+        case e: RuntimeException => LOGGER.error("Failed to deliver mail batch", e)
       }
     }
+  }
 
-    private def createMailSender(config: EhourConfig): MailSender = {
-      val mailSender = new JavaMailSenderImpl
-      mailSender.setHost(config.getMailSmtp)
+  private def deliverBatch(batch: Seq[Delivery]) {
+    val mailLogs = new util.ArrayList[MailLog]()
 
-      if (StringUtils.isNotBlank(config.getSmtpPort)) {
-        try {
-          val port = config.getSmtpPort.toInt
-          mailSender.setPort(port)
-        }
-        catch {
-          case nfe: NumberFormatException =>
-            LOGGER.error("Using default port 25, couldn't parse configured port " + config.getSmtpPort)
-        }
+    deliveryLock.synchronized {
+      batches.incrementAndGet()
+
+      batch.groupBy(_.settings).foreach {
+        case (settings, deliveries) =>
+          if (systemConfig.isEnableMail) {
+            send(settings, deliveries, mailLogs)
+          } else {
+            deliveries.foreach(d => {
+              LOGGER.info(s"Mail is disabled, otherwise I would be sending email to ${d.mail.to.getEmail}: ${d.mail.subject} ")
+              complete(d, success = false, mailLogs)
+            })
+          }
       }
+    }
+
+    if (!mailLogs.isEmpty) {
+      try {
+        mailLogDao.persistAll(mailLogs)
+      } catch {
+        case e: RuntimeException => LOGGER.error(s"Failed to write ${mailLogs.size} mail log entries", e)
+      }
+    }
+  }
+
+  private def send(settings: SmtpSettings, deliveries: Seq[Delivery], mailLogs: util.List[MailLog]) {
+    val started = System.nanoTime()
+
+    var connectionFailure: Option[MessagingException] = None
 
-      if (StringUtils.isNotBlank(config.getSmtpUsername) && StringUtils.isNotBlank(config.getSmtpPassword)) {
-        val prop = new Properties
-        prop.put("mail.smtp.auth", "true")
+    for (delivery <- deliveries) {
+      connectionFailure match {
+        case Some(e) => fail(delivery, e, mailLogs)
+        case None =>
+          var transport: Transport = null
 
-        mailSender.setJavaMailProperties(prop)
-        mailSender.setUsername(config.getSmtpUsername)
-        mailSender.setPassword(config.getSmtpPassword)
+          try {
+            transport = transportPool.transport(settings)
+            val message = toMessage(delivery, transportPool.session(settings))
+
+            transport.sendMessage(message, message.getAllRecipients)
+
+            LOGGER.info(s"Mail sent to ${delivery.mail.to.getEmail}: ${delivery.mail.subject} ")
+            complete(delivery, success = true, mailLogs)
+          } catch {
+            case e: MessagingException =>
+              if (transport == null || !transport.isConnected) {
+                // the connection is gone, the rest of the batch is retried over a new one
+                transportPool.invalidate(settings)
+                connectionFailure = Some(e)
+              }
+
+              fail(delivery, e, mailLogs)
+          }
       }
+    }
+
+    sendNanos.addAndGet(System.nanoTime() - started)
+  }
+
+  private def toMessage(delivery: Delivery, session: Session): MimeMessage = {
+    val mail = delivery.mail
+
+    val message = new MimeMessage(session)
+    message.setFrom(new InternetAddress(delivery.config.getMailFrom))
+    message.setRecipients(Message.RecipientType.TO, mail.to.getEmail)
 
-      mailSender
+    if (StringUtils.isNotBlank(mail.cc)) {
+      message.setRecipients(Message.RecipientType.CC, mail.cc)
     }
+
+    message.setSubject(mail.subject, Charset)
+    message.setText(mail.body, Charset)
+    message.setSentDate(new Date)
+    message
   }
 
+  private def fail(delivery: Delivery, e: MessagingException, mailLogs: util.List[MailLog]) {
+    if (isPermanent(e) || delivery.attempt >= maxAttempts || !running) {
+      LOGGER.error(s"Failed to send mail to ${delivery.mail.to.getEmail} after ${delivery.attempt} attempt(s): ${e.getMessage}")
+
+      complete(delivery, success = false, mailLogs)
+    } else {
+      val waitMillis = Math.min(MaxRetryWaitMillis, retryWaitMillis << Math.min(delivery.attempt - 1, 20))
+
+      LOGGER.warn(s"Failed to send mail to ${delivery.mail.to.getEmail}, retrying in $waitMillis ms: ${e.getMessage}")
+
+      retried.incrementAndGet()
+      retries.put(delivery.retryAfter(waitMillis))
+    }
+  }
+
+  private def complete(delivery: Delivery, success: Boolean, mailLogs: util.List[MailLog]) {
+    if (success) sent.incrementAndGet() else failed.incrementAndGet()
+
+    delivery.mail.mailEvent.foreach(event => {
+      val mailLog = new MailLog
+      mailLog.setTimestamp(new Date)
+      mailLog.setSuccess(success)
+      mailLog.setMailTo(delivery.mail.to.getEmail)
+      mailLog.setMailEvent(event)
+      mailLogs.add(mailLog)
+    })
+
+    try {
+      delivery.callBack(delivery.mail, success)
+    } catch {
+      case e: RuntimeException => LOGGER.error(s"Post delivery callback failed for mail to ${delivery.mail.to.getEmail}", e)
+    }
+  }
 }
 
+object MailManSmtpImpl {
+  private final val LOGGER = Logger.getLogger(classOf[MailManSmtpImpl])
+
+  private final val Charset = "UTF-8"
+
+  private final val PollMillis = 100L
+  private final val OfferWaitMillis = 10000L
+  private final val ShutdownWaitMillis = 10000L
+  private final val MaxRetryWaitMillis = 300000L
+
+  /**
+   * Invalid addresses, recipients rejected with a 5xx reply and failed logins won't succeed on another attempt
+   */
+  private def isPermanent(e: MessagingException): Boolean = e match {
+    case smtp: SMTPSendFailedException => smtp.getReturnCode >= 500
+    case smtp: SMTPAddressFailedException => smtp.getReturnCode >= 500
+    case send: SendFailedException => send.getNextException match {
+      case next: MessagingException => isPermanent(next)
+      case _ => true
+    }
+    case _: AddressException | _: ParseException | _: AuthenticationFailedException => true
+    case _ => false
+  }
+
+  private class Delivery(val mail: Mail,
+                         val callBack: CallBack,
+                         val config: EhourConfig,
+                         val attempt: Int = 1,
+                         retryAt: Long = 0) extends Delayed {
+    val settings = SmtpSettings(config)
+
+    def retryAfter(waitMillis: Long) = new Delivery(mail, callBack, config, attempt + 1, System.currentTimeMillis() + waitMillis)
+
+    override def getDelay(unit: TimeUnit): Long = unit.convert(retryAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS)
+
+    override def compareTo(o: Delayed): Int = java.lang.Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS))
+  }
+}
 
+case class MailDeliveryStatistics(queued: Long,
+                                  sent: Long,
+                                  failed: Long,
+                                  retried: Long,
+                                  rejected: Long,
+                                  batches: Long,
+                                  connections: Long,
+                                  queueDepth: Int,
+                                  mailsPerSecond: Double)
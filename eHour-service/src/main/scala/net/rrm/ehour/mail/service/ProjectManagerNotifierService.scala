@@ -5,7 +5,7 @@ import java.util.Date
 
 import net.rrm.ehour.audit.annot.NonAuditable
 import net.rrm.ehour.config.EhourConfig
-import net.rrm.ehour.domain.{MailLog, ProjectAssignment, User}
+import net.rrm.ehour.domain.{ProjectAssignment, User}
 import net.rrm.ehour.persistence.mail.dao.MailLogDao
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement
 import org.springframework.beans.factory.annotation.Autowired
@@ -62,17 +62,7 @@ class ProjectManagerNotifierServiceMailImpl @Autowired()(mailMan: MailMan, confi
 
   private def mailPMAggregateMessage(mail: Mail, mailEvent: String, bookDate: Date) {
     if (!isAssignmentMailAlreadySent(mail.to.getEmail, mailEvent)) {
-      val callback: CallBack = (mail, success) => {
-
-        val mailLog = new MailLog
-        mailLog.setTimestamp(new Date)
-        mailLog.setSuccess(success)
-        mailLog.setMailTo(mail.to.getEmail)
-        mailLog.setMailEvent(mailEvent)
-        mailLogDao.persist(mailLog)
-      }
-
-      mailMan.deliver(mail, callback)
+      mailMan.deliver(mail.copy(mailEvent = Some(mailEvent)))
     }
   }
 
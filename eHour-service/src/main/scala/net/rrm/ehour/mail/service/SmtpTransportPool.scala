@@ -0,0 +1,144 @@
+package net.rrm.ehour.mail.service
+
+import java.util.Properties
+import java.util.concurrent.atomic.AtomicLong
+import javax.mail.{MessagingException, Session, Transport}
+
+import net.rrm.ehour.config.EhourConfig
+import org.apache.commons.lang.StringUtils
+import org.apache.log4j.Logger
+
+import scala.collection.mutable
+
+/**
+ * Mail server settings of a configuration, mails with equal settings share a connection
+ */
+case class SmtpSettings(host: String, port: Int, username: Option[String], password: Option[String])
+
+object SmtpSettings {
+  private final val Log = Logger.getLogger(classOf[SmtpSettings])
+
+  // -1 lets JavaMail use the default port 25
+  private final val DefaultPort = -1
+
+  def apply(config: EhourConfig): SmtpSettings = {
+    val port = if (StringUtils.isNotBlank(config.getSmtpPort)) {
+      try {
+        config.getSmtpPort.trim.toInt
+      } catch {
+        case nfe: NumberFormatException =>
+          Log.error("Using default port 25, couldn't parse configured port " + config.getSmtpPort)
+          DefaultPort
+      }
+    } else DefaultPort
+
+    val hasCredentials = StringUtils.isNotBlank(config.getSmtpUsername) && StringUtils.isNotBlank(config.getSmtpPassword)
+
+    SmtpSettings(host = config.getMailSmtp,
+                 port = port,
+                 username = if (hasCredentials) Some(config.getSmtpUsername) else None,
+                 password = if (hasCredentials) Some(config.getSmtpPassword) else None)
+  }
+}
+
+/**
+ * Keeps one connected SMTP transport per mail server so consecutive mails and batches are sent over the same
+ * connection. Connections which weren't used for idleMillis are closed, the mail server would drop them anyway.
+ * Not thread safe, the caller serializes access.
+ *
+ * @param idleMillis time after which an unused connection is closed
+ * @param clock      current time in milliseconds
+ */
+class SmtpTransportPool(idleMillis: Long, clock: () => Long) {
+  def this(idleMillis: Long) = this(idleMillis, () => System.currentTimeMillis())
+
+  import SmtpTransportPool._
+
+  private val pool = mutable.HashMap[SmtpSettings, Pooled]()
+
+  private val connects = new AtomicLong()
+
+  def session(settings: SmtpSettings): Session = pooled(settings).session
+
+  /**
+   * Transport connected to the mail server, connects when there's no open connection yet
+   */
+  def transport(settings: SmtpSettings): Transport = {
+    val entry = pooled(settings)
+
+    if (entry.transport == null || !entry.transport.isConnected) {
+      closeQuietly(entry.transport)
+      entry.transport = null
+
+      val transport = entry.session.getTransport("smtp")
+      transport.connect(settings.host, settings.port, settings.username.orNull, settings.password.orNull)
+
+      entry.transport = transport
+      connects.incrementAndGet()
+    }
+
+    entry.lastUsed = clock()
+    entry.transport
+  }
+
+  /**
+   * Drop the connection after it failed, the next mail reconnects
+   */
+  def invalidate(settings: SmtpSettings) {
+    pool.get(settings).foreach(entry => {
+      closeQuietly(entry.transport)
+      entry.transport = null
+    })
+  }
+
+  def closeIdle() {
+    val now = clock()
+
+    pool.values.filter(entry => entry.transport != null && now - entry.lastUsed >= idleMillis).foreach(entry => {
+      closeQuietly(entry.transport)
+      entry.transport = null
+    })
+  }
+
+  def close() {
+    pool.values.foreach(entry => closeQuietly(entry.transport))
+    pool.clear()
+  }
+
+  def connectionCount: Long = connects.get()
+
+  private def pooled(settings: SmtpSettings): Pooled = pool.getOrElseUpdate(settings, new Pooled(createSession(settings)))
+}
+
+object SmtpTransportPool {
+  private final val Log = Logger.getLogger(classOf[SmtpTransportPool])
+
+  private final val TimeoutMillis = "30000"
+
+  private class Pooled(val session: Session) {
+    var transport: Transport = _
+    var lastUsed = 0L
+  }
+
+  private def createSession(settings: SmtpSettings): Session = {
+    val props = new Properties
+    props.put("mail.smtp.connectiontimeout", TimeoutMillis)
+    props.put("mail.smtp.timeout", TimeoutMillis)
+
+    if (settings.username.isDefined) {
+      props.put("mail.smtp.auth", "true")
+    }
+
+    Session.getInstance(props)
+  }
+
+  private def closeQuietly(transport: Transport) {
+    if (transport != null) {
+      try {
+        transport.close()
+      } catch {
+        case e: MessagingException => Log.debug("Failed to close SMTP connection", e)
+      }
+    }
+  }
+}
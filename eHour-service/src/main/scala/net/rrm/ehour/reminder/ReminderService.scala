@@ -1,14 +1,13 @@
 package net.rrm.ehour.reminder
 
-import java.util.Date
-
 import net.rrm.ehour.config.EhourConfig
 import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain._
 import net.rrm.ehour.mail.service._
 import net.rrm.ehour.persistence.mail.dao.MailLogDao
+import net.rrm.ehour.persistence.project.dao.ProjectAssignmentDao
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao
-import net.rrm.ehour.project.service.ProjectAssignmentService
+import net.rrm.ehour.timesheet.dto.UserAssignmentPeriod
 import net.rrm.ehour.timesheet.service.TimesheetLockService
 import net.rrm.ehour.user.service.UserService
 import net.rrm.ehour.util.JodaDateUtil
@@ -20,8 +19,6 @@ import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 
-import scala.collection.mutable
-
 @Service
 class ReminderService @Autowired()(config: EhourConfig, userFinder: IFindUsersWithoutSufficientHours, mailMan: MailMan, mailLogDao: MailLogDao) {
   private final val LOGGER = Logger.getLogger(classOf[ReminderService])
@@ -40,24 +37,22 @@ class ReminderService @Autowired()(config: EhourConfig, userFinder: IFindUsersWi
       s"Reminder for $startFormatted-$endFormatted not $minimumHours hours"
     }
 
-    def hasMailBeenSent(mailTo: String, mailEvent: String) = mailLogDao.find(mailTo, mailEvent).size > 0
-
     if (config.isReminderEnabled) {
       val usersToRemind = userFinder.findUsersWithoutSufficientHours(minimumHours, config.getCompleteDayHours)
 
       LOGGER.info(s"Mail reminder job running, will remind ${usersToRemind.size} users.")
 
+      val reminderEvent = determineMailEvent()
+
+      def mailEventFor(user: User) = s"${user.getUserId}:$reminderEvent"
+
+      // the mails already sent are looked up on their exact events so the index on the event column is used
+      val sentMails: Set[(String, String)] = mailLogDao.findOnEvents(usersToRemind.map(mailEventFor)).map(log => (log.getMailTo, log.getMailEvent)).toSet
+
+      def hasMailBeenSent(mailTo: String, mailEvent: String) = sentMails.contains((mailTo, mailEvent))
+
       for (user <- usersToRemind) {
-        val mailEvent = s"${user.getUserId}:${determineMailEvent()}"
-
-        val callback: CallBack = (mail, success) => {
-          val mailLog = new MailLog
-          mailLog.setTimestamp(new Date)
-          mailLog.setSuccess(success)
-          mailLog.setMailTo(mail.to.getEmail)
-          mailLog.setMailEvent(mailEvent)
-          mailLogDao.persist(mailLog)
-        }
+        val mailEvent = mailEventFor(user)
 
         if (StringUtils.isBlank(user.getEmail)) {
           LOGGER.warn(s"Trying to send reminder mail to ${user.getFullName} but no email address is entered.")
@@ -66,9 +61,10 @@ class ReminderService @Autowired()(config: EhourConfig, userFinder: IFindUsersWi
         } else {
           val body = enrichMailBody(user)
 
-          val mail = Mail(user, config.getReminderCC, config.getReminderSubject, body)
+          // queued and sent in batches, the mail log is written once the mail is delivered
+          val mail = Mail(user, config.getReminderCC, config.getReminderSubject, body, Some(mailEvent))
 
-          mailMan.deliver(mail = mail, postDeliverCallBack = callback)
+          mailMan.deliver(mail = mail)
         }
       }
     }
@@ -88,31 +84,29 @@ class ReminderService @Autowired()(config: EhourConfig, userFinder: IFindUsersWi
 @Service
 class IFindUsersWithoutSufficientHours @Autowired()(userService: UserService,
                                                     timesheetDao: TimesheetDao,
-                                                    projectAssignmentService: ProjectAssignmentService,
+                                                    projectAssignmentDao: ProjectAssignmentDao,
                                                     lockService: TimesheetLockService
                                                      ) {
+  import scala.collection.JavaConversions._
+
   @Transactional
   def findUsersWithoutSufficientHours(minimumHours: Int, workHoursPerDay: Float): List[User] = {
 
     val reminderEndDate = new LocalDate()
     val reminderStartDate = reminderEndDate.minusWeeks(1).plusDays(1)
+    val reminderRange = new DateRange(reminderStartDate.toDate, reminderEndDate.toDate)
 
     val correctedMinimumHours = subtractLockedDaysFromMinimumHours(minimumHours, workHoursPerDay, reminderStartDate, reminderEndDate)
 
-    val activeUsers = findActiveUsersWithAssignments(reminderStartDate, reminderEndDate)
-
-    val timesheetEntriesInRange = timesheetDao.getTimesheetEntriesInRange(new DateRange(reminderStartDate.toDate, reminderEndDate.toDate))
-
-    import scala.collection.JavaConversions._
-    val entriesByUser: Map[User, mutable.Buffer[TimesheetEntry]] = timesheetEntriesInRange groupBy (_.getEntryId.getProjectAssignment.getUser)
-    val entriesByActiveUsers = entriesByUser.filterKeys(activeUsers.contains)
-    val hoursPerUser: Map[User, Float] = entriesByActiveUsers.map(f => (f._1, f._2.foldLeft(0f)(_ + _.getHours))).toMap
+    val activeUsers = findActiveUsersWithAssignments(reminderStartDate, reminderEndDate, reminderRange)
 
-    val userNotMeetingMinimalHours: Map[User, Float] = hoursPerUser.filter(p => p._2 < correctedMinimumHours)
+    // summed by the database so no entry has to be loaded
+    val hoursPerUser: Map[Integer, Float] = timesheetDao.getBookedHoursPerUserInRange(reminderRange).map(booked =>
+      (booked.getUserId, if (booked.getHours == null) 0f else booked.getHours.floatValue())
+    ).toMap
 
-    val usersWithoutAnyHours: Set[User] = activeUsers.toSet.diff(entriesByUser.keySet)
-
-    usersWithoutAnyHours.toList ++ userNotMeetingMinimalHours.keySet.toList
+    // users without any hours are not in the map
+    activeUsers.filter(u => hoursPerUser.get(u.getUserId).forall(_ < correctedMinimumHours))
   }
 
   // for every locked day in the range, subtract the work hours per day from the minimum hours
@@ -125,8 +119,7 @@ class IFindUsersWithoutSufficientHours @Autowired()(userService: UserService,
     Math.ceil(minimumHours - correction).toInt
   }
 
-  import scala.collection.JavaConversions._
-  private def findActiveUsersWithAssignments(reminderStartDate: LocalDate, reminderEndDate: LocalDate): List[User] = {
+  private def findActiveUsersWithAssignments(reminderStartDate: LocalDate, reminderEndDate: LocalDate, reminderRange: DateRange): List[User] = {
     def toWeekDays(t: (LocalDate, LocalDate)) = JodaDateUtil.enumerate(t._1, t._2).map(_.getDayOfWeek)
 
     val reminderWeekDays = toWeekDays(reminderStartDate, reminderEndDate)
@@ -141,14 +134,15 @@ class IFindUsersWithoutSufficientHours @Autowired()(userService: UserService,
       joinedWeekDays.foldLeft(0)(_ + _) == reminderWeekDays.foldLeft(0)(_ + _)
     }
 
+    // the bookable assignments of all users in one query rather than one query per user
+    val periodsPerUser: Map[Integer, List[UserAssignmentPeriod]] = projectAssignmentDao.findBookableAssignmentPeriods(reminderRange).toList.groupBy(_.getUserId)
+
     val activeUsers = userService.getUsers(UserRole.USER).toList
 
     activeUsers.filter(u => {
-      val assignments = projectAssignmentService.getProjectAssignmentsForUser(u.getUserId, new DateRange(reminderStartDate.toDate, reminderEndDate.toDate))
-
-      val assignmentDates = assignments.toList.map(a => {
-        val s = if (a.getDateStart == null) reminderStartDate else new LocalDate(a.getDateStart)
-        val e = if (a.getDateEnd == null) reminderEndDate else new LocalDate(a.getDateEnd)
+      val assignmentDates = periodsPerUser.getOrElse(u.getUserId, Nil).map(p => {
+        val s = if (p.getDateStart == null) reminderStartDate else new LocalDate(p.getDateStart)
+        val e = if (p.getDateEnd == null) reminderEndDate else new LocalDate(p.getDateEnd)
         (s,e)
       })
       coversReminderDays(assignmentDates)
@@ -1,5 +1,6 @@
 package net.rrm.ehour.sysinfo
 
+import net.rrm.ehour.persistence.retry.{ExponentialBackoffRetryPolicy, RetryStatistics}
 import org.springframework.beans.factory.annotation.{Value, Autowired}
 import org.springframework.stereotype.Service
 
@@ -9,7 +10,9 @@ trait SystemInfoService {
 
 @Service
 class SystemInfoServiceImpl @Autowired()(@Value("${ehour.database}") databaseName: String, @Value("${ehour.database.url:none}") databaseUrl: String, @Value("${ehour.database.driver:none}") jdbcDriver: String) extends SystemInfoService {
-  def info: SystemInfo = SystemInfo(databaseName, databaseUrl, jdbcDriver)
+  def info: SystemInfo = SystemInfo(databaseName, databaseUrl, jdbcDriver, ExponentialBackoffRetryPolicy.statistics)
 }
 
-case class SystemInfo(databaseName: String, databaseUrl: String, jdbcDriver: String)
+case class SystemInfo(databaseName: String, databaseUrl: String, jdbcDriver: String, retryStatistics: RetryStatistics = RetryStatistics.Empty) {
+  def this(databaseName: String, databaseUrl: String, jdbcDriver: String) = this(databaseName, databaseUrl, jdbcDriver, RetryStatistics.Empty)
+}
@@ -0,0 +1,187 @@
+package net.rrm.ehour.timesheet.service
+
+import java.util.Date
+import java.{util => ju}
+
+import net.rrm.ehour.domain.{TimesheetLock, User}
+import org.joda.time.{DateTimeConstants, DateTimeZone, Interval, LocalDate}
+
+import scala.collection.JavaConversions._
+
+/**
+ * In-memory index of all timesheet locks. The locks are stored as a balanced interval tree laid out in an array
+ * sorted on the first locked day, node i spans the subtree of its (lo, hi) range with i = (lo + hi) / 2. Every node
+ * knows the last locked day of its subtree so subtrees ending before the requested range are skipped, a lookup
+ * costs O(log n + matching locks). Immutable, build a new one when the locks change.
+ */
+class TimesheetLockIndex(locks: Seq[TimesheetLock]) {
+  import TimesheetLockIndex._
+
+  private val nodes: Array[Node] = locks.map(toNode).sortBy(_.startDay).toArray
+
+  private val subtreeEndDay = new Array[Int](nodes.length)
+
+  initSubtreeEndDay(0, nodes.length - 1)
+
+  private def initSubtreeEndDay(lo: Int, hi: Int): Int =
+    if (lo > hi) Int.MinValue
+    else {
+      val mid = (lo + hi) >>> 1
+      val endDay = Math.max(nodes(mid).endDay, Math.max(initSubtreeEndDay(lo, mid - 1), initSubtreeEndDay(mid + 1, hi)))
+      subtreeEndDay(mid) = endDay
+      endDay
+    }
+
+  def size: Int = nodes.length
+
+  /**
+   * Days in the range covered by any lock, regardless of the users excluded from the lock
+   */
+  def lockedDays(startDate: Date, endDate: Date): LockedDays = lockedDays(startDate, endDate, NoUser)
+
+  /**
+   * Days in the range covered by a lock the user isn't excluded from
+   */
+  def lockedDays(startDate: Date, endDate: Date, user: User): LockedDays =
+    lockedDays(startDate, endDate, if (user == null || user.getUserId == null) NoUser else user.getUserId.intValue())
+
+  private def lockedDays(startDate: Date, endDate: Date, userId: Int): LockedDays = {
+    // an open range is bounded by the locks themselves
+    val startDay = if (startDate == null) firstLockedDay else LockedDays.epochDay(startDate)
+    val endDay = if (endDate == null) lastLockedDay else LockedDays.epochDay(endDate)
+
+    val days = new ju.BitSet()
+
+    if (startDay <= endDay) {
+      collect(0, nodes.length - 1, startDay, endDay, userId, days)
+    }
+
+    new LockedDays(startDay, endDay, days)
+  }
+
+  private def collect(lo: Int, hi: Int, startDay: Int, endDay: Int, userId: Int, days: ju.BitSet) {
+    if (lo <= hi) {
+      val mid = (lo + hi) >>> 1
+
+      if (subtreeEndDay(mid) >= startDay) {
+        collect(lo, mid - 1, startDay, endDay, userId, days)
+
+        val node = nodes(mid)
+
+        // the right subtree only holds locks starting on or after this one
+        if (node.startDay <= endDay) {
+          if (node.endDay >= startDay && !node.isExcluded(userId)) {
+            days.set(Math.max(node.startDay, startDay) - startDay, Math.min(node.endDay, endDay) - startDay + 1)
+          }
+
+          collect(mid + 1, hi, startDay, endDay, userId, days)
+        }
+      }
+    }
+  }
+
+  private def firstLockedDay = if (nodes.isEmpty) 0 else nodes(0).startDay
+
+  private def lastLockedDay = if (nodes.isEmpty) -1 else subtreeEndDay((nodes.length - 1) >>> 1)
+}
+
+object TimesheetLockIndex {
+  private final val NoUser = -1
+
+  private case class Node(startDay: Int, endDay: Int, excludedUserIds: ju.BitSet) {
+    def isExcluded(userId: Int) = userId >= 0 && excludedUserIds.get(userId)
+  }
+
+  private def toNode(lock: TimesheetLock): Node = {
+    val excludedUserIds = new ju.BitSet()
+
+    if (lock.getExcludedUsers != null) {
+      for (user <- lock.getExcludedUsers if user.getUserId != null) {
+        excludedUserIds.set(user.getUserId)
+      }
+    }
+
+    Node(LockedDays.epochDay(lock.getDateStart), LockedDays.epochDay(lock.getDateEnd), excludedUserIds)
+  }
+}
+
+/**
+ * Locked days of a date range, bit i is set when the i-th day of the range is locked.
+ * Days are counted in days since the epoch of the local date.
+ */
+class LockedDays(val startDay: Int, val endDay: Int, days: ju.BitSet) {
+  def isLocked(date: Date): Boolean = date != null && isLocked(LockedDays.epochDay(date))
+
+  def isLocked(epochDay: Int): Boolean = epochDay >= startDay && epochDay <= endDay && days.get(epochDay - startDay)
+
+  def isEmpty: Boolean = days.isEmpty
+
+  def lockedDayCount: Int = days.cardinality()
+
+  /**
+   * Whether every day of the range is locked
+   */
+  def isFullyLocked: Boolean = startDay <= endDay && days.nextClearBit(0) > endDay - startDay
+
+  /**
+   * Consecutive locked days merged into intervals from the start of the first to the start of the last day
+   */
+  def toIntervals: Seq[Interval] = {
+    val intervals = Vector.newBuilder[Interval]
+
+    var first = days.nextSetBit(0)
+
+    while (first >= 0) {
+      val last = days.nextClearBit(first) - 1
+
+      intervals += new Interval(LockedDays.toLocalDate(startDay + first).toDateTimeAtStartOfDay,
+                                LockedDays.toLocalDate(startDay + last).toDateTimeAtStartOfDay)
+
+      first = days.nextSetBit(last + 1)
+    }
+
+    intervals.result()
+  }
+
+  def toDates: ju.List[Date] = {
+    val dates = new ju.ArrayList[Date](days.cardinality())
+
+    var day = days.nextSetBit(0)
+
+    while (day >= 0) {
+      dates.add(LockedDays.toLocalDate(startDay + day).toDate)
+      day = days.nextSetBit(day + 1)
+    }
+
+    dates
+  }
+}
+
+object LockedDays {
+  val Empty = new LockedDays(0, -1, new ju.BitSet())
+
+  def of(dates: ju.Collection[Date]): LockedDays =
+    if (dates.isEmpty) Empty
+    else {
+      val epochDays = dates.map(epochDay)
+      val startDay = epochDays.min
+
+      val days = new ju.BitSet()
+      epochDays.foreach(d => days.set(d - startDay))
+
+      new LockedDays(startDay, epochDays.max, days)
+    }
+
+  /**
+   * Days since the epoch of the date in the default time zone
+   */
+  def epochDay(date: Date): Int = {
+    val millis = date.getTime
+    val localMillis = millis + DateTimeZone.getDefault.getOffset(millis)
+
+    val day = localMillis / DateTimeConstants.MILLIS_PER_DAY
+    (if (localMillis < 0 && localMillis % DateTimeConstants.MILLIS_PER_DAY != 0) day - 1 else day).toInt
+  }
+
+  def toLocalDate(epochDay: Int): LocalDate = new LocalDate(epochDay.toLong * DateTimeConstants.MILLIS_PER_DAY, DateTimeZone.UTC)
+}
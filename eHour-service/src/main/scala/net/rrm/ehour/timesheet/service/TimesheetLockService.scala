@@ -1,6 +1,7 @@
 package net.rrm.ehour.timesheet.service
 
 import java.util.Date
+import java.util.concurrent.atomic.AtomicLong
 import java.{util => ju}
 
 import com.github.nscala_time.time.Imports._
@@ -17,6 +18,7 @@ import org.joda.time.Days
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.{TransactionSynchronizationAdapter, TransactionSynchronizationManager}
 
 import scala.language.implicitConversions
 
@@ -35,9 +37,19 @@ trait TimesheetLockService {
 
   def findLockedDatesInRange(startDate: Date, endDate: Date, user: User): Seq[Interval]
 
+  def findLockedDays(startDate: Date, endDate: Date): LockedDays
+
+  def findLockedDays(startDate: Date, endDate: Date, user: User): LockedDays
+
   def isRangeLocked(startDate: Date, endDate: Date, user: User): Boolean
 
   def findAffectedUsers(startDate: Date, endDate: Date, excludedUsers: Seq[User]): Seq[AffectedUser]
+
+  /**
+   * Drop the in-memory locks, they're loaded again on the next lookup. Needed when the locks are changed without
+   * going through this service, e.g. by a restore
+   */
+  def invalidateIndex()
 }
 
 object TimesheetLockService {
@@ -63,6 +75,10 @@ object TimesheetLockService {
 
 @Service("timesheetLockService")
 class TimesheetLockServiceSpringImpl @Autowired()(lockDao: TimesheetLockDao, timesheetDao: TimesheetDao) extends TimesheetLockService {
+  // all locks are held in memory, they're loaded on first use and after every change to them
+  @volatile private var lockIndex: TimesheetLockIndex = _
+
+  private val indexGeneration = new AtomicLong()
 
   @Transactional
   override def createNew(optionalName: Option[String] = None, startDate: Date, endDate: Date, excludedUsers: ju.List[User] = Lists.newArrayList()): TimesheetLock = {
@@ -72,6 +88,7 @@ class TimesheetLockServiceSpringImpl @Autowired()(lockDao: TimesheetLockDao, tim
     }
 
     lockDao.persist(lock)
+    invalidateIndex()
 
     lock
   }
@@ -79,12 +96,16 @@ class TimesheetLockServiceSpringImpl @Autowired()(lockDao: TimesheetLockDao, tim
   @Transactional
   override def updateExisting(id: Int, startDate: Date, endDate: Date, name: String, excludedUsers: ju.List[User]): TimesheetLock = {
     val lock = new TimesheetLock(id, startDate, endDate, name, excludedUsers)
-    lockDao.persist(lock)
+    val persisted = lockDao.persist(lock)
+    invalidateIndex()
+
+    persisted
   }
 
   @Transactional
   def deleteLock(id: Int) {
     lockDao.deleteOnId(id)
+    invalidateIndex()
   }
 
   private[service] def determineName(startDate: Date, endDate: Date): String = {
@@ -107,62 +128,57 @@ class TimesheetLockServiceSpringImpl @Autowired()(lockDao: TimesheetLockDao, tim
     case null => None
   }
 
-  override def findLockedDatesInRange(startDate: Date, endDate: Date): Seq[Interval] =
-    mergeDatesToInterval(startDate, endDate, lockDao.findMatchingLock(startDate, endDate))
-
-  import scala.collection.JavaConversions._
-
-  override def findLockedDatesInRange(startDate: Date, endDate: Date, user: User): Seq[Interval] = {
-    val locks = lockDao.findMatchingLock(startDate, endDate)
-
-    val filteredLocks = locks.filterNot(_.getExcludedUsers.contains(user))
-
-    mergeDatesToInterval(startDate, endDate, filteredLocks)
-  }
-
+  override def findLockedDatesInRange(startDate: Date, endDate: Date): Seq[Interval] = findLockedDays(startDate, endDate).toIntervals
 
-  override def isRangeLocked(startDate: Date, endDate: Date, user: User): Boolean =
-    TimesheetLockService.isRangeLocked(startDate, endDate, findLockedDatesInRange(startDate, endDate, user))
+  override def findLockedDatesInRange(startDate: Date, endDate: Date, user: User): Seq[Interval] = findLockedDays(startDate, endDate, user).toIntervals
 
+  override def findLockedDays(startDate: Date, endDate: Date): LockedDays = index.lockedDays(startDate, endDate)
 
+  override def findLockedDays(startDate: Date, endDate: Date, user: User): LockedDays = index.lockedDays(startDate, endDate, user)
 
-  import scala.collection.JavaConversions._
+  override def isRangeLocked(startDate: Date, endDate: Date, user: User): Boolean = findLockedDays(startDate, endDate, user).isFullyLocked
 
-  private def mergeDatesToInterval(startDate: Date, endDate: Date, dates: ju.List[TimesheetLock]): Seq[Interval] = {
-    implicit def dateToDateTime(d: Date): DateTime = LocalDate.fromDateFields(d).toDateTimeAtStartOfDay
+  private def index: TimesheetLockIndex = {
+    val current = lockIndex
 
-    def overlapsAtEdges(i: Interval, r: Interval) = {
-      def isOverlappingAtStart = r.start equals i.end
-      def overlapsAtStart = if (isOverlappingAtStart) Some(new Interval(r.start, r.start)) else None
+    if (current != null) {
+      current
+    } else {
+      val generation = indexGeneration.get()
+      val loaded = new TimesheetLockIndex(toScala(lockDao.findAllWithExcludedUsers()))
 
-      def isOverlappingAtEnd = r.end equals i.start
-      def overlapsAtEnd = if (isOverlappingAtEnd) Some(new Interval(r.end, r.end)) else None
+      // a lock changed while loading, the next lookup loads again
+      indexGeneration.synchronized {
+        if (indexGeneration.get() == generation) {
+          lockIndex = loaded
+        }
+      }
 
-      overlapsAtStart orElse overlapsAtEnd
+      loaded
     }
+  }
 
-    val lockIntervals = dates.map(l => new Interval(l.getDateStart, l.getDateEnd)).toList
-
-    val requestedInterval = new Interval(startDate, endDate)
-    def intervalsThatOverlap = lockIntervals.map(i => requestedInterval overlap i match {
-      case o: Interval => Some(o)
-      case null => overlapsAtEdges(i, requestedInterval)
-    }).flatten
-
-    val overlaps = intervalsThatOverlap
-
-    def mergeIntervals(current: Interval, stack: Seq[Interval], merged: Seq[Interval]): Seq[Interval] = {
-      stack match {
-        case (x :: xs) if x.overlaps(current) || x.abuts(current) => mergeIntervals(new Interval(current.start, x.end), xs, merged)
-        case (x :: xs) => mergeIntervals(x, xs, current +: merged)
-        case Nil => current +: merged
-      }
+  /**
+   * Drop the index now and again when the transaction completes, so a lookup in between doesn't keep an
+   * index without the uncommitted change
+   */
+  override def invalidateIndex() {
+    invalidateIndexNow()
+
+    if (TransactionSynchronizationManager.isSynchronizationActive) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter {
+        override def afterCompletion(status: Int) {
+          invalidateIndexNow()
+        }
+      })
     }
+  }
 
-    (overlaps.sortWith(_.start isBefore _.start) match {
-      case (x :: xs) => mergeIntervals(x, xs, Seq())
-      case (xs) => xs
-    }).reverse
+  private def invalidateIndexNow() {
+    indexGeneration.synchronized {
+      indexGeneration.incrementAndGet()
+      lockIndex = null
+    }
   }
 
   def findAffectedUsers(startDate: Date, endDate: Date, excludedUsers: Seq[User]): Seq[AffectedUser] = {
@@ -0,0 +1,96 @@
+package net.rrm.ehour.audit.service;
+
+import net.rrm.ehour.domain.Audit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncAuditWriterTest {
+    @Mock
+    private AuditService auditService;
+
+    private AsyncAuditWriter writer;
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    public void should_write_synchronously_when_not_async() {
+        writer = new AsyncAuditWriter(auditService, false, 10, 5, 1000, AuditBackpressure.SYNC);
+        writer.start();
+
+        Audit audit = new Audit();
+        writer.write(audit);
+
+        verify(auditService).doAudit(audit);
+        assertEquals(1, writer.getSyncWrites());
+    }
+
+    @Test
+    public void should_flush_queue_in_batches_on_stop() {
+        writer = new AsyncAuditWriter(auditService, true, 100, 2, 60000, AuditBackpressure.SYNC);
+        writer.start();
+
+        writer.write(new Audit());
+        writer.write(new Audit());
+        writer.write(new Audit());
+
+        writer.stop();
+
+        verify(auditService, never()).doAudit(any(Audit.class));
+        verify(auditService, times(2)).doAudit(anyListOf(Audit.class));
+        assertEquals(3, writer.getWritten());
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    @Test
+    public void should_write_synchronously_when_queue_is_full() {
+        writer = new AsyncAuditWriter(auditService, true, 1, 10, 60000, AuditBackpressure.SYNC);
+        writer.start();
+
+        writer.write(new Audit());
+        Audit overflow = new Audit();
+        writer.write(overflow);
+
+        verify(auditService).doAudit(overflow);
+    }
+
+    @Test
+    public void should_drop_oldest_when_queue_is_full() {
+        writer = new AsyncAuditWriter(auditService, true, 1, 10, 60000, AuditBackpressure.DROP_OLDEST);
+        writer.start();
+
+        writer.write(new Audit());
+        writer.write(new Audit());
+
+        assertEquals(1, writer.getDropped());
+        assertEquals(1, writer.getQueueDepth());
+        verify(auditService, never()).doAudit(any(Audit.class));
+    }
+
+    @Test
+    public void should_count_failed_batch_as_dropped() {
+        doThrow(new RuntimeException()).when(auditService).doAudit(anyListOf(Audit.class));
+
+        writer = new AsyncAuditWriter(auditService, true, 10, 10, 60000, AuditBackpressure.SYNC);
+        writer.start();
+
+        writer.write(new Audit());
+        writer.stop();
+
+        assertEquals(1, writer.getFailedBatches());
+        assertEquals(1, writer.getDropped());
+    }
+}
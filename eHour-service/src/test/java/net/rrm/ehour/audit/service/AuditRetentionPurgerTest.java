@@ -0,0 +1,66 @@
+package net.rrm.ehour.audit.service;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuditRetentionPurgerTest {
+    @Mock
+    private AuditService auditService;
+
+    @Test
+    public void should_keep_the_current_month_and_the_retention_months() {
+        AuditRetentionPurger purger = new AuditRetentionPurger(auditService, 12);
+
+        assertEquals(new LocalDate(2014, 10, 1), purger.getRetentionStart(new LocalDate(2015, 10, 18)));
+    }
+
+    @Test
+    public void should_delete_a_month_at_a_time_oldest_first() {
+        AuditRetentionPurger purger = new AuditRetentionPurger(auditService, 12);
+
+        when(auditService.getOldestAuditDate()).thenReturn(date(2014, 8, 15), date(2014, 9, 2), date(2014, 10, 1));
+        when(auditService.deleteAuditsBefore(any(Date.class))).thenReturn(10, 20);
+
+        int deleted = purger.purgeBefore(new LocalDate(2014, 10, 1));
+
+        assertEquals(30, deleted);
+        verify(auditService).deleteAuditsBefore(date(2014, 9, 1));
+        verify(auditService).deleteAuditsBefore(date(2014, 10, 1));
+        verify(auditService, times(2)).deleteAuditsBefore(any(Date.class));
+    }
+
+    @Test
+    public void should_only_delete_up_to_the_retention_start() {
+        AuditRetentionPurger purger = new AuditRetentionPurger(auditService, 1);
+
+        when(auditService.getOldestAuditDate()).thenReturn(date(2014, 8, 15), (Date) null);
+        when(auditService.deleteAuditsBefore(any(Date.class))).thenReturn(10);
+
+        purger.purgeBefore(new LocalDate(2014, 8, 20));
+
+        verify(auditService).deleteAuditsBefore(date(2014, 8, 20));
+    }
+
+    @Test
+    public void should_not_delete_when_audits_are_kept_forever() {
+        AuditRetentionPurger purger = new AuditRetentionPurger(auditService, 0);
+
+        purger.purge();
+
+        verifyZeroInteractions(auditService);
+    }
+
+    private static Date date(int year, int month, int day) {
+        return new LocalDate(year, month, day).toDate();
+    }
+}
@@ -0,0 +1,79 @@
+package net.rrm.ehour.audit.service;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuditTokenIndexerTest {
+    @Mock
+    private AuditService auditService;
+
+    @Test
+    public void should_index_down_from_the_index_start_until_no_audits_are_left() {
+        when(auditService.getTokenIndexStart()).thenReturn(2500);
+        when(auditService.indexTokensBefore(2500, 1000)).thenReturn(1500);
+        when(auditService.indexTokensBefore(1500, 1000)).thenReturn(500);
+        when(auditService.indexTokensBefore(500, 1000)).thenReturn(null);
+
+        new AuditTokenIndexer(auditService).indexAudits();
+
+        verify(auditService, times(3)).indexTokensBefore(anyInt(), eq(1000));
+    }
+
+    @Test
+    public void should_let_searches_use_the_index_for_what_is_indexed_so_far() {
+        when(auditService.getTokenIndexStart()).thenReturn(2500);
+        when(auditService.indexTokensBefore(2500, 1000)).thenReturn(1500);
+        when(auditService.indexTokensBefore(1500, 1000)).thenReturn(null);
+
+        new AuditTokenIndexer(auditService).indexAudits();
+
+        InOrder inOrder = inOrder(auditService);
+        inOrder.verify(auditService).useTokenIndexFrom(2500);
+        inOrder.verify(auditService).indexTokensBefore(2500, 1000);
+        inOrder.verify(auditService).useTokenIndexFrom(1500);
+        inOrder.verify(auditService).indexTokensBefore(1500, 1000);
+        inOrder.verify(auditService).useTokenIndexFrom(0);
+    }
+
+    @Test
+    public void should_resume_after_a_failed_run_and_stop_once_complete() {
+        when(auditService.getTokenIndexStart()).thenReturn(2500, 1500);
+        when(auditService.indexTokensBefore(2500, 1000)).thenReturn(1500);
+        when(auditService.indexTokensBefore(1500, 1000)).thenThrow(new IllegalStateException("connection lost")).thenReturn(null);
+
+        AuditTokenIndexer indexer = new AuditTokenIndexer(auditService);
+
+        try {
+            indexer.indexAudits();
+            fail();
+        } catch (IllegalStateException e) {
+            // the scheduler logs it and runs the indexer again
+        }
+
+        indexer.indexAudits();
+        indexer.indexAudits();
+
+        verify(auditService, times(2)).getTokenIndexStart();
+        verify(auditService).useTokenIndexFrom(0);
+    }
+
+    @Test
+    public void should_stop_when_everything_is_indexed() {
+        when(auditService.getTokenIndexStart()).thenReturn(10);
+
+        new AuditTokenIndexer(auditService).indexAudits();
+
+        verify(auditService).getTokenIndexStart();
+        verify(auditService).indexTokensBefore(10, 1000);
+        verify(auditService).useTokenIndexFrom(10);
+        verify(auditService).useTokenIndexFrom(0);
+        verifyNoMoreInteractions(auditService);
+    }
+}
@@ -43,7 +43,7 @@ public class DatabaseTruncaterTest {
 
         truncater.truncateDatabase();
 
-        int wantedNumberOfInvocations = 1 + 3;
+        int wantedNumberOfInvocations = 1 + 5;
         verify(importDao, times(wantedNumberOfInvocations)).delete(Matchers.<Class<Object>>anyObject());
     }
 }
@@ -8,17 +8,23 @@ import net.rrm.ehour.config.EhourConfigStub;
 import net.rrm.ehour.config.service.ConfigurationService;
 import net.rrm.ehour.domain.Configuration;
 import net.rrm.ehour.persistence.backup.dao.BackupDao;
+import net.rrm.ehour.persistence.backup.dao.BackupRowHandler;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
+import java.io.*;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.containsString;
-import static org.junit.Assert.assertThat;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -48,8 +54,87 @@ public class DatabaseBackupServiceImplTest {
         map.put("COMMENT", "\uC3BC and \uC3B6 and <&> für");
 
         List<Map<String, Object>> rows = Lists.newArrayList(map);
-        when(exportDao.findAll("TIMESHEET_ENTRY")).thenReturn(rows);
+        streamRows("TIMESHEET_ENTRY", rows);
 
+        mockConfiguration();
+
+        byte[] xmlBytes = service.exportDatabase();
+        String xml = new String(xmlBytes);
+
+        assertThat(xml, containsString("0.9"));
+        assertThat(xml, containsString("TIMESHEET_ENTRY"));
+        assertThat(xml, containsString("CONFIG"));
+
+        assertTrue(xml.startsWith("<?xml version="));
+    }
+
+    @Test
+    public void shouldStreamBackupAndTrackProgress() {
+        List<Map<String, Object>> rows = Lists.newArrayList();
+
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("ASSIGNMENT_ID", i);
+            map.put("ENTRY_DATE", new Date());
+            rows.add(map);
+        }
+
+        streamRows("TIMESHEET_ENTRY", rows);
+        when(exportDao.count("TIMESHEET_ENTRY")).thenReturn(10L);
+
+        mockConfiguration();
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BackupProgress progress = new BackupProgress();
+
+        service.exportDatabase(stream, progress);
+
+        String xml = new String(stream.toByteArray());
+        assertThat(xml, containsString("<ASSIGNMENT_ID>9</ASSIGNMENT_ID>"));
+        assertThat(xml, containsString("<UPDATE_DATE>"));
+
+        assertEquals(10, progress.getTotalRows());
+        assertEquals(10, progress.getWrittenRows());
+        assertTrue(progress.isFinished());
+        assertEquals(100, progress.getPercentage());
+        assertEquals(Long.valueOf(0), progress.getEstimatedRemainingMillis().get());
+    }
+
+    @Test
+    public void shouldWriteGzippedBackupToFile() throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        map.put("ASSIGNMENT_ID", 1);
+        streamRows("TIMESHEET_ENTRY", Lists.<Map<String, Object>>newArrayList(map));
+
+        mockConfiguration();
+
+        File file = File.createTempFile("backup", ".xml.gz");
+        file.deleteOnExit();
+
+        service.exportDatabase(file, true, new BackupProgress());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), "UTF-8"))) {
+            assertTrue(reader.readLine().startsWith("<?xml version="));
+        }
+    }
+
+    @Test(expected = ExportException.class)
+    public void shouldFailWhenTheStreamIsClosed() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("ASSIGNMENT_ID", 1);
+        streamRows("TIMESHEET_ENTRY", Lists.<Map<String, Object>>newArrayList(map));
+
+        mockConfiguration();
+
+        service.exportDatabase(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("closed");
+            }
+        }, new BackupProgress());
+    }
+
+    private void mockConfiguration() {
         EhourConfigStub configuration = new EhourConfigStub();
         configuration.setVersion("0.9");
 
@@ -57,14 +142,20 @@ public class DatabaseBackupServiceImplTest {
 
         List<Configuration> configurationList = Lists.newArrayList(new Configuration(ConfigurationItem.AVAILABLE_TRANSLATIONS.getDbField(), "nl"));
         when(configurationService.findAllConfiguration()).thenReturn(configurationList);
+    }
 
-        byte[] xmlBytes = service.exportDatabase();
-        String xml = new String(xmlBytes);
+    private void streamRows(String table, final List<Map<String, Object>> rows) {
+        when(exportDao.streamAll(eq(table), any(BackupRowHandler.class))).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                BackupRowHandler handler = (BackupRowHandler) invocation.getArguments()[1];
 
-        assertThat(xml, containsString("0.9"));
-        assertThat(xml, containsString("TIMESHEET_ENTRY"));
-        assertThat(xml, containsString("CONFIG"));
+                for (Map<String, Object> row : rows) {
+                    handler.handle(row);
+                }
 
-        assertTrue(xml.startsWith("<?xml version="));
+                return rows.size();
+            }
+        });
     }
 }
@@ -18,7 +18,6 @@ import javax.xml.stream.XMLStreamException;
 import java.io.Serializable;
 import java.io.StringReader;
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -97,8 +96,7 @@ public class EntityParserTest {
         PrimaryKeyCache keyCache = parser.getKeyCache();
         assertFalse(keyCache.isEmpty());
 
-        Map<Serializable, Serializable> map = keyCache.keyMap.get(User.class);
-        assertEquals(2, map.entrySet().size());
+        assertEquals(2, keyCache.size(User.class));
     }
 
     @Test
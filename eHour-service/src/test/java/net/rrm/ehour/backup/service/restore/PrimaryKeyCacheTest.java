@@ -0,0 +1,71 @@
+package net.rrm.ehour.backup.service.restore;
+
+import net.rrm.ehour.domain.User;
+import net.rrm.ehour.domain.UserRole;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrimaryKeyCacheTest {
+    private PrimaryKeyCache cache;
+
+    @After
+    public void closeCache() {
+        cache.close();
+    }
+
+    @Test
+    public void should_map_integer_keys_per_entity_type() {
+        cache = new PrimaryKeyCache();
+
+        for (int i = 0; i < 10000; i++) {
+            cache.putKey(User.class, i, i + 50000);
+        }
+
+        assertEquals(10000, cache.size(User.class));
+        assertEquals(50000, cache.getKey(User.class, 0));
+        assertEquals(59999, cache.getKey(User.class, 9999));
+        assertNull(cache.getKey(User.class, 10000));
+        assertNull(cache.getKey(UserRole.class, 1));
+    }
+
+    @Test
+    public void should_keep_other_keys_as_they_are() {
+        cache = new PrimaryKeyCache();
+
+        cache.putKey(UserRole.class, "ROLE_ADMIN", "ROLE_ADMIN");
+        cache.putKey(User.class, 1, "1");
+
+        assertEquals("ROLE_ADMIN", cache.getKey(UserRole.class, "ROLE_ADMIN"));
+        assertEquals("1", cache.getKey(User.class, 1));
+        assertFalse(cache.isEmpty());
+    }
+
+    @Test
+    public void should_find_keys_moved_to_disk() {
+        cache = new PrimaryKeyCache(100);
+
+        // descending and negative keys to make sure the runs are sorted before they're written
+        for (int i = 1000; i >= -1000; i--) {
+            cache.putKey(User.class, i, i * 2);
+        }
+
+        assertEquals(2001, cache.size(User.class));
+
+        for (int i = -1000; i <= 1000; i++) {
+            assertEquals(i * 2, cache.getKey(User.class, i));
+        }
+
+        assertNull(cache.getKey(User.class, 1001));
+        assertNull(cache.getKey(User.class, Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void should_be_empty_without_keys() {
+        cache = new PrimaryKeyCache();
+
+        assertTrue(cache.isEmpty());
+        assertEquals(0, cache.size(User.class));
+    }
+}
@@ -8,6 +8,10 @@ import net.rrm.ehour.backup.service.DatabaseTruncater;
 import net.rrm.ehour.config.EhourConfigStub;
 import net.rrm.ehour.domain.*;
 import net.rrm.ehour.persistence.config.dao.ConfigurationDao;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
+import net.rrm.ehour.persistence.report.dao.TimesheetRollupDao;
+import net.rrm.ehour.report.service.ReportResultCache;
+import net.rrm.ehour.timesheet.service.TimesheetLockService;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -16,8 +20,12 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.core.task.TaskExecutor;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
@@ -44,6 +52,18 @@ public class RestoreServiceImplTest {
     @Mock
     private TaskExecutor taskExecutor;
 
+    @Mock
+    private TimesheetRollupDao timesheetRollupDao;
+
+    @Mock
+    private AssignmentTotalDao assignmentTotalDao;
+
+    @Mock
+    private ReportResultCache reportResultCache;
+
+    @Mock
+    private TimesheetLockService timesheetLockService;
+
     private BackupConfig backupConfig;
 
     private UserRoleParserDaoValidatorImpl userRoleParserDao;
@@ -59,7 +79,7 @@ public class RestoreServiceImplTest {
         backupConfig = new EhourBackupConfig();
 
         configStub = new EhourConfigStub();
-        restoreService = new RestoreServiceImpl(configurationDao, configurationParserDao, entityParserDao, truncater, configStub, backupConfig, taskExecutor);
+        restoreService = new RestoreServiceImpl(configurationDao, configurationParserDao, entityParserDao, truncater, timesheetRollupDao, assignmentTotalDao, reportResultCache, timesheetLockService, configStub, backupConfig, taskExecutor, 2, 1000);
         restoreService.setConfigurationDao(configurationDao);
         restoreService.setDatabaseTruncater(truncater);
 
@@ -118,6 +138,45 @@ public class RestoreServiceImplTest {
         assertFalse(destFile.exists());
 
         verify(entityParserDao, times(10)).persist(any(DomainObject.class));
+        verify(entityParserDao, times(5)).checkpoint();
+        verify(timesheetRollupDao).rebuild();
+        verify(assignmentTotalDao).rebuild();
+        verify(reportResultCache).clear();
+    }
+
+    @Test
+    public void shouldImportGzippedUpload() throws IOException, ImportException {
+        when(configurationDao.findById("version")).thenReturn(new Configuration("version", "0.8.3"));
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            Files.copy(new File("src/test/resources/import/import_data_full.xml").toPath(), out);
+        }
+
+        ParseSession session = new ParseSession();
+        session.setFilename(BackupFileUtil.writeToTempFile(new ByteArrayInputStream(gzipped.toByteArray())));
+
+        restoreService.importDatabase(session);
+
+        assertFalse(session.isGlobalError());
+        verify(entityParserDao, times(10)).persist(any(DomainObject.class));
+    }
+
+    @Test
+    public void shouldDropTheTimesheetLocksAfterRestoring() throws IOException, ImportException {
+        when(configurationDao.findById("version")).thenReturn(new Configuration("version", "0.8.3"));
+
+        File destFile = new File(FileUtils.getTempDirectoryPath() + "/tmp.xml");
+        FileUtils.copyFile(new File("src/test/resources/import/import_data_full.xml"), destFile);
+
+        ParseSession session = new ParseSession();
+        session.setFilename(destFile.getAbsolutePath());
+
+        restoreService.importDatabase(session);
+
+        // the restored locks replace the ones held in memory
+        verify(timesheetLockService).invalidateIndex();
     }
 
     @Test
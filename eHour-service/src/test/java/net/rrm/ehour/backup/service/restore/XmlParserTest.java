@@ -47,6 +47,24 @@ public class XmlParserTest {
         importer.parseXml(new ParseSession(), eventReader);
     }
 
+    @Test
+    public void shouldMatch143On142() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        Configuration config = new Configuration("version", "1.4.3");
+
+        when(configurationDao.findById(ConfigurationItem.VERSION.getDbField())).thenReturn(config);
+
+        String xmlData = "<?xml version=\"1.0\" ?>\n<EHOUR DB_VERSION=\"1.4.2\"></EHOUR>";
+
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        eventReader = inputFactory.createXMLEventReader(new StringReader(xmlData));
+
+        ParseContext ctx = new ParseContext(configurationDao, null, null, null, null, false);
+        XmlParser importer = new XmlParser(ctx);
+        importer.parseXml(new ParseSession(), eventReader);
+    }
+
     @Test(expected = ImportException.class)
     public void shouldNotMatch084On081() throws Exception {
         MockitoAnnotations.initMocks(this);
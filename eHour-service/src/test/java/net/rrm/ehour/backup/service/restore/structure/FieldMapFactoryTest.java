@@ -76,4 +76,23 @@ public class FieldMapFactoryTest {
 
         assertEquals(projectAssignment, ((TimesheetEntryId) embeddables.get(TimesheetEntryId.class)).getProjectAssignment());
     }
+
+    @Test
+    public void should_resolve_many_to_many_join_tables_once() {
+        assertEquals(2, fieldDefinitionMap.getManyToManies().size());
+
+        FieldDefinitionManyToMany departments = (FieldDefinitionManyToMany) fieldDefinitionMap.get("user_to_department");
+
+        assertEquals("user_to_department", departments.getJoinTableName());
+        assertEquals(UserDepartment.class, departments.getTargetEntity());
+        assertEquals("departmentId", departments.getTargetId().getField().getName());
+    }
+
+    @Test
+    public void should_find_embedded_composite_key() {
+        FieldMap fieldDefinitionMap = FieldMapFactory.buildFieldMapForEntity(TimesheetEntry.class);
+
+        assertEquals(1, fieldDefinitionMap.getEmbeddables().size());
+        assertEquals(TimesheetEntryId.class, fieldDefinitionMap.getEmbeddables().get(0).getField().getType());
+    }
 }
\ No newline at end of file
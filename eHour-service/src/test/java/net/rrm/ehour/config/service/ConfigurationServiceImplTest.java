@@ -9,6 +9,7 @@ import net.rrm.ehour.domain.AuditType;
 import net.rrm.ehour.domain.Configuration;
 import net.rrm.ehour.persistence.config.dao.BinaryConfigurationDao;
 import net.rrm.ehour.persistence.config.dao.ConfigurationDao;
+import net.rrm.ehour.persistence.ehourconfig.ReloadableConfig;
 import net.rrm.ehour.persistence.value.ImageLogo;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +36,9 @@ public class ConfigurationServiceImplTest {
     @Mock
     private BinaryConfigurationDao binaryConfigDao;
 
+    @Mock
+    private ReloadableConfig reloadableConfig;
+
     @Before
     public void setUp() {
         EhourHomeUtil.setEhourHome("src/test/resources");
@@ -45,6 +49,7 @@ public class ConfigurationServiceImplTest {
 
         configurationService.setConfigDao(configDAO);
         configurationService.setBinConfigDAO(binaryConfigDao);
+        configurationService.setReloadableConfig(reloadableConfig);
 
         TranslationDiscovery discovery = new TranslationDiscovery(new EhourSystemConfig());
         discovery.setTranslations(Arrays.asList("en", "nl"));
@@ -106,6 +111,16 @@ public class ConfigurationServiceImplTest {
         assertThat(new Configuration("mailSmtp", "ee"), isIn(configurations));
     }
 
+    @Test
+    public void shouldReloadConfigSnapshotAfterPersist() {
+        EhourConfigStub stub = new EhourConfigStub();
+        stub.setLocaleFormatting(LocaleUtil.forLanguageTag("en-US"));
+
+        configurationService.persistConfiguration(stub);
+
+        verify(reloadableConfig).reload();
+    }
+
     @Test
     public void shouldGetDefaultLogo() {
         ImageLogo logo = configurationService.getExcelLogo();
@@ -24,6 +24,7 @@ import net.rrm.ehour.exception.ObjectNotFoundException;
 import net.rrm.ehour.exception.ObjectNotUniqueException;
 import net.rrm.ehour.exception.ParentChildConstraintException;
 import net.rrm.ehour.persistence.customer.dao.CustomerDao;
+import net.rrm.ehour.report.service.ReportResultCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -44,12 +45,16 @@ public class CustomerServiceImplTest {
 
     @Mock
     private CustomerDao customerDAO;
+
+    @Mock
+    private ReportResultCache reportResultCache;
     private Customer customer;
 
     @Before
     public void setUp() {
         customerService = new CustomerServiceImpl();
         customerService.setCustomerDAO(customerDAO);
+        customerService.setReportResultCache(reportResultCache);
 
         customer = CustomerObjectMother.createCustomer(1);
 
@@ -111,5 +116,6 @@ public class CustomerServiceImplTest {
         customerService.persistCustomer(customer);
 
         verify(customerDAO).persist(customer);
+        verify(reportResultCache).clear();
     }
 }
@@ -7,6 +7,7 @@ import net.rrm.ehour.persistence.project.dao.ProjectAssignmentDao;
 import net.rrm.ehour.persistence.project.dao.ProjectDao;
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
 import net.rrm.ehour.persistence.user.dao.UserDao;
+import net.rrm.ehour.report.service.ReportResultCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,9 +42,12 @@ public class ProjectAssignmentManagementServiceImplTest {
     @Mock
     private TimesheetDao timesheetDao;
 
+    @Mock
+    private ReportResultCache reportResultCache;
+
     @Before
     public void setUp() {
-        service = new ProjectAssignmentManagementServiceImpl(userDao, projectDao, projectAssignmentDao, timesheetDao);
+        service = new ProjectAssignmentManagementServiceImpl(userDao, projectDao, projectAssignmentDao, timesheetDao, reportResultCache);
     }
 
     @Test
@@ -125,6 +129,28 @@ public class ProjectAssignmentManagementServiceImplTest {
             List<ProjectAssignmentValidationException.Issue> issues = e.getIssues();
             assertThat(issues, contains(ProjectAssignmentValidationException.Issue.EXISTING_DATA_AFTER_END));
         }
+
+        verify(reportResultCache, never()).clear();
+    }
+
+    @Test
+    public void should_clear_cached_reports_when_assignment_is_updated() throws ProjectAssignmentValidationException {
+        ProjectAssignment assignment = ProjectAssignmentObjectMother.createProjectAssignment(1);
+        assignment.setHourlyRate(120f);
+
+        service.persistUpdatedProjectAssignment(assignment);
+
+        verify(reportResultCache).clear();
+        verify(projectAssignmentDao).persist(assignment);
+    }
+
+    @Test
+    public void should_clear_cached_reports_when_assignment_is_deleted() {
+        ProjectAssignment assignment = ProjectAssignmentObjectMother.createProjectAssignment(1);
+
+        service.deleteProjectAssignment(assignment);
+
+        verify(reportResultCache).clear();
     }
 
 }
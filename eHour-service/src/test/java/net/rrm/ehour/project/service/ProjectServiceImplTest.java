@@ -24,6 +24,7 @@ import net.rrm.ehour.domain.UserObjectMother;
 import net.rrm.ehour.exception.ObjectNotFoundException;
 import net.rrm.ehour.persistence.project.dao.ProjectDao;
 import net.rrm.ehour.report.service.AggregateReportService;
+import net.rrm.ehour.report.service.ReportResultCache;
 import net.rrm.ehour.user.service.UserService;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,9 +54,12 @@ public class ProjectServiceImplTest {
     @Mock
     private ProjectAssignmentManagementService projectAssignmentManagementService;
 
+    @Mock
+    private ReportResultCache reportResultCache;
+
     @Before
     public void setUp() {
-        projectService = new ProjectServiceImpl(projectDao, projectAssignmentManagementService, aggregateReportService, userService);
+        projectService = new ProjectServiceImpl(projectDao, projectAssignmentManagementService, aggregateReportService, userService, reportResultCache);
     }
 
     @Test
@@ -95,6 +99,7 @@ public class ProjectServiceImplTest {
 
         verify(projectDao).persist(project);
         verify(userService).validateProjectManagementRoles(pm.getPK());
+        verify(reportResultCache).invalidateProject(1);
     }
 
     @Test
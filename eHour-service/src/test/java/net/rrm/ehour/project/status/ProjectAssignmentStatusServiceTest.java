@@ -16,13 +16,11 @@
 
 package net.rrm.ehour.project.status;
 
+import net.rrm.ehour.domain.AssignmentTotal;
 import net.rrm.ehour.domain.ProjectAssignment;
 import net.rrm.ehour.domain.ProjectAssignmentObjectMother;
 import net.rrm.ehour.domain.ProjectAssignmentType;
-import net.rrm.ehour.domain.TimesheetEntry;
-import net.rrm.ehour.persistence.report.dao.ReportAggregatedDao;
-import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
-import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
 import net.rrm.ehour.util.EhourConstants;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,18 +35,15 @@ import static org.mockito.Mockito.when;
 public class ProjectAssignmentStatusServiceTest
 {
 	private	ProjectAssignmentStatusServiceImpl util;
-	private	ReportAggregatedDao	raDAO;
-	private TimesheetDao timesheetDAO;
+	private AssignmentTotalDao totalDao;
 	
 	@Before
 	public void setUp() throws Exception
 	{
 		util = new ProjectAssignmentStatusServiceImpl();
 
-		raDAO = mock(ReportAggregatedDao.class);
-		timesheetDAO = mock(TimesheetDao.class);
-		util.setTimesheetDAO(timesheetDAO);
-		util.setReportAggregatedDAO(raDAO);
+		totalDao = mock(AssignmentTotalDao.class);
+		util.setAssignmentTotalDao(totalDao);
 	}
 
 	@Test
@@ -71,11 +66,8 @@ public class ProjectAssignmentStatusServiceTest
 		Date endDate = endCal.getTime();
 		assignment.setDateEnd(endDate);
 
-		when(timesheetDAO.getTimesheetEntriesBefore(assignment, startDate))
-			.thenReturn(new ArrayList<TimesheetEntry>());
-
-		when(timesheetDAO.getTimesheetEntriesAfter(assignment, endDate))
-			.thenReturn(new ArrayList<TimesheetEntry>());
+		when(totalDao.find(assignment.getAssignmentId()))
+			.thenReturn(new AssignmentTotal(assignment.getAssignmentId(), 8f, 1, new Date(), new Date()));
 		
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 
@@ -102,13 +94,9 @@ public class ProjectAssignmentStatusServiceTest
 		assignment.setDateEnd(endCal.getTime());
 		Date end = endCal.getTime();
 		
-		when(timesheetDAO.getTimesheetEntriesBefore(assignment, start))
-		.thenReturn(new ArrayList<TimesheetEntry>());
-
-		List<TimesheetEntry> entry = new ArrayList<>();
-		entry.add(new TimesheetEntry());
-		when(timesheetDAO.getTimesheetEntriesAfter(assignment, end))
-			.thenReturn(entry);
+		// booked today, after the end of the assignment
+		when(totalDao.find(assignment.getAssignmentId()))
+			.thenReturn(new AssignmentTotal(assignment.getAssignmentId(), 8f, 1, new Date(), new Date()));
 
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 
@@ -119,17 +107,16 @@ public class ProjectAssignmentStatusServiceTest
 	@Test
 	public final void testGetAssignmentStatusFixed()
 	{
-		AssignmentAggregateReportElement pag = new AssignmentAggregateReportElement();
-		pag.setHours((double) 25);
+		AssignmentTotal total = new AssignmentTotal(1, 25f, 1, new Date(), new Date());
 		
-		ProjectAssignment assignment = new ProjectAssignment();
+		ProjectAssignment assignment = new ProjectAssignment(1);
 		ProjectAssignmentType type = new ProjectAssignmentType();
 		type.setAssignmentTypeId(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FIXED);
 		assignment.setAssignmentType(type);
 		assignment.setAllottedHours(250f);
 		
-		when(raDAO.getCumulatedHoursForAssignment(assignment))
-				.thenReturn(pag);
+		when(totalDao.find(1))
+				.thenReturn(total);
 		
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 		
@@ -141,17 +128,16 @@ public class ProjectAssignmentStatusServiceTest
 	@Test
 	public final void testGetAssignmentStatusFixedOverAllotted()
 	{
-		AssignmentAggregateReportElement pag = new AssignmentAggregateReportElement();
-		pag.setHours((double) 260);
+		AssignmentTotal total = new AssignmentTotal(1, 260f, 1, new Date(), new Date());
 		
-		ProjectAssignment assignment = new ProjectAssignment();
+		ProjectAssignment assignment = new ProjectAssignment(1);
 		ProjectAssignmentType type = new ProjectAssignmentType();
 		type.setAssignmentTypeId(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FIXED);
 		assignment.setAssignmentType(type);
 		assignment.setAllottedHours(250f);
 		
-		when(raDAO.getCumulatedHoursForAssignment(assignment))
-				.thenReturn(pag);
+		when(totalDao.find(1))
+				.thenReturn(total);
 		
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 		
@@ -163,18 +149,17 @@ public class ProjectAssignmentStatusServiceTest
 	@Test
 	public final void testGetAssignmentStatusFlex()
 	{
-		AssignmentAggregateReportElement pag = new AssignmentAggregateReportElement();
-		pag.setHours((double) 25);
+		AssignmentTotal total = new AssignmentTotal(1, 25f, 1, new Date(), new Date());
 		
-		ProjectAssignment assignment = new ProjectAssignment();
+		ProjectAssignment assignment = new ProjectAssignment(1);
 		ProjectAssignmentType type = new ProjectAssignmentType();
 		type.setAssignmentTypeId(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FLEX);
 		assignment.setAssignmentType(type);
 		assignment.setAllottedHours(250f);
 		assignment.setAllowedOverrun(200f);
 		
-		when(raDAO.getCumulatedHoursForAssignment(assignment))
-				.thenReturn(pag);
+		when(totalDao.find(1))
+				.thenReturn(total);
 		
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 		
@@ -186,18 +171,17 @@ public class ProjectAssignmentStatusServiceTest
 	@Test
 	public final void testGetAssignmentStatusFlexOverrun()
 	{
-		AssignmentAggregateReportElement pag = new AssignmentAggregateReportElement();
-		pag.setHours((double) 260);
+		AssignmentTotal total = new AssignmentTotal(1, 260f, 1, new Date(), new Date());
 		
-		ProjectAssignment assignment = new ProjectAssignment();
+		ProjectAssignment assignment = new ProjectAssignment(1);
 		ProjectAssignmentType type = new ProjectAssignmentType();
 		type.setAssignmentTypeId(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FLEX);
 		assignment.setAssignmentType(type);
 		assignment.setAllottedHours(250f);
 		assignment.setAllowedOverrun(200f);
 		
-		when(raDAO.getCumulatedHoursForAssignment(assignment))
-				.thenReturn(pag);
+		when(totalDao.find(1))
+				.thenReturn(total);
 		
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 		
@@ -209,18 +193,17 @@ public class ProjectAssignmentStatusServiceTest
 	@Test
 	public final void testGetAssignmentStatusFlexOverOverrun()
 	{
-		AssignmentAggregateReportElement pag = new AssignmentAggregateReportElement();
-		pag.setHours((double) 560);
+		AssignmentTotal total = new AssignmentTotal(1, 560f, 1, new Date(), new Date());
 		
-		ProjectAssignment assignment = new ProjectAssignment();
+		ProjectAssignment assignment = new ProjectAssignment(1);
 		ProjectAssignmentType type = new ProjectAssignmentType();
 		type.setAssignmentTypeId(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FLEX);
 		assignment.setAssignmentType(type);
 		assignment.setAllottedHours(250f);
 		assignment.setAllowedOverrun(200f);
 		
-		when(raDAO.getCumulatedHoursForAssignment(assignment))
-				.thenReturn(pag);
+		when(totalDao.find(1))
+				.thenReturn(total);
 		
 		ProjectAssignmentStatus status = util.getAssignmentStatus(assignment);
 		
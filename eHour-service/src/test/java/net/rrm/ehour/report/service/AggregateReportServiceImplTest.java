@@ -28,14 +28,13 @@ import net.rrm.ehour.report.reports.ProjectManagerReport;
 import net.rrm.ehour.report.reports.ReportData;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElementMother;
+import net.rrm.ehour.timesheet.service.LockedDays;
 import net.rrm.ehour.timesheet.service.TimesheetLockService;
-import org.joda.time.Interval;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
-import scala.collection.convert.WrapAsScala$;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -68,10 +67,10 @@ public class AggregateReportServiceImplTest {
     
     @Before
     public void setUp() {
-        aggregateReportService = new AggregateReportServiceImpl(assignmentService, reportCriteriaService, projectDao, timesheetLockService, reportAggregatedDao);
+        aggregateReportService = new AggregateReportServiceImpl(assignmentService, reportCriteriaService, projectDao, timesheetLockService, reportAggregatedDao, new ReportResultCache(1000, 900));
 
-        when(timesheetLockService.findLockedDatesInRange(any(Date.class), any(Date.class)))
-                .thenReturn(WrapAsScala$.MODULE$.asScalaBuffer(Lists.<Interval>newArrayList()));
+        when(timesheetLockService.findLockedDays(any(Date.class), any(Date.class)))
+                .thenReturn(LockedDays.Empty());
     }
 
     @Test
@@ -0,0 +1,102 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import com.google.common.collect.Lists;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalInconsistency;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AssignmentTotalServiceImplTest {
+    @Mock
+    private AssignmentTotalDao assignmentTotalDao;
+
+    private AssignmentTotalServiceImpl service;
+
+    @Before
+    public void setUp() {
+        service = new AssignmentTotalServiceImpl(assignmentTotalDao);
+    }
+
+    @Test
+    public void should_rebuild_empty_totals() {
+        when(assignmentTotalDao.isEmpty()).thenReturn(true);
+
+        service.verifyAndRepair();
+
+        verify(assignmentTotalDao).rebuild();
+        verify(assignmentTotalDao, never()).findInconsistencies();
+    }
+
+    @Test
+    public void should_not_repair_consistent_totals() {
+        when(assignmentTotalDao.findInconsistencies()).thenReturn(Lists.<AssignmentTotalInconsistency>newArrayList());
+
+        List<AssignmentTotalInconsistency> inconsistencies = service.verifyAndRepair();
+
+        assertTrue(inconsistencies.isEmpty());
+        verify(assignmentTotalDao, never()).rebuild();
+        verify(assignmentTotalDao, never()).refresh(anyListOf(Integer.class));
+    }
+
+    @Test
+    public void should_refresh_only_the_inconsistent_totals() {
+        Date date = new Date();
+        AssignmentTotalInconsistency inconsistency = new AssignmentTotalInconsistency(3, 8, 0, 1, 0, date, null, date, null);
+        when(assignmentTotalDao.findInconsistencies()).thenReturn(Lists.newArrayList(inconsistency));
+
+        List<AssignmentTotalInconsistency> inconsistencies = service.verifyAndRepair();
+
+        assertEquals(1, inconsistencies.size());
+        verify(assignmentTotalDao).refresh(Lists.newArrayList(3));
+        verify(assignmentTotalDao, never()).rebuild();
+    }
+
+    @Test
+    public void should_fill_empty_totals_at_startup() {
+        when(assignmentTotalDao.isEmpty()).thenReturn(true);
+
+        assertTrue(service.rebuildWhenEmpty());
+
+        verify(assignmentTotalDao).rebuild();
+        verify(assignmentTotalDao, never()).findInconsistencies();
+    }
+
+    @Test
+    public void should_not_compare_filled_totals_at_startup() {
+        when(assignmentTotalDao.isEmpty()).thenReturn(false);
+
+        assertFalse(service.rebuildWhenEmpty());
+
+        verify(assignmentTotalDao, never()).rebuild();
+        verify(assignmentTotalDao, never()).findInconsistencies();
+    }
+}
@@ -27,13 +27,15 @@ import net.rrm.ehour.report.criteria.UserSelectedCriteria;
 import net.rrm.ehour.report.reports.ReportData;
 import net.rrm.ehour.report.reports.element.FlatReportElement;
 import net.rrm.ehour.report.reports.element.FlatReportElementBuilder;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
+import net.rrm.ehour.timesheet.service.LockedDays;
 import net.rrm.ehour.timesheet.service.TimesheetLockService;
 import org.joda.time.DateTime;
-import org.joda.time.Interval;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
-import scala.collection.convert.WrapAsScala$;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +43,8 @@ import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
@@ -74,12 +78,12 @@ public class DetailedReportServiceImplTest {
 
         reportAggregatedDao = mock(ReportAggregatedDao.class);
 
-        detailedReportService = new DetailedReportServiceImpl(reportCriteriaService, projectDao, timesheetLockService, detailedReportDao, reportAggregatedDao);
+        detailedReportService = new DetailedReportServiceImpl(reportCriteriaService, projectDao, timesheetLockService, detailedReportDao, reportAggregatedDao, new ReportResultCache(1000, 900));
     }
 
     private void provideNoLocks() {
-        when(timesheetLockService.findLockedDatesInRange(any(Date.class), any(Date.class)))
-                .thenReturn(WrapAsScala$.MODULE$.asScalaBuffer(Lists.<Interval>newArrayList()));
+        when(timesheetLockService.findLockedDays(any(Date.class), any(Date.class)))
+                .thenReturn(LockedDays.Empty());
     }
 
     private void provideNoAssignmentsWithoutBookings() {
@@ -199,11 +203,10 @@ public class DetailedReportServiceImplTest {
     @Test
     public void should_add_locked_days_to_detailed_report() {
         DateTime dateTime = new DateTime(reportCriteria.getReportRange().getDateStart());
-        Interval interval = new Interval(dateTime, dateTime);
         provideNoAssignmentsWithoutBookings();
 
-        when(timesheetLockService.findLockedDatesInRange(any(Date.class), any(Date.class)))
-                .thenReturn(WrapAsScala$.MODULE$.asScalaBuffer(Lists.newArrayList(interval)));
+        when(timesheetLockService.findLockedDays(any(Date.class), any(Date.class)))
+                .thenReturn(LockedDays.of(Lists.newArrayList(dateTime.toDate())));
 
         FlatReportElement reportElement = new FlatReportElement();
         reportElement.setDayDate(dateTime.toDate());
@@ -219,7 +222,7 @@ public class DetailedReportServiceImplTest {
         assertTrue(flat.getLockableDate().isLocked());
 
         verify(detailedReportDao).getHoursPerDay(any(DateRange.class));
-        verify(timesheetLockService).findLockedDatesInRange(any(Date.class), any(Date.class));
+        verify(timesheetLockService).findLockedDays(any(Date.class), any(Date.class));
     }
 
     protected void noFilteringOnUserOrProject() {
@@ -286,4 +289,179 @@ public class DetailedReportServiceImplTest {
         verify(detailedReportDao).getHoursPerDay(reportCriteria.getReportRange());
         verify(reportAggregatedDao).getAssignmentsWithoutBookings(reportCriteria.getReportRange());
     }
+
+    @Test
+    public void should_stream_elements_with_locked_days() {
+        DateTime dateTime = new DateTime(reportCriteria.getReportRange().getDateStart());
+        provideNoAssignmentsWithoutBookings();
+        noFilteringOnUserOrProject();
+
+        when(timesheetLockService.findLockedDays(any(Date.class), any(Date.class)))
+                .thenReturn(LockedDays.of(Lists.newArrayList(dateTime.toDate())));
+
+        FlatReportElement lockedElement = new FlatReportElement();
+        lockedElement.setDayDate(dateTime.toDate());
+
+        FlatReportElement openElement = new FlatReportElement();
+        openElement.setDayDate(dateTime.plusDays(1).toDate());
+
+        streamFromDao(lockedElement, openElement);
+
+        CollectingSink sink = new CollectingSink();
+        ReportData reportData = detailedReportService.streamDetailedReportData(reportCriteria, sink);
+
+        assertTrue(reportData.getReportElements().isEmpty());
+        assertEquals(1, reportData.getLockedDays().size());
+
+        assertEquals(2, sink.elements.size());
+        assertTrue(sink.elements.get(0).getLockableDate().isLocked());
+        assertFalse(sink.elements.get(1).getLockableDate().isLocked());
+    }
+
+    @Test
+    public void should_stream_assignments_without_bookings_first() {
+        provideNoLocks();
+        noFilteringOnUserOrProject();
+
+        when(reportAggregatedDao.getAssignmentsWithoutBookings(reportCriteria.getReportRange())).thenReturn(Arrays.asList(ProjectAssignmentObjectMother.createProjectAssignment(1)));
+
+        streamFromDao(createFlatReportElement());
+
+        CollectingSink sink = new CollectingSink();
+        detailedReportService.streamDetailedReportData(reportCriteria, sink);
+
+        assertEquals(2, sink.elements.size());
+        assertTrue(sink.elements.get(0).isEmptyEntry());
+    }
+
+    @Test
+    public void should_only_stream_elements_of_pm_projects() {
+        provideNoLocks();
+        provideNoAssignmentsWithoutBookings();
+
+        User pm = UserObjectMother.createUser();
+        userSelectedCriteria.setReportTypeToPM(pm);
+        noFilteringOnUserOrProject();
+
+        when(projectDao.findActiveProjectsWhereUserIsPM(pm)).thenReturn(Arrays.asList(ProjectObjectMother.createProject(1)));
+
+        FlatReportElement allowed = new FlatReportElement();
+        allowed.setProjectId(1);
+
+        FlatReportElement notAllowed = new FlatReportElement();
+        notAllowed.setProjectId(2);
+
+        streamFromDao(allowed, notAllowed);
+
+        CollectingSink sink = new CollectingSink();
+        detailedReportService.streamDetailedReportData(reportCriteria, sink);
+
+        assertEquals(1, sink.elements.size());
+        assertEquals(1, sink.elements.get(0).getProjectId().intValue());
+    }
+
+    @Test
+    public void should_serve_the_same_report_from_the_cache() {
+        provideNoLocks();
+        provideNoAssignmentsWithoutBookings();
+
+        provideNoData();
+        noFilteringOnUserOrProject();
+
+        ReportData first = detailedReportService.getDetailedReportData(reportCriteria);
+        ReportData second = detailedReportService.getDetailedReportData(new ReportCriteria(userSelectedCriteria));
+
+        assertEquals(first.getReportElements(), second.getReportElements());
+        verify(detailedReportDao, times(1)).getHoursPerDay(reportCriteria.getReportRange());
+    }
+
+    @Test
+    public void should_filter_cached_stream_on_pm_projects() {
+        provideNoLocks();
+        provideNoAssignmentsWithoutBookings();
+        noFilteringOnUserOrProject();
+
+        FlatReportElement projectA = new FlatReportElement();
+        projectA.setProjectId(1);
+
+        FlatReportElement projectB = new FlatReportElement();
+        projectB.setProjectId(2);
+
+        when(detailedReportDao.getHoursPerDay(reportCriteria.getReportRange())).thenReturn(Arrays.asList(projectA, projectB));
+
+        ReportData globalReport = detailedReportService.getDetailedReportData(reportCriteria);
+
+        User pm = UserObjectMother.createUser();
+        userSelectedCriteria.setReportTypeToPM(pm);
+        when(projectDao.findActiveProjectsWhereUserIsPM(pm)).thenReturn(Arrays.asList(ProjectObjectMother.createProject(2)));
+
+        CollectingSink pmSink = new CollectingSink();
+        detailedReportService.streamDetailedReportData(reportCriteria, pmSink);
+
+        assertEquals(2, globalReport.getReportElements().size());
+        assertEquals(1, pmSink.elements.size());
+        assertEquals(2, pmSink.elements.get(0).getProjectId().intValue());
+        verify(detailedReportDao, never()).streamHoursPerDay(any(DateRange.class), any(ReportElementSink.class));
+    }
+
+    @Test
+    public void should_not_cache_streamed_reports() {
+        ReportResultCache cache = new ReportResultCache(1000, 900);
+        detailedReportService = new DetailedReportServiceImpl(reportCriteriaService, projectDao, timesheetLockService, detailedReportDao, reportAggregatedDao, cache);
+
+        provideNoLocks();
+        provideNoAssignmentsWithoutBookings();
+        noFilteringOnUserOrProject();
+        streamFromDao(createFlatReportElement());
+
+        detailedReportService.streamDetailedReportData(reportCriteria, new CollectingSink());
+
+        assertNull(cache.get(ReportResultKey.forCriteria(DetailedReportServiceImpl.class.getName(), reportCriteria.getReportRange(), userSelectedCriteria)));
+
+        detailedReportService.streamDetailedReportData(reportCriteria, new CollectingSink());
+
+        verify(detailedReportDao, times(2)).streamHoursPerDay(any(DateRange.class), any(ReportElementSink.class));
+    }
+
+    @Test
+    public void should_reload_after_hours_were_written() {
+        ReportResultCache cache = new ReportResultCache(1000, 900);
+        detailedReportService = new DetailedReportServiceImpl(reportCriteriaService, projectDao, timesheetLockService, detailedReportDao, reportAggregatedDao, cache);
+
+        provideNoLocks();
+        provideNoAssignmentsWithoutBookings();
+        provideNoData();
+        noFilteringOnUserOrProject();
+        streamFromDao(createFlatReportElement());
+
+        detailedReportService.getDetailedReportData(reportCriteria);
+        cache.invalidate(1, 1, reportCriteria.getReportRange());
+        detailedReportService.streamDetailedReportData(reportCriteria, new CollectingSink());
+
+        verify(detailedReportDao, times(1)).streamHoursPerDay(any(DateRange.class), any(ReportElementSink.class));
+    }
+
+    private void streamFromDao(final FlatReportElement... elements) {
+        when(detailedReportDao.streamHoursPerDay(any(DateRange.class), any(ReportElementSink.class))).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                ReportElementSink<FlatReportElement> sink = (ReportElementSink<FlatReportElement>) invocation.getArguments()[1];
+
+                for (FlatReportElement element : elements) {
+                    sink.accept(element);
+                }
+
+                return elements.length;
+            }
+        });
+    }
+
+    private static class CollectingSink implements ReportElementSink<FlatReportElement> {
+        private final List<FlatReportElement> elements = new ArrayList<>();
+
+        @Override
+        public void accept(FlatReportElement element) {
+            elements.add(element);
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.report.service;
+
+import com.google.common.collect.Lists;
+import net.rrm.ehour.data.DateRange;
+import net.rrm.ehour.domain.ProjectObjectMother;
+import net.rrm.ehour.domain.User;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
+import net.rrm.ehour.report.reports.element.FlatReportElement;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReportResultCacheTest {
+    private static final DateRange JANUARY = new DateRange(new LocalDate(2015, 1, 1).toDate(), new LocalDate(2015, 1, 31).toDate());
+    private static final DateRange FEBRUARY = new DateRange(new LocalDate(2015, 2, 1).toDate(), new LocalDate(2015, 2, 28).toDate());
+
+    private ReportResultCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ReportResultCache(10, 900);
+    }
+
+    @Test
+    public void should_use_the_same_key_regardless_of_selection_order() {
+        UserSelectedCriteria criteriaA = new UserSelectedCriteria();
+        criteriaA.setProjects(Lists.newArrayList(ProjectObjectMother.createProject(1), ProjectObjectMother.createProject(2)));
+
+        UserSelectedCriteria criteriaB = new UserSelectedCriteria();
+        criteriaB.setProjects(Lists.newArrayList(ProjectObjectMother.createProject(2), ProjectObjectMother.createProject(1)));
+        criteriaB.setReportTypeToPM(new User(5));
+
+        assertEquals(ReportResultKey.forCriteria("report", JANUARY, criteriaA), ReportResultKey.forCriteria("report", JANUARY, criteriaB));
+        assertFalse(ReportResultKey.forCriteria("report", JANUARY, criteriaA).equals(ReportResultKey.forCriteria("report", FEBRUARY, criteriaA)));
+        assertFalse(ReportResultKey.forCriteria("report", JANUARY, criteriaA).equals(ReportResultKey.forCriteria("other", JANUARY, criteriaA)));
+    }
+
+    @Test
+    public void should_return_cached_result() {
+        ReportResultKey key = key(JANUARY);
+        ReportResult result = result(1, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), JANUARY);
+
+        cache.put(key, result, cache.startLoad());
+
+        assertSame(result, cache.get(key));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void should_invalidate_results_covering_the_written_hours() {
+        ReportResultKey forUser = key(JANUARY);
+        ReportResultKey forOtherUser = key(FEBRUARY);
+
+        long loadStartedAt = cache.startLoad();
+        cache.put(forUser, result(1, Lists.newArrayList(1), Collections.<Integer>emptyList(), JANUARY), loadStartedAt);
+        cache.put(forOtherUser, result(1, Lists.newArrayList(2), Collections.<Integer>emptyList(), JANUARY), loadStartedAt);
+
+        cache.invalidate(1, 10, new DateRange(new LocalDate(2015, 1, 15).toDate(), new LocalDate(2015, 1, 15).toDate()));
+
+        assertNull(cache.get(forUser));
+        assertNotNull(cache.get(forOtherUser));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void should_keep_results_outside_the_written_range() {
+        ReportResultKey key = key(JANUARY);
+
+        cache.put(key, result(1, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), JANUARY), cache.startLoad());
+
+        cache.invalidate(1, 10, FEBRUARY);
+
+        assertNotNull(cache.get(key));
+    }
+
+    @Test
+    public void should_not_cache_a_result_loaded_while_hours_were_written() {
+        ReportResultKey key = key(JANUARY);
+
+        long loadStartedAt = cache.startLoad();
+        cache.invalidate(1, 10, FEBRUARY);
+        cache.put(key, result(1, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), JANUARY), loadStartedAt);
+
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void should_drop_results_of_an_edited_project() {
+        ReportResultKey forProject = key(JANUARY);
+        ReportResultKey forOtherProject = key(FEBRUARY);
+
+        cache.put(forProject, result(1, Collections.<Integer>emptyList(), Lists.newArrayList(10), JANUARY), cache.startLoad());
+        cache.put(forOtherProject, result(1, Collections.<Integer>emptyList(), Lists.newArrayList(11), FEBRUARY), cache.startLoad());
+
+        cache.invalidateProject(10);
+
+        assertNull(cache.get(forProject));
+        assertNotNull(cache.get(forOtherProject));
+    }
+
+    @Test
+    public void should_drop_all_results_when_cleared() {
+        ReportResultKey january = key(JANUARY);
+        ReportResultKey february = key(FEBRUARY);
+
+        cache.put(january, result(1, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), JANUARY), cache.startLoad());
+        long loadStartedAt = cache.startLoad();
+
+        cache.clear();
+        cache.put(february, result(1, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), FEBRUARY), loadStartedAt);
+
+        assertNull(cache.get(january));
+        assertNull(cache.get(february));
+        assertEquals(0, cache.getCachedElements());
+    }
+
+    @Test
+    public void should_evict_least_recently_used_when_full() {
+        ReportResultKey january = key(JANUARY);
+        ReportResultKey february = key(FEBRUARY);
+        ReportResultKey march = key(new DateRange(new LocalDate(2015, 3, 1).toDate(), new LocalDate(2015, 3, 31).toDate()));
+
+        cache.put(january, result(4, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), JANUARY), cache.startLoad());
+        cache.put(february, result(4, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), FEBRUARY), cache.startLoad());
+        cache.get(january);
+        cache.put(march, result(4, Collections.<Integer>emptyList(), Collections.<Integer>emptyList(), FEBRUARY), cache.startLoad());
+
+        assertNull(cache.get(february));
+        assertNotNull(cache.get(january));
+        assertNotNull(cache.get(march));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(10, cache.getCachedElements());
+    }
+
+    private ReportResultKey key(DateRange range) {
+        return ReportResultKey.forCriteria("report", range, new UserSelectedCriteria());
+    }
+
+    private ReportResult result(int elementCount, List<Integer> userIds, List<Integer> projectIds, DateRange range) {
+        List<FlatReportElement> elements = Lists.newArrayList();
+
+        for (int i = 0; i < elementCount; i++) {
+            elements.add(new FlatReportElement());
+        }
+
+        return new ReportResult(elements, Lists.<Date>newArrayList(), userIds, projectIds, range);
+    }
+}
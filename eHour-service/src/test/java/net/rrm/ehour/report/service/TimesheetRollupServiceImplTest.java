@@ -0,0 +1,89 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package net.rrm.ehour.report.service;
+
+import com.google.common.collect.Lists;
+import net.rrm.ehour.persistence.report.dao.RollupInconsistency;
+import net.rrm.ehour.persistence.report.dao.TimesheetRollupDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TimesheetRollupServiceImplTest {
+    @Mock
+    private TimesheetRollupDao timesheetRollupDao;
+
+    private TimesheetRollupServiceImpl service;
+
+    @Before
+    public void setUp() {
+        service = new TimesheetRollupServiceImpl(timesheetRollupDao);
+    }
+
+    @Test
+    public void should_not_rebuild_consistent_rollup() {
+        when(timesheetRollupDao.findInconsistencies()).thenReturn(Lists.<RollupInconsistency>newArrayList());
+
+        List<RollupInconsistency> inconsistencies = service.verifyAndRepair();
+
+        assertTrue(inconsistencies.isEmpty());
+        verify(timesheetRollupDao, never()).rebuild();
+    }
+
+    @Test
+    public void should_rebuild_inconsistent_rollup() {
+        RollupInconsistency inconsistency = new RollupInconsistency(1, new Date(), 8, 0, 1, 0);
+        when(timesheetRollupDao.findInconsistencies()).thenReturn(Lists.newArrayList(inconsistency));
+
+        List<RollupInconsistency> inconsistencies = service.verifyAndRepair();
+
+        assertEquals(1, inconsistencies.size());
+        verify(timesheetRollupDao).rebuild();
+    }
+
+    @Test
+    public void should_rebuild_empty_rollup() {
+        when(timesheetRollupDao.isEmpty()).thenReturn(true);
+
+        assertTrue(service.rebuildWhenEmpty());
+
+        verify(timesheetRollupDao).rebuild();
+        verify(timesheetRollupDao, never()).findInconsistencies();
+    }
+
+    @Test
+    public void should_not_rebuild_filled_rollup() {
+        when(timesheetRollupDao.isEmpty()).thenReturn(false);
+
+        assertFalse(service.rebuildWhenEmpty());
+
+        verify(timesheetRollupDao, never()).rebuild();
+        verify(timesheetRollupDao, never()).findInconsistencies();
+    }
+}
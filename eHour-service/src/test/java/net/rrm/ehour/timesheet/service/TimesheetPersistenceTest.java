@@ -21,31 +21,34 @@ import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.domain.*;
 import net.rrm.ehour.exception.OverBudgetException;
 import net.rrm.ehour.mail.service.ProjectManagerNotifierService;
+import net.rrm.ehour.persistence.report.dao.AssignmentTotalDao;
+import net.rrm.ehour.persistence.report.dao.TimesheetRollupDao;
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetCommentDao;
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao;
 import net.rrm.ehour.project.status.ProjectAssignmentStatus;
 import net.rrm.ehour.project.status.ProjectAssignmentStatus.Status;
 import net.rrm.ehour.project.status.ProjectAssignmentStatusService;
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement;
+import net.rrm.ehour.report.service.ReportResultCache;
 import net.rrm.ehour.util.EhourConstants;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.springframework.context.ApplicationContext;
 import scala.collection.JavaConversions;
 import scala.collection.mutable.Buffer;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
-import static org.junit.Assert.fail;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -69,17 +72,24 @@ public class TimesheetPersistenceTest {
     private TimesheetCommentDao commentDao;
 
     @Mock
-    private ApplicationContext context;
+    private TimesheetRollupDao rollupDao;
+
+    @Mock
+    private ReportResultCache reportResultCache;
+
+    @Mock
+    private AssignmentTotalDao assignmentTotalDao;
 
     private ProjectAssignment assignment;
     private List<TimesheetEntry> newEntries;
     private List<TimesheetEntry> existingEntries;
 
     private DateTime baseDate = DateTime.now().withTimeAtStartOfDay();
+    private DateRange weekRange = new DateRange(baseDate.toDate(), baseDate.plusWeeks(1).toDate());
 
     @Before
     public void setUp() {
-        persister = new TimesheetPersistence(timesheetDAO, commentDao, statusService, projectManagerNotifierService, timesheetLockService, context);
+        persister = new TimesheetPersistence(timesheetDAO, commentDao, rollupDao, statusService, projectManagerNotifierService, timesheetLockService, reportResultCache, assignmentTotalDao);
 
         initData();
     }
@@ -140,67 +150,48 @@ public class TimesheetPersistenceTest {
     }
 
     @Test
-    public void should_persist_new_timesheet() throws OverBudgetException {
-        DateRange dateRange = new DateRange();
-
+    public void should_persist_new_timesheet() {
         okStatus();
 
-        persister.validateAndPersist(assignment, newEntries, dateRange, Lists.<Date>newArrayList());
+        persistWeek(newEntries);
 
-        verify(statusService, times(2)).getAssignmentStatus(assignment);
-        verify(timesheetDAO).persist(any(TimesheetEntry.class));
-        verify(timesheetDAO).getTimesheetEntriesInRange(assignment, dateRange);
+        verify(statusService, times(2)).getAssignmentStatus(eq(assignment), any(AssignmentAggregateReportElement.class), any(Date.class), any(Date.class));
+        verify(timesheetDAO).writeBatch(Lists.newArrayList(newEntries.get(0)), Lists.<TimesheetEntry>newArrayList(), Lists.<TimesheetEntry>newArrayList());
+        verify(timesheetDAO).getTimesheetEntriesForAssignmentsInRange(Lists.newArrayList(assignment.getAssignmentId()), weekRange);
     }
 
     @Test
-    public void should_update_existing_timesheet() throws OverBudgetException {
-        DateRange dateRange = new DateRange();
-
-        withExistingEntries(dateRange);
+    public void should_update_existing_timesheet() {
+        withExistingEntries();
         okStatus();
 
-        persister.validateAndPersist(assignment, newEntries, dateRange, Lists.<Date>newArrayList());
+        persistWeek(newEntries);
 
-        verify(statusService, times(2)).getAssignmentStatus(assignment);
-        verify(timesheetDAO).delete(any(TimesheetEntry.class));
-        verify(timesheetDAO).merge(any(TimesheetEntry.class));
+        verify(timesheetDAO).writeBatch(Lists.<TimesheetEntry>newArrayList(), Lists.newArrayList(newEntries.get(0)), Lists.newArrayList(existingEntries.get(1)));
     }
 
     @Test
     public void should_not_persist_an_timesheet_that_went_overbudget() {
-        DateRange dateRange = new DateRange();
+        withExistingEntries();
 
-        withExistingEntries(dateRange);
-
-        // before persist
-        ProjectAssignmentStatus validStatus = new ProjectAssignmentStatus();
-        when(statusService.getAssignmentStatus(assignment)).thenReturn(validStatus);
-
-        // after persist
         ProjectAssignmentStatus invalidStatus = new ProjectAssignmentStatus();
         invalidStatus.addStatus(Status.OVER_OVERRUN);
         invalidStatus.setValid(false);
 
-        when(statusService.getAssignmentStatus(assignment)).thenReturn(validStatus, invalidStatus);
+        withStatus(new ProjectAssignmentStatus(), invalidStatus);
 
-        try {
-            persister.validateAndPersist(assignment, newEntries, dateRange, Lists.<Date>newArrayList());
-            fail();
-        } catch (OverBudgetException e) {
-            verify(timesheetDAO).merge(any(TimesheetEntry.class));
-            verify(timesheetDAO).delete(any(TimesheetEntry.class));
-        }
+        List<ProjectAssignmentStatus> errors = persistWeek(newEntries);
+
+        assertEquals(Lists.newArrayList(invalidStatus), errors);
+        verify(timesheetDAO, never()).writeBatch(anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class));
     }
 
-    private void withExistingEntries(DateRange dateRange) {
-        when(timesheetDAO.getTimesheetEntriesInRange(any(ProjectAssignment.class), eq(dateRange))).thenReturn(existingEntries);
+    private void withExistingEntries() {
+        when(timesheetDAO.getTimesheetEntriesForAssignmentsInRange(anyListOf(Integer.class), any(DateRange.class))).thenReturn(existingEntries);
     }
 
-    @SuppressWarnings("deprecation")
     @Test
-    public void should_allow_to_decrease_existing_hours_even_when_project_is_over_budget() throws OverBudgetException {
-        Date dateC = new Date(2008 - 1900, Calendar.APRIL, 3);
-
+    public void should_allow_to_decrease_existing_hours_even_when_project_is_over_budget() {
         newEntries.clear();
         existingEntries.clear();
 
@@ -208,7 +199,7 @@ public class TimesheetPersistenceTest {
             TimesheetEntry entryDel = new TimesheetEntry();
             TimesheetEntryId idDel = new TimesheetEntryId();
             idDel.setProjectAssignment(assignment);
-            idDel.setEntryDate(dateC);
+            idDel.setEntryDate(baseDate.plusDays(2).toDate());
             entryDel.setEntryId(idDel);
             entryDel.setHours(7f);
             newEntries.add(entryDel);
@@ -218,13 +209,13 @@ public class TimesheetPersistenceTest {
             TimesheetEntry entryDel = new TimesheetEntry();
             TimesheetEntryId idDel = new TimesheetEntryId();
             idDel.setProjectAssignment(assignment);
-            idDel.setEntryDate(dateC);
+            idDel.setEntryDate(baseDate.plusDays(2).toDate());
             entryDel.setEntryId(idDel);
             entryDel.setHours(8f);
             existingEntries.add(entryDel);
         }
 
-        when(timesheetDAO.getTimesheetEntriesInRange(any(ProjectAssignment.class), any(DateRange.class))).thenReturn(existingEntries);
+        withExistingEntries();
 
         ProjectAssignmentStatus beforeStatus = new ProjectAssignmentStatus();
         beforeStatus.addStatus(Status.OVER_OVERRUN);
@@ -234,16 +225,17 @@ public class TimesheetPersistenceTest {
         afterStatus.addStatus(Status.OVER_OVERRUN);
         afterStatus.setValid(false);
 
-        when(statusService.getAssignmentStatus(assignment)).thenReturn(beforeStatus, afterStatus);
+        withStatus(beforeStatus, afterStatus);
 
-        persister.validateAndPersist(assignment, newEntries, new DateRange(), Lists.<Date>newArrayList());
+        List<ProjectAssignmentStatus> errors = persistWeek(newEntries);
 
-        verify(timesheetDAO).merge(any(TimesheetEntry.class));
+        assertEquals(0, errors.size());
+        verify(timesheetDAO).writeBatch(Lists.<TimesheetEntry>newArrayList(), Lists.newArrayList(newEntries.get(0)), Lists.<TimesheetEntry>newArrayList());
     }
 
     @Test
     public void should_not_allow_to_book_more_hours_when_the_project_is_overbudget() {
-        when(timesheetDAO.getTimesheetEntriesInRange(any(ProjectAssignment.class), any(DateRange.class))).thenReturn(existingEntries);
+        withExistingEntries();
 
         ProjectAssignmentStatus beforeStatus = new ProjectAssignmentStatus();
         beforeStatus.setValid(false);
@@ -252,20 +244,18 @@ public class TimesheetPersistenceTest {
         afterStatus.addStatus(Status.OVER_OVERRUN);
         afterStatus.setValid(false);
 
-        when(statusService.getAssignmentStatus(assignment)).thenReturn(beforeStatus, afterStatus);
+        withStatus(beforeStatus, afterStatus);
 
-        try {
-            persister.validateAndPersist(assignment, newEntries, new DateRange(), Lists.<Date>newArrayList());
-            fail();
-        } catch (OverBudgetException ignored) {
+        List<ProjectAssignmentStatus> errors = persistWeek(newEntries);
 
-        }
+        assertEquals(Lists.newArrayList(afterStatus), errors);
+        verify(timesheetDAO, never()).writeBatch(anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class));
     }
 
     @Test
-    public void should_mail_pm_when_status_of_project_changes() throws OverBudgetException {
+    public void should_mail_pm_when_status_of_project_changes() {
         when(timesheetDAO.getLatestTimesheetEntryForAssignment(assignment.getAssignmentId())).thenReturn(newEntries.get(0));
-        when(timesheetDAO.getTimesheetEntriesInRange(any(ProjectAssignment.class), any(DateRange.class))).thenReturn(existingEntries);
+        withExistingEntries();
 
         ProjectAssignmentStatus beforeStatus = new ProjectAssignmentStatus();
         beforeStatus.addStatus(Status.IN_ALLOTTED);
@@ -276,14 +266,11 @@ public class TimesheetPersistenceTest {
         afterStatus.setValid(true);
         afterStatus.setAggregate(new AssignmentAggregateReportElement());
 
-        when(statusService.getAssignmentStatus(assignment)).thenReturn(beforeStatus);
+        withStatus(beforeStatus, afterStatus);
 
-        when(statusService.getAssignmentStatus(assignment)).thenReturn(beforeStatus, afterStatus);
+        persistWeek(newEntries);
 
-        persister.validateAndPersist(assignment, newEntries, new DateRange(), Lists.<Date>newArrayList());
-
-        verify(timesheetDAO).delete(any(TimesheetEntry.class));
-        verify(timesheetDAO).merge(any(TimesheetEntry.class));
+        verify(timesheetDAO).writeBatch(Lists.<TimesheetEntry>newArrayList(), Lists.newArrayList(newEntries.get(0)), Lists.newArrayList(existingEntries.get(1)));
         verify(projectManagerNotifierService).mailPMFlexAllottedReached(any(AssignmentAggregateReportElement.class), any(Date.class), eq(assignment.getProject().getProjectManager()));
     }
 
@@ -292,8 +279,6 @@ public class TimesheetPersistenceTest {
         TimesheetCommentId commentId = new TimesheetCommentId(1, new Date());
         TimesheetComment comment = new TimesheetComment(commentId, "comment");
 
-        when(context.getBean(IPersistTimesheet.class)).thenReturn(persister); // through Spring for new TX per entr=y
-
         okStatus();
 
         noLocks();
@@ -317,13 +302,11 @@ public class TimesheetPersistenceTest {
 
         User user = UserObjectMother.createUser();
 
-        when(context.getBean(IPersistTimesheet.class)).thenReturn(persister);
-
         withLock(new Interval(baseDate, end));
 
         persister.persistTimesheetWeek(newEntries, comment, new DateRange(s, e), user);
 
-        verify(timesheetDAO, never()).persist((any(TimesheetEntry.class)));
+        verify(timesheetDAO, never()).writeBatch(anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class));
     }
 
     @Test
@@ -339,8 +322,6 @@ public class TimesheetPersistenceTest {
 
         User user = UserObjectMother.createUser();
 
-        when(context.getBean(IPersistTimesheet.class)).thenReturn(persister);
-
         TimesheetEntry entry = new TimesheetEntry();
         TimesheetEntryId id = new TimesheetEntryId();
         id.setProjectAssignment(assignment);
@@ -352,8 +333,7 @@ public class TimesheetPersistenceTest {
         withLock(new Interval(baseDate.plusDays(2), end));// cancelling out the just created entry
         persister.persistTimesheetWeek(newEntries, comment, new DateRange(s, e), user);
 
-        verify(timesheetDAO, times(1)).persist((any(TimesheetEntry.class)));
-        verify(timesheetDAO, never()).delete((any(TimesheetEntry.class)));
+        verify(timesheetDAO).writeBatch(Lists.newArrayList(newEntries.get(0)), Lists.<TimesheetEntry>newArrayList(), Lists.<TimesheetEntry>newArrayList());
         verify(commentDao, times(1)).persist(any(TimesheetComment.class));
     }
 
@@ -371,32 +351,172 @@ public class TimesheetPersistenceTest {
 
         User user = UserObjectMother.createUser();
 
-        when(context.getBean(IPersistTimesheet.class)).thenReturn(persister);
-
         withLock(new Interval(baseDate, end));
 
         persister.persistTimesheetWeek(newEntries, comment, new DateRange(s, e), user);
 
-        verify(timesheetDAO, never()).persist((any(TimesheetEntry.class)));
+        verify(timesheetDAO, never()).writeBatch(anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class));
         verify(commentDao, never()).persist(any(TimesheetComment.class));
     }
 
     @Test
-    public void should_delete_entries_that_are_not_resubmitted() throws OverBudgetException {
-        DateRange dateRange = new DateRange();
+    public void should_delete_entries_that_are_not_resubmitted() {
+        withExistingEntries();
+        okStatus();
 
-        withExistingEntries(dateRange);
+        persistWeek(Lists.newArrayList(newEntries.get(0)));
+
+        verify(timesheetDAO).writeBatch(Lists.<TimesheetEntry>newArrayList(), Lists.newArrayList(existingEntries.get(0)), Lists.newArrayList(existingEntries.get(1)));
+    }
+
+    @Test
+    public void should_refresh_rollup_for_persisted_and_removed_entries() {
+        withExistingEntries();
         okStatus();
 
-        persister.validateAndPersist(assignment, Lists.newArrayList(newEntries.get(0)), dateRange, Lists.<Date>newArrayList());
+        persistWeek(Lists.newArrayList(newEntries.get(0)));
+
+        Date persistedDate = existingEntries.get(0).getEntryId().getEntryDate();
+        Date removedDate = existingEntries.get(1).getEntryId().getEntryDate();
 
-        verify(statusService, times(2)).getAssignmentStatus(assignment);
-        verify(timesheetDAO).delete(existingEntries.get(1));
-        verify(timesheetDAO).merge(existingEntries.get(0));
+        verify(rollupDao).refresh(Lists.newArrayList(assignment.getAssignmentId()), new DateRange(persistedDate, removedDate));
+    }
+
+    @Test
+    public void should_add_to_total_when_entries_changed() {
+        withExistingEntries();
+        okStatus();
+
+        persistWeek(Lists.newArrayList(newEntries.get(0)));
+
+        verify(assignmentTotalDao).add(eq(assignment.getAssignmentId()), anyFloat(), anyInt(), eq(weekRange), any(Date.class), any(Date.class));
+    }
+
+    @Test
+    public void should_invalidate_cached_reports_for_persisted_and_removed_entries() {
+        withExistingEntries();
+        okStatus();
+
+        persistWeek(Lists.newArrayList(newEntries.get(0)));
+
+        Date persistedDate = existingEntries.get(0).getEntryId().getEntryDate();
+        Date removedDate = existingEntries.get(1).getEntryId().getEntryDate();
+
+        verify(reportResultCache).invalidate(assignment.getUser().getUserId(), assignment.getProject().getProjectId(), new DateRange(persistedDate, removedDate));
+    }
+
+    @Test
+    public void should_not_refresh_rollup_when_nothing_changed() {
+        okStatus();
+
+        persistWeek(Lists.newArrayList(newEntries.get(1)));
+
+        verify(timesheetDAO, never()).writeBatch(anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class), anyListOf(TimesheetEntry.class));
+        verify(rollupDao, never()).refresh(anyListOf(Integer.class), any(DateRange.class));
+        verify(assignmentTotalDao, never()).add(anyInt(), anyFloat(), anyInt(), any(DateRange.class), any(Date.class), any(Date.class));
+        verify(reportResultCache, never()).invalidate(any(Integer.class), any(Integer.class), any(DateRange.class));
+    }
+
+    @Test
+    public void should_persist_a_week_in_one_batch() {
+        DateRange weekRange = new DateRange(baseDate.toDate(), baseDate.plusWeeks(1).toDate());
+
+        when(timesheetDAO.getTimesheetEntriesForAssignmentsInRange(Lists.newArrayList(assignment.getAssignmentId()), weekRange)).thenReturn(existingEntries);
+        okStatus();
+        noLocks();
+
+        List<ProjectAssignmentStatus> errors = persister.persistTimesheetWeek(newEntries, new TimesheetComment(new TimesheetCommentId(1, new Date()), "comment"), weekRange, UserObjectMother.createUser());
+
+        assertEquals(0, errors.size());
+        verify(timesheetDAO).writeBatch(Lists.<TimesheetEntry>newArrayList(), Lists.newArrayList(newEntries.get(0)), Lists.newArrayList(existingEntries.get(1)));
+        verify(timesheetDAO, never()).persist(any(TimesheetEntry.class));
+        verify(timesheetDAO, never()).merge(any(TimesheetEntry.class));
+
+        Date persistedDate = existingEntries.get(0).getEntryId().getEntryDate();
+        Date removedDate = existingEntries.get(1).getEntryId().getEntryDate();
+        verify(rollupDao, times(1)).refresh(Lists.newArrayList(assignment.getAssignmentId()), new DateRange(persistedDate, removedDate));
+    }
+
+    @Test
+    public void should_add_the_changes_of_the_week_to_the_total() {
+        DateRange weekRange = new DateRange(baseDate.toDate(), baseDate.plusWeeks(1).toDate());
+
+        when(timesheetDAO.getTimesheetEntriesForAssignmentsInRange(Lists.newArrayList(assignment.getAssignmentId()), weekRange)).thenReturn(existingEntries);
+        okStatus();
+        noLocks();
+
+        persister.persistTimesheetWeek(newEntries, new TimesheetComment(new TimesheetCommentId(1, new Date()), "comment"), weekRange, UserObjectMother.createUser());
+
+        // 5 + 5 hours became 8 hours on the first day
+        Date persistedDate = existingEntries.get(0).getEntryId().getEntryDate();
+        verify(assignmentTotalDao).add(assignment.getAssignmentId(), -2f, -1, weekRange, persistedDate, persistedDate);
+        verify(assignmentTotalDao, never()).refresh(anyListOf(Integer.class));
+    }
+
+    @Test
+    public void should_validate_the_week_against_the_cumulated_hours_after_the_changes() {
+        DateRange weekRange = new DateRange(baseDate.toDate(), baseDate.plusWeeks(1).toDate());
+
+        when(timesheetDAO.getTimesheetEntriesForAssignmentsInRange(Lists.newArrayList(assignment.getAssignmentId()), weekRange)).thenReturn(existingEntries);
+        when(assignmentTotalDao.findForAssignments(Lists.newArrayList(assignment.getAssignmentId())))
+                .thenReturn(Lists.newArrayList(new AssignmentTotal(assignment.getAssignmentId(), 30f, 4, baseDate.minusWeeks(1).toDate(), baseDate.plusDays(1).toDate())));
+        okStatus();
+        noLocks();
+
+        persister.persistTimesheetWeek(newEntries, new TimesheetComment(new TimesheetCommentId(1, new Date()), "comment"), weekRange, UserObjectMother.createUser());
+
+        ArgumentCaptor<AssignmentAggregateReportElement> aggregates = ArgumentCaptor.forClass(AssignmentAggregateReportElement.class);
+        verify(statusService, times(2)).getAssignmentStatus(eq(assignment), aggregates.capture(), any(Date.class), any(Date.class));
+
+        // 10 hours were booked in the week, 8 remain
+        assertEquals(30f, aggregates.getAllValues().get(0).getHours().floatValue(), 0.01);
+        assertEquals(28f, aggregates.getAllValues().get(1).getHours().floatValue(), 0.01);
+    }
+
+    @Test
+    public void should_return_status_of_the_row_that_went_overbudget_and_persist_the_others() {
+        DateRange weekRange = new DateRange(baseDate.toDate(), baseDate.plusWeeks(1).toDate());
+
+        ProjectAssignment overBudgetAssignment = ProjectAssignmentObjectMother.createProjectAssignment(2);
+        overBudgetAssignment.setAssignmentType(new ProjectAssignmentType(EhourConstants.ASSIGNMENT_TIME_ALLOTTED_FIXED));
+
+        TimesheetEntry overBudgetEntry = new TimesheetEntry();
+        overBudgetEntry.setEntryId(new TimesheetEntryId(baseDate.toDate(), overBudgetAssignment));
+        overBudgetEntry.setHours(8f);
+
+        okStatus();
+        noLocks();
+
+        ProjectAssignmentStatus invalidStatus = new ProjectAssignmentStatus();
+        invalidStatus.addStatus(Status.OVER_ALLOTTED);
+        invalidStatus.setValid(false);
+
+        when(statusService.getAssignmentStatus(eq(overBudgetAssignment), any(AssignmentAggregateReportElement.class), any(Date.class), any(Date.class)))
+                .thenReturn(new ProjectAssignmentStatus(), invalidStatus);
+
+        List<TimesheetEntry> week = Lists.newArrayList(newEntries);
+        week.add(overBudgetEntry);
+
+        List<ProjectAssignmentStatus> errors = persister.persistTimesheetWeek(week, new TimesheetComment(new TimesheetCommentId(1, new Date()), "comment"), weekRange, UserObjectMother.createUser());
+
+        assertEquals(Lists.newArrayList(invalidStatus), errors);
+        verify(timesheetDAO).writeBatch(Lists.newArrayList(newEntries.get(0)), Lists.<TimesheetEntry>newArrayList(), Lists.<TimesheetEntry>newArrayList());
+        verify(rollupDao).refresh(Lists.newArrayList(assignment.getAssignmentId()), new DateRange(baseDate.toDate(), baseDate.toDate()));
+    }
+
+    private List<ProjectAssignmentStatus> persistWeek(List<TimesheetEntry> entries) {
+        noLocks();
+
+        return persister.persistTimesheetWeek(entries, new TimesheetComment(new TimesheetCommentId(1, new Date()), "comment"), weekRange, UserObjectMother.createUser());
     }
 
     private void okStatus() {
         when(statusService.getAssignmentStatus(assignment)).thenReturn(new ProjectAssignmentStatus());
+        when(statusService.getAssignmentStatus(eq(assignment), any(AssignmentAggregateReportElement.class), any(Date.class), any(Date.class))).thenReturn(new ProjectAssignmentStatus());
+    }
+
+    private void withStatus(ProjectAssignmentStatus beforeStatus, ProjectAssignmentStatus afterStatus) {
+        when(statusService.getAssignmentStatus(eq(assignment), any(AssignmentAggregateReportElement.class), any(Date.class), any(Date.class))).thenReturn(beforeStatus, afterStatus);
     }
 
     private void withLock(Interval... lockedRange) {
@@ -23,6 +23,7 @@ import net.rrm.ehour.persistence.user.dao.UserDao;
 import net.rrm.ehour.persistence.user.dao.UserDepartmentDao;
 import net.rrm.ehour.persistence.user.dao.UserRoleDao;
 import net.rrm.ehour.project.service.ProjectAssignmentManagementService;
+import net.rrm.ehour.report.service.ReportResultCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.security.authentication.encoding.ShaPasswordEncoder;
@@ -38,6 +39,7 @@ public class UserServiceImplTest {
     private UserDao userDAO;
     private UserDepartmentDao userDepartmentDAO;
     private ProjectAssignmentManagementService assignmentService;
+    private ReportResultCache reportResultCache;
 
     @Before
     public void setUp() {
@@ -46,12 +48,13 @@ public class UserServiceImplTest {
         userDepartmentDAO = mock(UserDepartmentDao.class);
         UserRoleDao userRoleDAO = mock(UserRoleDao.class);
         assignmentService = mock(ProjectAssignmentManagementService.class);
-
+        reportResultCache = mock(ReportResultCache.class);
 
         userService.setUserDAO(userDAO);
         userService.setUserDepartmentDAO(userDepartmentDAO);
         userService.setUserRoleDAO(userRoleDAO);
         userService.setProjectAssignmentManagementService(assignmentService);
+        userService.setReportResultCache(reportResultCache);
 
         userService.setPasswordEncoder(new ShaPasswordEncoder(1));
     }
@@ -200,5 +203,6 @@ public class UserServiceImplTest {
         userService.persistEditedUser(user);
 
         verify(userDAO).persist(persistedUser);
+        verify(reportResultCache).invalidateUser(user.getUserId());
     }
 }
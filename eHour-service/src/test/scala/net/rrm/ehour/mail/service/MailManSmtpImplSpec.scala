@@ -0,0 +1,121 @@
+package net.rrm.ehour.mail.service
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import net.rrm.ehour.AbstractSpec
+import net.rrm.ehour.appconfig.EhourSystemConfig
+import net.rrm.ehour.config.EhourConfigStub
+import net.rrm.ehour.domain.{MailLog, User}
+import net.rrm.ehour.persistence.mail.dao.MailLogDao
+import org.mockito.ArgumentCaptor
+import org.mockito.Mockito._
+
+import scala.collection.JavaConversions._
+
+class MailManSmtpImplSpec extends AbstractSpec {
+  var mailLogDao: MailLogDao = _
+  var smtp: SmtpStub = _
+  var subject: MailManSmtpImpl = _
+
+  override protected def beforeEach() {
+    mailLogDao = mock[MailLogDao]
+    smtp = null
+    subject = null
+  }
+
+  override protected def afterEach() {
+    if (subject != null) subject.stop()
+    if (smtp != null) smtp.close()
+  }
+
+  private def createMailMan(stub: SmtpStub) {
+    smtp = stub
+
+    val config = new EhourConfigStub
+    config.setMailSmtp("localhost")
+    config.setSmtpPort(stub.port.toString)
+    config.setMailFrom("ehour@localhost")
+
+    subject = new MailManSmtpImpl(mailLogDao, 100, 50, 3, 10, 30000)
+    subject.ehourConfig = config
+    subject.systemConfig = new EhourSystemConfig()
+  }
+
+  private def mailTo(email: String, event: Option[String] = None) = {
+    val user = new User()
+    user.setEmail(email)
+    Mail(to = user, subject = "subject", body = "body", mailEvent = event)
+  }
+
+  "Mail Man SMTP" should {
+    "send consecutive mails over one connection" in {
+      createMailMan(new SmtpStub())
+
+      subject.deliver(mailTo("a@localhost"))
+      subject.deliver(mailTo("b@localhost"))
+      subject.deliver(mailTo("c@localhost"))
+
+      smtp.messages.get should be(3)
+      smtp.connections.get should be(1)
+      subject.statistics.sent should be(3)
+      subject.statistics.connections should be(1)
+    }
+
+    "deliver queued mails and write their mail log in one go when stopped" in {
+      createMailMan(new SmtpStub())
+      subject.start()
+
+      subject.deliver(mailTo("a@localhost", Some("event")))
+      subject.deliver(mailTo("b@localhost", Some("event")))
+      subject.stop()
+
+      smtp.messages.get should be(2)
+
+      val captor = ArgumentCaptor.forClass(classOf[Seq[MailLog]])
+      verify(mailLogDao, atLeastOnce()).persistAll(captor.capture())
+
+      val mailLogs = captor.getAllValues.flatten
+      mailLogs.map(_.getMailTo) should contain theSameElementsAs List("a@localhost", "b@localhost")
+      mailLogs.forall(_.getSuccess.booleanValue) should be(true)
+    }
+
+    "not retry a recipient rejected by the mail server" in {
+      createMailMan(new SmtpStub(rejectedRecipients = Set("unknown@localhost")))
+      subject.start()
+
+      val latch = new CountDownLatch(1)
+      var delivered: Option[Boolean] = None
+
+      subject.deliver(mailTo("unknown@localhost"), (_, success) => {
+        delivered = Some(success)
+        latch.countDown()
+      })
+
+      latch.await(10, TimeUnit.SECONDS) should be(true)
+
+      delivered should be(Some(false))
+      smtp.messages.get should be(0)
+      subject.statistics.failed should be(1)
+      subject.statistics.retried should be(0)
+    }
+
+    "retry a mail when the mail server is busy" in {
+      createMailMan(new SmtpStub(busyConnections = 1))
+      subject.start()
+
+      val latch = new CountDownLatch(1)
+      var delivered: Option[Boolean] = None
+
+      subject.deliver(mailTo("a@localhost"), (_, success) => {
+        delivered = Some(success)
+        latch.countDown()
+      })
+
+      latch.await(10, TimeUnit.SECONDS) should be(true)
+
+      delivered should be(Some(true))
+      smtp.messages.get should be(1)
+      subject.statistics.retried should be(1)
+    }
+  }
+}
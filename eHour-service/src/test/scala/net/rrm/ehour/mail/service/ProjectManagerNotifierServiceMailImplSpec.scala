@@ -4,7 +4,7 @@ import java.util.Date
 
 import net.rrm.ehour.AbstractSpec
 import net.rrm.ehour.config.EhourConfigStub
-import net.rrm.ehour.domain.{MailLog, ProjectAssignmentObjectMother, User}
+import net.rrm.ehour.domain.{ProjectAssignmentObjectMother, User}
 import net.rrm.ehour.persistence.mail.dao.MailLogDao
 import net.rrm.ehour.report.reports.element.AssignmentAggregateReportElement
 import org.mockito.ArgumentCaptor
@@ -39,7 +39,7 @@ class ProjectManagerNotifierServiceMailImplSpec extends AbstractSpec {
       mail.to should equal(user)
       mail.subject should startWith("eHour: All allotted hours used for project")
 
-      mailLog.getMailEvent should equal("100-FixedReached")
+      mail.mailEvent should equal(Some("100-FixedReached"))
     }
 
     "mail the PM when the allotted flex hours are reached" in {
@@ -54,7 +54,7 @@ class ProjectManagerNotifierServiceMailImplSpec extends AbstractSpec {
       mail.subject should startWith("eHour: All allotted hours used for project")
       mail.body should include("can still book 10.0 hours")
 
-      mailLog.getMailEvent should equal("100-FlexAllotReached")
+      mail.mailEvent should equal(Some("100-FlexAllotReached"))
     }
 
     "mail the PM when the allotted flex hours and overrun are reached" in {
@@ -69,24 +69,13 @@ class ProjectManagerNotifierServiceMailImplSpec extends AbstractSpec {
       mail.subject startsWith "eHour: All allotted hours used for project"
       mail.body contains "as well the allotted hours as the extra overrun"
 
-      mailLog.getMailEvent should equal("100-FlexOverrunReached")
+      mail.mailEvent should equal(Some("100-FlexOverrunReached"))
     }
   }
 
   def deliverMail: Mail = {
     val mailCaptor = ArgumentCaptor.forClass(classOf[Mail])
-    val callbackCaptor = ArgumentCaptor.forClass(classOf[CallBack])
-    verify(mailMan).deliver(mailCaptor.capture(), callbackCaptor.capture(), any())
-    val mail = mailCaptor.getValue
-    callbackCaptor.getValue.apply(mail, true)
-    mail
-  }
-
-  def mailLog: MailLog = {
-    val mailLogCaptor = ArgumentCaptor.forClass(classOf[MailLog])
-    verify(mailLogDao).persist(mailLogCaptor.capture())
-
-    val mailLog = mailLogCaptor.getValue
-    mailLog
+    verify(mailMan).deliver(mailCaptor.capture(), any(), any())
+    mailCaptor.getValue
   }
 }
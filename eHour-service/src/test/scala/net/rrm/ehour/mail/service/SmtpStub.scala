@@ -0,0 +1,101 @@
+package net.rrm.ehour.mail.service
+
+import java.io.{BufferedReader, InputStreamReader, PrintWriter}
+import java.net.{ServerSocket, Socket, SocketException}
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Minimal in-process SMTP server, just enough of the protocol for JavaMail to deliver to it.
+ *
+ * @param rejectedRecipients recipients answered with 550 on RCPT TO
+ * @param busyConnections    number of connections turned away with a 421 greeting before accepting any
+ */
+class SmtpStub(rejectedRecipients: Set[String] = Set(), busyConnections: Int = 0) {
+  private val server = new ServerSocket(0)
+
+  val connections = new AtomicInteger()
+  val messages = new AtomicInteger()
+
+  private val acceptThread = new Thread(new Runnable {
+    override def run() {
+      try {
+        while (!server.isClosed) {
+          val socket = server.accept()
+
+          val thread = new Thread(new Runnable {
+            override def run() {
+              converse(socket)
+            }
+          }, "smtp-stub-session")
+          thread.setDaemon(true)
+          thread.start()
+        }
+      } catch {
+        case e: SocketException => // closed
+      }
+    }
+  }, "smtp-stub")
+
+  acceptThread.setDaemon(true)
+  acceptThread.start()
+
+  def port: Int = server.getLocalPort
+
+  def close() {
+    server.close()
+  }
+
+  private def converse(socket: Socket) {
+    try {
+      val in = new BufferedReader(new InputStreamReader(socket.getInputStream, "US-ASCII"))
+      val out = new PrintWriter(socket.getOutputStream, true)
+
+      def reply(line: String) {
+        out.print(line + "\r\n")
+        out.flush()
+      }
+
+      if (connections.incrementAndGet() <= busyConnections) {
+        reply("421 stub busy")
+      } else {
+        reply("220 stub ready")
+
+        var line = in.readLine()
+
+        while (line != null) {
+          val command = line.toUpperCase
+
+          if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+            reply("250 stub")
+          } else if (command.startsWith("RCPT TO:")) {
+            val recipient = line.substring("RCPT TO:".length).trim.stripPrefix("<").stripSuffix(">")
+            reply(if (rejectedRecipients.contains(recipient)) "550 no such user" else "250 ok")
+          } else if (command.startsWith("DATA")) {
+            reply("354 end with .")
+
+            while (line != null && line != ".") {
+              line = in.readLine()
+            }
+
+            messages.incrementAndGet()
+            reply("250 queued")
+          } else if (command.startsWith("QUIT")) {
+            reply("221 bye")
+            line = null
+          } else {
+            // MAIL FROM, RSET, NOOP
+            reply("250 ok")
+          }
+
+          if (line != null) {
+            line = in.readLine()
+          }
+        }
+      }
+    } catch {
+      case e: SocketException => // client went away
+    } finally {
+      socket.close()
+    }
+  }
+}
@@ -3,24 +3,26 @@ package net.rrm.ehour.reminder
 import net.rrm.ehour.AbstractSpec
 import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.domain._
+import net.rrm.ehour.persistence.project.dao.ProjectAssignmentDao
 import net.rrm.ehour.persistence.timesheet.dao.TimesheetDao
-import net.rrm.ehour.project.service.ProjectAssignmentService
+import net.rrm.ehour.timesheet.dto.{UserAssignmentPeriod, UserBookedHours}
 import net.rrm.ehour.timesheet.service.TimesheetLockService
 import net.rrm.ehour.user.service.UserService
 import net.rrm.ehour.util.JodaDateUtil
 import org.joda.time.{Interval, LocalDate}
-import org.mockito.Matchers.{eq => mockitoEq, _}
+import org.mockito.Matchers._
 import org.mockito.Mockito._
 
 import scala.collection.JavaConversions._
+import scala.collection.mutable
 
 class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
   val userService = mock[UserService]
   val timesheetDao = mock[TimesheetDao]
-  val assignmentService = mock[ProjectAssignmentService]
+  val assignmentDao = mock[ProjectAssignmentDao]
   val lockService = mock[TimesheetLockService]
 
-  val subject = new IFindUsersWithoutSufficientHours(userService, timesheetDao, assignmentService, lockService)
+  val subject = new IFindUsersWithoutSufficientHours(userService, timesheetDao, assignmentDao, lockService)
 
   val userA = UserObjectMother.createUser("a")
   userA.setUserId(1)
@@ -39,7 +41,12 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
   assignmentB.setDateStart(currentDate.minusDays(15).toDate)
   assignmentB.setDateEnd(currentDate.plusDays(15).toDate)
 
-  override protected def beforeEach() = reset(userService, timesheetDao, lockService)
+  val bookableAssignments = mutable.ListBuffer[ProjectAssignment]()
+
+  override protected def beforeEach() {
+    reset(userService, timesheetDao, assignmentDao, lockService)
+    bookableAssignments.clear()
+  }
 
   "I find users without sufficient hours" should {
     "find the user with less than the minimum hours, ignore the user with more than the minimum" in {
@@ -95,6 +102,7 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
 
     "ignore any users that are inactive, even if they booked hours" in {
       val userC = UserObjectMother.createUser("c")
+      userC.setUserId(3)
 
       `user A has assignment A`
       `user B has assignment B`
@@ -117,7 +125,7 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
       assignmentA2.setDateStart(currentDate.minusDays(2).toDate)
       assignmentA2.setDateEnd(currentDate.plusDays(1).toDate)
 
-      when(assignmentService.getProjectAssignmentsForUser(mockitoEq(userA.getUserId), any(classOf[DateRange]))).thenReturn(List(assignmentA2))
+      `with bookable assignments`(assignmentA2)
       `user B has assignment B`
 
       `user A and B are active`
@@ -138,7 +146,7 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
       assignmentA2.setDateStart(null)
       assignmentA2.setDateEnd(null)
 
-      when(assignmentService.getProjectAssignmentsForUser(mockitoEq(userA.getUserId), any(classOf[DateRange]))).thenReturn(List(assignmentA2))
+      `with bookable assignments`(assignmentA2)
 
       `user A is active`
       `no locked days are in the range`
@@ -202,7 +210,7 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
       assignment.setDateStart(currentDate.minusDays(15).toDate)
       assignment.setDateEnd(currentDate.plusDays(15).toDate)
 
-      when(assignmentService.getProjectAssignmentsForUser(mockitoEq(userA.getUserId), any(classOf[DateRange]))).thenReturn(List(assignmentA, assignment))
+      `with bookable assignments`(assignmentA, assignment)
       `user A is active`
 
       `no locked days are in the range`
@@ -222,7 +230,14 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
     assignment.setDateStart(currentDate.minusDays(15).toDate)
     assignment.setDateEnd(currentDate.plusDays(15).toDate)
 
-    when(assignmentService.getProjectAssignmentsForUser(mockitoEq(user.getUserId), any(classOf[DateRange]))).thenReturn(List(assignment))
+    `with bookable assignments`(assignment)
+  }
+
+  def `with bookable assignments`(assignments: ProjectAssignment*) {
+    bookableAssignments ++= assignments
+
+    val periods = bookableAssignments.map(a => new UserAssignmentPeriod(a.getUser.getUserId, a.getDateStart, a.getDateEnd)).toList
+    when(assignmentDao.findBookableAssignmentPeriods(any(classOf[DateRange]))).thenReturn(periods)
   }
 
   def `user A is active`  {
@@ -230,7 +245,11 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
   }
 
   def `with timesheet entries`(entry: TimesheetEntry*) {
-    when(timesheetDao.getTimesheetEntriesInRange(any())).thenReturn(entry.toList)
+    val hoursPerUser = entry.groupBy(_.getEntryId.getProjectAssignment.getUser.getUserId).map {
+      case (userId, entries) => new UserBookedHours(userId, java.lang.Float.valueOf(entries.foldLeft(0f)(_ + _.getHours)))
+    }
+
+    when(timesheetDao.getBookedHoursPerUserInRange(any(classOf[DateRange]))).thenReturn(hoursPerUser.toList)
   }
 
   def `create a timesheet entry for user`(user: User = userA, hours: Int = 30): TimesheetEntry = {
@@ -243,11 +262,11 @@ class IFindUsersWithoutSufficientHoursSpec extends AbstractSpec {
   }
 
   def `user B has assignment B` {
-    when(assignmentService.getProjectAssignmentsForUser(mockitoEq(userB.getUserId), any(classOf[DateRange]))).thenReturn(List(assignmentB))
+    `with bookable assignments`(assignmentB)
   }
 
   def `user A has assignment A` {
-    when(assignmentService.getProjectAssignmentsForUser(mockitoEq(userA.getUserId), any(classOf[DateRange]))).thenReturn(List(assignmentA))
+    `with bookable assignments`(assignmentA)
   }
 
   def `no locked days are in the range` {
@@ -2,12 +2,14 @@ package net.rrm.ehour.reminder
 
 import net.rrm.ehour.AbstractSpec
 import net.rrm.ehour.config.EhourConfigStub
-import net.rrm.ehour.domain.UserObjectMother
+import net.rrm.ehour.domain.{MailLog, UserObjectMother}
 import net.rrm.ehour.mail.service.MailMan
 import net.rrm.ehour.persistence.mail.dao.MailLogDao
 import org.mockito.ArgumentCaptor
 import org.mockito.Matchers._
 import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
 
 class ReminderServiceSpec extends AbstractSpec {
   val mailMan = mock[MailMan]
@@ -21,23 +23,40 @@ class ReminderServiceSpec extends AbstractSpec {
   
   val subject = new ReminderService(config, userFinder, mailMan, mailLogDao)
   
-  override protected def beforeEach() = reset(mailMan, userFinder)
+  override protected def beforeEach() = reset(mailMan, userFinder, mailLogDao)
   
   "Reminder Service" should {
     "mail users to remind" in {
       val user = UserObjectMother.createUser
       when(userFinder.findUsersWithoutSufficientHours(32, 8f)).thenReturn(List(user))
-      when(mailLogDao.find(any(), any())).thenReturn(List())
+      when(mailLogDao.findOnEvents(any())).thenReturn(List())
 
       subject.sendReminderMail()
       verify(mailMan).deliver(any(), any(), any())
 
-      val mailEventCaptor = ArgumentCaptor.forClass(classOf[String])
-      val emailCaptor = ArgumentCaptor.forClass(classOf[String])
-      verify(mailLogDao).find(emailCaptor.capture(), mailEventCaptor.capture())
+      val mailEventsCaptor = ArgumentCaptor.forClass(classOf[Seq[String]])
+      verify(mailLogDao).findOnEvents(mailEventsCaptor.capture())
 
-      emailCaptor.getValue should equal(user.getEmail)
-      mailEventCaptor.getValue should startWith("1:Reminder for ")
+      mailEventsCaptor.getValue should have size 1
+      mailEventsCaptor.getValue.head should startWith(s"${user.getUserId}:Reminder for ")
+    }
+
+    "not mail users who already got the reminder" in {
+      val user = UserObjectMother.createUser
+      when(userFinder.findUsersWithoutSufficientHours(32, 8f)).thenReturn(List(user))
+
+      val mailLog = new MailLog
+      mailLog.setMailTo(user.getEmail)
+      when(mailLogDao.findOnEvents(any())).thenAnswer(new Answer[List[MailLog]] {
+        override def answer(invocation: InvocationOnMock): List[MailLog] = {
+          mailLog.setMailEvent(invocation.getArguments()(0).asInstanceOf[Seq[String]].head)
+          List(mailLog)
+        }
+      })
+
+      subject.sendReminderMail()
+
+      verify(mailMan, never()).deliver(any(), any(), any())
     }
 
     "replace $name with the user full name" in {
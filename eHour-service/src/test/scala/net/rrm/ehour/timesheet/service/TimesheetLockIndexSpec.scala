@@ -0,0 +1,94 @@
+package net.rrm.ehour.timesheet.service
+
+import com.google.common.collect.Lists
+import net.rrm.ehour.AbstractSpec
+import net.rrm.ehour.domain.{TimesheetLock, User, UserObjectMother}
+import org.joda.time.LocalDate
+
+import scala.collection.JavaConversions._
+import scala.util.Random
+
+class TimesheetLockIndexSpec extends AbstractSpec {
+  val day = LocalDate.parse("2014-03-01")
+
+  def lock(from: Int, to: Int, excluded: User*) =
+    new TimesheetLock(day.plusDays(from).toDate, day.plusDays(to).toDate, Lists.newArrayList(excluded: _*))
+
+  def user(id: Int) = {
+    val user = UserObjectMother.createUser()
+    user.setUserId(id)
+    user
+  }
+
+  "Timesheet Lock Index" should {
+    "find nothing without locks" in {
+      val index = new TimesheetLockIndex(Nil)
+
+      index.lockedDays(day.toDate, day.plusDays(7).toDate) should be('empty)
+    }
+
+    "clip locks to the requested range" in {
+      val index = new TimesheetLockIndex(List(lock(-5, 2), lock(6, 20)))
+
+      val locked = index.lockedDays(day.toDate, day.plusDays(7).toDate)
+
+      locked.lockedDayCount should be(5)
+      locked.isLocked(day.minusDays(1).toDate) should be(false)
+      locked.isLocked(day.plusDays(2).toDate) should be(true)
+      locked.isLocked(day.plusDays(3).toDate) should be(false)
+      locked.isLocked(day.plusDays(8).toDate) should be(false)
+    }
+
+    "merge overlapping and adjacent locks into one interval" in {
+      val index = new TimesheetLockIndex(List(lock(0, 2), lock(3, 4), lock(1, 3), lock(8, 9)))
+
+      val intervals = index.lockedDays(day.toDate, day.plusDays(10).toDate).toIntervals
+
+      intervals should have size 2
+      intervals(0).getStart.toLocalDate should be(day)
+      intervals(0).getEnd.toLocalDate should be(day.plusDays(4))
+      intervals(1).getStart.toLocalDate should be(day.plusDays(8))
+      intervals(1).getEnd.toLocalDate should be(day.plusDays(9))
+    }
+
+    "skip locks the user is excluded from" in {
+      val index = new TimesheetLockIndex(List(lock(0, 2, user(1)), lock(2, 4, user(2))))
+
+      index.lockedDays(day.toDate, day.plusDays(7).toDate, user(1)).toDates should have size 3
+      index.lockedDays(day.toDate, day.plusDays(7).toDate, user(2)).toDates should have size 3
+      index.lockedDays(day.toDate, day.plusDays(7).toDate, user(3)).toDates should have size 5
+      index.lockedDays(day.toDate, day.plusDays(7).toDate).toDates should have size 5
+    }
+
+    "tell whether the whole range is locked" in {
+      val index = new TimesheetLockIndex(List(lock(0, 3), lock(4, 6)))
+
+      index.lockedDays(day.toDate, day.plusDays(6).toDate).isFullyLocked should be(true)
+      index.lockedDays(day.toDate, day.plusDays(7).toDate).isFullyLocked should be(false)
+    }
+
+    "find the same days as checking every lock" in {
+      val random = new Random(42)
+
+      val locks = for (i <- 0 until 200) yield {
+        val start = random.nextInt(1000)
+        lock(start, start + random.nextInt(30), user(random.nextInt(5)))
+      }
+
+      val index = new TimesheetLockIndex(locks)
+
+      for (i <- 0 until 50) {
+        val from = random.nextInt(1000)
+        val to = from + random.nextInt(60)
+        val forUser = user(random.nextInt(5))
+
+        val expected = (from to to).filter(d => locks.exists(l => {
+          val date = day.plusDays(d).toDate
+          !date.before(l.getDateStart) && !date.after(l.getDateEnd) && !l.getExcludedUsers.exists(_.getUserId == forUser.getUserId)
+        })).map(day.plusDays(_).toDate)
+
+        index.lockedDays(day.plusDays(from).toDate, day.plusDays(to).toDate, forUser).toDates.toList should be(expected.toList)
+      }
+    }
+  }
+}
@@ -27,6 +27,7 @@ class TimesheetLockServiceSpringImplSpec extends AbstractSpec {
 
   override def beforeEach() {
     reset(lockDao)
+    service.invalidateIndex()
   }
 
   "Timesheet Lock Service" should {
@@ -114,9 +115,9 @@ class TimesheetLockServiceSpringImplSpec extends AbstractSpec {
       val endDate = LocalDate.parse("2013-01-08")
 
       def findLockedDatesInRange(response: ju.List[TimesheetLock]) = {
-        when(lockDao.findMatchingLock(startDate.toDate, endDate.toDate)).thenReturn(response)
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(response)
         val l = service.findLockedDatesInRange(startDate.toDate, endDate.toDate)
-        verify(lockDao).findMatchingLock(startDate.toDate, endDate.toDate)
+        verify(lockDao).findAllWithExcludedUsers()
 
         l
       }
@@ -232,6 +233,7 @@ class TimesheetLockServiceSpringImplSpec extends AbstractSpec {
         val userA = UserObjectMother.createUser()
         val userB = UserObjectMother.createUser()
         userB.setUsername("imanotheruser")
+        userB.setUserId(2)
 
         val start = startDate
         val end = startDate.plusDays(2)
@@ -239,7 +241,7 @@ class TimesheetLockServiceSpringImplSpec extends AbstractSpec {
         val lockB = new TimesheetLock(startDate.toDate, startDate.plusDays(3).toDate, Lists.newArrayList(userB))
         val response = Lists.newArrayList(lockA, lockB)
 
-        when(lockDao.findMatchingLock(startDate.toDate, endDate.toDate)).thenReturn(response)
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(response)
 
         val locked = service.findLockedDatesInRange(startDate.toDate, endDate.toDate, userB)
 
@@ -252,12 +254,49 @@ class TimesheetLockServiceSpringImplSpec extends AbstractSpec {
       "don't fail when there are no locks" in {
         val response = Lists.newArrayList[TimesheetLock]()
 
-        when(lockDao.findMatchingLock(startDate.toDate, endDate.toDate)).thenReturn(response)
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(response)
 
         val locked = service.findLockedDatesInRange(startDate.toDate, endDate.toDate, UserObjectMother.createUser())
 
         locked should have size 0
       }
+
+      "find the locked days of a user in the range" in {
+        val userA = UserObjectMother.createUser()
+        val lockA = new TimesheetLock(startDate.minusDays(3).toDate, startDate.plusDays(1).toDate)
+        val lockB = new TimesheetLock(endDate.toDate, endDate.plusDays(5).toDate, Lists.newArrayList(userA))
+
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(Lists.newArrayList(lockA, lockB))
+
+        val locked = service.findLockedDays(startDate.toDate, endDate.toDate, userA)
+
+        locked.lockedDayCount should be(2)
+        locked.isLocked(startDate.plusDays(1).toDate) should be(true)
+        locked.isLocked(startDate.plusDays(2).toDate) should be(false)
+        locked.isLocked(endDate.toDate) should be(false)
+
+        service.findLockedDays(startDate.toDate, endDate.toDate).isLocked(endDate.toDate) should be(true)
+      }
+
+      "load the locks once until a lock is changed" in {
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(Lists.newArrayList(new TimesheetLock(startDate.toDate, startDate.toDate)))
+
+        service.findLockedDays(startDate.toDate, endDate.toDate).lockedDayCount should be(1)
+        service.findLockedDays(startDate.toDate, endDate.toDate).lockedDayCount should be(1)
+
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(Lists.newArrayList(new TimesheetLock(startDate.toDate, startDate.plusDays(1).toDate)))
+        service.deleteLock(1)
+
+        service.findLockedDays(startDate.toDate, endDate.toDate).lockedDayCount should be(2)
+        verify(lockDao, times(2)).findAllWithExcludedUsers()
+      }
+
+      "tell a week is locked when every day is locked for the user" in {
+        when(lockDao.findAllWithExcludedUsers()).thenReturn(Lists.newArrayList(new TimesheetLock(startDate.minusDays(1).toDate, endDate.toDate)))
+
+        service.isRangeLocked(startDate.toDate, endDate.toDate, UserObjectMother.createUser()) should be(true)
+        service.isRangeLocked(startDate.toDate, endDate.plusDays(1).toDate, UserObjectMother.createUser()) should be(false)
+      }
     }
 
     "check whether a week is completely locked" in {
@@ -38,6 +38,7 @@ import net.rrm.ehour.ui.manage.user.UserManagePage;
 import net.rrm.ehour.ui.pm.ProjectManagerPage;
 import net.rrm.ehour.ui.report.detailed.DetailedReportRESTResource;
 import net.rrm.ehour.ui.report.detailed.DetailedReportRESTResource$;
+import net.rrm.ehour.ui.report.export.ReportExportResource;
 import net.rrm.ehour.ui.report.page.ReportPage;
 import net.rrm.ehour.ui.timesheet.export.TimesheetExportPage;
 import net.rrm.ehour.ui.timesheet.page.MonthOverviewPage;
@@ -223,6 +224,16 @@ public class EhourWebApplication extends AuthenticatedWebApplication {
                 return resource;
             }
         });
+
+        mountResource("/rest/report/export/${report}/${format}", new ResourceReference("reportExportReference") {
+
+            ReportExportResource resource = new ReportExportResource();
+
+            @Override
+            public IResource getResource() {
+                return resource;
+            }
+        });
     }
 
     protected void springInjection() {
@@ -53,6 +53,8 @@ import java.util.List;
 public class AuditReportDataPanel extends AbstractAjaxPanel<ReportCriteria> implements IHeaderContributor {
     private static final long serialVersionUID = -2380789244030608920L;
 
+    private AuditReportDataProvider dataProvider;
+
     public AuditReportDataPanel(String id, IModel<ReportCriteria> model) {
         super(id, model);
 
@@ -99,7 +101,7 @@ public class AuditReportDataPanel extends AbstractAjaxPanel<ReportCriteria> impl
         columns.add(new PropertyColumn<Audit, Date>(new ResourceModel("audit.report.column.type"), "auditActionType.value"));
 
 
-        AuditReportDataProvider dataProvider = new AuditReportDataProvider(getReportRequest(model));
+        dataProvider = new AuditReportDataProvider(getReportRequest(model));
         DataTable<Audit, Date> table = new DataTable<Audit, Date>("data", columns, dataProvider, 20) {
             @Override
             protected Item<Audit> newRowItem(String id, int index, IModel<Audit> model) {
@@ -117,6 +119,13 @@ public class AuditReportDataPanel extends AbstractAjaxPanel<ReportCriteria> impl
         return dataContainer;
     }
 
+    /**
+     * Count and page again with the changed criteria
+     */
+    public void criteriaChanged() {
+        dataProvider.reset();
+    }
+
     private AuditReportRequest getReportRequest(IModel<ReportCriteria> model) {
         ReportCriteria criteria = model.getObject();
 
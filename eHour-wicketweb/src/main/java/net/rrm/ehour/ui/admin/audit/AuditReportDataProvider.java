@@ -17,6 +17,7 @@
 package net.rrm.ehour.ui.admin.audit;
 
 import net.rrm.ehour.audit.service.AuditService;
+import net.rrm.ehour.data.AuditKey;
 import net.rrm.ehour.data.AuditReportRequest;
 import net.rrm.ehour.domain.Audit;
 import net.rrm.ehour.ui.common.util.WebUtils;
@@ -25,9 +26,20 @@ import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Pages through the audits by seeking past the last audit of a page already shown rather than skipping all
+ * audits before the page, pages near the end are read backwards from the last audit. The number of audits
+ * is counted once until the criteria change, so a page costs the same no matter how deep it is. The last audit
+ * is taken along with the count and every page is read up to it, audits written since don't shift the pages.
+ */
 public class AuditReportDataProvider extends SortableDataProvider<Audit, Date> {
     private static final long serialVersionUID = 8795552030531153903L;
 
@@ -36,6 +48,14 @@ public class AuditReportDataProvider extends SortableDataProvider<Audit, Date> {
 
     private AuditReportRequest request;
 
+    // offset -> key of the audit right before that offset, for every page read so far
+    private final TreeMap<Long, AuditKey> pageBoundaries = new TreeMap<>();
+
+    private Long size;
+
+    // last audit when the audits were counted
+    private AuditKey upTo;
+
     public AuditReportDataProvider(AuditReportRequest request) {
         WebUtils.springInjection(this);
 
@@ -44,11 +64,50 @@ public class AuditReportDataProvider extends SortableDataProvider<Audit, Date> {
 
     @Override
     public Iterator<Audit> iterator(long first, long count) {
-        return auditService.findAudits(request, (int)first, (int)count).iterator();
+        if (size() == 0) {
+            return Collections.<Audit>emptyIterator();
+        }
+
+        Map.Entry<Long, AuditKey> boundary = pageBoundaries.floorEntry(first);
+
+        long skipFromBoundary = boundary == null ? first : first - boundary.getKey();
+        long skipFromEnd = Math.max(0, size() - first - count);
+
+        List<Audit> audits;
+
+        if (skipFromEnd < skipFromBoundary) {
+            int max = (int) Math.min(count, size() - first);
+
+            audits = new ArrayList<>(auditService.findAudits(request, null, upTo, (int) skipFromEnd, max, true));
+            Collections.reverse(audits);
+        } else {
+            AuditKey from = boundary == null ? null : boundary.getValue();
+            audits = auditService.findAudits(request, from, upTo, (int) skipFromBoundary, (int) count, false);
+        }
+
+        if (!audits.isEmpty()) {
+            pageBoundaries.put(first + audits.size(), AuditKey.of(audits.get(audits.size() - 1)));
+        }
+
+        return audits.iterator();
     }
 
     public long size() {
-        return auditService.getAuditCount(request).intValue();
+        if (size == null) {
+            upTo = auditService.findLastAuditKey(request);
+            size = (upTo == null) ? 0 : auditService.getAuditCount(request, upTo).longValue();
+        }
+
+        return size;
+    }
+
+    /**
+     * Forget the count, the last audit and the page boundaries, for when the criteria changed
+     */
+    public void reset() {
+        size = null;
+        upTo = null;
+        pageBoundaries.clear();
     }
 
     @Override
@@ -56,7 +56,10 @@ public class AuditReportPage extends AbstractAdminPage<String> {
         if (ajaxEvent.getEventType() == AuditReportCriteriaForm.Events.FORM_SUBMIT) {
             String path = AuditConstants.PATH_FRAME + ":frame_body:" + AuditConstants.PATH_DATA;
 
-            ajaxEvent.getTarget().add(get(path));
+            AuditReportDataPanel dataPanel = (AuditReportDataPanel) get(path);
+            dataPanel.criteriaChanged();
+
+            ajaxEvent.getTarget().add(dataPanel);
 
             return false;
         }
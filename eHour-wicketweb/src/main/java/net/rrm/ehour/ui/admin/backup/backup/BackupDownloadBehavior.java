@@ -1,14 +1,16 @@
 package net.rrm.ehour.ui.admin.backup.backup;
 
+import net.rrm.ehour.backup.service.backup.BackupProgress;
 import net.rrm.ehour.backup.service.backup.DatabaseBackupService;
 import net.rrm.ehour.ui.common.session.EhourWebSession;
 import net.rrm.ehour.ui.common.util.WebUtils;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
 import org.apache.wicket.util.resource.IResourceStream;
-import org.apache.wicket.util.resource.StringResourceStream;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -20,14 +22,24 @@ public class BackupDownloadBehavior extends AbstractDownloadBehavior {
         super(model);
     }
 
+    /**
+     * The backup is written straight into the response while the tables are read, it's never held in memory
+     */
     @Override
     protected IResourceStream getResourceStream() {
+        final DatabaseBackupService backupService = getBackupService();
 
-        try {
-            return new StringResourceStream(new String(getData(), "UTF-8"));
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalArgumentException(e);
-        }
+        return new AbstractResourceStreamWriter() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                backupService.exportDatabase(output, new BackupProgress());
+            }
+
+            @Override
+            public String getContentType() {
+                return "text/xml";
+            }
+        };
     }
 
     @Override
@@ -36,13 +48,13 @@ public class BackupDownloadBehavior extends AbstractDownloadBehavior {
         return "eHour-xml-backup-" + format.format(new Date()) + ".xml";
     }
 
-    private byte[] getData() {
+    private DatabaseBackupService getBackupService() {
         boolean authorized = checkAuthorization();
 
         if (authorized) {
             WebUtils.springInjection(this);
 
-            return databaseBackupService.exportDatabase();
+            return databaseBackupService;
         }
 
         throw new IllegalArgumentException("You're not authorized");
@@ -39,6 +39,7 @@ import org.wicketstuff.async.task.DefaultTaskManager;
 import org.wicketstuff.async.task.IProgressObservableRunnable;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -98,9 +99,9 @@ public class RestoreDbFormPanel extends AbstractAjaxPanel<Void> {
             @Override
             protected void onSubmit(AjaxRequestTarget target, Form<?> form) {
                 if (isValidUpload(file)) {
-                    byte[] bytes = file.getFileUpload().getBytes();
-                    try {
-                        String tempFilename = BackupFileUtil.writeToTempFile(bytes);
+                    // copied byte for byte, a gzipped backup is unzipped when it's restored
+                    try (InputStream upload = file.getFileUpload().getInputStream()) {
+                        String tempFilename = BackupFileUtil.writeToTempFile(upload);
                         session.setFilename(tempFilename);
 
                         super.onSubmit(target, form);
@@ -56,10 +56,10 @@ public abstract class AbstractExcelReport implements ExcelReport {
     protected abstract Report createReport(ReportCriteria reportCriteria);
 
     /**
-     * Create the workbook
+     * Create the workbook, rows are written in order so only a window of them is kept in memory
      */
     protected ExcelWorkbook createWorkbook(Report treeReport) {
-        ExcelWorkbook wb = new ExcelWorkbook();
+        ExcelWorkbook wb = new ExcelWorkbook(ExcelWorkbook.DEFAULT_ROW_WINDOW);
 
         Sheet sheet = wb.createSheet(WorkbookUtil.createSafeSheetName(getExcelReportName().getObject()));
         int rowNumber = 0;
@@ -20,7 +20,6 @@ import net.rrm.ehour.report.reports.element.LockableDate;
 import net.rrm.ehour.ui.common.util.WebUtils;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 import org.apache.wicket.model.IModel;
 
 import java.util.Date;
@@ -31,6 +30,10 @@ import java.util.Date;
  * @author Thies Edeling (thies@te-con.nl)
  */
 public class CellFactory {
+    // displayed width of numbers and dates, they're formatted by Excel
+    private static final int NUMBER_CHARACTERS = 10;
+    private static final int DATE_CHARACTERS = 10;
+
     public static Cell createCell(Row row, int column, String value, ExcelWorkbook workbook) {
         return CellFactory.createCell(row, column, value, workbook, ExcelStyle.NORMAL_FONT);
     }
@@ -50,20 +53,30 @@ public class CellFactory {
     public static Cell createCell(Row row, int column, Object value, ExcelWorkbook workbook, ExcelStyle excelStyle) {
         Cell cell = row.createCell(column);
 
+        int characters;
+
         if (value instanceof Float) {
             cell.setCellValue((Float) value);
+            characters = NUMBER_CHARACTERS;
         } else if (value instanceof Number) {
             cell.setCellValue(((Number) value).doubleValue());
+            characters = NUMBER_CHARACTERS;
         } else if (value instanceof Date) {
             cell.setCellValue((Date)value);
+            characters = DATE_CHARACTERS;
         } else if (value instanceof LockableDate) {
             cell.setCellValue(((LockableDate) value).getDate());
+            characters = DATE_CHARACTERS;
         } else {
-            cell.setCellValue(new XSSFRichTextString(value.toString()));
+            String text = value.toString();
+            cell.setCellValue(text);
+            characters = text.length();
         }
 
         cell.setCellStyle(workbook.getCellStyle(excelStyle));
 
+        workbook.trackColumnWidth(cell, characters);
+
         return cell;
     }
 }
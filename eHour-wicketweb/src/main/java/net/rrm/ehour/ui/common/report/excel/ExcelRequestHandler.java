@@ -45,7 +45,9 @@ public class ExcelRequestHandler implements IRequestHandler {
             httpResponse.setHeader("Content-disposition", "attachment; filename=" + filename);
             ServletOutputStream outputStream = httpResponse.getOutputStream();
 
+            // written straight into the response, nothing of the workbook is buffered here
             byteWriter.write(outputStream);
+            outputStream.flush();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -2,26 +2,49 @@ package net.rrm.ehour.ui.common.report.excel;
 
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class ExcelWorkbook {
+    /**
+     * Rows kept in memory by a streaming workbook
+     */
+    public static final int DEFAULT_ROW_WINDOW = 100;
+
     private static final String FONT_NAME = "Arial";
 
+    // Excel's max. column width, in 1/256th of a character
+    private static final int MAX_COLUMN_WIDTH = 255 * 256;
+
     private Map<ExcelStyle, CellStyle> pregeneratedStyles;
 
+    private Map<Sheet, int[]> autoSizedColumns = new HashMap<>();
+
     private Workbook workbook;
 
     public ExcelWorkbook() {
-        init();
+        init(new XSSFWorkbook());
+    }
+
+    /**
+     * Streaming workbook which only keeps the last rowWindow rows in memory, older rows are flushed to a
+     * compressed temp file. Rows which are flushed can't be changed anymore.
+     */
+    public ExcelWorkbook(int rowWindow) {
+        SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(rowWindow);
+        streamingWorkbook.setCompressTempFiles(true);
+
+        init(streamingWorkbook);
     }
 
-    private void init() {
-        workbook = new XSSFWorkbook();
+    private void init(Workbook workbook) {
+        this.workbook = workbook;
 
         pregenerateStyles(workbook);
     }
@@ -55,8 +78,64 @@ public class ExcelWorkbook {
         return workbook.addPicture(image, imageType);
     }
 
+    /**
+     * Size the column to its widest cell when the workbook is written. Unlike Sheet.autoSizeColumn the width is
+     * kept up to date while cells are created with the CellFactory rather than by reading back every cell.
+     */
+    public void autoSizeColumn(Sheet sheet, int column) {
+        int[] widths = autoSizedColumns.get(sheet);
+
+        if (widths == null || widths.length <= column) {
+            int[] grown = new int[column + 1];
+            Arrays.fill(grown, -1);
+
+            if (widths != null) {
+                System.arraycopy(widths, 0, grown, 0, widths.length);
+            }
+
+            widths = grown;
+            autoSizedColumns.put(sheet, widths);
+        }
+
+        widths[column] = Math.max(widths[column], 0);
+    }
+
+    void trackColumnWidth(Cell cell, int characters) {
+        int[] widths = autoSizedColumns.get(cell.getSheet());
+
+        int column = cell.getColumnIndex();
+
+        if (widths != null && column < widths.length && widths[column] >= 0) {
+            widths[column] = Math.max(widths[column], characters);
+        }
+    }
+
+    /**
+     * Write the workbook, the temp files of a streaming workbook are removed afterwards so it can only be written once
+     */
     public void write(OutputStream output) throws IOException {
-        workbook.write(output);
+        applyColumnWidths();
+
+        try {
+            workbook.write(output);
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+        }
+    }
+
+    private void applyColumnWidths() {
+        for (Map.Entry<Sheet, int[]> entry : autoSizedColumns.entrySet()) {
+            int[] widths = entry.getValue();
+
+            for (int column = 0; column < widths.length; column++) {
+                if (widths[column] > 0) {
+                    // a character of padding on each side
+                    entry.getKey().setColumnWidth(column, Math.min(MAX_COLUMN_WIDTH, (widths[column] + 2) * 256));
+                }
+            }
+        }
     }
 
     public CreationHelper getCreationHelper() {
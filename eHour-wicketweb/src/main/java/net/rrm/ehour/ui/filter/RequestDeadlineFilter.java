@@ -0,0 +1,62 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.ui.filter;
+
+import net.rrm.ehour.persistence.retry.RequestDeadline;
+import org.apache.commons.lang.StringUtils;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+
+/**
+ * Gives every request a deadline so database retries give up before the user does.
+ * The timeout in milliseconds is configured with the timeout init parameter.
+ */
+public class RequestDeadlineFilter implements Filter {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String timeout = filterConfig.getInitParameter("timeout");
+
+        if (StringUtils.isNotBlank(timeout)) {
+            timeoutMillis = Long.parseLong(timeout.trim());
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        RequestDeadline.set(System.currentTimeMillis() + timeoutMillis);
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -17,9 +17,13 @@
 package net.rrm.ehour.ui.report.detailed;
 
 import com.google.common.collect.Maps;
+import net.rrm.ehour.data.DateRange;
 import net.rrm.ehour.report.criteria.AggregateBy;
 import net.rrm.ehour.report.criteria.ReportCriteria;
+import net.rrm.ehour.report.criteria.UserSelectedCriteria;
+import net.rrm.ehour.report.reports.ColumnarReportData;
 import net.rrm.ehour.report.reports.ReportData;
+import net.rrm.ehour.report.reports.element.FlatReportColumns;
 import net.rrm.ehour.report.reports.element.FlatReportElement;
 import net.rrm.ehour.report.service.DetailedReportService;
 import net.rrm.ehour.ui.common.report.DetailedReportConfig;
@@ -33,6 +37,7 @@ import org.apache.wicket.spring.injection.annot.SpringBean;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -59,14 +64,31 @@ public class DetailedReportModel extends TreeReportModel {
         super(reportCriteria, DetailedReportConfig.DETAILED_REPORT_BY_DAY);
     }
 
+    /**
+     * Rows are streamed from the database and aggregated on arrival, so only the aggregated
+     * elements are held in memory rather than every booked day. They're kept in columns rather than as beans.
+     */
     @Override
     protected ReportData fetchReportData(ReportCriteria reportCriteria) {
-        return getDetailedReportService().getDetailedReportData(reportCriteria);
+        AggregateBy aggregateBy = reportCriteria.getUserSelectedCriteria().getAggregateBy();
+
+        DetailedReportCollector collector = AGGREGATE_MAP.containsKey(aggregateBy) ? new DetailedReportCollector(AGGREGATE_MAP.get(aggregateBy)) : new DetailedReportCollector();
+
+        ReportData streamedData = getDetailedReportService().streamDetailedReportData(reportCriteria, collector);
+
+        return new AggregatedReportData(streamedData.getLockedDays(), collector.getColumns(), streamedData.getReportRange(), streamedData.getCriteria());
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public  ReportData preprocess(ReportData reportData, ReportCriteria reportCriteria) {
+        if (reportData instanceof AggregatedReportData) {
+            FlatReportColumns columns = ((AggregatedReportData) reportData).getColumns();
+            columns.sortOnDate();
+
+            return new ColumnarReportData(reportData.getLockedDays(), columns, reportData.getReportRange(), reportCriteria.getUserSelectedCriteria());
+        }
+
         AggregateBy aggregateBy = reportCriteria.getUserSelectedCriteria().getAggregateBy();
 
         List<FlatReportElement> elements;
@@ -141,4 +163,15 @@ public class DetailedReportModel extends TreeReportModel {
             }
         };
     }
+
+    /**
+     * Report data of which the elements are already aggregated while streaming
+     */
+    private static class AggregatedReportData extends ColumnarReportData {
+        private static final long serialVersionUID = 3546381826432592791L;
+
+        AggregatedReportData(List<Date> lockedDays, FlatReportColumns columns, DateRange reportRange, UserSelectedCriteria criteria) {
+            super(lockedDays, columns, reportRange, criteria);
+        }
+    }
 }
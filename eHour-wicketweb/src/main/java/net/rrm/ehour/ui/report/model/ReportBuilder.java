@@ -20,8 +20,11 @@ import net.rrm.ehour.report.reports.ReportData;
 import net.rrm.ehour.report.reports.element.ReportElement;
 import org.apache.log4j.Logger;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ReportBuilder
@@ -38,29 +41,31 @@ public class ReportBuilder {
     @SuppressWarnings("unchecked")
     public List<ReportNode> createReport(ReportData reportData, ReportNodeFactory nodeFactory) {
         List<ReportNode> reportNodes = new ArrayList<>();
+        Map<Serializable, ReportNode> reportNodeIndex = new HashMap<>();
 
         for (ReportElement reportElement : reportData.getReportElements()) {
-            if (!processElement(reportElement, nodeFactory, reportNodes)) {
+            if (!processElement(reportElement, nodeFactory, reportNodes, reportNodeIndex)) {
                 ReportNode node = nodeFactory.createReportNode(reportElement, 0);
                 node.processElement(reportElement, 0, nodeFactory);
                 reportNodes.add(node);
+
+                if (!reportNodeIndex.containsKey(node.getId())) {
+                    reportNodeIndex.put(node.getId(), node);
+                }
             }
         }
 
         return reportNodes;
     }
 
-    private boolean processElement(ReportElement element, ReportNodeFactory factory, List<ReportNode> reportNodes) {
-        boolean processed = false;
-
-        // check for each reportNode whether 
-        for (ReportNode reportNode : reportNodes) {
-            if (reportNode.processElement(element, 0, factory)) {
-                processed = true;
-                break;
-            }
+    private boolean processElement(ReportElement element, ReportNodeFactory factory, List<ReportNode> reportNodes, Map<Serializable, ReportNode> reportNodeIndex) {
+        if (reportNodes.isEmpty()) {
+            return false;
         }
 
-        return processed;
+        // all root nodes are of the same type, any of them can derive the id from the element
+        ReportNode reportNode = reportNodeIndex.get(reportNodes.get(0).getElementId(element));
+
+        return reportNode != null && reportNode.processElement(element, 0, factory);
     }
 }
@@ -20,18 +20,26 @@ import net.rrm.ehour.report.reports.element.ReportElement;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tree structure of abstract nodes for reporting purposes.
  * Each node can have multiple reportnode children, for example customer -> projects -> users
+ * Non-leaf children are indexed on their id so an element finds its path in O(depth).
  */
 public abstract class ReportNode implements Serializable {
     private static final long serialVersionUID = 8722465589611086312L;
 
     protected Serializable[] columnValues;
     private List<ReportNode> reportNodes = new ArrayList<>();
+    private Map<Serializable, ReportNode> reportNodeIndex = new HashMap<>();
     private final Serializable id;
+
+    // totals of the child nodes, reset whenever an element is added below this node
+    private Float totalHours;
+    private Float totalTurnover;
     private final boolean empty;
 
     protected ReportNode(Serializable id) {
@@ -113,13 +121,27 @@ public abstract class ReportNode implements Serializable {
                 node.processElement(reportElement, hierarchyLevel, nodeFactory);
             }
 
-            reportNodes.add(node);
+            addChildNode(node);
             processed = true;
         }
 
+        if (processed) {
+            totalHours = null;
+            totalTurnover = null;
+        }
+
         return processed;
     }
 
+    private void addChildNode(ReportNode node) {
+        reportNodes.add(node);
+
+        // leaf children are never looked up, each element gets its own leaf
+        if (!node.isLeaf() && !reportNodeIndex.containsKey(node.getId())) {
+            reportNodeIndex.put(node.getId(), node);
+        }
+    }
+
     /**
      * Is the aggregate processed by the childnodes?
      *
@@ -129,21 +151,21 @@ public abstract class ReportNode implements Serializable {
     private boolean processChildNodes(ReportElement element,
                                       int hierarchyLevel,
                                       ReportNodeFactory nodeFactory) {
-        boolean processed = false;
+        if (reportNodes.isEmpty()) {
+            return false;
+        }
 
-        for (ReportNode node : reportNodes) {
-            // if the children are last nodes don't bother checking
-            if (node.isLeaf()) {
-                break;
-            }
+        // children are created for the same hierarchy level, so any of them can derive the id from the element
+        ReportNode sibling = reportNodes.get(0);
 
-            if (node.processElement(element, hierarchyLevel, nodeFactory)) {
-                processed = true;
-                break;
-            }
+        // if the children are last nodes don't bother checking
+        if (sibling.isLeaf()) {
+            return false;
         }
 
-        return processed;
+        ReportNode childNode = reportNodeIndex.get(sibling.getElementId(element));
+
+        return childNode != null && childNode.processElement(element, hierarchyLevel, nodeFactory);
     }
 
     /**
@@ -180,14 +202,18 @@ public abstract class ReportNode implements Serializable {
      * @return
      */
     public Number getHours() {
-        float totalHours = 0;
+        if (totalHours == null) {
+            float hours = 0;
 
-        for (ReportNode reportNode : reportNodes) {
-            Number hours = reportNode.getHours();
+            for (ReportNode reportNode : reportNodes) {
+                Number childHours = reportNode.getHours();
 
-            if (hours != null) {
-                totalHours += hours.floatValue();
+                if (childHours != null) {
+                    hours += childHours.floatValue();
+                }
             }
+
+            totalHours = hours;
         }
 
         return totalHours;
@@ -199,14 +225,18 @@ public abstract class ReportNode implements Serializable {
      * @return
      */
     public Number getTurnover() {
-        float totalTurnover = 0;
+        if (totalTurnover == null) {
+            float turnover = 0;
 
-        for (ReportNode reportNode : reportNodes) {
-            Number turnOver = reportNode.getTurnover();
+            for (ReportNode reportNode : reportNodes) {
+                Number turnOver = reportNode.getTurnover();
 
-            if (turnOver != null) {
-                totalTurnover += turnOver.floatValue();
+                if (turnOver != null) {
+                    turnover += turnOver.floatValue();
+                }
             }
+
+            totalTurnover = turnover;
         }
 
         return totalTurnover;
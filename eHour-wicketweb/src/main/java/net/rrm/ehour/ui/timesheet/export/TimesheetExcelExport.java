@@ -57,11 +57,11 @@ public class TimesheetExcelExport implements ExcelReport {
         String sheetName = WebUtils.formatDate("MMMM yyyy", report.getReportRange().getDateStart());
         Sheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(sheetName));
 
-        sheet.autoSizeColumn((short) (CELL_BORDER + ExportReportColumn.DATE.getColumn()));
-        sheet.autoSizeColumn((short) (CELL_BORDER + ExportReportColumn.CUSTOMER_CODE.getColumn()));
-        sheet.autoSizeColumn((short) (CELL_BORDER + ExportReportColumn.PROJECT.getColumn()));
-        sheet.autoSizeColumn((short) (CELL_BORDER + ExportReportColumn.PROJECT_CODE.getColumn()));
-        sheet.autoSizeColumn((short) (CELL_BORDER + ExportReportColumn.HOURS.getColumn()));
+        workbook.autoSizeColumn(sheet, CELL_BORDER + ExportReportColumn.DATE.getColumn());
+        workbook.autoSizeColumn(sheet, CELL_BORDER + ExportReportColumn.CUSTOMER_CODE.getColumn());
+        workbook.autoSizeColumn(sheet, CELL_BORDER + ExportReportColumn.PROJECT.getColumn());
+        workbook.autoSizeColumn(sheet, CELL_BORDER + ExportReportColumn.PROJECT_CODE.getColumn());
+        workbook.autoSizeColumn(sheet, CELL_BORDER + ExportReportColumn.HOURS.getColumn());
         sheet.setColumnWidth(0, 1024);
 
         int rowNumber = 9;
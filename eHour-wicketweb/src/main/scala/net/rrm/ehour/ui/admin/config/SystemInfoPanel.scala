@@ -4,7 +4,9 @@ import net.rrm.ehour.sysinfo.SystemInfoService
 import net.rrm.ehour.ui.EhourWebApplication
 import net.rrm.ehour.ui.common.panel.AbstractBasePanel
 import net.rrm.ehour.ui.common.session.EhourWebSession
+import net.rrm.ehour.ui.report.cache.ReportCacheService
 import org.apache.wicket.markup.html.basic.Label
+import org.apache.wicket.model.StringResourceModel
 import org.apache.wicket.spring.injection.annot.SpringBean
 
 class SystemInfoPanel(id: String) extends AbstractBasePanel(id) {
@@ -12,6 +14,9 @@ class SystemInfoPanel(id: String) extends AbstractBasePanel(id) {
   @SpringBean
   protected var infoService: SystemInfoService = _
 
+  @SpringBean
+  protected var reportCacheService: ReportCacheService = _
+
   override def onInitialize() {
     super.onInitialize()
 
@@ -33,5 +38,20 @@ class SystemInfoPanel(id: String) extends AbstractBasePanel(id) {
     add(new Label("db.name", info.databaseName))
     add(new Label("db.driver", info.jdbcDriver))
     add(new Label("db.url", if (inDemoMode) "" else info.databaseUrl))
+
+    val retries = info.retryStatistics
+    add(new Label("db.retries", new StringResourceModel("admin.sysinfo.retries.value", this, null,
+      Array[AnyRef](Long.box(retries.attempts), Long.box(retries.retries), Long.box(retries.exhausted), Long.box(retries.permanentFailures)))))
+
+    val circuitState = getString(s"admin.sysinfo.circuit.${retries.circuitState}")
+    add(new Label("db.circuit", new StringResourceModel("admin.sysinfo.circuit.value", this, null,
+      Array[AnyRef](circuitState, Long.box(retries.circuitOpened), Long.box(retries.circuitRejected)))))
+
+    val cache = reportCacheService.statistics
+    add(new Label("report.cache", new StringResourceModel("admin.sysinfo.reportcache.value", this, null,
+      Array[AnyRef](Long.box(cache.hits), Long.box(cache.misses), Long.box(cache.evictions), Long.box(cache.expirations), Long.box(cache.rejections)))))
+
+    add(new Label("report.cache.size", new StringResourceModel("admin.sysinfo.reportcache.size.value", this, null,
+      Array[AnyRef](Int.box(cache.entries), Long.box(cache.usedBytes / 1024), Long.box(cache.maxBytes / 1024)))))
   }
 }
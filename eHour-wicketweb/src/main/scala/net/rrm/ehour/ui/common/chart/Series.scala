@@ -1,6 +1,6 @@
 package net.rrm.ehour.ui.common.chart
 
-import org.joda.time.DateTime
+import org.joda.time.{DateTime, Days, Months, Weeks, Years}
 import collection.Seq
 
 import scala.language.implicitConversions
@@ -24,31 +24,67 @@ case class Series[T](name: String = "",
                      data: Iterable[T],
                      yAxis: Option[Int] = None) extends AbstractSeries[T]
 
+/**
+ * Length of the periods a date series is plotted in
+ */
+sealed abstract class DatePeriod {
+  def plus(date: DateTime, periods: Int): DateTime
+
+  /**
+   * Number of whole periods between the start and the date
+   */
+  def between(start: DateTime, date: DateTime): Int
+}
+
+object DatePeriod {
+  case object Day extends DatePeriod {
+    override def plus(date: DateTime, periods: Int) = date.plusDays(periods)
+    override def between(start: DateTime, date: DateTime) = Days.daysBetween(start, date).getDays
+  }
+
+  case object Week extends DatePeriod {
+    override def plus(date: DateTime, periods: Int) = date.plusWeeks(periods)
+    override def between(start: DateTime, date: DateTime) = Weeks.weeksBetween(start, date).getWeeks
+  }
+
+  case object Month extends DatePeriod {
+    override def plus(date: DateTime, periods: Int) = date.plusMonths(periods)
+    override def between(start: DateTime, date: DateTime) = Months.monthsBetween(start, date).getMonths
+  }
+
+  case object Quarter extends DatePeriod {
+    override def plus(date: DateTime, periods: Int) = date.plusMonths(periods * 3)
+    override def between(start: DateTime, date: DateTime) = Months.monthsBetween(start, date).getMonths / 3
+  }
+
+  case object Year extends DatePeriod {
+    override def plus(date: DateTime, periods: Int) = date.plusYears(periods)
+    override def between(start: DateTime, date: DateTime) = Years.yearsBetween(start, date).getYears
+  }
+}
+
 case class SparseDateSeries(name: String = "",
                             data: Seq[DateFloatValue],
                             dateStart: DateTime,
                             dateEnd: DateTime,
                             yAxis: Option[Int] = None,
-                            dateIncrease: DateTime => DateTime = _.plusDays(1)) extends AbstractSeries[DateFloatValue] {
+                            period: DatePeriod = DatePeriod.Day) extends AbstractSeries[DateFloatValue] {
+  /**
+   * Sums the values per period into a series with a value for every period from dateStart up to dateEnd.
+   * Values which don't fall on the start of a period in that range are left out.
+   */
   override def preProcess(): Series[Float] = {
-    val groupedByDate = data groupBy (_.date)
+    val periods = if (dateEnd isBefore dateStart) 0 else period.between(dateStart, dateEnd) + 1
+    val values = new Array[Float](periods)
 
-    val dateTuplesWithSummedValues = groupedByDate.keys.toSeq sortWith (_ isBefore _) map (k =>
-      (k, groupedByDate.getOrElse(k, Seq()).foldLeft(0f)(_ + _.value))
-      )
+    for (point <- data) {
+      val offset = period.between(dateStart, point.date)
 
-    val dateMappedValues = dateTuplesWithSummedValues.toMap
-
-    def padSeriesData(date: DateTime, paddedSeries: List[Float] = List()): Seq[Float] = {
-      if (date isAfter dateEnd) {
-        paddedSeries.reverse
-      } else {
-        padSeriesData(dateIncrease(date), dateMappedValues.getOrElse(date, 0f) :: paddedSeries)
+      if (offset >= 0 && offset < periods && period.plus(dateStart, offset) == point.date) {
+        values(offset) += point.value
       }
     }
 
-    val paddedSeriesData = padSeriesData(dateStart)
-
-    Series[Float](name, paddedSeriesData, yAxis)
+    Series[Float](name, values.toList, yAxis)
   }
 }
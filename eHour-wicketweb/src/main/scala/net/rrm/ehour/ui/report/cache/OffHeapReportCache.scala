@@ -0,0 +1,200 @@
+package net.rrm.ehour.ui.report.cache
+
+import java.io._
+import java.nio.ByteBuffer
+import java.util
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.{Deflater, DeflaterOutputStream, InflaterInputStream}
+
+/**
+ * Cache which keeps its values serialized and deflated in direct (off-heap) buffers.
+ * The cache is bounded by the number of bytes stored, the least recently used entries are
+ * evicted first. Entries older than the time to live are dropped on access.
+ *
+ * @param maxBytes  max. number of serialized bytes kept in the cache
+ * @param ttlMillis time to live of an entry in milliseconds, 0 or less to never expire
+ * @param clock     current time in milliseconds
+ */
+class OffHeapReportCache(val maxBytes: Long, ttlMillis: Long, clock: () => Long) {
+  def this(maxBytes: Long, ttlMillis: Long) = this(maxBytes, ttlMillis, () => System.currentTimeMillis())
+
+  import OffHeapReportCache._
+
+  // access ordered so the head of the map is always the least recently used entry
+  private val index = new util.LinkedHashMap[String, Entry](16, 0.75f, true)
+
+  private var usedBytes = 0L
+
+  private val hits = new AtomicLong()
+  private val misses = new AtomicLong()
+  private val evictions = new AtomicLong()
+  private val expirations = new AtomicLong()
+  private val rejections = new AtomicLong()
+
+  /**
+   * Store the value under the key, replacing any previous value.
+   *
+   * @return false when the serialized value is larger than the cache and was not stored
+   */
+  def put(key: String, value: Serializable): Boolean = {
+    // serialize outside the lock, it's by far the most expensive part
+    val serialized = serialize(value)
+    val size = serialized.capacity()
+
+    index.synchronized {
+      removeEntry(key)
+
+      if (size > maxBytes) {
+        rejections.incrementAndGet()
+        false
+      } else {
+        purgeExpired()
+
+        val lru = index.entrySet().iterator()
+
+        while (usedBytes + size > maxBytes && lru.hasNext) {
+          usedBytes -= lru.next().getValue.size
+          lru.remove()
+          evictions.incrementAndGet()
+        }
+
+        index.put(key, Entry(serialized, size, clock()))
+        usedBytes += size
+        true
+      }
+    }
+  }
+
+  def get(key: String): Option[AnyRef] = {
+    val entry = index.synchronized {
+      val e = index.get(key)
+
+      if (e != null && isExpired(e)) {
+        removeEntry(key)
+        expirations.incrementAndGet()
+        null
+      } else e
+    }
+
+    if (entry == null) {
+      misses.incrementAndGet()
+      None
+    } else {
+      hits.incrementAndGet()
+      Some(deserialize(entry.buffer))
+    }
+  }
+
+  def remove(key: String): Boolean = index.synchronized {
+    removeEntry(key)
+  }
+
+  def clear() {
+    index.synchronized {
+      index.clear()
+      usedBytes = 0
+    }
+  }
+
+  def statistics: ReportCacheStatistics = {
+    val (entries, bytes) = index.synchronized {
+      (index.size(), usedBytes)
+    }
+
+    ReportCacheStatistics(hits = hits.get(),
+                          misses = misses.get(),
+                          evictions = evictions.get(),
+                          expirations = expirations.get(),
+                          rejections = rejections.get(),
+                          entries = entries,
+                          usedBytes = bytes,
+                          maxBytes = maxBytes)
+  }
+
+  private def removeEntry(key: String): Boolean = {
+    val previous = index.remove(key)
+
+    if (previous != null) {
+      usedBytes -= previous.size
+      true
+    } else false
+  }
+
+  private def purgeExpired() {
+    if (ttlMillis > 0) {
+      val entries = index.values().iterator()
+
+      while (entries.hasNext) {
+        val entry = entries.next()
+
+        if (isExpired(entry)) {
+          usedBytes -= entry.size
+          entries.remove()
+          expirations.incrementAndGet()
+        }
+      }
+    }
+  }
+
+  private def isExpired(entry: Entry) = ttlMillis > 0 && clock() - entry.storedAt >= ttlMillis
+}
+
+object OffHeapReportCache {
+  private case class Entry(buffer: ByteBuffer, size: Int, storedAt: Long)
+
+  private[cache] def serialize(value: Serializable): ByteBuffer = {
+    val bytes = new ByteArrayOutputStream(8192)
+    val deflater = new Deflater(Deflater.BEST_SPEED)
+
+    try {
+      val out = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater, 8192))
+      out.writeObject(value)
+      out.close()
+    } finally {
+      deflater.end()
+    }
+
+    val buffer = ByteBuffer.allocateDirect(bytes.size())
+    buffer.put(bytes.toByteArray)
+    buffer.flip()
+    buffer
+  }
+
+  private[cache] def deserialize(buffer: ByteBuffer): AnyRef = {
+    // every reader gets its own view on the buffer so concurrent gets don't share a position
+    val in = new ObjectInputStream(new InflaterInputStream(new ByteBufferInputStream(buffer.duplicate())))
+
+    try {
+      in.readObject()
+    } finally {
+      in.close()
+    }
+  }
+
+  private class ByteBufferInputStream(buffer: ByteBuffer) extends InputStream {
+    override def read(): Int = if (buffer.hasRemaining) buffer.get() & 0xff else -1
+
+    override def read(b: Array[Byte], off: Int, len: Int): Int = {
+      if (len == 0) {
+        0
+      } else if (!buffer.hasRemaining) {
+        -1
+      } else {
+        val count = Math.min(len, buffer.remaining())
+        buffer.get(b, off, count)
+        count
+      }
+    }
+
+    override def available(): Int = buffer.remaining()
+  }
+}
+
+case class ReportCacheStatistics(hits: Long,
+                                 misses: Long,
+                                 evictions: Long,
+                                 expirations: Long,
+                                 rejections: Long,
+                                 entries: Int,
+                                 usedBytes: Long,
+                                 maxBytes: Long)
@@ -1,32 +1,45 @@
 package net.rrm.ehour.ui.report.cache
 
-import org.springframework.stereotype.Service
-import org.springframework.beans.factory.annotation.Autowired
-import net.rrm.ehour.report.reports.ReportData
-import org.springframework.cache.ehcache.EhCacheCacheManager
 import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+import net.rrm.ehour.report.reports.ReportData
+import org.apache.log4j.Logger
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.stereotype.Service
 
 trait ReportCacheService {
   def storeReportData(reportData: ReportData): String
 
   def retrieveReportData(key: String): Option[ReportData]
+
+  def statistics: ReportCacheStatistics
 }
 
+/**
+ * Keeps report data off-heap so a handful of large reports can't exhaust the heap.
+ * The cache is bounded by the number of (compressed) bytes rather than the number of reports.
+ */
 @Service
-class ReportCacheServiceEhCacheImpl @Autowired() (cacheManager: EhCacheCacheManager) extends ReportCacheService {
-
-  val cache = cacheManager.getCache("reportCache")
+class ReportCacheServiceOffHeapImpl @Autowired()(@Value("${ehour.report.cache.maxBytes:134217728}") maxBytes: Long,
+                                                 @Value("${ehour.report.cache.ttl:3600}") ttlSeconds: Long) extends ReportCacheService {
+  private val cache = new OffHeapReportCache(maxBytes, TimeUnit.SECONDS.toMillis(ttlSeconds))
 
   override def storeReportData(reportData: ReportData): String = {
     val key = UUID.randomUUID().toString
 
-    cache.put(key, reportData)
+    if (!cache.put(key, reportData)) {
+      ReportCacheServiceOffHeapImpl.LOG.warn(s"Report data for $key exceeds the report cache size of $maxBytes bytes and is not cached")
+    }
 
     key
   }
 
-  override def retrieveReportData(key: String): Option[ReportData] = {
-    val value = cache.get(key)
-    if (value == null) None else Some(value.get().asInstanceOf[ReportData])
-  }
+  override def retrieveReportData(key: String): Option[ReportData] = cache.get(key).map(_.asInstanceOf[ReportData])
+
+  override def statistics: ReportCacheStatistics = cache.statistics
+}
+
+object ReportCacheServiceOffHeapImpl {
+  private final val LOG = Logger.getLogger(classOf[ReportCacheServiceOffHeapImpl])
 }
@@ -3,35 +3,55 @@ package net.rrm.ehour.ui.report.detailed
 import java.util.Date
 import java.{util => ju}
 
-import net.rrm.ehour.report.reports.element.FlatReportElement
+import net.rrm.ehour.report.reports.element.{FlatReportColumns, FlatReportElement, ReportElementSink}
 import net.rrm.ehour.ui.common.session.EhourWebSession
 import net.rrm.ehour.util.DateUtil
-import org.apache.commons.lang.builder.HashCodeBuilder
-import org.joda.time.LocalDate
+import org.joda.time.chrono.ISOChronology
+import org.joda.time.{DateTimeConstants, DateTimeZone, LocalDate}
 
 import scala.collection.convert.{WrapAsJava, WrapAsScala}
+import scala.collection.mutable
 
 sealed trait AggregateConverter {
   def toDate(date: Date): Date
   def toString(date: Date): String
+
+  /**
+   * Function from the local millis of a date to the index of the period the date falls in. Dates which
+   * convert to the same date share the index. Create it once per aggregation, the function doesn't
+   * look up any configuration.
+   */
+  def periodIndex: Long => Int
 }
 
 class ByDay extends AggregateConverter {
   override def toDate(date: Date): Date = date
   override def toString(date: Date): String = new LocalDate(date.getTime).toString("yyyyMMdd")
+  override def periodIndex: Long => Int = PeriodIndex.epochDay
 }
 
 class ByWeek extends AggregateConverter {
   override def toString(date: Date): String = if (date != null) new LocalDate(date.getTime).toString("yyyyww") else ""
   override def toDate(date: Date): Date = {
-    implicit val weekStart = DateUtil.fromCalendarToJodaTimeDayInWeek(EhourWebSession.getEhourConfig.getFirstDayOfWeek)
+    implicit val weekStart = ByWeek.weekStart
     DateCalculator.toWeekStart(date).toDate
   }
+  override def periodIndex: Long => Int = {
+    val weekStart = ByWeek.weekStart
+
+    // the epoch started on a thursday
+    localMillis => PeriodIndex.floorDiv(PeriodIndex.epochDay(localMillis) + DateTimeConstants.THURSDAY - weekStart, 7)
+  }
+}
+
+object ByWeek {
+  private def weekStart = DateUtil.fromCalendarToJodaTimeDayInWeek(EhourWebSession.getEhourConfig.getFirstDayOfWeek)
 }
 
 class ByMonth extends AggregateConverter {
   override def toString(date: Date): String = if (date != null) new LocalDate(date.getTime).toString("yyyyMM") else ""
   override def toDate(date: Date): Date = DateCalculator.toMonthStart(date).toDate
+  override def periodIndex: Long => Int = PeriodIndex.month
 }
 
 class ByQuarter extends AggregateConverter {
@@ -47,65 +67,225 @@ class ByQuarter extends AggregateConverter {
       ""
   }
   override def toDate(date: Date): Date = DateCalculator.toQuarterStart(date).toDate
+  override def periodIndex: Long => Int = localMillis => PeriodIndex.floorDiv(PeriodIndex.month(localMillis), 3)
 }
 
 class ByYear extends AggregateConverter {
   override def toString(date: Date): String = if (date != null) new LocalDate(date.getTime).toString("yyyy") else ""
   override def toDate(date: Date): Date = DateCalculator.toYearStart(date).toDate
+  override def periodIndex: Long => Int = PeriodIndex.year
+}
+
+/**
+ * Period calculations on local millis through the UTC chronology's fields, so no date objects are created per row
+ */
+private[detailed] object PeriodIndex {
+  private val Chronology = ISOChronology.getInstanceUTC
+
+  def localMillis(date: Date): Long = DateTimeZone.getDefault.convertUTCToLocal(date.getTime)
+
+  def epochDay(localMillis: Long): Int = floorDiv(localMillis, DateTimeConstants.MILLIS_PER_DAY).toInt
+
+  def month(localMillis: Long): Int = year(localMillis) * 12 + Chronology.monthOfYear().get(localMillis) - 1
+
+  def year(localMillis: Long): Int = Chronology.year().get(localMillis)
+
+  def floorDiv(x: Long, y: Long): Long = {
+    val q = x / y
+    if ((x % y != 0) && ((x ^ y) < 0)) q - 1 else q
+  }
+
+  def floorDiv(x: Int, y: Int): Int = floorDiv(x.toLong, y.toLong).toInt
 }
 
 object DetailedReportAggregator {
-  def aggregate(elements: ju.List[FlatReportElement], converter: AggregateConverter): ju  .List[FlatReportElement] = {
-    WrapAsJava.bufferAsJavaList(aggregate(WrapAsScala.asScalaBuffer(elements).toList, converter).toBuffer)
+  def aggregate(elements: ju.List[FlatReportElement], converter: AggregateConverter): ju.List[FlatReportElement] = {
+    val buckets = new AggregateBuckets(converter)
+
+    val iterator = elements.iterator()
+
+    while (iterator.hasNext) {
+      buckets.add(iterator.next())
+    }
+
+    WrapAsJava.bufferAsJavaList(buckets.toElements)
   }
 
   def aggregate(elements: List[FlatReportElement], converter: AggregateConverter): List[FlatReportElement] = {
-    def sum(accumulator: Map[AggregateKey, Float], xs: List[FlatReportElement]): Map[AggregateKey, Float] = {
-      if (xs.isEmpty) {
-        accumulator
-      } else {
-        val element = xs.head
-        val key = AggregateKey(element, converter)
+    val buckets = new AggregateBuckets(converter)
+
+    elements foreach buckets.add
+
+    buckets.toElements.toList
+  }
+
+  private[detailed] def toAggregatedElement(baseElement: FlatReportElement, hours: Float, converter: AggregateConverter): FlatReportElement = {
+    val clone = new FlatReportElement(baseElement)
+
+    if (baseElement.getDayDate != null)
+      clone.setDayDate(converter.toDate(baseElement.getDayDate))
+
+    clone.setTotalHours(hours)
+    clone.setTotalTurnOver(hours * (if (clone.getRate != null) clone.getRate.floatValue() else 0))
+    clone.setComment("")
+    clone
+  }
+}
+
+/**
+ * Running totals of the hours per assignment and period. The assignment id and period index are packed
+ * in a long key which is kept in an open addressing table pointing to the bucket. Per bucket only the
+ * first element and the total are kept, one element is cloned per bucket when the aggregates are requested.
+ */
+private[detailed] class AggregateBuckets(converter: AggregateConverter) {
+  import AggregateBuckets._
+
+  private val periodIndex = converter.periodIndex
+
+  // slots hold the bucket index + 1 so 0 marks an empty slot
+  private var keys = new Array[Long](InitialCapacity)
+  private var slots = new Array[Int](InitialCapacity)
+
+  private var firstElements = new Array[FlatReportElement](InitialCapacity / 2)
+  private var hours = new Array[Float](InitialCapacity / 2)
+  private var bucketCount = 0
+
+  def add(element: FlatReportElement) {
+    val bucket = findOrCreateBucket(keyOf(element), element)
+
+    hours(bucket) += element.getTotalHours.floatValue()
+  }
+
+  def size: Int = bucketCount
 
-        val v = accumulator.getOrElse(key, 0f) + element.getTotalHours.floatValue()
+  /**
+   * The aggregated elements in order of their first appearance
+   */
+  def toElements: mutable.Buffer[FlatReportElement] = {
+    val elements = new mutable.ArrayBuffer[FlatReportElement](bucketCount)
 
-        sum(accumulator + (key -> v), xs.tail)
+    for (i <- 0 until bucketCount) {
+      elements += DetailedReportAggregator.toAggregatedElement(firstElements(i), hours(i), converter)
+    }
+
+    elements
+  }
+
+  def clear() {
+    keys = new Array[Long](InitialCapacity)
+    slots = new Array[Int](InitialCapacity)
+    firstElements = new Array[FlatReportElement](InitialCapacity / 2)
+    hours = new Array[Float](InitialCapacity / 2)
+    bucketCount = 0
+  }
+
+  private def keyOf(element: FlatReportElement): Long = {
+    val assignmentId: Int = if (element.getAssignmentId == null) 0 else element.getAssignmentId
+    val date = element.getDayDate
+    val period = if (date == null) NoPeriod else periodIndex(PeriodIndex.localMillis(date))
+
+    (assignmentId.toLong << 32) | (period & 0xffffffffL)
+  }
+
+  private def findOrCreateBucket(key: Long, element: FlatReportElement): Int = {
+    val mask = slots.length - 1
+    var slot = mix(key) & mask
+
+    while (slots(slot) != 0) {
+      if (keys(slot) == key) {
+        return slots(slot) - 1
       }
+
+      slot = (slot + 1) & mask
+    }
+
+    val bucket = bucketCount
+
+    if (bucket == firstElements.length) {
+      firstElements = ju.Arrays.copyOf(firstElements, bucket * 2)
+      hours = ju.Arrays.copyOf(hours, bucket * 2)
     }
 
-    val aggregated = sum(Map[AggregateKey, Float](), elements)
+    firstElements(bucket) = element
+    bucketCount += 1
 
-    (aggregated map {
-      case (k, v) =>
-        val clone = new FlatReportElement(k.baseElement)
+    keys(slot) = key
+    slots(slot) = bucket + 1
 
-        if (k.baseElement.getDayDate != null)
-          clone.setDayDate(converter.toDate(k.baseElement.getDayDate))
+    // keep the table at most half full so probe sequences stay short
+    if (bucketCount * 2 > slots.length) {
+      rehash(slots.length * 2)
+    }
 
-        clone.setTotalHours(v)
-        clone.setTotalTurnOver(v * (if (clone.getRate != null) clone.getRate.floatValue() else 0))
-        clone.setComment("")
-        clone
-    }).toList
+    bucket
+  }
+
+  private def rehash(capacity: Int) {
+    val oldKeys = keys
+    val oldSlots = slots
+
+    keys = new Array[Long](capacity)
+    slots = new Array[Int](capacity)
+
+    val mask = capacity - 1
+
+    for (i <- oldSlots.indices if oldSlots(i) != 0) {
+      var slot = mix(oldKeys(i)) & mask
+
+      while (slots(slot) != 0) {
+        slot = (slot + 1) & mask
+      }
+
+      keys(slot) = oldKeys(i)
+      slots(slot) = oldSlots(i)
+    }
   }
 }
 
-private case class AggregateKey(aggregatedOn: String, baseElement: FlatReportElement) {
-  override def hashCode() = new HashCodeBuilder().append(aggregatedOn).append(baseElement.getAssignmentId).toHashCode
+private object AggregateBuckets {
+  private final val InitialCapacity = 64
+
+  private final val NoPeriod = Int.MinValue
 
-  override def equals(other: Any) = other match {
-    case that: AggregateKey =>
-      val id = baseElement.getAssignmentId
-      val otherId = that.baseElement.getAssignmentId
-      that.aggregatedOn.equals(aggregatedOn) && id.equals(otherId)
-    case _ => false
+  // murmur3 finalizer, spreads the packed assignment id and period over the lower bits
+  private def mix(key: Long): Int = {
+    var h = key
+    h ^= h >>> 33
+    h *= 0xff51afd7ed558ccdL
+    h ^= h >>> 33
+    h *= 0xc4ceb9fe1a85ec53L
+    h ^= h >>> 33
+    h.toInt
   }
 }
 
-private object AggregateKey {
-  def apply(e: FlatReportElement, converter: AggregateConverter): AggregateKey = {
-    val date = e.getDayDate
+/**
+ * Collects streamed report elements in columns. When a converter is given the elements are aggregated on arrival,
+ * only the first element and the running total of each aggregate are kept.
+ */
+class DetailedReportCollector(converter: Option[AggregateConverter]) extends ReportElementSink[FlatReportElement] {
+  def this() = this(None)
 
-    AggregateKey(converter.toString(date), e)
+  def this(converter: AggregateConverter) = this(Option(converter))
+
+  private val columns = new FlatReportColumns()
+  private val buckets = converter.map(new AggregateBuckets(_))
+
+  override def accept(element: FlatReportElement) {
+    buckets match {
+      case Some(b) => b.add(element)
+      case None => columns.add(element)
+    }
+  }
+
+  def getColumns: FlatReportColumns = {
+    for (b <- buckets) {
+      b.toElements foreach columns.add
+      b.clear()
+    }
+
+    columns
   }
+
+  def getElements: ju.List[FlatReportElement] = getColumns.asList()
 }
@@ -4,11 +4,13 @@ import net.rrm.ehour.data.DateRange
 import net.rrm.ehour.report.criteria.AggregateBy
 import net.rrm.ehour.report.reports.ReportData
 import net.rrm.ehour.report.reports.element.FlatReportElement
-import net.rrm.ehour.ui.common.chart.{DateFloatValue, SparseDateSeries}
+import net.rrm.ehour.ui.common.chart.{DateFloatValue, DatePeriod, SparseDateSeries}
 import org.joda.time.DateTime
 
 import scala.collection.Seq
 import scala.collection.convert.WrapAsScala
+import scala.collection.mutable
+import scala.collection.mutable.ArrayBuffer
 
 object DetailedReportChartGenerator {
   def generateHourBasedDetailedChartData(reportData: ReportData): List[SparseDateSeries] = {
@@ -24,54 +26,43 @@ object DetailedReportChartGenerator {
   }
 
   private def buildSeries(reportData: ReportData, reportRange: DateRange, f: FlatReportElement => Float) = {
-    val elements = WrapAsScala.asScalaBuffer(reportData.getReportElements).toSeq.asInstanceOf[Seq[FlatReportElement]]
-
-    val (dateValueMap, customerNameMap) = buildCustomerAndValueMap(elements, f)
-
-    type f = DateTime => DateTime
-
-    val (dateIncreaseMethod: (DateTime => DateTime), converter: AggregateConverter) = reportData.getCriteria.getAggregateBy match {
-      case AggregateBy.WEEK=> ((d: DateTime) => d.plusWeeks(1), new ByWeek)
-      case AggregateBy.MONTH => ((d: DateTime) => d.plusMonths(1), new ByMonth)
-      case AggregateBy.QUARTER => ((d: DateTime) => d.plusMonths(3), new ByQuarter)
-      case AggregateBy.YEAR=> ((d: DateTime) => d.plusYears(1), new ByYear)
-      case _ => ((d: DateTime) => d.plusDays(1), new ByDay)
+    val elements = WrapAsScala.asScalaBuffer(reportData.getReportElements).asInstanceOf[Seq[FlatReportElement]]
+
+    val (period: DatePeriod, converter: AggregateConverter) = reportData.getCriteria.getAggregateBy match {
+      case AggregateBy.WEEK => (DatePeriod.Week, new ByWeek)
+      case AggregateBy.MONTH => (DatePeriod.Month, new ByMonth)
+      case AggregateBy.QUARTER => (DatePeriod.Quarter, new ByQuarter)
+      case AggregateBy.YEAR => (DatePeriod.Year, new ByYear)
+      case _ => (DatePeriod.Day, new ByDay)
     }
 
-    (for (category <- dateValueMap.keySet) yield {
-      val values = dateValueMap.get(category).get
+    val dateStart = new DateTime(converter.toDate(reportRange.getDateStart))
+    val dateEnd = new DateTime(converter.toDate(reportRange.getDateEnd))
 
-      SparseDateSeries(name = customerNameMap.getOrElse(category, ""),
+    (for ((_, (name, values)) <- groupByCustomer(elements, f)) yield {
+      SparseDateSeries(name = name,
                        data = values,
-                       dateStart = new DateTime(converter.toDate(reportRange.getDateStart)),
-                       dateEnd = new DateTime(converter.toDate(reportRange.getDateEnd)),
+                       dateStart = dateStart,
+                       dateEnd = dateEnd,
                        yAxis = None,
-                       dateIncrease = dateIncreaseMethod)
+                       period = period)
     }).toList
   }
 
-  private def buildCustomerAndValueMap(elements: Seq[FlatReportElement], f: FlatReportElement => Float) = {
-
-    type NameMap = Map[Int, String]
-    type DataMap = Map[Int, List[DateFloatValue]]
-
-    def add(es: Seq[FlatReportElement], customerIdToNameMap: NameMap = Map(), dateValueMap: DataMap = Map()): (DataMap, NameMap) = {
-      if (es.isEmpty) {
-        (dateValueMap, customerIdToNameMap)
-      } else {
-        val element = es.head
-        val customerId = element.getCustomerId.toInt
-        
-        val updatedCustomerIdToNameMap = customerIdToNameMap + (customerId -> element.getCustomerName)
+  /**
+   * Single pass over the elements, collecting the name and the values of each customer in order of appearance
+   */
+  private def groupByCustomer(elements: Seq[FlatReportElement], f: FlatReportElement => Float) = {
+    val customers = mutable.LinkedHashMap[Int, (String, ArrayBuffer[DateFloatValue])]()
 
-        val dateValue = DateFloatValue(new DateTime(element.getDayDate), if (f == null) 0 else f(element))
+    for (element <- elements) {
+      val customerId = element.getCustomerId.toInt
 
-        val d = (dateValue :: dateValueMap.getOrElse(customerId, List()).reverse).reverse
+      val (_, values) = customers.getOrElseUpdate(customerId, (element.getCustomerName, ArrayBuffer[DateFloatValue]()))
 
-        add(es.tail, updatedCustomerIdToNameMap, dateValueMap + (customerId -> d))
-      }
+      values += DateFloatValue(new DateTime(element.getDayDate), if (f == null) 0 else f(element))
     }
 
-    add(elements)
+    customers
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package net.rrm.ehour.ui.report.export
+
+import java.io.Writer
+import java.text.SimpleDateFormat
+import java.util.Date
+
+import com.google.gson.stream.JsonWriter
+
+/**
+ * Text format of a report export, rows are written one at a time so nothing but the current row is held
+ */
+sealed abstract class ExportFormat(val name: String, val contentType: String) {
+  def createWriter(out: Writer): ExportWriter
+}
+
+object ExportFormat {
+  case object Csv extends ExportFormat("csv", "text/csv; charset=UTF-8") {
+    override def createWriter(out: Writer) = new SeparatedValuesWriter(out, ',')
+  }
+
+  case object Tsv extends ExportFormat("tsv", "text/tab-separated-values; charset=UTF-8") {
+    override def createWriter(out: Writer) = new SeparatedValuesWriter(out, '\t')
+  }
+
+  case object NdJson extends ExportFormat("ndjson", "application/x-ndjson; charset=UTF-8") {
+    override def createWriter(out: Writer) = new NdJsonWriter(out)
+  }
+
+  val All = List(Csv, Tsv, NdJson)
+
+  def forName(name: String): Option[ExportFormat] = All.find(_.name.equalsIgnoreCase(name))
+}
+
+trait ExportWriter {
+  def header(columns: Seq[String])
+
+  def row(values: Seq[Any])
+}
+
+/**
+ * Values are quoted when they hold the separator, a quote or a line break (RFC 4180)
+ */
+class SeparatedValuesWriter(out: Writer, separator: Char) extends ExportWriter {
+  private val dateFormat = new SimpleDateFormat(ExportWriter.DatePattern)
+
+  override def header(columns: Seq[String]) {
+    row(columns)
+  }
+
+  override def row(values: Seq[Any]) {
+    var first = true
+
+    for (value <- values) {
+      if (!first) out.write(separator)
+      first = false
+
+      writeValue(value)
+    }
+
+    out.write("\r\n")
+  }
+
+  private def writeValue(value: Any) {
+    val text = value match {
+      case null => ""
+      case date: Date => dateFormat.format(date)
+      case number: Number => ExportWriter.formatNumber(number)
+      case other => other.toString
+    }
+
+    if (text.exists(c => c == separator || c == '"' || c == '\n' || c == '\r')) {
+      out.write('"')
+      out.write(text.replace("\"", "\"\""))
+      out.write('"')
+    } else {
+      out.write(text)
+    }
+  }
+}
+
+/**
+ * One JSON object per line keyed on the header's column names
+ */
+class NdJsonWriter(out: Writer) extends ExportWriter {
+  private val dateFormat = new SimpleDateFormat(ExportWriter.DatePattern)
+
+  private var columns: Seq[String] = Nil
+
+  override def header(columns: Seq[String]) {
+    this.columns = columns
+  }
+
+  override def row(values: Seq[Any]) {
+    // the json writer writes through, it's only used for the escaping
+    val json = new JsonWriter(out)
+    json.setSerializeNulls(true)
+
+    json.beginObject()
+
+    for ((column, value) <- columns.zip(values)) {
+      json.name(column)
+
+      value match {
+        case null => json.nullValue()
+        case date: Date => json.value(dateFormat.format(date))
+        case bool: java.lang.Boolean => json.value(bool.booleanValue())
+        case number: Number => json.value(number)
+        case other => json.value(other.toString)
+      }
+    }
+
+    json.endObject()
+
+    out.write('\n')
+  }
+}
+
+object ExportWriter {
+  final val DatePattern = "yyyy-MM-dd"
+
+  /**
+   * Plain notation, floats would otherwise end up in scientific notation from 10^7
+   */
+  def formatNumber(number: Number): String = number match {
+    case f: java.lang.Float if !f.isNaN && !f.isInfinite => new java.math.BigDecimal(f.toString).toPlainString
+    case d: java.lang.Double if !d.isNaN && !d.isInfinite => new java.math.BigDecimal(d.toString).toPlainString
+    case other => other.toString
+  }
+}
@@ -0,0 +1,221 @@
+package net.rrm.ehour.ui.report.export
+
+import java.io.{BufferedWriter, OutputStream, OutputStreamWriter}
+import java.util.zip.GZIPOutputStream
+import javax.servlet.http.HttpServletResponse
+
+import net.rrm.ehour.domain.UserRole
+import net.rrm.ehour.report.criteria.{AvailableCriteria, ReportCriteria, ReportCriteriaUpdateType, UserSelectedCriteria}
+import net.rrm.ehour.report.reports.element.{AssignmentAggregateReportElement, FlatReportElement, ReportElementSink}
+import net.rrm.ehour.report.service.{AggregateReportService, DetailedReportService, ReportCriteriaService}
+import net.rrm.ehour.ui.common.session.EhourWebSession
+import net.rrm.ehour.ui.common.util.WebUtils
+import net.rrm.ehour.util.DateUtil
+import org.apache.wicket.authroles.authorization.strategies.role.Roles
+import org.apache.wicket.request.http.WebRequest
+import org.apache.wicket.request.resource.AbstractResource.{ResourceResponse, WriteCallback}
+import org.apache.wicket.request.resource.{AbstractResource, ContentDisposition, IResource}
+import org.apache.wicket.spring.injection.annot.SpringBean
+
+import scala.collection.JavaConversions._
+
+/**
+ * Exports the detailed or aggregate report of the criteria selected in the session as CSV, TSV or NDJSON.
+ * Mounted on /rest/report/export/{report}/{format}, e.g. /rest/report/export/detailed/csv.
+ *
+ * The response has no content length so it's sent chunked, rows are written as they come off the report query
+ * and the first bytes go out before the query is done. Gzipped when the client accepts it.
+ */
+class ReportExportResource extends AbstractResource {
+  import ReportExportResource._
+
+  @SpringBean
+  var detailedReportService: DetailedReportService = _
+
+  @SpringBean
+  var aggregateReportService: AggregateReportService = _
+
+  @SpringBean
+  var reportCriteriaService: ReportCriteriaService = _
+
+  override def newResourceResponse(attributes: IResource.Attributes): ResourceResponse = {
+    val response = new ResourceResponse
+
+    val parameters = attributes.getParameters
+    val report = parameters.get("report").toString("")
+    val format = ExportFormat.forName(parameters.get("format").toString(""))
+
+    if (!isAuthorized) {
+      response.setError(HttpServletResponse.SC_FORBIDDEN)
+    } else if (!Reports.contains(report) || format.isEmpty) {
+      response.setError(HttpServletResponse.SC_NOT_FOUND, s"unknown report export $report/${parameters.get("format")}")
+    } else {
+      // criteria are synced up front, rows are only fetched once the response is written
+      val criteria = reportCriteria
+      val exportFormat = format.get
+      val gzip = acceptsGzip(attributes)
+
+      response.setContentType(exportFormat.contentType)
+      response.setFileName(s"$report.${exportFormat.name}")
+      response.setContentDisposition(ContentDisposition.ATTACHMENT)
+      response.disableCaching()
+
+      if (gzip) {
+        response.getHeaders.addHeader("Content-Encoding", "gzip")
+        response.getHeaders.addHeader("Vary", "Accept-Encoding")
+      }
+
+      response.setWriteCallback(new WriteCallback {
+        override def writeData(attributes: IResource.Attributes) {
+          val outputStream = attributes.getResponse.getOutputStream
+
+          export(report, criteria, exportFormat, if (gzip) new GZIPOutputStream(outputStream, BufferSize, true) else outputStream)
+        }
+      })
+    }
+
+    response
+  }
+
+  private def export(report: String, criteria: ReportCriteria, format: ExportFormat, out: OutputStream) {
+    val writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), BufferSize)
+    val exportWriter = format.createWriter(writer)
+
+    report match {
+      case Detailed =>
+        exportWriter.header(DetailedColumns.map(_._1))
+
+        // push the header out before the query runs so the client isn't left waiting
+        writer.flush()
+
+        detailedService.streamDetailedReportData(criteria, new ReportElementSink[FlatReportElement] {
+          override def accept(element: FlatReportElement) {
+            exportWriter.row(DetailedColumns.map(_._2(element)))
+          }
+        })
+      case Aggregate =>
+        exportWriter.header(AggregateColumns.map(_._1))
+        writer.flush()
+
+        // aggregated per assignment by the database, there's one row per assignment at most
+        val elements = aggregateService.getAggregateReportData(criteria).getReportElements
+
+        for (element <- elements) {
+          exportWriter.row(AggregateColumns.map(_._2(element.asInstanceOf[AssignmentAggregateReportElement])))
+        }
+    }
+
+    writer.flush()
+
+    out match {
+      case gzip: GZIPOutputStream => gzip.finish()
+      case _ =>
+    }
+
+    out.flush()
+  }
+
+  private def isAuthorized: Boolean = {
+    val session = EhourWebSession.getSession
+    val roles = session.getRoles
+
+    EhourWebSession.getUser != null && roles != null && roles.hasAnyRole(ReportRoles)
+  }
+
+  /**
+   * The same criteria as the report page, including the restrictions for PMs and individual users
+   */
+  private def reportCriteria: ReportCriteria = {
+    val session = EhourWebSession.getSession
+
+    val userSelectedCriteria = Option(session.getUserSelectedCriteria) match {
+      case Some(selected) => selected
+      case None =>
+        val initial = defaultCriteria(session)
+        session.setUserSelectedCriteria(initial)
+        initial
+    }
+
+    criteriaService.syncUserReportCriteria(new ReportCriteria(new AvailableCriteria(), userSelectedCriteria), ReportCriteriaUpdateType.UPDATE_ALL)
+  }
+
+  private def defaultCriteria(session: EhourWebSession): UserSelectedCriteria = {
+    val criteria = new UserSelectedCriteria()
+    criteria.setReportRange(DateUtil.getDateRangeForMonth(DateUtil.getCalendar(EhourWebSession.getEhourConfig)))
+
+    if (session.isReporter) {
+      criteria.setReportTypeToGlobal()
+    } else if (session.isProjectManager) {
+      criteria.setReportTypeToPM(EhourWebSession.getUser)
+    } else {
+      criteria.setReportTypeToIndividualUser(EhourWebSession.getUser)
+    }
+
+    criteria
+  }
+
+  private def acceptsGzip(attributes: IResource.Attributes): Boolean = attributes.getRequest match {
+    case request: WebRequest =>
+      val acceptEncoding = request.getHeader("Accept-Encoding")
+      acceptEncoding != null && acceptEncoding.toLowerCase.contains("gzip")
+    case _ => false
+  }
+
+  private def detailedService = {
+    if (detailedReportService == null) WebUtils.springInjection(this)
+
+    detailedReportService
+  }
+
+  private def aggregateService = {
+    if (aggregateReportService == null) WebUtils.springInjection(this)
+
+    aggregateReportService
+  }
+
+  private def criteriaService = {
+    if (reportCriteriaService == null) WebUtils.springInjection(this)
+
+    reportCriteriaService
+  }
+}
+
+object ReportExportResource {
+  final val Detailed = "detailed"
+  final val Aggregate = "aggregate"
+
+  val Reports = Set(Detailed, Aggregate)
+
+  private final val BufferSize = 8192
+
+  private final val ReportRoles = new Roles(Array(UserRole.ROLE_USER, UserRole.ROLE_REPORT, UserRole.ROLE_PROJECTMANAGER))
+
+  val DetailedColumns: Seq[(String, FlatReportElement => Any)] = List(
+    ("date", _.getDayDate),
+    ("customerCode", _.getCustomerCode),
+    ("customerName", _.getCustomerName),
+    ("projectCode", _.getProjectCode),
+    ("projectName", _.getProjectName),
+    ("userLastName", _.getUserLastName),
+    ("userFirstName", _.getUserFirstName),
+    ("role", _.getRole),
+    ("rate", _.getRate),
+    ("hours", _.getTotalHours),
+    ("turnover", _.getTotalTurnOver),
+    ("comment", _.getComment),
+    ("locked", e => if (e.getLockableDate == null) null else e.getLockableDate.isLocked)
+  )
+
+  val AggregateColumns: Seq[(String, AssignmentAggregateReportElement => Any)] = List(
+    ("customerCode", _.getProjectAssignment.getProject.getCustomer.getCode),
+    ("customerName", _.getProjectAssignment.getProject.getCustomer.getName),
+    ("projectCode", _.getProjectAssignment.getProject.getProjectCode),
+    ("projectName", _.getProjectAssignment.getProject.getName),
+    ("userLastName", _.getProjectAssignment.getUser.getLastName),
+    ("userFirstName", _.getProjectAssignment.getUser.getFirstName),
+    ("role", _.getProjectAssignment.getRole),
+    ("rate", _.getProjectAssignment.getHourlyRate),
+    ("hours", _.getHours),
+    ("turnover", _.getTurnOver)
+  )
+}
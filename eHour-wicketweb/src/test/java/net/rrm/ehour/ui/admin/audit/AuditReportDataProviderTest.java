@@ -0,0 +1,154 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.ui.admin.audit;
+
+import com.google.common.collect.Lists;
+import net.rrm.ehour.data.AuditKey;
+import net.rrm.ehour.data.AuditReportRequest;
+import net.rrm.ehour.domain.Audit;
+import net.rrm.ehour.ui.common.BaseSpringWebAppTester;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuditReportDataProviderTest extends BaseSpringWebAppTester {
+    // the audit table, in (date, auditId) order
+    private List<Audit> audits;
+
+    private AuditReportRequest request;
+
+    @Before
+    public void before() throws Exception {
+        audits = new ArrayList<>();
+        request = new AuditReportRequest();
+
+        for (int i = 0; i < 5; i++) {
+            writeAudit();
+        }
+
+        when(getAuditService().findLastAuditKey(any(AuditReportRequest.class))).thenAnswer(new Answer<AuditKey>() {
+            @Override
+            public AuditKey answer(InvocationOnMock invocation) throws Throwable {
+                return AuditKey.of(audits.get(audits.size() - 1));
+            }
+        });
+
+        when(getAuditService().getAuditCount(any(AuditReportRequest.class), any(AuditKey.class))).thenAnswer(new Answer<Number>() {
+            @Override
+            public Number answer(InvocationOnMock invocation) throws Throwable {
+                return find(null, (AuditKey) invocation.getArguments()[1], false).size();
+            }
+        });
+
+        when(getAuditService().findAudits(any(AuditReportRequest.class), any(AuditKey.class), any(AuditKey.class), anyInt(), anyInt(), anyBoolean())).thenAnswer(new Answer<List<Audit>>() {
+            @Override
+            public List<Audit> answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                List<Audit> found = find((AuditKey) args[1], (AuditKey) args[2], (Boolean) args[5]);
+
+                int skip = (Integer) args[3];
+                int max = (Integer) args[4];
+
+                return new ArrayList<>(found.subList(Math.min(skip, found.size()), Math.min(skip + max, found.size())));
+            }
+        });
+    }
+
+    @Test
+    public void shouldKeepThePagesOfTheCountWhenAuditsAreWrittenBetweenPages() {
+        AuditReportDataProvider provider = new AuditReportDataProvider(request);
+
+        assertEquals(5, provider.size());
+        assertEquals(Lists.newArrayList(1, 2), ids(provider.iterator(0, 2)));
+
+        writeAudit();
+        writeAudit();
+
+        assertEquals(5, provider.size());
+        // closer to the end than to the last page read, read backwards from the last audit at the time of counting
+        assertEquals(Lists.newArrayList(4, 5), ids(provider.iterator(3, 2)));
+        // read forwards from the first page
+        assertEquals(Lists.newArrayList(3, 4, 5), ids(provider.iterator(2, 5)));
+
+        verify(getAuditService(), times(1)).findLastAuditKey(request);
+    }
+
+    @Test
+    public void shouldShowTheNewAuditsAfterAReset() {
+        AuditReportDataProvider provider = new AuditReportDataProvider(request);
+        provider.size();
+
+        writeAudit();
+        provider.reset();
+
+        assertEquals(6, provider.size());
+        assertEquals(Lists.newArrayList(5, 6), ids(provider.iterator(4, 2)));
+    }
+
+    private void writeAudit() {
+        Audit audit = new Audit().setDate(new Date(audits.size() * 1000L));
+        audit.setAuditId(audits.size() + 1);
+
+        audits.add(audit);
+    }
+
+    private List<Audit> find(AuditKey from, AuditKey upTo, boolean reversed) {
+        List<Audit> found = new ArrayList<>();
+
+        for (Audit audit : audits) {
+            int auditId = audit.getAuditId();
+
+            boolean pastFrom = from == null || (reversed ? auditId < from.getAuditId() : auditId > from.getAuditId());
+            boolean beforeUpTo = upTo == null || auditId <= upTo.getAuditId();
+
+            if (pastFrom && beforeUpTo) {
+                found.add(audit);
+            }
+        }
+
+        if (reversed) {
+            Collections.reverse(found);
+        }
+
+        return found;
+    }
+
+    private static List<Integer> ids(Iterator<Audit> iterator) {
+        List<Integer> ids = new ArrayList<>();
+
+        while (iterator.hasNext()) {
+            ids.add(iterator.next().getAuditId());
+        }
+
+        return ids;
+    }
+}
@@ -17,6 +17,7 @@
 package net.rrm.ehour.ui.admin.audit;
 
 import com.google.common.collect.Lists;
+import net.rrm.ehour.data.AuditKey;
 import net.rrm.ehour.data.AuditReportRequest;
 import net.rrm.ehour.domain.Audit;
 import net.rrm.ehour.domain.UserObjectMother;
@@ -27,16 +28,19 @@ import org.junit.Test;
 import java.util.Date;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.when;
 
 public class AuditReportPageTest extends BaseSpringWebAppTester
 {
 	@Before
 	public void before() throws Exception {
-        when(getAuditService().getAuditCount(any(AuditReportRequest.class))).thenReturn(5);
-
         Audit audit = new Audit(UserObjectMother.createUser(), new Date());
-        when(getAuditService().findAudits(any(AuditReportRequest.class), any(Integer.class), any(Integer.class))).thenReturn(Lists.newArrayList(audit));
+
+        when(getAuditService().findLastAuditKey(any(AuditReportRequest.class))).thenReturn(AuditKey.of(audit));
+        when(getAuditService().getAuditCount(any(AuditReportRequest.class), any(AuditKey.class))).thenReturn(5);
+        when(getAuditService().findAudits(any(AuditReportRequest.class), any(AuditKey.class), any(AuditKey.class), anyInt(), anyInt(), anyBoolean())).thenReturn(Lists.newArrayList(audit));
     }
 
     @Test
@@ -24,6 +24,8 @@ import net.rrm.ehour.mail.service.MailMan;
 import net.rrm.ehour.sysinfo.SystemInfo;
 import net.rrm.ehour.sysinfo.SystemInfoService;
 import net.rrm.ehour.ui.common.BaseSpringWebAppTester;
+import net.rrm.ehour.ui.report.cache.ReportCacheService;
+import net.rrm.ehour.ui.report.cache.ReportCacheStatistics;
 import net.rrm.ehour.user.service.UserService;
 import org.junit.Before;
 import org.junit.runner.RunWith;
@@ -66,6 +68,10 @@ public abstract class AbstractMainConfigTest extends BaseSpringWebAppTester impl
         getMockContext().putBean(infoService);
         when(infoService.info()).thenReturn(new SystemInfo("a", "b", "c"));
 
+        ReportCacheService reportCacheService = mock(ReportCacheService.class);
+        getMockContext().putBean(reportCacheService);
+        when(reportCacheService.statistics()).thenReturn(new ReportCacheStatistics(0, 0, 0, 0, 0, 0, 0, 0));
+
         getMockContext().putBean("mailMan", mailMan);
         getMockContext().putBean("userService", userService);
         getMockContext().putBean("configurationPersistence", iPersistConfiguration);
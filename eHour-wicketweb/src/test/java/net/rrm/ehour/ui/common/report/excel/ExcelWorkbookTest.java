@@ -0,0 +1,59 @@
+package net.rrm.ehour.ui.common.report.excel;
+
+import net.rrm.ehour.ui.common.BaseSpringWebAppTester;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExcelWorkbookTest extends BaseSpringWebAppTester {
+    @Test
+    public void should_write_more_rows_than_the_streaming_window() throws IOException {
+        ExcelWorkbook workbook = new ExcelWorkbook(10);
+        Sheet sheet = workbook.createSheet("rows");
+
+        for (int rowNumber = 0; rowNumber < 1000; rowNumber++) {
+            Row row = sheet.createRow(rowNumber);
+            CellFactory.createCell(row, 0, "row " + rowNumber, workbook);
+            CellFactory.createCell(row, 1, rowNumber, workbook, ExcelStyle.DIGIT);
+        }
+
+        XSSFSheet writtenSheet = writeAndRead(workbook).getSheetAt(0);
+
+        assertEquals(999, writtenSheet.getLastRowNum());
+        assertEquals("row 999", writtenSheet.getRow(999).getCell(0).getStringCellValue());
+        assertEquals(999, writtenSheet.getRow(999).getCell(1).getNumericCellValue(), 0);
+    }
+
+    @Test
+    public void should_size_auto_sized_columns_to_their_widest_cell() throws IOException {
+        ExcelWorkbook workbook = new ExcelWorkbook(10);
+        Sheet sheet = workbook.createSheet("widths");
+        workbook.autoSizeColumn(sheet, 1);
+
+        for (int rowNumber = 0; rowNumber < 100; rowNumber++) {
+            Row row = sheet.createRow(rowNumber);
+            CellFactory.createCell(row, 0, "a value wider than the default width", workbook);
+            CellFactory.createCell(row, 1, rowNumber == 50 ? "the widest value" : "short", workbook);
+        }
+
+        XSSFSheet writtenSheet = writeAndRead(workbook).getSheetAt(0);
+
+        assertEquals(("the widest value".length() + 2) * 256, writtenSheet.getColumnWidth(1));
+        assertEquals(writtenSheet.getDefaultColumnWidth() * 256, writtenSheet.getColumnWidth(0));
+    }
+
+    private XSSFWorkbook writeAndRead(ExcelWorkbook workbook) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.write(stream);
+
+        return new XSSFWorkbook(new ByteArrayInputStream(stream.toByteArray()));
+    }
+}
@@ -21,6 +21,9 @@ import net.rrm.ehour.report.criteria.ReportCriteria;
 import net.rrm.ehour.report.criteria.UserSelectedCriteria;
 import net.rrm.ehour.report.reports.ReportData;
 import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -140,6 +143,27 @@ public class DetailedReportDataObjectMother {
         return new ReportData(DetailedReportDataObjectMother.getFlatReportElements(), date, new UserSelectedCriteria());
     }
 
+    /**
+     * Answer for DetailedReportService.streamDetailedReportData, streams the flat report elements into the sink
+     */
+    public static Answer<ReportData> streamFlatReportData() {
+        return new Answer<ReportData>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public ReportData answer(InvocationOnMock invocation) throws Throwable {
+                ReportElementSink<FlatReportElement> sink = (ReportElementSink<FlatReportElement>) invocation.getArguments()[1];
+
+                ReportData reportData = getFlatReportData();
+
+                for (FlatReportElement element : getFlatReportElements()) {
+                    sink.accept(element);
+                }
+
+                return new ReportData(new ArrayList<FlatReportElement>(), reportData.getReportRange(), reportData.getCriteria());
+            }
+        };
+    }
+
     public static ReportCriteria getReportCriteria() {
         UserSelectedCriteria userSelectedCriteria = new UserSelectedCriteria();
         userSelectedCriteria.setReportRange(new DateRange(new Date(), new Date()));
@@ -1,6 +1,7 @@
 package net.rrm.ehour.ui.report.detailed;
 
 import net.rrm.ehour.report.criteria.ReportCriteria;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
 import net.rrm.ehour.report.service.DetailedReportService;
 import net.rrm.ehour.ui.common.BaseSpringWebAppTester;
 import net.rrm.ehour.ui.common.wicket.Model;
@@ -12,6 +13,8 @@ import org.mockito.MockitoAnnotations;
 import java.io.ByteArrayOutputStream;
 
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
 public class DetailedReportExcelTest extends BaseSpringWebAppTester {
@@ -26,10 +29,11 @@ public class DetailedReportExcelTest extends BaseSpringWebAppTester {
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     public void should_generate() throws Exception {
         ReportCriteria criteria = DetailedReportDataObjectMother.getReportCriteria();
 
-        when(detailedReportService.getDetailedReportData(criteria)).thenReturn(DetailedReportDataObjectMother.getFlatReportData());
+        when(detailedReportService.streamDetailedReportData(eq(criteria), any(ReportElementSink.class))).thenAnswer(DetailedReportDataObjectMother.streamFlatReportData());
 
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         new DetailedReportExcel(new Model<ReportCriteria>(criteria)).write(stream);
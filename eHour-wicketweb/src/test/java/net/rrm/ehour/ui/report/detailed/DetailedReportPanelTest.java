@@ -17,6 +17,7 @@
 package net.rrm.ehour.ui.report.detailed;
 
 import net.rrm.ehour.report.criteria.ReportCriteria;
+import net.rrm.ehour.report.reports.element.ReportElementSink;
 import net.rrm.ehour.report.service.DetailedReportService;
 import net.rrm.ehour.ui.common.BaseSpringWebAppTester;
 import net.rrm.ehour.ui.report.cache.ReportCacheService;
@@ -45,12 +46,10 @@ public class DetailedReportPanelTest extends BaseSpringWebAppTester {
     }
 
     @Test
-    @SuppressWarnings("serial")
+    @SuppressWarnings({"serial", "unchecked"})
     public void shouldRenderPanel() {
-        when(detailedReportService.getDetailedReportData(any(ReportCriteria.class)))
-                .thenReturn(DetailedReportDataObjectMother.getFlatReportData());
-        when(detailedReportService.getDetailedReportData(any(ReportCriteria.class)))
-                .thenReturn(DetailedReportDataObjectMother.getFlatReportData());
+        when(detailedReportService.streamDetailedReportData(any(ReportCriteria.class), any(ReportElementSink.class)))
+                .thenAnswer(DetailedReportDataObjectMother.streamFlatReportData());
 
         DetailedReportModel detailedReport = new DetailedReportModel(DetailedReportDataObjectMother.getReportCriteria());
 
@@ -0,0 +1,74 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package net.rrm.ehour.ui.report.model;
+
+import net.rrm.ehour.report.reports.ReportData;
+import net.rrm.ehour.report.reports.element.FlatReportElement;
+import net.rrm.ehour.ui.common.report.DetailedReportConfig;
+import net.rrm.ehour.ui.report.detailed.DetailedReportDataObjectMother;
+import net.rrm.ehour.ui.report.detailed.DetailedReportModel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReportBuilderTest {
+    private ReportNodeFactory<FlatReportElement> nodeFactory;
+
+    @Before
+    public void set_up() {
+        nodeFactory = new DetailedReportModel(DetailedReportDataObjectMother.getReportCriteria()).getReportNodeFactory();
+    }
+
+    @Test
+    public void should_group_elements_on_root_node_in_order_of_arrival() {
+        ReportData reportData = DetailedReportDataObjectMother.getFlatReportData();
+
+        List<ReportNode> rootNodes = new ReportBuilder().createReport(reportData, nodeFactory);
+
+        assertEquals(4, rootNodes.size());
+        assertEquals("20071231", rootNodes.get(0).getId());
+        assertEquals("20071228", rootNodes.get(3).getId());
+    }
+
+    @Test
+    public void should_derive_totals_from_child_nodes() {
+        ReportData reportData = DetailedReportDataObjectMother.getFlatReportData();
+
+        List<ReportNode> rootNodes = new ReportBuilder().createReport(reportData, nodeFactory);
+
+        assertEquals(16.25f, rootNodes.get(3).getHours().floatValue(), 0.001f);
+        assertEquals(36f, rootNodes.get(3).getTurnover().floatValue(), 0.001f);
+    }
+
+    @Test
+    public void should_create_leaf_for_every_element() {
+        ReportData reportData = DetailedReportDataObjectMother.getFlatReportData();
+
+        List<ReportNode> rootNodes = new ReportBuilder().createReport(reportData, nodeFactory);
+
+        int rows = 0;
+
+        for (ReportNode rootNode : rootNodes) {
+            rows += rootNode.getNodeMatrix(DetailedReportConfig.DETAILED_REPORT_BY_DAY.getReportColumns().length).size();
+        }
+
+        assertEquals(5, rows);
+    }
+}
@@ -5,6 +5,7 @@ import net.rrm.ehour.config.EhourConfigStub
 import net.rrm.ehour.config.service.{ConfigurationService, IPersistConfiguration}
 import net.rrm.ehour.mail.service.MailMan
 import net.rrm.ehour.sysinfo.{SystemInfo, SystemInfoService}
+import net.rrm.ehour.ui.report.cache.{ReportCacheService, ReportCacheStatistics}
 import net.rrm.ehour.user.service.UserService
 import org.mockito.Mockito._
 
@@ -15,10 +16,12 @@ class MainConfigPageSpec extends AbstractSpringWebAppSpec {
     mockService[UserService]
     mockService[IPersistConfiguration]
     mockService[MailMan]
+    val reportCacheService = mockService[ReportCacheService]
 
     "render" in {
       when(sysInfoService.info).thenReturn(SystemInfo("mysql", "..", "jdbc.Driver"))
       when(configService.getConfiguration).thenReturn(new EhourConfigStub)
+      when(reportCacheService.statistics).thenReturn(ReportCacheStatistics(0, 0, 0, 0, 0, 0, 0, 0))
 
       tester.startPage(classOf[MainConfigPage])
       tester.assertNoErrorMessage()
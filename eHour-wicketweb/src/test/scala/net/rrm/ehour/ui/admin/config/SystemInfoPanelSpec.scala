@@ -2,6 +2,8 @@ package net.rrm.ehour.ui.admin.config
 
 import net.rrm.ehour.AbstractSpringWebAppSpec
 import net.rrm.ehour.sysinfo.{SystemInfo, SystemInfoService}
+import net.rrm.ehour.ui.report.cache.{ReportCacheService, ReportCacheStatistics}
+import org.apache.wicket.markup.html.basic.Label
 import org.mockito.Mockito._
 
 
@@ -10,11 +12,17 @@ class SystemInfoPanelSpec extends AbstractSpringWebAppSpec {
     val sysInfoService = mock[SystemInfoService]
     springTester.getMockContext.putBean(sysInfoService)
 
+    val reportCacheService = mock[ReportCacheService]
+    springTester.getMockContext.putBean(reportCacheService)
+
     "render" in {
       when(sysInfoService.info).thenReturn(SystemInfo("mysql", "..", "jdbc.Driver"))
+      when(reportCacheService.statistics).thenReturn(ReportCacheStatistics(10, 2, 1, 0, 0, 3, 4096, 8192))
 
       tester.startComponentInPage(new SystemInfoPanel("id"))
       tester.assertNoErrorMessage()
+      tester.assertComponent("id:report.cache", classOf[Label])
+      tester.assertComponent("id:report.cache.size", classOf[Label])
     }
   }
 
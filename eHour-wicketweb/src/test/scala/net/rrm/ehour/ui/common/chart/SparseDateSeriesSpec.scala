@@ -0,0 +1,65 @@
+package net.rrm.ehour.ui.common.chart
+
+import net.rrm.ehour.AbstractSpec
+import org.joda.time.{DateTimeConstants, LocalDate}
+
+class SparseDateSeriesSpec extends AbstractSpec {
+  val start = new LocalDate(2014, DateTimeConstants.JANUARY, 1).toDateTimeAtStartOfDay
+
+  "Sparse Date Series" should {
+    "pad the days without values" in {
+      val series = SparseDateSeries(data = List(DateFloatValue(start, 1), DateFloatValue(start.plusDays(2), 2)),
+                                    dateStart = start,
+                                    dateEnd = start.plusDays(3))
+
+      series.preProcess().data should be(List(1, 0, 2, 0))
+    }
+
+    "sum the values of the same day" in {
+      val series = SparseDateSeries(data = List(DateFloatValue(start.plusDays(1), 4), DateFloatValue(start, 1), DateFloatValue(start.plusDays(1), 2)),
+                                    dateStart = start,
+                                    dateEnd = start.plusDays(1))
+
+      series.preProcess().data should be(List(1, 6))
+    }
+
+    "leave out values outside the range" in {
+      val series = SparseDateSeries(data = List(DateFloatValue(start.minusDays(1), 4), DateFloatValue(start, 1), DateFloatValue(start.plusDays(2), 2)),
+                                    dateStart = start,
+                                    dateEnd = start.plusDays(1))
+
+      series.preProcess().data should be(List(1, 0))
+    }
+
+    "bucket values per month" in {
+      val series = SparseDateSeries(data = List(DateFloatValue(start, 1), DateFloatValue(start.plusMonths(2), 3), DateFloatValue(start.plusMonths(2), 2)),
+                                    dateStart = start,
+                                    dateEnd = start.plusMonths(11),
+                                    period = DatePeriod.Month)
+
+      series.preProcess().data should be(List(1, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0, 0))
+    }
+
+    "bucket values per week" in {
+      val series = SparseDateSeries(data = List(DateFloatValue(start.plusWeeks(1), 1), DateFloatValue(start.plusWeeks(3), 2)),
+                                    dateStart = start,
+                                    dateEnd = start.plusWeeks(3),
+                                    period = DatePeriod.Week)
+
+      series.preProcess().data should be(List(0, 1, 0, 2))
+    }
+
+    "bucket values per quarter and year" in {
+      val data = List(DateFloatValue(start, 1), DateFloatValue(start.plusMonths(6), 2), DateFloatValue(start.plusYears(1), 3))
+
+      SparseDateSeries(data = data, dateStart = start, dateEnd = start.plusYears(1), period = DatePeriod.Quarter).preProcess().data should be(List(1, 0, 2, 0, 3))
+      SparseDateSeries(data = data, dateStart = start, dateEnd = start.plusYears(1), period = DatePeriod.Year).preProcess().data should be(List(1, 3))
+    }
+
+    "be empty when the range ends before it starts" in {
+      val series = SparseDateSeries(data = List(DateFloatValue(start, 1)), dateStart = start, dateEnd = start.minusDays(1))
+
+      series.preProcess().data should be(List())
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package net.rrm.ehour.ui.report.cache
+
+import net.rrm.ehour.AbstractSpec
+
+class OffHeapReportCacheSpec extends AbstractSpec {
+  var now = 0L
+
+  private def sizeOf(value: Serializable) = OffHeapReportCache.serialize(value).capacity()
+
+  private def value(i: Int) = s"report-$i".padTo(64, 'x')
+
+  override def beforeEach() {
+    now = 0L
+  }
+
+  "Off heap report cache" should {
+    "return a copy of the stored value" in {
+      val cache = new OffHeapReportCache(1024, 0, () => now)
+
+      cache.put("a", value(1)) should be(true)
+
+      cache.get("a") should be(Some(value(1)))
+      cache.statistics.hits should be(1)
+    }
+
+    "keep track of the used bytes" in {
+      val cache = new OffHeapReportCache(1024, 0, () => now)
+
+      cache.put("a", value(1))
+      cache.put("b", value(2))
+
+      val statistics = cache.statistics
+      statistics.entries should be(2)
+      statistics.usedBytes should be(sizeOf(value(1)) + sizeOf(value(2)))
+
+      cache.remove("a")
+      cache.statistics.usedBytes should be(sizeOf(value(2)))
+    }
+
+    "evict the least recently used entry when the byte limit is reached" in {
+      val cache = new OffHeapReportCache(sizeOf(value(1)) * 2, 0, () => now)
+
+      cache.put("a", value(1))
+      cache.put("b", value(2))
+      cache.get("a")
+      cache.put("c", value(3))
+
+      cache.get("b") should be(None)
+      cache.get("a") should be(Some(value(1)))
+      cache.get("c") should be(Some(value(3)))
+      cache.statistics.evictions should be(1)
+    }
+
+    "not count a replaced value twice" in {
+      val cache = new OffHeapReportCache(1024, 0, () => now)
+
+      cache.put("a", value(1))
+      cache.put("a", value(1))
+
+      cache.statistics.entries should be(1)
+      cache.statistics.usedBytes should be(sizeOf(value(1)))
+    }
+
+    "reject values larger than the cache" in {
+      val cache = new OffHeapReportCache(8, 0, () => now)
+
+      cache.put("a", value(1)) should be(false)
+
+      cache.get("a") should be(None)
+      cache.statistics.rejections should be(1)
+      cache.statistics.usedBytes should be(0)
+    }
+
+    "expire entries after their time to live" in {
+      val cache = new OffHeapReportCache(1024, 1000, () => now)
+
+      cache.put("a", value(1))
+      now = 999
+      cache.get("a") should be(Some(value(1)))
+
+      now = 1000
+      cache.get("a") should be(None)
+
+      val statistics = cache.statistics
+      statistics.expirations should be(1)
+      statistics.misses should be(1)
+      statistics.usedBytes should be(0)
+    }
+
+    "purge expired entries when storing" in {
+      val cache = new OffHeapReportCache(1024, 1000, () => now)
+
+      cache.put("a", value(1))
+      now = 2000
+      cache.put("b", value(2))
+
+      cache.statistics.entries should be(1)
+      cache.statistics.expirations should be(1)
+      cache.statistics.evictions should be(0)
+    }
+  }
+}
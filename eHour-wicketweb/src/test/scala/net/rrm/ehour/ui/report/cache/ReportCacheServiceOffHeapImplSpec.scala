@@ -0,0 +1,46 @@
+package net.rrm.ehour.ui.report.cache
+
+import net.rrm.ehour.AbstractSpec
+import net.rrm.ehour.report.reports.AggregateReportDataObjectMother
+
+class ReportCacheServiceOffHeapImplSpec extends AbstractSpec {
+  var cacheService: ReportCacheService = _
+
+  override def beforeEach() {
+    cacheService = new ReportCacheServiceOffHeapImpl(1024 * 1024, 3600)
+  }
+
+  "Report Cache Service" should {
+    "store report data" in {
+      val reportData = AggregateReportDataObjectMother.generateReportData
+
+      cacheService.storeReportData(reportData) should not be null
+    }
+
+    "retrieve previously stored data" in {
+      val reportData = AggregateReportDataObjectMother.generateReportData
+
+      val key = cacheService.storeReportData(reportData)
+
+      val retrievedData = cacheService.retrieveReportData(key).get
+
+      retrievedData.getReportElements.size() should be(reportData.getReportElements.size())
+      retrievedData.getReportRange should equal(reportData.getReportRange)
+    }
+
+    "not find data for an unknown key" in {
+      cacheService.retrieveReportData("unknown") should be(None)
+
+      cacheService.statistics.misses should be(1)
+    }
+
+    "return a key but not cache data larger than the cache" in {
+      cacheService = new ReportCacheServiceOffHeapImpl(16, 3600)
+
+      val key = cacheService.storeReportData(AggregateReportDataObjectMother.generateReportData)
+
+      cacheService.retrieveReportData(key) should be(None)
+      cacheService.statistics.rejections should be(1)
+    }
+  }
+}
@@ -140,6 +140,64 @@ class DetailedReportAggregatorSpec extends AbstractSpringWebAppSpec {
 
       aggregate.size should be(2)
     }
+
+    "by week: aggregate 2 bookings in the week spanning new year into 1 aggregated element" in {
+      val data = List(buildElement(1, new LocalDate(2014, 12, 31), 10), buildElement(1, new LocalDate(2015, 1, 2), 5))
+
+      val aggregate = DetailedReportAggregator.aggregate(data, new ByWeek())
+
+      aggregate.size should be(1)
+      aggregate.head.getTotalHours should be(15)
+    }
+
+    "by day: aggregate 2 bookings on 1 assignment on the same day into 1 aggregated element" in {
+      val data = List(buildElement(1, baseDate, 10), buildElement(1, baseDate, 5), buildElement(1, baseDate.plusDays(1), 5))
+
+      val aggregate = DetailedReportAggregator.aggregate(data, new ByDay())
+
+      aggregate.size should be(2)
+      aggregate.head.getTotalHours should be(15)
+    }
+
+    "keep the aggregated elements in order of their first booking" in {
+      val data = List(buildElement(2, baseDate, 1), buildElement(1, baseDate, 2), buildElement(2, baseDate.plusDays(1), 3))
+
+      val aggregate = DetailedReportAggregator.aggregate(data, new ByMonth())
+
+      aggregate.map(_.getAssignmentId.intValue()) should be(List(2, 1))
+      aggregate.map(_.getTotalHours.floatValue()) should be(List(4f, 2f))
+    }
+
+    "aggregate many assignments and periods" in {
+      val data = for (assignmentId <- (1 to 1000).toList; month <- 0 until 12; day <- List(0, 10)) yield buildElement(assignmentId, baseDate.plusMonths(month).plusDays(day), 1)
+
+      val aggregate = DetailedReportAggregator.aggregate(data, new ByMonth())
+
+      aggregate.size should be(12000)
+      aggregate.forall(_.getTotalHours.floatValue() == 2f) should be(true)
+    }
+
+    "collector: aggregate streamed bookings by month" in {
+      val collector = new DetailedReportCollector(new ByMonth())
+
+      collector.accept(buildElement(1, baseDate, 10))
+      collector.accept(buildElement(1, baseDate.plusWeeks(3), 5))
+      collector.accept(buildElement(2, baseDate, 10))
+
+      val aggregate = collector.getElements
+
+      aggregate.size should be(2)
+      aggregate.get(0).getTotalHours should be(15)
+    }
+
+    "collector: keep streamed bookings as they are without converter" in {
+      val collector = new DetailedReportCollector()
+
+      collector.accept(buildElement(1, baseDate, 10))
+      collector.accept(buildElement(1, baseDate.plusDays(1), 5))
+
+      collector.getElements.size should be(2)
+    }
   }
 
   def buildElement(assignmentId: Int, date: LocalDate, hours: Float) = {
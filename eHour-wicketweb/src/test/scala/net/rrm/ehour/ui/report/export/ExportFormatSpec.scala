@@ -0,0 +1,41 @@
+package net.rrm.ehour.ui.report.export
+
+import java.io.StringWriter
+
+import net.rrm.ehour.AbstractSpec
+import org.joda.time.LocalDate
+
+class ExportFormatSpec extends AbstractSpec {
+  private def write(format: ExportFormat, values: Any*): String = {
+    val out = new StringWriter()
+    val writer = format.createWriter(out)
+
+    writer.header(values.indices.map("c" + _))
+    writer.row(values)
+
+    out.toString
+  }
+
+  "Export Format" should {
+    "quote csv values holding the separator, quotes or line breaks" in {
+      write(ExportFormat.Csv, "plain", "a,b", "say \"hi\"", "two\nlines") should endWith("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\n")
+    }
+
+    "only quote tsv values holding tabs, not commas" in {
+      write(ExportFormat.Tsv, "a,b", "a\tb") should endWith("a,b\t\"a\tb\"\r\n")
+    }
+
+    "write dates as ISO days and numbers in plain notation" in {
+      write(ExportFormat.Csv, new LocalDate(2015, 3, 1).toDate, 12345678f, null) should endWith("2015-03-01,12345678,\r\n")
+    }
+
+    "write one json object per row keyed on the header" in {
+      write(ExportFormat.NdJson, "x\"y", 8.5f, true, null) should be("{\"c0\":\"x\\\"y\",\"c1\":8.5,\"c2\":true,\"c3\":null}\n")
+    }
+
+    "find formats case insensitive" in {
+      ExportFormat.forName("CSV") should be(Some(ExportFormat.Csv))
+      ExportFormat.forName("pdf") should be(None)
+    }
+  }
+}
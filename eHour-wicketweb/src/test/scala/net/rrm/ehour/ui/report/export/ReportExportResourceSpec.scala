@@ -0,0 +1,67 @@
+package net.rrm.ehour.ui.report.export
+
+import java.io.ByteArrayInputStream
+import java.util.zip.GZIPInputStream
+
+import net.rrm.ehour.AbstractSpringWebAppSpec
+import net.rrm.ehour.report.criteria.{ReportCriteria, ReportCriteriaUpdateType}
+import net.rrm.ehour.report.reports.element.{FlatReportElement, ReportElementSink}
+import net.rrm.ehour.report.service.{AggregateReportService, DetailedReportService, ReportCriteriaService}
+import net.rrm.ehour.ui.report.detailed.DetailedReportDataObjectMother
+import org.mockito.Matchers._
+import org.mockito.Mockito._
+
+import scala.io.Source
+
+class ReportExportResourceSpec extends AbstractSpringWebAppSpec {
+  "Report Export resource" should {
+    val detailedReportService = mockService[DetailedReportService]
+    val criteriaService = mockService[ReportCriteriaService]
+    mockService[AggregateReportService]
+
+    before {
+      reset(detailedReportService, criteriaService)
+
+      when(criteriaService.syncUserReportCriteria(any[ReportCriteria], any[ReportCriteriaUpdateType])).thenReturn(DetailedReportDataObjectMother.getReportCriteria)
+      when(detailedReportService.streamDetailedReportData(any[ReportCriteria], any[ReportElementSink[FlatReportElement]]))
+        .thenAnswer(DetailedReportDataObjectMother.streamFlatReportData())
+    }
+
+    "write the detailed report as csv with a header row" in {
+      tester.executeUrl("./rest/report/export/detailed/csv")
+
+      val lines = tester.getLastResponseAsString.split("\r\n")
+
+      lines.head should startWith("date,customerCode,customerName")
+      lines.tail should have size DetailedReportDataObjectMother.getFlatReportElements.size
+      lines(1) should include("AA,A Company")
+      tester.getLastResponse.getContentType should startWith("text/csv")
+    }
+
+    "write the detailed report as one json object per line" in {
+      tester.executeUrl("./rest/report/export/detailed/ndjson")
+
+      val lines = tester.getLastResponseAsString.split("\n")
+
+      lines should have size DetailedReportDataObjectMother.getFlatReportElements.size
+      lines(0) should include("\"customerCode\":\"AA\"")
+    }
+
+    "gzip the export when the client accepts it" in {
+      tester.getRequest.addHeader("Accept-Encoding", "gzip, deflate")
+      tester.executeUrl("./rest/report/export/detailed/tsv")
+
+      tester.getLastResponse.getHeader("Content-Encoding") should be("gzip")
+
+      val unzipped = Source.fromInputStream(new GZIPInputStream(new ByteArrayInputStream(tester.getLastResponse.getBinaryContent)), "UTF-8").mkString
+
+      unzipped should startWith("date\tcustomerCode\tcustomerName")
+    }
+
+    "not find an unknown format" in {
+      tester.executeUrl("./rest/report/export/detailed/pdf")
+
+      tester.getLastResponse.getStatus should be(404)
+    }
+  }
+}